@@ -24,6 +24,8 @@ import org.sonar.server.computation.monitoring.CEQueueStatusImpl;
 import org.sonar.server.computation.monitoring.CeTasksMBeanImpl;
 import org.sonar.server.computation.queue.CeQueueCleaner;
 import org.sonar.server.computation.queue.CeQueueInitializer;
+import org.sonar.server.computation.queue.CeQueueSignal;
+import org.sonar.server.computation.queue.CeQueueSubmissionWatcher;
 import org.sonar.server.computation.queue.InternalCeQueueImpl;
 
 public class CeQueueModule extends Module {
@@ -32,6 +34,8 @@ public class CeQueueModule extends Module {
     add(
       // queue state
       InternalCeQueueImpl.class,
+      CeQueueSignal.class,
+      CeQueueSubmissionWatcher.class,
 
       // queue monitoring
       CEQueueStatusImpl.class,
@@ -19,6 +19,8 @@
  */
 package org.sonar.ce.monitoring;
 
+import org.sonar.ce.queue.CeQueueLane;
+
 public interface CEQueueStatus {
 
   /**
@@ -61,6 +63,41 @@ public interface CEQueueStatus {
    */
   long addError(long processingTime);
 
+  /**
+   * Adds 1 to the count of polls of the queue by workers.
+   *
+   * @return the new count of polls
+   *
+   * @see #getPollCount()
+   */
+  long addPoll();
+
+  /**
+   * Adds the specified time to the pickup latency counter.
+   *
+   * @param pickupLatency time in ms a batch report waited in queue before being picked by a worker
+   *
+   * @return the new value of the pickup latency counter
+   *
+   * @see #getPickupLatency()
+   *
+   * @throws IllegalArgumentException if pickupLatency is < 0
+   */
+  long addPickupLatency(long pickupLatency);
+
+  /**
+   * Same as {@link #addPickupLatency(long)}, and also adds 1 to the count of batch reports picked from the specified
+   * lane and the specified time to the pickup latency counter of the lane.
+   *
+   * @return the new value of the pickup latency counter
+   *
+   * @see #getPickupCount(CeQueueLane)
+   * @see #getPickupLatency(CeQueueLane)
+   *
+   * @throws IllegalArgumentException if pickupLatency is < 0
+   */
+  long addPickupLatency(CeQueueLane lane, long pickupLatency);
+
   /**
    * Count of batch reports waiting for processing since startup, including reports received before instance startup.
    */
@@ -85,4 +122,29 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Count of polls of the queue by workers since startup, including the ones which did not return any batch report.
+   */
+  long getPollCount();
+
+  /**
+   * Time waited in queue by batch reports before being picked by a worker since startup, in milliseconds.
+   */
+  long getPickupLatency();
+
+  /**
+   * Count of batch reports of the specified lane waiting for processing.
+   */
+  long getPendingCount(CeQueueLane lane);
+
+  /**
+   * Count of batch reports picked from the specified lane by a worker since startup.
+   */
+  long getPickupCount(CeQueueLane lane);
+
+  /**
+   * Time waited in the specified lane by batch reports before being picked by a worker since startup, in milliseconds.
+   */
+  long getPickupLatency(CeQueueLane lane);
 }
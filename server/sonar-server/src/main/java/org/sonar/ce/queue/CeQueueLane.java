@@ -0,0 +1,65 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+/**
+ * Lanes of the queue. Pending tasks of a lane are processed before the ones of lanes of lower priority, whatever
+ * their submission date.
+ */
+public enum CeQueueLane {
+  /**
+   * Tasks whose results are waited for by users
+   */
+  INTERACTIVE(10),
+
+  NORMAL(0),
+
+  /**
+   * Tasks which can be delayed, for example nightly analyses
+   */
+  BATCH(-10);
+
+  private final int priority;
+
+  CeQueueLane(int priority) {
+    this.priority = priority;
+  }
+
+  /**
+   * Value of column CE_QUEUE.PRIORITY
+   */
+  public int getPriority() {
+    return priority;
+  }
+
+  /**
+   * Lane of the tasks of the specified priority. Priorities which do not match a lane are associated to the
+   * lane of nearest priority.
+   */
+  public static CeQueueLane fromPriority(int priority) {
+    CeQueueLane nearest = NORMAL;
+    for (CeQueueLane lane : values()) {
+      if (Math.abs(lane.priority - priority) < Math.abs(nearest.priority - priority)) {
+        nearest = lane;
+      }
+    }
+    return nearest;
+  }
+}
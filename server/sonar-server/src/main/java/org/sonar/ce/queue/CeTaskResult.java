@@ -33,4 +33,11 @@ public interface CeTaskResult {
    * The UUID of the analysis created, if any, for the Component in {@link CeTask}
    */
   Optional<String> getAnalysisUuid();
+
+  /**
+   * Start and duration of the steps of the processing, as JSON, if available
+   */
+  default Optional<String> getStepTimings() {
+    return Optional.empty();
+  }
 }
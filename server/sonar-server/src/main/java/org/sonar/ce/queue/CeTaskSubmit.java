@@ -33,12 +33,14 @@ public final class CeTaskSubmit {
   private final String type;
   private final String componentUuid;
   private final String submitterLogin;
+  private final CeQueueLane lane;
 
   private CeTaskSubmit(Builder builder) {
     this.uuid = Objects.requireNonNull(emptyToNull(builder.uuid));
     this.type = Objects.requireNonNull(emptyToNull(builder.type));
     this.componentUuid = emptyToNull(builder.componentUuid);
     this.submitterLogin = emptyToNull(builder.submitterLogin);
+    this.lane = Objects.requireNonNull(builder.lane);
   }
 
   public String getType() {
@@ -59,11 +61,16 @@ public final class CeTaskSubmit {
     return submitterLogin;
   }
 
+  public CeQueueLane getLane() {
+    return lane;
+  }
+
   public static final class Builder {
     private final String uuid;
     private String type;
     private String componentUuid;
     private String submitterLogin;
+    private CeQueueLane lane = CeQueueLane.NORMAL;
 
     public Builder(String uuid) {
       this.uuid = uuid;
@@ -88,6 +95,14 @@ public final class CeTaskSubmit {
       return this;
     }
 
+    /**
+     * Default lane is {@link CeQueueLane#NORMAL}
+     */
+    public Builder setLane(CeQueueLane lane) {
+      this.lane = lane;
+      return this;
+    }
+
     public CeTaskSubmit build() {
       return new CeTaskSubmit(this);
     }
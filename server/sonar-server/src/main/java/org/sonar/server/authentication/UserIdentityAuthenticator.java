@@ -39,6 +39,7 @@ import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
 import org.sonar.server.organization.DefaultOrganization;
 import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.ExternalIdentity;
 import org.sonar.server.user.NewUser;
 import org.sonar.server.user.UpdateUser;
@@ -55,11 +56,14 @@ public class UserIdentityAuthenticator {
   private final DbClient dbClient;
   private final UserUpdater userUpdater;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final AuthorizationCache authorizationCache;
 
-  public UserIdentityAuthenticator(DbClient dbClient, UserUpdater userUpdater, DefaultOrganizationProvider defaultOrganizationProvider) {
+  public UserIdentityAuthenticator(DbClient dbClient, UserUpdater userUpdater, DefaultOrganizationProvider defaultOrganizationProvider,
+    AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.userUpdater = userUpdater;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.authorizationCache = authorizationCache;
   }
 
   public UserDto authenticate(UserIdentity user, IdentityProvider provider) {
@@ -132,6 +136,9 @@ public class UserIdentityAuthenticator {
       removeGroups(dbSession, userDto, groupsToRemove, groupsByName);
 
       dbSession.commit();
+      if (!allGroups.isEmpty()) {
+        authorizationCache.invalidate(userDto.getId());
+      }
     }
   }
 
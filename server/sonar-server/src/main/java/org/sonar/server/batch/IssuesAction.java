@@ -21,9 +21,12 @@ package org.sonar.server.batch;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
@@ -40,12 +43,15 @@ import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.MediaTypes;
 
 import static com.google.common.collect.Maps.newHashMap;
+import static org.sonar.core.util.stream.Collectors.toList;
 import static org.sonar.api.web.UserRole.USER;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 
 public class IssuesAction implements BatchWsAction {
 
   private static final String PARAM_KEY = "key";
+  static final String PARAM_FILES = "files";
+  static final String PARAM_CHANGED_SINCE = "changedSince";
 
   private final DbClient dbClient;
   private final IssueIndex issueIndex;
@@ -73,6 +79,20 @@ public class IssuesAction implements BatchWsAction {
       .setRequired(true)
       .setDescription("Project, module or file key")
       .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+
+    action
+      .createParam(PARAM_FILES)
+      .setDescription("Key of file. The parameter is repeated for each file, as file keys may contain commas. " +
+        "If set, only the issues of these files and the issues which are not on a file are returned")
+      .setExampleValue(KEY_PROJECT_EXAMPLE_001 + ":src/foo/Bar.java")
+      .setSince("6.2");
+
+    action
+      .createParam(PARAM_CHANGED_SINCE)
+      .setDescription("If set, only the issues updated since this date are returned, including closed issues. " +
+        "Either a date (server timezone) or datetime can be provided")
+      .setExampleValue("2016-10-19 or 2016-10-19T13:00:00+0200")
+      .setSince("6.2");
   }
 
   @Override
@@ -85,9 +105,11 @@ public class IssuesAction implements BatchWsAction {
     try {
       ComponentDto component = componentFinder.getByKey(session, componentKey);
       Map<String, String> keysByUUid = keysByUUid(session, component);
+      List<String> fileUuids = fileUuids(session, request.hasParam(PARAM_FILES) ? request.multiParam(PARAM_FILES) : null);
+      Date changedSince = request.paramAsDateTime(PARAM_CHANGED_SINCE);
 
       ScannerInput.ServerIssue.Builder issueBuilder = ScannerInput.ServerIssue.newBuilder();
-      for (Iterator<IssueDoc> issueDocIterator = issueIndex.selectIssuesForBatch(component); issueDocIterator.hasNext();) {
+      for (Iterator<IssueDoc> issueDocIterator = issueIndex.selectIssuesForBatch(component, fileUuids, changedSince); issueDocIterator.hasNext();) {
         handleIssue(issueDocIterator.next(), issueBuilder, keysByUUid, response.stream().output());
       }
     } finally {
@@ -136,6 +158,19 @@ public class IssuesAction implements BatchWsAction {
     issueBuilder.clear();
   }
 
+  @CheckForNull
+  private List<String> fileUuids(DbSession session, @Nullable List<String> fileKeys) {
+    if (fileKeys == null) {
+      return null;
+    }
+    List<String> nonEmptyFileKeys = fileKeys.stream()
+      .filter(key -> !key.isEmpty())
+      .collect(toList());
+    return dbClient.componentDao().selectByKeys(session, nonEmptyFileKeys).stream()
+      .map(ComponentDto::uuid)
+      .collect(toList());
+  }
+
   private Map<String, String> keysByUUid(DbSession session, ComponentDto component) {
     Map<String, String> keysByUUid = newHashMap();
     if (Scopes.PROJECT.equals(component.scope())) {
@@ -19,18 +19,25 @@
  */
 package org.sonar.server.batch;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
+import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.WsBatch.WsProjectResponse;
 import org.sonarqube.ws.WsBatch.WsProjectResponse.FileData.Builder;
 
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+import static org.sonar.server.ws.WsUtils.checkRequest;
 import static org.sonar.server.ws.WsUtils.writeProtobuf;
 
 public class ProjectAction implements BatchWsAction {
@@ -38,6 +45,9 @@ public class ProjectAction implements BatchWsAction {
   private static final String PARAM_KEY = "key";
   private static final String PARAM_PROFILE = "profile";
   private static final String PARAM_ISSUES_MODE = "issues_mode";
+  private static final String PARAM_VERSION = "version";
+  private static final String PARAM_STREAMING = "streaming";
+  private static final int STREAMED_FILES_PER_MESSAGE = 1_000;
 
   private final ProjectDataLoader projectDataLoader;
 
@@ -70,23 +80,64 @@ public class ProjectAction implements BatchWsAction {
       .setDescription("Issues mode or not")
       .setDefaultValue(false)
       .setBooleanPossibleValues();
+
+    action
+      .createParam(PARAM_VERSION)
+      .setDescription("Version of project data returned by a previous call. If data did not change since then, " +
+        "response is empty with HTTP status 304.")
+      .setSince("6.2");
+
+    action
+      .createParam(PARAM_STREAMING)
+      .setDescription("Stream file data. Response is a sequence of delimited messages, each one holding a part of file data, " +
+        "followed by a message holding the other fields. Only supported with protobuf format.")
+      .setDefaultValue(false)
+      .setBooleanPossibleValues()
+      .setSince("6.2");
   }
 
   @Override
   public void handle(Request wsRequest, Response wsResponse) throws Exception {
-    ProjectRepositories data = projectDataLoader.load(ProjectDataQuery.create()
+    ProjectDataQuery query = ProjectDataQuery.create()
       .setModuleKey(wsRequest.mandatoryParam(PARAM_KEY))
       .setProfileName(wsRequest.param(PARAM_PROFILE))
-      .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE)));
+      .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE))
+      .setVersion(wsRequest.param(PARAM_VERSION));
+
+    if (wsRequest.mandatoryParamAsBoolean(PARAM_STREAMING)) {
+      checkRequest(MediaTypes.PROTOBUF.equals(wsRequest.getMediaType()), "Streaming is only supported with protobuf format");
+      stream(query, wsResponse);
+      return;
+    }
 
-    WsProjectResponse projectResponse = buildResponse(data);
+    ProjectRepositories data = new ProjectRepositories();
+    String version = projectDataLoader.load(query, data, data::addFileData);
+    if (version.equals(query.getVersion())) {
+      wsResponse.stream().setStatus(HTTP_NOT_MODIFIED).output().close();
+      return;
+    }
+    WsProjectResponse projectResponse = buildResponse(data, version);
     writeProtobuf(projectResponse, wsRequest, wsResponse);
   }
 
-  private static WsProjectResponse buildResponse(ProjectRepositories data) {
+  private void stream(ProjectDataQuery query, Response wsResponse) throws IOException {
+    ProjectRepositories data = new ProjectRepositories();
+    try (FileDataStreamer streamer = new FileDataStreamer(wsResponse)) {
+      String version = projectDataLoader.load(query, data, streamer);
+      if (version.equals(query.getVersion())) {
+        wsResponse.stream().setStatus(HTTP_NOT_MODIFIED).output().close();
+        return;
+      }
+      streamer.flush();
+      buildResponse(data, version).writeDelimitedTo(streamer.output());
+    }
+  }
+
+  private static WsProjectResponse buildResponse(ProjectRepositories data, String version) {
     WsProjectResponse.Builder response = WsProjectResponse.newBuilder();
     setLastAnalysisDate(response, data);
     response.setTimestamp(data.timestamp());
+    response.setVersion(version);
     response.getMutableFileDataByModuleAndPath()
       .putAll(buildFileDataByModuleAndPath(data));
     response.getMutableSettingsByModule()
@@ -159,4 +210,58 @@ public class ProjectAction implements BatchWsAction {
 
     return fileDataBuilder.build();
   }
+
+  /**
+   * Writes file data by messages of at most {@link #STREAMED_FILES_PER_MESSAGE} files. Nothing is written to
+   * response until file data is received.
+   */
+  private static class FileDataStreamer implements ProjectDataLoader.FileDataHandler, Closeable {
+    private final Response wsResponse;
+    private ProjectRepositories buffer = new ProjectRepositories();
+    private int bufferSize = 0;
+    private OutputStream output;
+
+    private FileDataStreamer(Response wsResponse) {
+      this.wsResponse = wsResponse;
+    }
+
+    @Override
+    public void handle(String moduleKey, @Nullable String path, FileData fileData) {
+      buffer.addFileData(moduleKey, path, fileData);
+      bufferSize++;
+      if (bufferSize >= STREAMED_FILES_PER_MESSAGE) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      if (bufferSize == 0) {
+        return;
+      }
+      WsProjectResponse.Builder message = WsProjectResponse.newBuilder();
+      message.getMutableFileDataByModuleAndPath().putAll(buildFileDataByModuleAndPath(buffer));
+      try {
+        message.build().writeDelimitedTo(output());
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to stream file data", e);
+      }
+      buffer = new ProjectRepositories();
+      bufferSize = 0;
+    }
+
+    private OutputStream output() {
+      if (output == null) {
+        wsResponse.stream().setMediaType(MediaTypes.PROTOBUF);
+        output = wsResponse.stream().output();
+      }
+      return output;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (output != null) {
+        output.close();
+      }
+    }
+  }
 }
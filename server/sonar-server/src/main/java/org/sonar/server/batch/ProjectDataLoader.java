@@ -26,14 +26,19 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ServerSide;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.db.MyBatis;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.FilePathWithHashDto;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
@@ -60,9 +65,19 @@ public class ProjectDataLoader {
   }
 
   public ProjectRepositories load(ProjectDataQuery query) {
-    DbSession session = dbClient.openSession(false);
-    try {
-      ProjectRepositories data = new ProjectRepositories();
+    ProjectRepositories data = new ProjectRepositories();
+    load(query, data, data::addFileData);
+    return data;
+  }
+
+  /**
+   * Loads settings into {@code data} and returns the version of project data. Version changes when the project is
+   * analyzed or when settings of its modules change. If it's not the version already known by the scanner
+   * ({@link ProjectDataQuery#getVersion()}), file data is given to {@code fileDataHandler} as it's read from
+   * database, so that it's never entirely loaded in memory. Otherwise file data is not read at all.
+   */
+  public String load(ProjectDataQuery query, ProjectRepositories data, FileDataHandler fileDataHandler) {
+    try (DbSession session = dbClient.openSession(false)) {
       ComponentDto module = checkFoundWithOptional(dbClient.componentDao().selectByKey(session, query.getModuleKey()),
         "Project or module with key '%s' is not found", query.getModuleKey());
       if (!isProjectOrModule(module)) {
@@ -86,16 +101,16 @@ public class ProjectDataLoader {
       TreeModuleSettings treeModuleSettings = new TreeModuleSettings(moduleUuidsByKey, moduleIdsByKey, modulesTree, modulesTreeSettings);
 
       addSettingsToChildrenModules(data, query.getModuleKey(), Maps.<String, String>newHashMap(), treeModuleSettings, hasScanPerm);
-      List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, module);
-      addFileData(data, modulesTree, files);
 
       // FIXME need real value but actually only used to know if there is a previous analysis in local issue tracking mode so any value is
       // ok
       data.setLastAnalysisDate(new Date());
 
-      return data;
-    } finally {
-      MyBatis.closeQuietly(session);
+      String version = computeVersion(session, project, moduleUuidsByKey, data);
+      if (!version.equals(query.getVersion())) {
+        addFileData(session, module, modulesTree, fileDataHandler);
+      }
+      return version;
     }
   }
 
@@ -106,9 +121,15 @@ public class ProjectDataLoader {
     return Qualifiers.PROJECT.equals(module.qualifier()) || Qualifiers.MODULE.equals(module.qualifier());
   }
 
-  private List<FilePathWithHashDto> searchFilesWithHashAndRevision(DbSession session, ComponentDto module) {
-    return module.isRootProject() ? dbClient.componentDao().selectEnabledFilesFromProject(session, module.uuid())
-      : dbClient.componentDao().selectEnabledDescendantFiles(session, module.uuid());
+  private String computeVersion(DbSession session, ComponentDto project, Map<String, String> moduleUuidsByKey, ProjectRepositories data) {
+    StringBuilder version = new StringBuilder();
+    Optional<SnapshotDto> lastAnalysis = dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(session, project.uuid());
+    version.append(lastAnalysis.map(SnapshotDto::getUuid).orElse("")).append('\n');
+    version.append(new TreeMap<>(moduleUuidsByKey)).append('\n');
+    for (Map.Entry<String, Map<String, String>> moduleSettings : new TreeMap<>(data.settings()).entrySet()) {
+      version.append(moduleSettings.getKey()).append(new TreeMap<>(moduleSettings.getValue())).append('\n');
+    }
+    return DigestUtils.sha1Hex(version.toString());
   }
 
   private ComponentDto getProject(ComponentDto module, DbSession session) {
@@ -177,15 +198,21 @@ public class ProjectDataLoader {
     return !key.contains(".secured") || hasScanPerm;
   }
 
-  private static void addFileData(ProjectRepositories data, List<ComponentDto> moduleChildren, List<FilePathWithHashDto> files) {
+  private void addFileData(DbSession session, ComponentDto module, List<ComponentDto> moduleChildren, FileDataHandler fileDataHandler) {
     Map<String, String> moduleKeysByUuid = newHashMap();
-    for (ComponentDto module : moduleChildren) {
-      moduleKeysByUuid.put(module.uuid(), module.key());
+    for (ComponentDto moduleChild : moduleChildren) {
+      moduleKeysByUuid.put(moduleChild.uuid(), moduleChild.key());
     }
 
-    for (FilePathWithHashDto file : files) {
+    ResultHandler resultHandler = context -> {
+      FilePathWithHashDto file = (FilePathWithHashDto) context.getResultObject();
       FileData fileData = new FileData(file.getSrcHash(), file.getRevision());
-      data.addFileData(moduleKeysByUuid.get(file.getModuleUuid()), file.getPath(), fileData);
+      fileDataHandler.handle(moduleKeysByUuid.get(file.getModuleUuid()), file.getPath(), fileData);
+    };
+    if (module.isRootProject()) {
+      dbClient.componentDao().scrollEnabledFilesFromProject(session, module.uuid(), resultHandler);
+    } else {
+      dbClient.componentDao().scrollEnabledDescendantFiles(session, module.uuid(), resultHandler);
     }
   }
 
@@ -218,6 +245,11 @@ public class ProjectDataLoader {
     return moduleIdsByKey;
   }
 
+  @FunctionalInterface
+  public interface FileDataHandler {
+    void handle(String moduleKey, @Nullable String path, FileData fileData);
+  }
+
   private static class TreeModuleSettings {
 
     private Map<String, Long> moduleIdsByKey;
@@ -27,6 +27,7 @@ public class ProjectDataQuery {
   private String projectOrModuleKey;
   private String profileName;
   private boolean issuesMode;
+  private String version;
 
   private ProjectDataQuery() {
     // No direct call
@@ -60,6 +61,19 @@ public class ProjectDataQuery {
     return this;
   }
 
+  /**
+   * Version of project data already known by the scanner, if any.
+   */
+  @CheckForNull
+  public String getVersion() {
+    return version;
+  }
+
+  public ProjectDataQuery setVersion(@Nullable String version) {
+    this.version = version;
+    return this;
+  }
+
   public static ProjectDataQuery create() {
     return new ProjectDataQuery();
   }
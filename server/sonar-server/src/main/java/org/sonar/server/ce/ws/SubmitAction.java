@@ -25,6 +25,7 @@ import org.apache.commons.lang.StringUtils;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.server.computation.queue.ReportSubmitter;
 import org.sonar.server.ws.WsUtils;
@@ -36,6 +37,7 @@ public class SubmitAction implements CeWsAction {
   public static final String PARAM_PROJECT_BRANCH = "projectBranch";
   public static final String PARAM_PROJECT_NAME = "projectName";
   public static final String PARAM_REPORT_DATA = "report";
+  public static final String PARAM_LANE = "lane";
 
   private final ReportSubmitter reportSubmitter;
 
@@ -75,6 +77,14 @@ public class SubmitAction implements CeWsAction {
       .createParam(PARAM_REPORT_DATA)
       .setRequired(true)
       .setDescription("Report file. Format is not an API, it changes among SonarQube versions.");
+
+    action
+      .createParam(PARAM_LANE)
+      .setDescription("Lane of the queue. Reports of lane %s are processed first, then reports of lane %s, then reports of lane %s.",
+        CeQueueLane.INTERACTIVE, CeQueueLane.NORMAL, CeQueueLane.BATCH)
+      .setPossibleValues(CeQueueLane.values())
+      .setDefaultValue(CeQueueLane.NORMAL)
+      .setSince("6.2");
   }
 
   @Override
@@ -82,10 +92,11 @@ public class SubmitAction implements CeWsAction {
     String projectKey = wsRequest.mandatoryParam(PARAM_PROJECT_KEY);
     String projectBranch = wsRequest.param(PARAM_PROJECT_BRANCH);
     String projectName = StringUtils.defaultIfBlank(wsRequest.param(PARAM_PROJECT_NAME), projectKey);
+    CeQueueLane lane = CeQueueLane.valueOf(wsRequest.mandatoryParam(PARAM_LANE));
 
     CeTask task;
     try (InputStream report = new BufferedInputStream(wsRequest.paramAsInputStream(PARAM_REPORT_DATA))) {
-      task = reportSubmitter.submit(projectKey, projectBranch, projectName, report);
+      task = reportSubmitter.submit(projectKey, projectBranch, projectName, lane, report);
     }
 
     WsCe.SubmitResponse submitResponse = WsCe.SubmitResponse.newBuilder()
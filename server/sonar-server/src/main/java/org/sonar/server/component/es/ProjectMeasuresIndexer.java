@@ -68,6 +68,9 @@ public class ProjectMeasuresIndexer extends BaseIndexer {
 
   private long doIndex(BulkIndexer bulk, long lastUpdatedAt, @Nullable String projectUuid) {
     try (DbSession dbSession = dbClient.openSession(false)) {
+      if (lastUpdatedAt == 0L && projectUuid == null) {
+        bulk.setExpectedCount(ProjectMeasuresResultSetIterator.countAll(dbClient, dbSession));
+      }
       ProjectMeasuresResultSetIterator rowIt = ProjectMeasuresResultSetIterator.create(dbClient, dbSession, lastUpdatedAt, projectUuid);
       long maxDate = doIndex(bulk, rowIt);
       rowIt.close();
@@ -50,6 +50,9 @@ public class ProjectMeasuresResultSetIterator extends ResultSetIterator<ProjectM
     "LEFT OUTER JOIN snapshots s ON s.component_uuid=p.uuid AND s.islast=? " +
     "WHERE p.enabled=? AND p.scope=? AND p.qualifier=?";
 
+  private static final String SQL_COUNT_PROJECTS = "SELECT count(1) FROM projects p " +
+    "WHERE p.enabled=? AND p.scope=? AND p.qualifier=?";
+
   private static final String DATE_FILTER = " AND s.created_at>?";
 
   private static final String PROJECT_FILTER = " AND p.uuid=?";
@@ -83,6 +86,19 @@ public class ProjectMeasuresResultSetIterator extends ResultSetIterator<ProjectM
     }
   }
 
+  static long countAll(DbClient dbClient, DbSession session) {
+    try (PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, SQL_COUNT_PROJECTS)) {
+      stmt.setBoolean(1, true);
+      stmt.setString(2, Scopes.PROJECT);
+      stmt.setString(3, Qualifiers.PROJECT);
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next() ? rs.getLong(1) : 0L;
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to count projects", e);
+    }
+  }
+
   private static PreparedStatement createProjectsStatement(DbClient dbClient, DbSession session, long afterDate, @Nullable String projectUuid) {
     try {
       String sql = SQL_PROJECTS;
@@ -28,7 +28,30 @@ public interface CeConfiguration {
 
   /**
    * The delay in milliseconds before calling another {@link org.sonar.server.computation.taskprocessor.CeWorkerCallable}
-   * when previous one had nothing to do.
+   * when previous one had nothing to do, while the previous ones did.
    */
   long getQueuePollingDelay();
+
+  /**
+   * The maximum delay in milliseconds before calling another {@link org.sonar.server.computation.taskprocessor.CeWorkerCallable}
+   * when previous ones had nothing to do. The delay doubles after each call which had nothing to do, from
+   * {@link #getQueuePollingDelay()} up to this value.
+   */
+  long getQueuePollingMaxDelay();
+
+  /**
+   * The number of threads used to visit the files of a project concurrently. Files are visited concurrently only when
+   * this value is greater than 1 and all the visitors of files are thread-safe.
+   *
+   * @see org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor#isThreadSafe()
+   */
+  int getVisitorsParallelism();
+
+  /**
+   * The number of threads used to execute concurrently the steps of a task which do not depend on each other.
+   * Steps are executed sequentially when this value is 1.
+   *
+   * @see org.sonar.server.computation.task.step.ConcurrentComputationStep
+   */
+  int getStepsParallelism();
 }
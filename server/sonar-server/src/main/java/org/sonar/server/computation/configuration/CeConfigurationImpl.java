@@ -30,48 +30,106 @@ import static java.lang.String.format;
 
 /**
  * Immutable implementation of {@link CeConfiguration} which takes value returned by
- * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY} and
- * always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when {@link CeConfiguration#getQueuePollingDelay()} is called.
+ * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY},
+ * value returned by {@link CeConfiguration#getQueuePollingMaxDelay()} from property
+ * {@link CeConfigurationImpl#CE_QUEUE_POLLING_MAX_DELAY_PROPERTY} and always returns {@link #DEFAULT_QUEUE_POLLING_DELAY}
+ * when {@link CeConfiguration#getQueuePollingDelay()} is called. Value returned by
+ * {@link CeConfiguration#getVisitorsParallelism()} is taken from property {@link CeConfigurationImpl#CE_VISITORS_PARALLELISM_PROPERTY}
+ * and value returned by {@link CeConfiguration#getStepsParallelism()} from property {@link CeConfigurationImpl#CE_STEPS_PARALLELISM_PROPERTY}.
  */
 public class CeConfigurationImpl implements CeConfiguration, Startable {
   public static final String CE_WORKERS_COUNT_PROPERTY = "sonar.ce.workerCount";
+  public static final String CE_QUEUE_POLLING_MAX_DELAY_PROPERTY = "sonar.ce.queuePollingMaxDelay";
+  public static final String CE_VISITORS_PARALLELISM_PROPERTY = "sonar.ce.visitorsParallelism";
+  public static final String CE_STEPS_PARALLELISM_PROPERTY = "sonar.ce.stepsParallelism";
 
   private static final Logger LOG = Loggers.get(CeConfigurationImpl.class);
 
   @VisibleForTesting
   protected static final int DEFAULT_WORKER_COUNT = 1;
+  // 0.5 second
+  @VisibleForTesting
+  protected static final long DEFAULT_QUEUE_POLLING_DELAY = 500L;
   // 2 seconds
   @VisibleForTesting
-  protected static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
+  protected static final long DEFAULT_QUEUE_POLLING_MAX_DELAY = 2 * 1000L;
+  // files are visited sequentially
+  @VisibleForTesting
+  protected static final int DEFAULT_VISITORS_PARALLELISM = 1;
+  // steps are executed sequentially
+  @VisibleForTesting
+  protected static final int DEFAULT_STEPS_PARALLELISM = 1;
 
   private final int workerCount;
+  private final long queuePollingMaxDelay;
+  private final int visitorsParallelism;
+  private final int stepsParallelism;
 
   public CeConfigurationImpl(Settings settings) {
     String workerCountAsStr = settings.getString(CE_WORKERS_COUNT_PROPERTY);
     if (workerCountAsStr == null || workerCountAsStr.isEmpty()) {
       this.workerCount = DEFAULT_WORKER_COUNT;
     } else {
-      this.workerCount = parseStringValue(workerCountAsStr);
+      this.workerCount = parseStringValue(workerCountAsStr, CE_WORKERS_COUNT_PROPERTY);
+    }
+    String maxDelayAsStr = settings.getString(CE_QUEUE_POLLING_MAX_DELAY_PROPERTY);
+    if (maxDelayAsStr == null || maxDelayAsStr.isEmpty()) {
+      this.queuePollingMaxDelay = DEFAULT_QUEUE_POLLING_MAX_DELAY;
+    } else {
+      this.queuePollingMaxDelay = parseMaxDelay(maxDelayAsStr);
+    }
+    String parallelismAsStr = settings.getString(CE_VISITORS_PARALLELISM_PROPERTY);
+    if (parallelismAsStr == null || parallelismAsStr.isEmpty()) {
+      this.visitorsParallelism = DEFAULT_VISITORS_PARALLELISM;
+    } else {
+      this.visitorsParallelism = parseStringValue(parallelismAsStr, CE_VISITORS_PARALLELISM_PROPERTY);
+    }
+    String stepsParallelismAsStr = settings.getString(CE_STEPS_PARALLELISM_PROPERTY);
+    if (stepsParallelismAsStr == null || stepsParallelismAsStr.isEmpty()) {
+      this.stepsParallelism = DEFAULT_STEPS_PARALLELISM;
+    } else {
+      this.stepsParallelism = parseStringValue(stepsParallelismAsStr, CE_STEPS_PARALLELISM_PROPERTY);
     }
   }
 
-  private static int parseStringValue(String workerCountAsStr) {
+  private static int parseStringValue(String valueAsStr, String property) {
     try {
-      int value = Integer.parseInt(workerCountAsStr);
+      int value = Integer.parseInt(valueAsStr);
       if (value < 1) {
-        throw parsingError(workerCountAsStr);
+        throw parsingError(valueAsStr, property);
       }
       return value;
     } catch (NumberFormatException e) {
-      throw parsingError(workerCountAsStr);
+      throw parsingError(valueAsStr, property);
     }
   }
 
-  private static MessageException parsingError(String workerCountAsStr) {
+  private static MessageException parsingError(String valueAsStr, String property) {
     return MessageException.of(format(
       "value '%s' of property %s is invalid. It must an integer strictly greater than 0.",
-      workerCountAsStr,
-      CE_WORKERS_COUNT_PROPERTY)
+      valueAsStr,
+      property)
+      );
+  }
+
+  private static long parseMaxDelay(String maxDelayAsStr) {
+    try {
+      long value = Long.parseLong(maxDelayAsStr);
+      if (value < DEFAULT_QUEUE_POLLING_DELAY) {
+        throw maxDelayParsingError(maxDelayAsStr);
+      }
+      return value;
+    } catch (NumberFormatException e) {
+      throw maxDelayParsingError(maxDelayAsStr);
+    }
+  }
+
+  private static MessageException maxDelayParsingError(String maxDelayAsStr) {
+    return MessageException.of(format(
+      "value '%s' of property %s is invalid. It must a number of milliseconds greater than or equal to %d.",
+      maxDelayAsStr,
+      CE_QUEUE_POLLING_MAX_DELAY_PROPERTY,
+      DEFAULT_QUEUE_POLLING_DELAY)
       );
   }
 
@@ -80,6 +138,12 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     if (this.workerCount > 1) {
       LOG.info("Compute Engine will use {} concurrent workers to process tasks", this.workerCount);
     }
+    if (this.visitorsParallelism > 1) {
+      LOG.info("Compute Engine will use up to {} threads to visit files of projects", this.visitorsParallelism);
+    }
+    if (this.stepsParallelism > 1) {
+      LOG.info("Compute Engine will use up to {} threads to execute independent steps of tasks", this.stepsParallelism);
+    }
   }
 
   @Override
@@ -96,4 +160,19 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   public long getQueuePollingDelay() {
     return DEFAULT_QUEUE_POLLING_DELAY;
   }
+
+  @Override
+  public long getQueuePollingMaxDelay() {
+    return queuePollingMaxDelay;
+  }
+
+  @Override
+  public int getVisitorsParallelism() {
+    return visitorsParallelism;
+  }
+
+  @Override
+  public int getStepsParallelism() {
+    return stepsParallelism;
+  }
 }
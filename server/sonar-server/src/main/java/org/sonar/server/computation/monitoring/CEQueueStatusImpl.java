@@ -19,8 +19,11 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import org.sonar.ce.monitoring.CEQueueStatus;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeQueueDto;
@@ -34,9 +37,17 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final AtomicLong pollCount = new AtomicLong(0);
+  private final AtomicLong pickupLatency = new AtomicLong(0);
+  private final Map<CeQueueLane, AtomicLong> pickupCountByLane = new EnumMap<>(CeQueueLane.class);
+  private final Map<CeQueueLane, AtomicLong> pickupLatencyByLane = new EnumMap<>(CeQueueLane.class);
 
   public CEQueueStatusImpl(DbClient dbClient) {
     this.dbClient = dbClient;
+    for (CeQueueLane lane : CeQueueLane.values()) {
+      pickupCountByLane.put(lane, new AtomicLong(0));
+      pickupLatencyByLane.put(lane, new AtomicLong(0));
+    }
   }
 
   @Override
@@ -58,6 +69,25 @@ public class CEQueueStatusImpl implements CEQueueStatus {
     return success.incrementAndGet();
   }
 
+  @Override
+  public long addPoll() {
+    return pollCount.incrementAndGet();
+  }
+
+  @Override
+  public long addPickupLatency(long pickupLatencyInMs) {
+    checkArgument(pickupLatencyInMs >= 0, "Pickup latency can not be < 0");
+    return pickupLatency.addAndGet(pickupLatencyInMs);
+  }
+
+  @Override
+  public long addPickupLatency(CeQueueLane lane, long pickupLatencyInMs) {
+    long result = addPickupLatency(pickupLatencyInMs);
+    pickupCountByLane.get(lane).incrementAndGet();
+    pickupLatencyByLane.get(lane).addAndGet(pickupLatencyInMs);
+    return result;
+  }
+
   private void addProcessingTime(long ms) {
     checkArgument(ms >= 0, "Processing time can not be < 0");
     processingTime.addAndGet(ms);
@@ -89,4 +119,31 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   public long getProcessingTime() {
     return processingTime.get();
   }
+
+  @Override
+  public long getPollCount() {
+    return pollCount.get();
+  }
+
+  @Override
+  public long getPickupLatency() {
+    return pickupLatency.get();
+  }
+
+  @Override
+  public long getPendingCount(CeQueueLane lane) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.ceQueueDao().countByStatusAndPriority(dbSession, CeQueueDto.Status.PENDING, lane.getPriority());
+    }
+  }
+
+  @Override
+  public long getPickupCount(CeQueueLane lane) {
+    return pickupCountByLane.get(lane).get();
+  }
+
+  @Override
+  public long getPickupLatency(CeQueueLane lane) {
+    return pickupLatencyByLane.get(lane).get();
+  }
 }
@@ -48,6 +48,16 @@ public interface CeTasksMBean {
    */
   long getProcessingTime();
 
+  /**
+   * Count of polls of the queue by workers since startup, including the ones which did not return any batch report.
+   */
+  long getPollCount();
+
+  /**
+   * Time waited in queue by batch reports before being picked by a worker since startup, in milliseconds.
+   */
+  long getPickupLatency();
+
   /**
    * Configured number of Workers.
    */
@@ -21,6 +21,7 @@ package org.sonar.server.computation.monitoring;
 
 import org.picocontainer.Startable;
 import org.sonar.ce.monitoring.CEQueueStatus;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.process.Jmx;
 import org.sonar.process.systeminfo.SystemInfoSection;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
@@ -73,6 +74,16 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return queueStatus.getProcessingTime();
   }
 
+  @Override
+  public long getPollCount() {
+    return queueStatus.getPollCount();
+  }
+
+  @Override
+  public long getPickupLatency() {
+    return queueStatus.getPickupLatency();
+  }
+
   @Override
   public int getWorkerCount() {
     return ceConfiguration.getWorkerCount();
@@ -87,7 +98,14 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     builder.addAttributesBuilder().setKey("Processed With Error").setLongValue(getErrorCount()).build();
     builder.addAttributesBuilder().setKey("Processed With Success").setLongValue(getSuccessCount()).build();
     builder.addAttributesBuilder().setKey("Processing Time (ms)").setLongValue(getProcessingTime()).build();
+    builder.addAttributesBuilder().setKey("Poll Count").setLongValue(getPollCount()).build();
+    builder.addAttributesBuilder().setKey("Pickup Latency (ms)").setLongValue(getPickupLatency()).build();
     builder.addAttributesBuilder().setKey("Worker Count").setLongValue(getWorkerCount()).build();
+    for (CeQueueLane lane : CeQueueLane.values()) {
+      builder.addAttributesBuilder().setKey("Pending in Lane " + lane).setLongValue(queueStatus.getPendingCount(lane)).build();
+      builder.addAttributesBuilder().setKey("Picked From Lane " + lane).setLongValue(queueStatus.getPickupCount(lane)).build();
+      builder.addAttributesBuilder().setKey("Pickup Latency in Lane " + lane + " (ms)").setLongValue(queueStatus.getPickupLatency(lane)).build();
+    }
     return builder.build();
   }
 }
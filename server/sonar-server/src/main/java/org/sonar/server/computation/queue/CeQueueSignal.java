@@ -0,0 +1,52 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.sonar.api.ce.ComputeEngineSide;
+
+/**
+ * Signal raised when tasks are submitted to the queue of the Compute Engine, so that idle workers
+ * do not wait for their next poll of the queue.
+ * <p>
+ * Tasks submitted by the Compute Engine are signaled by {@link InternalCeQueueImpl}. Tasks submitted by the Web Server,
+ * from another process, are detected in database by {@link CeQueueSubmissionWatcher}.
+ * </p>
+ */
+@ComputeEngineSide
+public class CeQueueSignal {
+
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Runnable listener) {
+    listeners.remove(listener);
+  }
+
+  public void signalSubmit() {
+    for (Runnable listener : listeners) {
+      listener.run();
+    }
+  }
+}
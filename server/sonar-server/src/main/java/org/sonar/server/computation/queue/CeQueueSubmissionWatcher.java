@@ -0,0 +1,118 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.computation.configuration.CeConfiguration;
+
+/**
+ * Raises {@link CeQueueSignal} when tasks are submitted by another process, usually the Web Server. The date of the
+ * most recent pending task is read, which is much cheaper than a poll of the queue by the workers, so that idle
+ * workers do not wait for their delayed poll.
+ * <p>
+ * Like the polls of the workers, the delay between two reads is {@link #WATCH_DELAY_IN_MS} milliseconds after a
+ * submission and doubles each time nothing is submitted, up to {@link CeConfiguration#getQueuePollingMaxDelay()}, so
+ * that an idle Compute Engine does not load the database.
+ * </p>
+ */
+@ComputeEngineSide
+public class CeQueueSubmissionWatcher implements Startable {
+
+  @VisibleForTesting
+  static final long WATCH_DELAY_IN_MS = 200L;
+  private static final String THREAD_NAME_PREFIX = "CE_queue_watcher-";
+  private static final Logger LOG = Loggers.get(CeQueueSubmissionWatcher.class);
+
+  private final DbClient dbClient;
+  private final CeQueueSignal queueSignal;
+  private final long maxDelay;
+  private ScheduledExecutorService executorService;
+  private long lastSubmissionDate = -1L;
+  private long nextDelay = WATCH_DELAY_IN_MS;
+
+  public CeQueueSubmissionWatcher(DbClient dbClient, CeQueueSignal queueSignal, CeConfiguration ceConfiguration) {
+    this.dbClient = dbClient;
+    this.queueSignal = queueSignal;
+    this.maxDelay = Math.max(WATCH_DELAY_IN_MS, ceConfiguration.getQueuePollingMaxDelay());
+  }
+
+  @Override
+  public void start() {
+    executorService = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_PREFIX + "%d")
+        .setDaemon(true)
+        .build());
+    scheduleWatch(WATCH_DELAY_IN_MS);
+  }
+
+  private void scheduleWatch(long delay) {
+    executorService.schedule(() -> {
+      long delayOfNextWatch = maxDelay;
+      try {
+        delayOfNextWatch = watch();
+      } catch (Exception e) {
+        LOG.warn("Failed to watch submissions to the Compute Engine queue", e);
+      }
+      if (!executorService.isShutdown()) {
+        scheduleWatch(delayOfNextWatch);
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Signals a submission when the most recent pending task is more recent than the one seen by the previous call.
+   *
+   * @return the delay in milliseconds before the next call
+   */
+  @VisibleForTesting
+  long watch() {
+    Optional<Long> submissionDate;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      submissionDate = dbClient.ceQueueDao().selectMaxCreatedAtOfPending(dbSession);
+    }
+    if (submissionDate.isPresent() && submissionDate.get() > lastSubmissionDate) {
+      lastSubmissionDate = submissionDate.get();
+      queueSignal.signalSubmit();
+      nextDelay = WATCH_DELAY_IN_MS;
+    } else {
+      nextDelay = Math.min(nextDelay * 2, maxDelay);
+    }
+    return nextDelay;
+  }
+}
@@ -24,6 +24,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -32,8 +34,10 @@ import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
+import org.sonar.ce.queue.CeTaskSubmit;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -49,15 +53,33 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
+  private final CeQueueSignal queueSignal;
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
 
-  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus) {
+  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus, CeQueueSignal queueSignal) {
     super(dbClient, uuidFactory);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
+    this.queueSignal = queueSignal;
+  }
+
+  @Override
+  public CeTask submit(CeTaskSubmit submission) {
+    CeTask task = super.submit(submission);
+    queueSignal.signalSubmit();
+    return task;
+  }
+
+  @Override
+  public List<CeTask> massSubmit(Collection<CeTaskSubmit> submissions) {
+    List<CeTask> tasks = super.massSubmit(submissions);
+    if (!tasks.isEmpty()) {
+      queueSignal.signalSubmit();
+    }
+    return tasks;
   }
 
   @Override
@@ -67,11 +89,13 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
     DbSession dbSession = dbClient.openSession(false);
     try {
+      queueStatus.addPoll();
       Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession);
       CeTask task = null;
       if (dto.isPresent()) {
         task = loadTask(dbSession, dto.get());
         queueStatus.addInProgress();
+        queueStatus.addPickupLatency(CeQueueLane.fromPriority(dto.get().getPriority()), Math.max(0L, system2.now() - dto.get().getCreatedAt()));
       }
       return Optional.fromNullable(task);
 
@@ -109,6 +133,7 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
       if (analysisUuid.isPresent()) {
         activityDto.setAnalysisUuid(analysisUuid.get());
       }
+      activityDto.setStepTimings(taskResult.getStepTimings().orElse(null));
     }
   }
 
@@ -26,6 +26,7 @@ import org.apache.commons.lang.StringUtils;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.server.ServerSide;
 import org.sonar.ce.queue.CeQueue;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskSubmit;
 import org.sonar.core.component.ComponentKeys;
@@ -60,6 +61,13 @@ public class ReportSubmitter {
   }
 
   public CeTask submit(String projectKey, @Nullable String projectBranch, @Nullable String projectName, InputStream reportInput) {
+    return submit(projectKey, projectBranch, projectName, CeQueueLane.NORMAL, reportInput);
+  }
+
+  /**
+   * @param lane lane of the queue in which the report waits for processing
+   */
+  public CeTask submit(String projectKey, @Nullable String projectBranch, @Nullable String projectName, CeQueueLane lane, InputStream reportInput) {
     String effectiveProjectKey = ComponentKeys.createKey(projectKey, projectBranch);
     ComponentDto project = componentService.getNullableByKey(effectiveProjectKey);
     if (project == null) {
@@ -68,7 +76,7 @@ public class ReportSubmitter {
 
     userSession.checkComponentPermission(SCAN_EXECUTION, projectKey);
 
-    return submitReport(reportInput, project);
+    return submitReport(reportInput, project, lane);
   }
 
   @CheckForNull
@@ -93,7 +101,7 @@ public class ReportSubmitter {
     }
   }
 
-  private CeTask submitReport(InputStream reportInput, ComponentDto project) {
+  private CeTask submitReport(InputStream reportInput, ComponentDto project, CeQueueLane lane) {
     // the report file must be saved before submitting the task
     CeTaskSubmit.Builder submit = queue.prepareSubmit();
     try (DbSession dbSession = dbClient.openSession(false)) {
@@ -104,6 +112,7 @@ public class ReportSubmitter {
     submit.setType(CeTaskTypes.REPORT);
     submit.setComponentUuid(project.uuid());
     submit.setSubmitterLogin(userSession.getLogin());
+    submit.setLane(lane);
     return queue.submit(submit.build());
   }
 }
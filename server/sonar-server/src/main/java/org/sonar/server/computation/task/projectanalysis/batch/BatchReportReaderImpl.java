@@ -24,8 +24,8 @@ import com.google.common.base.Throwables;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Parser;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.NoSuchElementException;
@@ -33,11 +33,12 @@ import javax.annotation.CheckForNull;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.picocontainer.Startable;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
-public class BatchReportReaderImpl implements BatchReportReader {
+public class BatchReportReaderImpl implements BatchReportReader, Startable {
 
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
   private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
@@ -48,6 +49,18 @@ public class BatchReportReaderImpl implements BatchReportReader {
     this.batchReportDirectoryHolder = batchReportDirectoryHolder;
   }
 
+  @Override
+  public void start() {
+    // nothing to do, report is opened on first read
+  }
+
+  @Override
+  public void stop() {
+    if (this.delegate != null) {
+      this.delegate.close();
+    }
+  }
+
   private void ensureInitialized() {
     if (this.delegate == null) {
       this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
@@ -142,15 +155,16 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
     ensureInitialized();
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
+    InputStream input = delegate.openFileSource(fileRef);
+    if (input == null) {
       return Optional.absent();
     }
 
     try {
-      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), StandardCharsets.UTF_8)));
+      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(input, StandardCharsets.UTF_8)));
     } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
+      IOUtils.closeQuietly(input);
+      throw new IllegalStateException("Fail to traverse source of file #" + fileRef, e);
     }
   }
 
@@ -186,35 +200,21 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<ScannerReport.Test> readTests(int testFileRef) {
     ensureInitialized();
-    File file = delegate.readTests(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.Test.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
+    InputStream input = delegate.openTests(testFileRef);
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(ScannerReport.Test.parser(), input);
   }
 
   @Override
   public CloseableIterator<ScannerReport.CoverageDetail> readCoverageDetails(int testFileRef) {
     ensureInitialized();
-    File file = delegate.readCoverageDetails(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
+    InputStream input = delegate.openCoverageDetails(testFileRef);
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), input);
   }
 
   @Override
@@ -225,17 +225,17 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
   private static class ParserCloseableIterator<T> extends CloseableIterator<T> {
     private final Parser<T> parser;
-    private final FileInputStream fileInputStream;
+    private final InputStream inputStream;
 
-    public ParserCloseableIterator(Parser<T> parser, FileInputStream fileInputStream) {
+    public ParserCloseableIterator(Parser<T> parser, InputStream inputStream) {
       this.parser = parser;
-      this.fileInputStream = fileInputStream;
+      this.inputStream = inputStream;
     }
 
     @Override
     protected T doNext() {
       try {
-        return parser.parseDelimitedFrom(fileInputStream);
+        return parser.parseDelimitedFrom(inputStream);
       } catch (InvalidProtocolBufferException e) {
         Throwables.propagate(e);
         // actually never reached
@@ -245,7 +245,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
     @Override
     protected void doClose() throws Exception {
-      fileInputStream.close();
+      inputStream.close();
     }
   }
 }
@@ -25,6 +25,17 @@ public interface ComponentVisitor {
 
   CrawlerDepthLimit getMaxDepth();
 
+  /**
+   * Whether the visitor supports being called concurrently for different components of type {@link Component.Type#FILE}.
+   * When all the visitors of files are thread-safe, {@link VisitorsCrawler} can visit files of a same parent
+   * concurrently. Components of other types are always visited sequentially, after their children.
+   * <p>
+   * {@link PathAwareVisitor} are never visited concurrently, as the path is shared by all the components.
+   */
+  default boolean isThreadSafe() {
+    return false;
+  }
+
   enum Order {
     /**
      * Each component is visited BEFORE its children. Top-down traversal of
@@ -32,6 +32,11 @@ public class TypeAwareVisitorWrapper implements VisitorWrapper {
     return this.delegate;
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
   @Override
   public void beforeComponent(Component component){
     // Nothing to do
@@ -23,9 +23,15 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Loggers;
@@ -37,6 +43,11 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * This crawler make any number of {@link TypeAwareVisitor} or {@link PathAwareVisitor} defined in a list visit a component tree, component per component, in the order of the list
+ * <p>
+ * When a {@link ForkJoinPool} is provided and all the visitors of files are {@link ComponentVisitor#isThreadSafe() thread-safe},
+ * the files children of a same component are visited concurrently in this pool. Each file is still visited by all the
+ * visitors in the order of the list, and the parent component is visited by POST_ORDER visitors once all its files
+ * have been visited.
  */
 public class VisitorsCrawler implements ComponentCrawler {
 
@@ -44,17 +55,37 @@ public class VisitorsCrawler implements ComponentCrawler {
   private final Map<ComponentVisitor, VisitorDuration> visitorCumulativeDurations;
   private final List<VisitorWrapper> preOrderVisitorWrappers;
   private final List<VisitorWrapper> postOrderVisitorWrappers;
+  @CheckForNull
+  private final ForkJoinPool forkJoinPool;
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors) {
     this(visitors, false);
   }
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration) {
+    this(visitors, computeDuration, null);
+  }
+
+  /**
+   * @param forkJoinPool pool to visit files concurrently, ignored if any visitor of files is not thread-safe
+   */
+  public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration, @Nullable ForkJoinPool forkJoinPool) {
     List<VisitorWrapper> visitorWrappers = from(visitors).transform(ToVisitorWrapper.INSTANCE).toList();
     this.preOrderVisitorWrappers = from(visitorWrappers).filter(MathPreOrderVisitor.INSTANCE).toList();
     this.postOrderVisitorWrappers = from(visitorWrappers).filter(MatchPostOrderVisitor.INSTANCE).toList();
     this.computeDuration = computeDuration;
     this.visitorCumulativeDurations = computeDuration ? from(visitors).toMap(VisitorWrapperToInitialDuration.INSTANCE) : Collections.emptyMap();
+    boolean threadSafeFileVisitors = from(visitorWrappers)
+      .filter(MatchVisitorMaxDepth.forType(Component.Type.FILE))
+      .allMatch(MatchThreadSafeVisitor.INSTANCE);
+    this.forkJoinPool = threadSafeFileVisitors ? forkJoinPool : null;
+  }
+
+  /**
+   * Whether files are visited concurrently.
+   */
+  public boolean isConcurrent() {
+    return forkJoinPool != null;
   }
 
   public Map<ComponentVisitor, Long> getCumulativeDurations() {
@@ -86,7 +117,7 @@ public class VisitorsCrawler implements ComponentCrawler {
       return;
     }
 
-    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappers, postOrderVisitorWrappers)) {
+    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappersToExecute, postOrderVisitorWrappersToExecute)) {
       visitorWrapper.beforeComponent(component);
     }
 
@@ -106,8 +137,46 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private void visitChildren(Component component) {
+    if (forkJoinPool == null) {
+      for (Component child : component.getChildren()) {
+        visit(child);
+      }
+      return;
+    }
+    List<Future<?>> fileVisits = new ArrayList<>();
     for (Component child : component.getChildren()) {
-      visit(child);
+      if (child.getType() == Component.Type.FILE) {
+        fileVisits.add(forkJoinPool.submit(() -> visit(child)));
+      } else {
+        awaitAll(fileVisits);
+        visit(child);
+      }
+    }
+    awaitAll(fileVisits);
+  }
+
+  private static void awaitAll(List<Future<?>> futures) {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while visiting files", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(false);
+      }
+      futures.clear();
     }
   }
 
@@ -182,7 +251,11 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
 
     public static MatchVisitorMaxDepth forComponent(Component component) {
-      return INSTANCES.get(component.getType());
+      return forType(component.getType());
+    }
+
+    public static MatchVisitorMaxDepth forType(Component.Type type) {
+      return INSTANCES.get(type);
     }
 
     @Override
@@ -201,6 +274,15 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
   }
 
+  private enum MatchThreadSafeVisitor implements Predicate<VisitorWrapper> {
+    INSTANCE;
+
+    @Override
+    public boolean apply(@Nonnull VisitorWrapper visitorWrapper) {
+      return visitorWrapper.isThreadSafe();
+    }
+  }
+
   private enum MatchPostOrderVisitor implements Predicate<VisitorWrapper> {
     INSTANCE;
 
@@ -211,14 +293,15 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private static final class VisitorDuration {
-    private long duration = 0;
+    // files may be visited concurrently
+    private final AtomicLong duration = new AtomicLong(0);
 
     public void increment(long duration) {
-      this.duration += duration;
+      this.duration.addAndGet(duration);
     }
 
     public long getDuration() {
-      return duration;
+      return duration.get();
     }
   }
 
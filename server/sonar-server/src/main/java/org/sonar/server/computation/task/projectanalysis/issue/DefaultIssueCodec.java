@@ -0,0 +1,426 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.DiskCacheCodec;
+import org.sonar.server.util.cache.SerializableCodec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact encoding of {@link DefaultIssue} for {@link IssueCache}. Strings are encoded in UTF-8 and prefixed by
+ * their length as a variable-length integer. Values of {@link FieldDiffs} and locations which are not of the
+ * expected types fall back to Java serialization.
+ * <p>
+ * Instances of {@link FieldDiffs} shared by {@link DefaultIssue#currentChange()} and {@link DefaultIssue#changes()}
+ * are still shared once decoded.
+ * </p>
+ */
+public class DefaultIssueCodec implements DiskCacheCodec<DefaultIssue> {
+
+  private static final int MANUAL_SEVERITY = 1;
+  private static final int NEW = 1 << 1;
+  private static final int BEING_CLOSED = 1 << 2;
+  private static final int ON_DISABLED_RULE = 1 << 3;
+  private static final int CHANGED = 1 << 4;
+  private static final int SEND_NOTIFICATIONS = 1 << 5;
+
+  private static final byte NULL_VALUE = 0;
+  private static final byte STRING_VALUE = 1;
+  private static final byte LONG_VALUE = 2;
+  private static final byte INTEGER_VALUE = 3;
+  private static final byte DOUBLE_VALUE = 4;
+  private static final byte DATE_VALUE = 5;
+  private static final byte LOCATIONS_VALUE = 6;
+  private static final byte SERIALIZED_VALUE = 7;
+
+  private static final int NULL_CHANGE = 0;
+  private static final int NEW_CHANGE = 1;
+  private static final int FIRST_CHANGE_REFERENCE = 2;
+
+  private static final RuleType[] RULE_TYPES = RuleType.values();
+
+  private final SerializableCodec<Object> fallbackCodec = new SerializableCodec<>();
+
+  @Override
+  public void write(DefaultIssue issue, DataOutputStream output) throws IOException {
+    writeString(issue.key(), output);
+    writeVarInt(issue.type() == null ? 0 : (issue.type().ordinal() + 1), output);
+    writeString(issue.componentUuid(), output);
+    writeString(issue.componentKey(), output);
+    writeString(issue.moduleUuid(), output);
+    writeString(issue.moduleUuidPath(), output);
+    writeString(issue.projectUuid(), output);
+    writeString(issue.projectKey(), output);
+    RuleKey ruleKey = issue.ruleKey();
+    output.writeBoolean(ruleKey != null);
+    if (ruleKey != null) {
+      writeString(ruleKey.repository(), output);
+      writeString(ruleKey.rule(), output);
+    }
+    writeString(issue.language(), output);
+    writeString(issue.severity(), output);
+    writeString(issue.message(), output);
+    writeVarInt(issue.line() == null ? 0 : issue.line(), output);
+    writeValue(issue.gap(), output);
+    writeValue(issue.effort() == null ? null : issue.effort().toMinutes(), output);
+    writeString(issue.status(), output);
+    writeString(issue.resolution(), output);
+    writeString(issue.assignee(), output);
+    writeString(issue.checksum(), output);
+    writeString(issue.authorLogin(), output);
+    writeDate(issue.creationDate(), output);
+    writeDate(issue.updateDate(), output);
+    writeDate(issue.closeDate(), output);
+    writeValue(issue.selectedAt(), output);
+    writeVarInt(flags(issue), output);
+
+    Map<String, String> attributes = issue.attributes();
+    writeVarInt(attributes.size(), output);
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      writeString(attribute.getKey(), output);
+      writeString(attribute.getValue(), output);
+    }
+    writeTags(issue, output);
+    writeComments(issue.comments(), output);
+    writeChanges(issue, output);
+    Object locations = issue.getLocations();
+    writeValue(locations, output);
+  }
+
+  @Override
+  public DefaultIssue read(DataInputStream input) throws IOException {
+    DefaultIssue issue = new DefaultIssue();
+    issue.setKey(readString(input));
+    int type = readVarInt(input);
+    issue.setType(type == 0 ? null : RULE_TYPES[type - 1]);
+    issue.setComponentUuid(readString(input));
+    issue.setComponentKey(readString(input));
+    issue.setModuleUuid(readString(input));
+    issue.setModuleUuidPath(readString(input));
+    issue.setProjectUuid(readString(input));
+    issue.setProjectKey(readString(input));
+    if (input.readBoolean()) {
+      issue.setRuleKey(RuleKey.of(readString(input), readString(input)));
+    }
+    issue.setLanguage(readString(input));
+    issue.setSeverity(readString(input));
+    issue.setMessage(readString(input));
+    int line = readVarInt(input);
+    issue.setLine(line == 0 ? null : line);
+    issue.setGap((Double) readValue(input));
+    Long effort = (Long) readValue(input);
+    issue.setEffort(effort == null ? null : Duration.create(effort));
+    issue.setStatus(readString(input));
+    issue.setResolution(readString(input));
+    issue.setAssignee(readString(input));
+    issue.setChecksum(readString(input));
+    issue.setAuthorLogin(readString(input));
+    issue.setCreationDate(readDate(input));
+    issue.setUpdateDate(readDate(input));
+    issue.setCloseDate(readDate(input));
+    issue.setSelectedAt((Long) readValue(input));
+    int flags = readVarInt(input);
+    issue.setManualSeverity((flags & MANUAL_SEVERITY) != 0);
+    issue.setNew((flags & NEW) != 0);
+    issue.setBeingClosed((flags & BEING_CLOSED) != 0);
+    issue.setOnDisabledRule((flags & ON_DISABLED_RULE) != 0);
+    issue.setChanged((flags & CHANGED) != 0);
+    issue.setSendNotifications((flags & SEND_NOTIFICATIONS) != 0);
+
+    int attributes = readVarInt(input);
+    for (int i = 0; i < attributes; i++) {
+      issue.setAttribute(readString(input), readString(input));
+    }
+    readTags(issue, input);
+    readComments(issue, input);
+    readChanges(issue, input);
+    issue.setLocations(readValue(input));
+    return issue;
+  }
+
+  private static int flags(DefaultIssue issue) {
+    int flags = 0;
+    flags |= issue.manualSeverity() ? MANUAL_SEVERITY : 0;
+    flags |= issue.isNew() ? NEW : 0;
+    flags |= issue.isBeingClosed() ? BEING_CLOSED : 0;
+    flags |= issue.isOnDisabledRule() ? ON_DISABLED_RULE : 0;
+    flags |= issue.isChanged() ? CHANGED : 0;
+    flags |= issue.mustSendNotifications() ? SEND_NOTIFICATIONS : 0;
+    return flags;
+  }
+
+  private static void writeTags(DefaultIssue issue, DataOutputStream output) throws IOException {
+    // tags() returns an empty set when tags are not defined
+    writeVarInt(issue.tags().size(), output);
+    for (String tag : issue.tags()) {
+      writeString(tag, output);
+    }
+  }
+
+  private static void readTags(DefaultIssue issue, DataInputStream input) throws IOException {
+    int size = readVarInt(input);
+    if (size > 0) {
+      List<String> tags = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        tags.add(readString(input));
+      }
+      issue.setTags(tags);
+    }
+  }
+
+  private static void writeComments(List<IssueComment> comments, DataOutputStream output) throws IOException {
+    writeVarInt(comments.size(), output);
+    for (IssueComment comment : comments) {
+      DefaultIssueComment defaultComment = (DefaultIssueComment) comment;
+      writeString(defaultComment.key(), output);
+      writeString(defaultComment.issueKey(), output);
+      writeString(defaultComment.userLogin(), output);
+      writeString(defaultComment.markdownText(), output);
+      writeDate(defaultComment.createdAt(), output);
+      writeDate(defaultComment.updatedAt(), output);
+      output.writeBoolean(defaultComment.isNew());
+    }
+  }
+
+  private static void readComments(DefaultIssue issue, DataInputStream input) throws IOException {
+    int size = readVarInt(input);
+    for (int i = 0; i < size; i++) {
+      DefaultIssueComment comment = new DefaultIssueComment()
+        .setKey(readString(input))
+        .setIssueKey(readString(input))
+        .setUserLogin(readString(input))
+        .setMarkdownText(readString(input))
+        .setCreatedAt(readDate(input))
+        .setUpdatedAt(readDate(input))
+        .setNew(input.readBoolean());
+      issue.addComment(comment);
+    }
+  }
+
+  /**
+   * Distinct instances of {@link FieldDiffs} are written once, then referenced by their index
+   */
+  private void writeChanges(DefaultIssue issue, DataOutputStream output) throws IOException {
+    Map<FieldDiffs, Integer> indexes = new IdentityHashMap<>();
+    List<FieldDiffs> changes = issue.changes();
+    writeVarInt(changes.size(), output);
+    for (FieldDiffs change : changes) {
+      writeChange(change, indexes, output);
+    }
+    FieldDiffs currentChange = issue.currentChange();
+    output.writeBoolean(currentChange != null);
+    if (currentChange != null) {
+      writeChange(currentChange, indexes, output);
+    }
+  }
+
+  private void writeChange(@Nullable FieldDiffs change, Map<FieldDiffs, Integer> indexes, DataOutputStream output) throws IOException {
+    if (change == null) {
+      // DefaultIssue#setFieldChange() may add null changes
+      writeVarInt(NULL_CHANGE, output);
+      return;
+    }
+    Integer index = indexes.get(change);
+    if (index != null) {
+      writeVarInt(FIRST_CHANGE_REFERENCE + index, output);
+      return;
+    }
+    writeVarInt(NEW_CHANGE, output);
+    indexes.put(change, indexes.size());
+    writeString(change.issueKey(), output);
+    writeString(change.userLogin(), output);
+    writeDate(change.creationDate(), output);
+    Map<String, FieldDiffs.Diff> diffs = change.diffs();
+    writeVarInt(diffs.size(), output);
+    for (Map.Entry<String, FieldDiffs.Diff> diff : diffs.entrySet()) {
+      writeString(diff.getKey(), output);
+      writeValue(diff.getValue().oldValue(), output);
+      writeValue(diff.getValue().newValue(), output);
+    }
+  }
+
+  private void readChanges(DefaultIssue issue, DataInputStream input) throws IOException {
+    List<FieldDiffs> instances = new ArrayList<>();
+    int size = readVarInt(input);
+    List<FieldDiffs> changes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      changes.add(readChange(instances, input));
+    }
+    if (input.readBoolean()) {
+      FieldDiffs currentChange = readChange(instances, input);
+      // also adds current change to changes, which are replaced below
+      issue.setCurrentChange(currentChange);
+    }
+    issue.setChanges(changes);
+  }
+
+  @CheckForNull
+  private FieldDiffs readChange(List<FieldDiffs> instances, DataInputStream input) throws IOException {
+    int tag = readVarInt(input);
+    if (tag == NULL_CHANGE) {
+      return null;
+    }
+    if (tag >= FIRST_CHANGE_REFERENCE) {
+      return instances.get(tag - FIRST_CHANGE_REFERENCE);
+    }
+    FieldDiffs change = new FieldDiffs();
+    instances.add(change);
+    change.setIssueKey(readString(input));
+    change.setUserLogin(readString(input));
+    change.setCreationDate(readDate(input));
+    int size = readVarInt(input);
+    for (int i = 0; i < size; i++) {
+      change.setDiff(readString(input), (Serializable) readValue(input), (Serializable) readValue(input));
+    }
+    return change;
+  }
+
+  private void writeValue(@Nullable Object value, DataOutputStream output) throws IOException {
+    if (value == null) {
+      output.writeByte(NULL_VALUE);
+    } else if (value instanceof String) {
+      output.writeByte(STRING_VALUE);
+      writeString((String) value, output);
+    } else if (value instanceof Long) {
+      output.writeByte(LONG_VALUE);
+      output.writeLong((Long) value);
+    } else if (value instanceof Integer) {
+      output.writeByte(INTEGER_VALUE);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Double) {
+      output.writeByte(DOUBLE_VALUE);
+      output.writeDouble((Double) value);
+    } else if (value instanceof Date) {
+      output.writeByte(DATE_VALUE);
+      output.writeLong(((Date) value).getTime());
+    } else if (value instanceof DbIssues.Locations) {
+      output.writeByte(LOCATIONS_VALUE);
+      ((DbIssues.Locations) value).writeDelimitedTo(output);
+    } else {
+      output.writeByte(SERIALIZED_VALUE);
+      fallbackCodec.write(value, output);
+    }
+  }
+
+  @CheckForNull
+  private Object readValue(DataInputStream input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case NULL_VALUE:
+        return null;
+      case STRING_VALUE:
+        return readString(input);
+      case LONG_VALUE:
+        return input.readLong();
+      case INTEGER_VALUE:
+        return input.readInt();
+      case DOUBLE_VALUE:
+        return input.readDouble();
+      case DATE_VALUE:
+        return new Date(input.readLong());
+      case LOCATIONS_VALUE:
+        return DbIssues.Locations.parseDelimitedFrom(input);
+      case SERIALIZED_VALUE:
+        return fallbackCodec.read(input);
+      default:
+        throw new IllegalStateException("Unsupported type of value: " + type);
+    }
+  }
+
+  private static void writeDate(@Nullable Date date, DataOutputStream output) throws IOException {
+    output.writeBoolean(date != null);
+    if (date != null) {
+      output.writeLong(date.getTime());
+    }
+  }
+
+  @CheckForNull
+  private static Date readDate(DataInputStream input) throws IOException {
+    return input.readBoolean() ? new Date(input.readLong()) : null;
+  }
+
+  /**
+   * Length is shifted by 1 as 0 means {@code null}
+   */
+  private static void writeString(@Nullable String s, DataOutputStream output) throws IOException {
+    if (s == null) {
+      writeVarInt(0, output);
+    } else {
+      byte[] bytes = s.getBytes(UTF_8);
+      writeVarInt(bytes.length + 1, output);
+      output.write(bytes);
+    }
+  }
+
+  @CheckForNull
+  private static String readString(DataInputStream input) throws IOException {
+    int length = readVarInt(input) - 1;
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * Unsigned variable-length integer: 7 bits per byte, the high bit being set when more bytes follow
+   */
+  private static void writeVarInt(int value, DataOutputStream output) throws IOException {
+    int v = value;
+    while ((v & ~0x7F) != 0) {
+      output.writeByte((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    output.writeByte(v);
+  }
+
+  private static int readVarInt(DataInputStream input) throws IOException {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = input.readByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+}
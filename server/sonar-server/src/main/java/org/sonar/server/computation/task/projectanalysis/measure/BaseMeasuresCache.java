@@ -0,0 +1,168 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureQuery;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+
+/**
+ * Measures of the last analysis of the components of the tree, by component UUID and metric id.
+ * <p>
+ * The measures of the whole tree are streamed with a single query when the first one is requested. If there are more
+ * than {@code maxMeasures} of them, the components already read are kept, and the measures of the other components are
+ * loaded component per component, keeping in memory those of the {@link #LOADED_COMPONENTS} last requested components.
+ * This makes a single query per component instead of one per measure, even when lookups alternate between components.
+ * </p>
+ */
+class BaseMeasuresCache {
+  static final int DEFAULT_MAX_MEASURES = 500_000;
+  static final int LOADED_COMPONENTS = 10;
+
+  private static final Logger LOG = Loggers.get(BaseMeasuresCache.class);
+
+  private final DbClient dbClient;
+  private final TreeRootHolder treeRootHolder;
+  private final int maxMeasures;
+  // measures loaded component per component, least recently requested component first
+  private final Map<String, ComponentMeasures> loadedMeasuresByComponentUuid = new LinkedHashMap<String, ComponentMeasures>(16, 0.75F, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, ComponentMeasures> eldest) {
+      return size() > LOADED_COMPONENTS;
+    }
+  };
+
+  // null until the first measure is requested
+  @CheckForNull
+  private Map<String, ComponentMeasures> measuresByComponentUuid;
+  private boolean loadByComponent = false;
+
+  BaseMeasuresCache(DbClient dbClient, TreeRootHolder treeRootHolder, int maxMeasures) {
+    this.dbClient = dbClient;
+    this.treeRootHolder = treeRootHolder;
+    this.maxMeasures = maxMeasures;
+  }
+
+  @CheckForNull
+  MeasureDto get(Component component, int metricId) {
+    if (measuresByComponentUuid == null) {
+      loadTree();
+    }
+    ComponentMeasures componentMeasures = measuresByComponentUuid.get(component.getUuid());
+    if (componentMeasures == null && loadByComponent) {
+      componentMeasures = loadedMeasuresByComponentUuid.get(component.getUuid());
+      if (componentMeasures == null) {
+        componentMeasures = loadComponent(component.getUuid());
+        loadedMeasuresByComponentUuid.put(component.getUuid(), componentMeasures);
+      }
+    }
+    return componentMeasures == null ? null : componentMeasures.get(metricId);
+  }
+
+  private void loadTree() {
+    String rootUuid = treeRootHolder.getRoot().getUuid();
+    TreeLoader loader = new TreeLoader();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.measureDao().selectLastMeasuresOfTree(dbSession, rootUuid, loader);
+    }
+    if (loader.overflow) {
+      LOG.debug("More than {} measures in last analysis of {}, measures of {} components are kept and the others are loaded component per component",
+        maxMeasures, rootUuid, loader.measuresByComponentUuid.size());
+      this.loadByComponent = true;
+    }
+    this.measuresByComponentUuid = loader.measuresByComponentUuid;
+  }
+
+  private ComponentMeasures loadComponent(String componentUuid) {
+    ComponentMeasures componentMeasures = new ComponentMeasures();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      MeasureQuery query = MeasureQuery.builder().setComponentUuid(componentUuid).build();
+      dbClient.measureDao().selectByQuery(dbSession, query, context -> componentMeasures.add((MeasureDto) context.getResultObject()));
+    }
+    return componentMeasures;
+  }
+
+  /**
+   * Measures are streamed component after component, so all the measures of the components read before reaching
+   * {@code maxMeasures} are loaded, except for the component of the measure which is not read.
+   */
+  private class TreeLoader implements ResultHandler {
+    private final Map<String, ComponentMeasures> measuresByComponentUuid = new HashMap<>();
+    private boolean overflow = false;
+
+    @Override
+    public void handleResult(ResultContext context) {
+      MeasureDto dto = (MeasureDto) context.getResultObject();
+      if (context.getResultCount() > maxMeasures) {
+        overflow = true;
+        measuresByComponentUuid.remove(dto.getComponentUuid());
+        context.stop();
+        return;
+      }
+      ComponentMeasures componentMeasures = measuresByComponentUuid.get(dto.getComponentUuid());
+      if (componentMeasures == null) {
+        componentMeasures = new ComponentMeasures();
+        measuresByComponentUuid.put(dto.getComponentUuid(), componentMeasures);
+      }
+      componentMeasures.add(dto);
+    }
+  }
+
+  /**
+   * Measures of a component, in arrays rather than in a map as a component has only some dozens of measures.
+   */
+  private static final class ComponentMeasures {
+    private int[] metricIds = new int[8];
+    private MeasureDto[] measures = new MeasureDto[8];
+    private int size = 0;
+
+    void add(MeasureDto dto) {
+      if (size == metricIds.length) {
+        metricIds = Arrays.copyOf(metricIds, size * 2);
+        measures = Arrays.copyOf(measures, size * 2);
+      }
+      metricIds[size] = dto.getMetricId();
+      measures[size] = dto;
+      size++;
+    }
+
+    @CheckForNull
+    MeasureDto get(int metricId) {
+      for (int i = 0; i < size; i++) {
+        if (metricIds[i] == metricId) {
+          return measures[i];
+        }
+      }
+      return null;
+    }
+  }
+}
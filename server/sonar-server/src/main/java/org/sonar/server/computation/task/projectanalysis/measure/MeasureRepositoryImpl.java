@@ -19,18 +19,17 @@
  */
 package org.sonar.server.computation.task.projectanalysis.measure;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.collect.SetMultimap;
 import java.util.HashSet;
 import java.util.Set;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
-import org.sonar.db.measure.MeasureDto;
-import org.sonar.db.measure.MeasureQuery;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
@@ -41,7 +40,7 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class MeasureRepositoryImpl implements MeasureRepository {
   private final MapBasedRawMeasureRepository<Integer> delegate = new MapBasedRawMeasureRepository<>(toReportRef());
-  private final DbClient dbClient;
+  private final BaseMeasuresCache baseMeasures;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
   private final MetricRepository metricRepository;
@@ -50,8 +49,15 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   private MeasureDtoToMeasure underTest = new MeasureDtoToMeasure();
   private final Set<Integer> loadedComponents = new HashSet<>();
 
-  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository, ReportMetricValidator reportMetricValidator) {
-    this.dbClient = dbClient;
+  public MeasureRepositoryImpl(DbClient dbClient, TreeRootHolder treeRootHolder, BatchReportReader reportReader, MetricRepository metricRepository,
+    ReportMetricValidator reportMetricValidator) {
+    this(dbClient, treeRootHolder, reportReader, metricRepository, reportMetricValidator, BaseMeasuresCache.DEFAULT_MAX_MEASURES);
+  }
+
+  @VisibleForTesting
+  MeasureRepositoryImpl(DbClient dbClient, TreeRootHolder treeRootHolder, BatchReportReader reportReader, MetricRepository metricRepository,
+    ReportMetricValidator reportMetricValidator, int maxBaseMeasuresInMemory) {
+    this.baseMeasures = new BaseMeasuresCache(dbClient, treeRootHolder, maxBaseMeasuresInMemory);
     this.reportReader = reportReader;
     this.reportMetricValidator = reportMetricValidator;
     this.batchMeasureToMeasure = new BatchMeasureToMeasure();
@@ -64,14 +70,7 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     requireNonNull(component);
     requireNonNull(metric);
 
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      MeasureQuery query = MeasureQuery.builder().setComponentUuid(component.getUuid()).setMetricKey(metric.getKey()).build();
-      java.util.Optional<MeasureDto> measureDto = dbClient.measureDao().selectSingle(dbSession, query);
-      if (measureDto.isPresent()) {
-        return underTest.toMeasure(measureDto.get(), metric);
-      }
-      return Optional.absent();
-    }
+    return underTest.toMeasure(baseMeasures.get(component, metric.getId()), metric);
   }
 
   @Override
@@ -0,0 +1,154 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import com.google.common.base.Optional;
+import com.google.protobuf.Message;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
+import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
+import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
+import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfo;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
+
+import static com.google.common.collect.FluentIterable.from;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Computes a hash of all the data used by {@link ComputeFileSourceData} to build the sources of a file: lines of
+ * source, coverage, SCM, highlighting, symbols and duplications. It is much cheaper than computing the data
+ * itself, so that unchanged files can be detected without building, compressing and hashing their sources.
+ */
+public class FileSourceInputsHashComputer {
+
+  /**
+   * Must be changed when the data computed by {@link ComputeFileSourceData} and its {@link LineReader} changes for
+   * the same inputs, or when the format of the data stored in database changes, so that sources of all files are
+   * computed and stored again.
+   * <ul>
+   *   <li>1: LZ4 stream of the whole data</li>
+   *   <li>2: LZ4 blocks of lines, see {@link org.sonar.db.source.FileSourceDto#encodeSourceData}</li>
+   * </ul>
+   */
+  private static final int VERSION = 2;
+
+  private final BatchReportReader reportReader;
+  private final SourceLinesRepository sourceLinesRepository;
+  private final ScmInfoRepository scmInfoRepository;
+  private final DuplicationRepository duplicationRepository;
+
+  public FileSourceInputsHashComputer(BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository, ScmInfoRepository scmInfoRepository,
+    DuplicationRepository duplicationRepository) {
+    this.reportReader = reportReader;
+    this.sourceLinesRepository = sourceLinesRepository;
+    this.scmInfoRepository = scmInfoRepository;
+    this.duplicationRepository = duplicationRepository;
+  }
+
+  public String compute(Component file, int numberOfLines) {
+    MessageDigest digest = DigestUtils.getMd5Digest();
+    try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, digest))) {
+      out.writeInt(VERSION);
+      out.writeInt(numberOfLines);
+      writeSource(file, out);
+
+      int fileRef = file.getReportAttributes().getRef();
+      writeMessages(reportReader.readComponentCoverage(fileRef), out);
+      writeMessages(reportReader.readComponentSyntaxHighlighting(fileRef), out);
+      writeMessages(reportReader.readComponentSymbols(fileRef), out);
+
+      writeScm(file, out);
+      writeDuplications(file, out);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to compute hash of source inputs of %s", file.getKey()), e);
+    }
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  private void writeSource(Component file, DataOutputStream out) throws IOException {
+    try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file)) {
+      while (linesIterator.hasNext()) {
+        byte[] line = linesIterator.next().getBytes(UTF_8);
+        out.writeInt(line.length);
+        out.write(line);
+      }
+    }
+    out.writeInt(-1);
+  }
+
+  private static void writeMessages(CloseableIterator<? extends Message> messages, DataOutputStream out) throws IOException {
+    try {
+      while (messages.hasNext()) {
+        messages.next().writeDelimitedTo(out);
+      }
+    } finally {
+      messages.close();
+    }
+    out.writeInt(-1);
+  }
+
+  private void writeScm(Component file, DataOutputStream out) throws IOException {
+    Optional<ScmInfo> scmInfo = scmInfoRepository.getScmInfo(file);
+    out.writeBoolean(scmInfo.isPresent());
+    if (scmInfo.isPresent()) {
+      for (Changeset changeset : scmInfo.get().getAllChangesets()) {
+        out.writeUTF(changeset.getRevision());
+        out.writeLong(changeset.getDate());
+        String author = changeset.getAuthor();
+        out.writeUTF(author == null ? "" : author);
+      }
+      out.writeInt(-1);
+    }
+  }
+
+  /**
+   * Only the duplicated text blocks of the file are used by {@link DuplicationLineReader}. They are sorted as
+   * the order of duplications in {@link DuplicationRepository} is not guaranteed.
+   */
+  private void writeDuplications(Component file, DataOutputStream out) throws IOException {
+    List<TextBlock> textBlocks = new ArrayList<>();
+    for (Duplication duplication : duplicationRepository.getDuplications(file)) {
+      textBlocks.add(duplication.getOriginal());
+      for (InnerDuplicate duplicate : from(duplication.getDuplicates()).filter(InnerDuplicate.class)) {
+        textBlocks.add(duplicate.getTextBlock());
+      }
+    }
+    Collections.sort(textBlocks);
+    out.writeInt(textBlocks.size());
+    for (TextBlock textBlock : textBlocks) {
+      out.writeInt(textBlock.getStart());
+      out.writeInt(textBlock.getEnd());
+    }
+  }
+}
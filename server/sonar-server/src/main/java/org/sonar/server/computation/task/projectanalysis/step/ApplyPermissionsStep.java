@@ -77,6 +77,9 @@ public class ApplyPermissionsStep implements ComputationStep {
       if (hasNoPermissions(dbSession, projectId)) {
         permissionRepository.applyDefaultPermissionTemplate(dbSession, projectId);
         dbSession.commit();
+        // the AuthorizationCache of the Web Server lives in another JVM and is not invalidated. Users whose
+        // authorizations are already cached get the permissions on the new project once their entry expires, at
+        // most AuthorizationCache#EXPIRATION_SECONDS seconds later.
         indexer.index(dbSession, project.getUuid());
       }
     }
@@ -19,19 +19,16 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
-import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.measure.PastMeasureDto;
@@ -41,7 +38,6 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.measure.Measure;
-import org.sonar.server.computation.task.projectanalysis.measure.MeasureKey;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureVariations;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
@@ -52,8 +48,6 @@ import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
-import static java.util.function.Function.identity;
-import static org.sonar.core.util.stream.Collectors.uniqueIndex;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.SUBVIEW;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
@@ -62,10 +56,16 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
  * Set variations on all numeric measures found in the repository.
  * This step MUST be executed after all steps that create some measures
  * <p/>
+ * Past measures of all the components are loaded beforehand, with a single query per analysis of the periods.
+ * <p/>
  * Note that measures on developer are not handle yet.
  */
 public class ComputeMeasureVariationsStep implements ComputationStep {
 
+  private static final int MAX_PERIODS = 5;
+  // measures on files are currently purged, so past measures are not available on files
+  private static final CrawlerDepthLimit MAX_DEPTH = CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW);
+
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
   private final PeriodsHolder periodsHolder;
@@ -83,60 +83,81 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
 
   @Override
   public void execute() {
-    DbSession dbSession = dbClient.openSession(false);
-    try {
-      List<Metric> metrics = StreamSupport.stream(metricRepository.getAll().spliterator(), false).filter(NumericMetric.INSTANCE::apply).collect(Collectors.toList());
-      new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(dbSession, metrics))
-        .visit(treeRootHolder.getRoot());
-    } finally {
-      dbClient.closeSession(dbSession);
+    List<Period> periods = periodsHolder.getPeriods();
+    if (periods.isEmpty()) {
+      return;
     }
+    List<Metric> metrics = StreamSupport.stream(metricRepository.getAll().spliterator(), false).filter(NumericMetric.INSTANCE::apply).collect(Collectors.toList());
+    PastMeasures pastMeasures = new PastMeasures(metrics);
+    new DepthTraversalTypeAwareCrawler(new PastMeasuresInitializer(pastMeasures)).visit(treeRootHolder.getRoot());
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      for (Map.Entry<String, List<Period>> periodsOfAnalysis : groupByAnalysisUuid(periods).entrySet()) {
+        dbClient.measureDao().selectPastMeasuresOfAnalysis(dbSession, periodsOfAnalysis.getKey(),
+          context -> pastMeasures.add((PastMeasureDto) context.getResultObject(), periodsOfAnalysis.getValue()));
+      }
+    }
+    new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(pastMeasures, periods)).visit(treeRootHolder.getRoot());
   }
 
-  private class VariationMeasuresVisitor extends TypeAwareVisitorAdapter {
+  private static Map<String, List<Period>> groupByAnalysisUuid(List<Period> periods) {
+    return periods.stream().collect(Collectors.groupingBy(Period::getAnalysisUuid, LinkedHashMap::new, Collectors.toList()));
+  }
 
-    private final DbSession session;
-    private final Set<Integer> metricIds;
-    private final List<Metric> metrics;
+  /**
+   * Registers the components which past measures must be loaded.
+   */
+  private static class PastMeasuresInitializer extends TypeAwareVisitorAdapter {
+    private final PastMeasures pastMeasures;
 
-    VariationMeasuresVisitor(DbSession session, List<Metric> metrics) {
-      // measures on files are currently purged, so past measures are not available on files
-      super(CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW), PRE_ORDER);
-      this.session = session;
-      this.metricIds = metrics.stream().map(MetricDtoToMetricId.INSTANCE::apply).collect(Collectors.toSet());
-      this.metrics = metrics;
+    PastMeasuresInitializer(PastMeasures pastMeasures) {
+      super(MAX_DEPTH, PRE_ORDER);
+      this.pastMeasures = pastMeasures;
     }
 
     @Override
     public void visitAny(Component component) {
-      MeasuresWithVariationRepository measuresWithVariationRepository = computeMeasuresWithVariations(component);
-      processMeasuresWithVariation(component, measuresWithVariationRepository);
+      pastMeasures.register(component.getUuid());
     }
+  }
 
-    private MeasuresWithVariationRepository computeMeasuresWithVariations(Component component) {
-      MeasuresWithVariationRepository measuresWithVariationRepository = new MeasuresWithVariationRepository();
-      for (Period period : periodsHolder.getPeriods()) {
-        List<PastMeasureDto> pastMeasures = dbClient.measureDao()
-          .selectPastMeasures(session, component.getUuid(), period.getAnalysisUuid(), metricIds);
-        setVariationMeasures(component, pastMeasures, period.getIndex(), measuresWithVariationRepository);
-      }
-      return measuresWithVariationRepository;
+  private class VariationMeasuresVisitor extends TypeAwareVisitorAdapter {
+    private final PastMeasures pastMeasures;
+    private final List<Period> periods;
+    // past values of the visited component, by period and metric
+    private final double[] pastValues;
+
+    VariationMeasuresVisitor(PastMeasures pastMeasures, List<Period> periods) {
+      super(MAX_DEPTH, PRE_ORDER);
+      this.pastMeasures = pastMeasures;
+      this.periods = periods;
+      this.pastValues = new double[MAX_PERIODS * pastMeasures.metrics.size()];
     }
 
-    private void setVariationMeasures(Component component, List<PastMeasureDto> pastMeasures, int period, MeasuresWithVariationRepository measuresWithVariationRepository) {
-      Map<MeasureKey, PastMeasureDto> pastMeasuresByMeasureKey = pastMeasures
-        .stream()
-        .collect(uniqueIndex(m -> new MeasureKey(metricRepository.getById((long) m.getMetricId()).getKey(), null), identity()));
-      for (Metric metric : metrics) {
+    @Override
+    public void visitAny(Component component) {
+      pastMeasures.copyValues(component.getUuid(), pastValues);
+      List<Metric> metrics = pastMeasures.metrics;
+      for (int metricIndex = 0; metricIndex < metrics.size(); metricIndex++) {
+        Metric metric = metrics.get(metricIndex);
         Optional<Measure> measure = measureRepository.getRawMeasure(component, metric);
         if (measure.isPresent() && !measure.get().hasVariations()) {
-          PastMeasureDto pastMeasure = pastMeasuresByMeasureKey.get(new MeasureKey(metric.getKey(), null));
-          double pastValue = (pastMeasure != null && pastMeasure.hasValue()) ? pastMeasure.getValue() : 0d;
-          measuresWithVariationRepository.add(metric, measure.get(), period, computeVariation(measure.get(), pastValue));
+          measureRepository.update(component, metric, withVariations(measure.get(), metricIndex));
         }
       }
     }
 
+    private Measure withVariations(Measure measure, int metricIndex) {
+      checkArgument(measure.getDeveloper() == null, "%s does not support computing variations of Measures for Developer", getClass().getSimpleName());
+      Double[] variations = new Double[MAX_PERIODS];
+      for (Period period : periods) {
+        double pastValue = pastValues[pastMeasures.offset(period.getIndex(), metricIndex)];
+        variations[period.getIndex() - 1] = computeVariation(measure, pastValue);
+      }
+      return Measure.updatedMeasureBuilder(measure)
+        .setVariations(new MeasureVariations(variations))
+        .create();
+    }
+
     private double computeVariation(Measure measure, double pastValue) {
       switch (measure.getValueType()) {
         case INT:
@@ -151,78 +172,82 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
           throw new IllegalArgumentException(format("Unsupported Measure.ValueType on measure '%s'", measure));
       }
     }
-
-    private void processMeasuresWithVariation(Component component, MeasuresWithVariationRepository measuresWithVariationRepository) {
-      for (MeasureWithVariations measureWithVariations : measuresWithVariationRepository.measures()) {
-        Metric metric = measureWithVariations.getMetric();
-        Measure measure = Measure.updatedMeasureBuilder(measureWithVariations.getMeasure())
-          .setVariations(new MeasureVariations(
-            measureWithVariations.getVariation(1),
-            measureWithVariations.getVariation(2),
-            measureWithVariations.getVariation(3),
-            measureWithVariations.getVariation(4),
-            measureWithVariations.getVariation(5)))
-          .create();
-        measureRepository.update(component, metric, measure);
-      }
-    }
   }
 
-  private static final class MeasuresWithVariationRepository {
-
-    private final Map<MeasureKey, MeasureWithVariations> measuresWithVariations = new HashMap<>();
+  /**
+   * Values of past measures by component, period and metric. Missing measures and measures without value
+   * count as 0.
+   */
+  private static final class PastMeasures {
+    private final List<Metric> metrics;
+    // index of metrics in list, by metric id. -1 if metric is not numeric
+    private final int[] metricIndexesById;
+    private final Map<String, ComponentPastValues> valuesByComponentUuid = new HashMap<>();
 
-    public void add(Metric metric, final Measure measure, int variationIndex, double variationValue) {
-      checkArgument(measure.getDeveloper() == null, "%s does not support computing variations of Measures for Developer", getClass().getSimpleName());
-      MeasureKey measureKey = new MeasureKey(metric.getKey(), null);
-      MeasureWithVariations measureWithVariations = measuresWithVariations.get(measureKey);
-      if (measureWithVariations == null) {
-        measureWithVariations = new MeasureWithVariations(metric, measure);
-        measuresWithVariations.put(measureKey, measureWithVariations);
+    PastMeasures(List<Metric> metrics) {
+      this.metrics = metrics;
+      int maxId = metrics.stream().mapToInt(Metric::getId).max().orElse(0);
+      this.metricIndexesById = new int[maxId + 1];
+      Arrays.fill(metricIndexesById, -1);
+      for (int i = 0; i < metrics.size(); i++) {
+        metricIndexesById[metrics.get(i).getId()] = i;
       }
-      measureWithVariations.setVariation(variationIndex, variationValue);
     }
 
-    public Collection<MeasureWithVariations> measures() {
-      return measuresWithVariations.values();
+    void register(String componentUuid) {
+      valuesByComponentUuid.put(componentUuid, new ComponentPastValues());
     }
-  }
-
-  private static final class MeasureWithVariations {
-    private final Metric metric;
-    private final Measure measure;
-    private final Double[] variations = new Double[5];
 
-    MeasureWithVariations(Metric metric, Measure measure) {
-      this.metric = metric;
-      this.measure = measure;
+    int offset(int periodIndex, int metricIndex) {
+      return (periodIndex - 1) * metrics.size() + metricIndex;
     }
 
-    public Measure getMeasure() {
-      return measure;
+    /**
+     * Ignores measures of components which are not registered and of metrics which are not numeric.
+     */
+    void add(PastMeasureDto dto, List<Period> periodsOfAnalysis) {
+      ComponentPastValues values = valuesByComponentUuid.get(dto.getComponentUuid());
+      int metricId = dto.getMetricId();
+      if (values == null || metricId < 0 || metricId >= metricIndexesById.length || metricIndexesById[metricId] < 0) {
+        return;
+      }
+      for (Period period : periodsOfAnalysis) {
+        values.add(offset(period.getIndex(), metricIndexesById[metricId]), dto.getValue());
+      }
     }
 
-    public Metric getMetric() {
-      return metric;
+    void copyValues(String componentUuid, double[] target) {
+      Arrays.fill(target, 0d);
+      ComponentPastValues values = valuesByComponentUuid.get(componentUuid);
+      if (values != null) {
+        values.copyTo(target);
+      }
     }
+  }
 
-    public void setVariation(int index, @Nullable Double value) {
-      variations[index - 1] = value;
-    }
+  /**
+   * Sparse past values of a component, as most components have a value for only some of the metrics.
+   */
+  private static final class ComponentPastValues {
+    private int[] offsets = new int[0];
+    private double[] values = new double[0];
+    private int size = 0;
 
-    @CheckForNull
-    public Double getVariation(int index) {
-      return variations[index - 1];
+    void add(int offset, double value) {
+      if (size == offsets.length) {
+        int capacity = Math.max(8, size * 2);
+        offsets = Arrays.copyOf(offsets, capacity);
+        values = Arrays.copyOf(values, capacity);
+      }
+      offsets[size] = offset;
+      values[size] = value;
+      size++;
     }
-  }
 
-  private enum MetricDtoToMetricId implements Function<Metric, Integer> {
-    INSTANCE;
-
-    @Nullable
-    @Override
-    public Integer apply(@Nonnull Metric metric) {
-      return metric.getId();
+    void copyTo(double[] target) {
+      for (int i = 0; i < size; i++) {
+        target[offsets[i]] = values[i];
+      }
     }
   }
 
@@ -21,8 +21,11 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.computation.configuration.CeConfiguration;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.VisitorsCrawler;
@@ -33,10 +36,12 @@ public class ExecuteVisitorsStep implements ComputationStep {
   private static final Logger LOGGER = Loggers.get(ExecuteVisitorsStep.class);
 
   private final TreeRootHolder treeRootHolder;
+  private final CeConfiguration ceConfiguration;
   private final List<ComponentVisitor> visitors;
 
-  public ExecuteVisitorsStep(TreeRootHolder treeRootHolder, List<ComponentVisitor> visitors) {
+  public ExecuteVisitorsStep(TreeRootHolder treeRootHolder, CeConfiguration ceConfiguration, List<ComponentVisitor> visitors) {
     this.treeRootHolder = treeRootHolder;
+    this.ceConfiguration = ceConfiguration;
     this.visitors = visitors;
   }
 
@@ -47,7 +52,24 @@ public class ExecuteVisitorsStep implements ComputationStep {
 
   @Override
   public void execute() {
-    VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, LOGGER.isDebugEnabled());
+    int parallelism = ceConfiguration.getVisitorsParallelism();
+    if (parallelism <= 1) {
+      crawl(null);
+      return;
+    }
+    ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+    try {
+      crawl(forkJoinPool);
+    } finally {
+      forkJoinPool.shutdownNow();
+    }
+  }
+
+  private void crawl(@Nullable ForkJoinPool forkJoinPool) {
+    VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, LOGGER.isDebugEnabled(), forkJoinPool);
+    if (forkJoinPool != null && !visitorsCrawler.isConcurrent()) {
+      LOGGER.debug("Files are visited sequentially as some visitors of files are not thread-safe");
+    }
     visitorsCrawler.visit(treeRootHolder.getRoot());
     logVisitorExecutionDurations(visitors, visitorsCrawler);
   }
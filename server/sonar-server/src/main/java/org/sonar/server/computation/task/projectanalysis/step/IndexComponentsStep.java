@@ -19,14 +19,16 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.db.component.ResourceIndexDao;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 /**
  * Components are currently indexed in db table RESOURCE_INDEX, not in Elasticsearch
  */
-public class IndexComponentsStep implements ComputationStep {
+public class IndexComponentsStep implements ConcurrentComputationStep {
 
   private final ResourceIndexDao resourceIndexDao;
   private final TreeRootHolder treeRootHolder;
@@ -41,6 +43,16 @@ public class IndexComponentsStep implements ComputationStep {
     resourceIndexDao.indexProject(treeRootHolder.getRoot().getUuid());
   }
 
+  @Override
+  public Set<Class<?>> getInputs() {
+    return ImmutableSet.of(TreeRootHolder.class);
+  }
+
+  @Override
+  public Set<Class<?>> getOutputs() {
+    return ImmutableSet.of();
+  }
+
   @Override
   public String getDescription() {
     return "Index components";
@@ -19,11 +19,13 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 import org.sonar.server.test.index.TestIndexer;
 
-public class IndexTestsStep implements ComputationStep {
+public class IndexTestsStep implements ConcurrentComputationStep {
 
   private final TestIndexer indexer;
   private final TreeRootHolder treeRootHolder;
@@ -38,6 +40,16 @@ public class IndexTestsStep implements ComputationStep {
     indexer.index(treeRootHolder.getRoot().getUuid());
   }
 
+  @Override
+  public Set<Class<?>> getInputs() {
+    return ImmutableSet.of(TreeRootHolder.class);
+  }
+
+  @Override
+  public Set<Class<?>> getOutputs() {
+    return ImmutableSet.of();
+  }
+
   @Override
   public String getDescription() {
     return "Index tests";
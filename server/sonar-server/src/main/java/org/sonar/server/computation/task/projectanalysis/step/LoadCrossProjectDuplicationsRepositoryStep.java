@@ -19,12 +19,30 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DatabaseUtils;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.duplication.DuplicationUnitDto;
@@ -53,33 +71,70 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
  * Blocks can be empty if :
  * - The file is excluded from the analysis using {@link org.sonar.api.CoreProperties#CPD_EXCLUSIONS}
  * - On Java, if the number of statements of the file is too small, nothing will be sent.
+ *
+ * Files are grouped by language and the candidate blocks of a group are loaded from database with a single lookup
+ * once the group has {@link #DEFAULT_MAX_HASHES_PER_BATCH} distinct hashes. Lookups are executed by a dedicated thread
+ * while the next files are read from the report.
+ *
+ * When {@link #BLOOM_FILTER_PROPERTY} is {@code true}, a Bloom filter of the hashes of other projects is built once per
+ * language so that files which can not have any candidate are not looked up.
  */
 public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationStep {
 
+  public static final String BLOOM_FILTER_PROPERTY = "sonar.ce.crossProjectDuplications.bloomFilter";
+
   private static final Logger LOGGER = Loggers.get(LoadCrossProjectDuplicationsRepositoryStep.class);
 
+  static final int DEFAULT_MAX_HASHES_PER_BATCH = 5 * DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
+  private static final double BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final IntegrateCrossProjectDuplications integrateCrossProjectDuplications;
   private final CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder;
   private final DbClient dbClient;
+  private final Settings settings;
+  private final int maxHashesPerBatch;
 
   public LoadCrossProjectDuplicationsRepositoryStep(TreeRootHolder treeRootHolder, BatchReportReader reportReader,
     AnalysisMetadataHolder analysisMetadataHolder, CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder,
-    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, DbClient dbClient) {
+    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, DbClient dbClient, Settings settings) {
+    this(treeRootHolder, reportReader, analysisMetadataHolder, crossProjectDuplicationStatusHolder, integrateCrossProjectDuplications, dbClient, settings,
+      DEFAULT_MAX_HASHES_PER_BATCH);
+  }
+
+  @VisibleForTesting
+  LoadCrossProjectDuplicationsRepositoryStep(TreeRootHolder treeRootHolder, BatchReportReader reportReader,
+    AnalysisMetadataHolder analysisMetadataHolder, CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder,
+    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, DbClient dbClient, Settings settings, int maxHashesPerBatch) {
     this.treeRootHolder = treeRootHolder;
     this.reportReader = reportReader;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.integrateCrossProjectDuplications = integrateCrossProjectDuplications;
     this.crossProjectDuplicationStatusHolder = crossProjectDuplicationStatusHolder;
     this.dbClient = dbClient;
+    this.settings = settings;
+    this.maxHashesPerBatch = maxHashesPerBatch;
   }
 
   @Override
   public void execute() {
-    if (crossProjectDuplicationStatusHolder.isEnabled()) {
-      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor()).visit(treeRootHolder.getRoot());
+    if (!crossProjectDuplicationStatusHolder.isEnabled()) {
+      return;
+    }
+    Analysis baseAnalysis = analysisMetadataHolder.getBaseAnalysis();
+    String analysisUuid = baseAnalysis == null ? null : baseAnalysis.getUuid();
+    ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("ce-cpd-candidates-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      CandidatesLoader candidatesLoader = new CandidatesLoader(analysisUuid, executor);
+      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor(candidatesLoader)).visit(treeRootHolder.getRoot());
+      candidatesLoader.flush();
+    } finally {
+      executor.shutdownNow();
     }
   }
 
@@ -89,9 +144,11 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   }
 
   private class CrossProjectDuplicationVisitor extends TypeAwareVisitorAdapter {
+    private final CandidatesLoader candidatesLoader;
 
-    private CrossProjectDuplicationVisitor() {
+    private CrossProjectDuplicationVisitor(CandidatesLoader candidatesLoader) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
+      this.candidatesLoader = candidatesLoader;
     }
 
     @Override
@@ -101,30 +158,188 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
       if (cpdTextBlocks.isEmpty()) {
         return;
       }
+      candidatesLoader.add(new FileBlocks(file, cpdTextBlocks));
+    }
+  }
 
-      Collection<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList();
-      List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
-      if (dtos.isEmpty()) {
+  /**
+   * Groups files by language and loads the candidate blocks of each group with one lookup in database. The lookup of a
+   * group is executed by {@link #executor} while the files of the next group are read from the report. The lookups of
+   * all groups are executed sequentially by the same thread and {@link IntegrateCrossProjectDuplications} is always called
+   * by the calling thread.
+   */
+  private class CandidatesLoader {
+    @Nullable
+    private final String analysisUuid;
+    private final ExecutorService executor;
+    private final boolean bloomFilterEnabled;
+    private final Map<String, Batch> pendingBatchesByLanguage = new HashMap<>();
+    private final Map<String, BloomFilter<CharSequence>> bloomFiltersByLanguage = new HashMap<>();
+    @CheckForNull
+    private Batch submittedBatch;
+
+    private CandidatesLoader(@Nullable String analysisUuid, ExecutorService executor) {
+      this.analysisUuid = analysisUuid;
+      this.executor = executor;
+      this.bloomFilterEnabled = settings.getBoolean(BLOOM_FILTER_PROPERTY);
+    }
+
+    void add(FileBlocks fileBlocks) {
+      String language = fileBlocks.file.getFileAttributes().getLanguageKey();
+      if (bloomFilterEnabled && !mayHaveCandidates(language, fileBlocks)) {
+        LOGGER.trace("No candidate cpd block for file {}", fileBlocks.file.getKey());
         return;
       }
+      Batch batch = pendingBatchesByLanguage.get(language);
+      if (batch == null) {
+        batch = new Batch(language);
+        pendingBatchesByLanguage.put(language, batch);
+      }
+      batch.add(fileBlocks);
+      if (batch.hashes.size() >= maxHashesPerBatch) {
+        pendingBatchesByLanguage.remove(language);
+        submit(batch);
+      }
+    }
 
-      Collection<Block> duplicatedBlocks = from(dtos).transform(DtoToBlock.INSTANCE).toList();
-      Collection<Block> originBlocks = from(cpdTextBlocks).transform(new CpdTextBlockToBlock(file.getKey())).toList();
-      LOGGER.trace("Found {} duplicated cpd blocks on file {}", duplicatedBlocks.size(), file.getKey());
+    void flush() {
+      for (Batch batch : pendingBatchesByLanguage.values()) {
+        submit(batch);
+      }
+      pendingBatchesByLanguage.clear();
+      if (submittedBatch != null) {
+        complete(submittedBatch);
+        submittedBatch = null;
+      }
+    }
 
-      integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
+    private boolean mayHaveCandidates(@Nullable String language, FileBlocks fileBlocks) {
+      BloomFilter<CharSequence> bloomFilter = bloomFiltersByLanguage.get(language);
+      if (bloomFilter == null) {
+        bloomFilter = createBloomFilter(language);
+        bloomFiltersByLanguage.put(language, bloomFilter);
+      }
+      for (String hash : fileBlocks.hashes) {
+        if (bloomFilter.mightContain(hash)) {
+          return true;
+        }
+      }
+      return false;
     }
 
-    private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
+    private BloomFilter<CharSequence> createBloomFilter(@Nullable String language) {
       DbSession dbSession = dbClient.openSession(false);
       try {
-        Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
-        String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
+        long count = dbClient.duplicationDao().countHashes(dbSession, analysisUuid, language);
+        BloomFilter<CharSequence> bloomFilter = BloomFilter.create(Funnels.unencodedCharsFunnel(), Ints.saturatedCast(Math.max(1L, count)),
+          BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY);
+        dbClient.duplicationDao().selectHashes(dbSession, analysisUuid, language, context -> bloomFilter.put((String) context.getResultObject()));
+        return bloomFilter;
       } finally {
         dbClient.closeSession(dbSession);
       }
     }
+
+    /**
+     * Starts the lookup of the candidates of the specified batch then integrates the candidates of the batch
+     * previously submitted, if any.
+     */
+    private void submit(Batch batch) {
+      batch.candidates = executor.submit(() -> selectCandidatesByHash(batch));
+      Batch previousBatch = submittedBatch;
+      submittedBatch = batch;
+      if (previousBatch != null) {
+        complete(previousBatch);
+      }
+    }
+
+    private Map<String, List<DuplicationUnitDto>> selectCandidatesByHash(Batch batch) {
+      DbSession dbSession = dbClient.openSession(false);
+      try {
+        Map<String, List<DuplicationUnitDto>> candidatesByHash = new HashMap<>();
+        for (DuplicationUnitDto dto : dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, batch.language, batch.hashes)) {
+          List<DuplicationUnitDto> candidates = candidatesByHash.get(dto.getHash());
+          if (candidates == null) {
+            candidates = new ArrayList<>();
+            candidatesByHash.put(dto.getHash(), candidates);
+          }
+          candidates.add(dto);
+        }
+        return candidatesByHash;
+      } finally {
+        dbClient.closeSession(dbSession);
+      }
+    }
+
+    private void complete(Batch batch) {
+      Map<String, List<DuplicationUnitDto>> candidatesByHash = getCandidates(batch);
+      for (FileBlocks fileBlocks : batch.files) {
+        List<DuplicationUnitDto> dtos = new ArrayList<>();
+        for (String hash : fileBlocks.hashes) {
+          List<DuplicationUnitDto> candidates = candidatesByHash.get(hash);
+          if (candidates != null) {
+            dtos.addAll(candidates);
+          }
+        }
+        if (!dtos.isEmpty()) {
+          computeCpd(fileBlocks, dtos);
+        }
+      }
+    }
+
+    private Map<String, List<DuplicationUnitDto>> getCandidates(Batch batch) {
+      try {
+        return batch.candidates.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while loading cross project duplication candidates", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new IllegalStateException("Failed to load cross project duplication candidates", cause);
+      }
+    }
+
+    private void computeCpd(FileBlocks fileBlocks, List<DuplicationUnitDto> dtos) {
+      Component file = fileBlocks.file;
+      Collection<Block> duplicatedBlocks = from(dtos).transform(DtoToBlock.INSTANCE).toList();
+      Collection<Block> originBlocks = from(fileBlocks.cpdTextBlocks).transform(new CpdTextBlockToBlock(file.getKey())).toList();
+      LOGGER.trace("Found {} duplicated cpd blocks on file {}", duplicatedBlocks.size(), file.getKey());
+
+      integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
+    }
+  }
+
+  private static final class FileBlocks {
+    private final Component file;
+    private final List<CpdTextBlock> cpdTextBlocks;
+    private final Set<String> hashes;
+
+    private FileBlocks(Component file, List<CpdTextBlock> cpdTextBlocks) {
+      this.file = file;
+      this.cpdTextBlocks = cpdTextBlocks;
+      this.hashes = new LinkedHashSet<>(from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList());
+    }
+  }
+
+  private static final class Batch {
+    @CheckForNull
+    private final String language;
+    private final List<FileBlocks> files = new ArrayList<>();
+    private final Set<String> hashes = new LinkedHashSet<>();
+    @CheckForNull
+    private Future<Map<String, List<DuplicationUnitDto>>> candidates;
+
+    private Batch(@Nullable String language) {
+      this.language = language;
+    }
+
+    private void add(FileBlocks fileBlocks) {
+      files.add(fileBlocks);
+      hashes.addAll(fileBlocks.hashes);
+    }
   }
 
   private enum CpdTextBlockToHash implements Function<CpdTextBlock, String> {
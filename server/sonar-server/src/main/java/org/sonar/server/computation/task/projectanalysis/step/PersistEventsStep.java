@@ -20,9 +20,11 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
@@ -39,6 +41,8 @@ import org.sonar.server.computation.task.step.ComputationStep;
 
 public class PersistEventsStep implements ComputationStep {
 
+  private static final Logger LOGGER = Loggers.get(PersistEventsStep.class);
+
   private final DbClient dbClient;
   private final System2 system2;
   private final AnalysisMetadataHolder analysisMetadataHolder;
@@ -59,9 +63,12 @@ public class PersistEventsStep implements ComputationStep {
     final DbSession session = dbClient.openSession(false);
     try {
       long analysisDate = analysisMetadataHolder.getAnalysisDate();
-      new DepthTraversalTypeAwareCrawler(new PersistEventComponentVisitor(session, analysisDate))
+      BulkInserter<EventDto> inserter = dbClient.eventDao().newBulkInserter(session);
+      new DepthTraversalTypeAwareCrawler(new PersistEventComponentVisitor(session, inserter, analysisDate))
         .visit(treeRootHolder.getRoot());
+      inserter.close();
       session.commit();
+      LOGGER.debug("  {} events inserted by {} statements | throughput={} rows/s", inserter.getRows(), inserter.getStatements(), inserter.getThroughput());
     } finally {
       MyBatis.closeQuietly(session);
     }
@@ -74,37 +81,38 @@ public class PersistEventsStep implements ComputationStep {
 
   private class PersistEventComponentVisitor extends TypeAwareVisitorAdapter {
     private final DbSession session;
+    private final BulkInserter<EventDto> inserter;
     private final long analysisDate;
 
-    PersistEventComponentVisitor(DbSession session, long analysisDate) {
+    PersistEventComponentVisitor(DbSession session, BulkInserter<EventDto> inserter, long analysisDate) {
       super(CrawlerDepthLimit.PROJECT, Order.PRE_ORDER);
       this.session = session;
+      this.inserter = inserter;
       this.analysisDate = analysisDate;
     }
 
     @Override
     public void visitProject(Component project) {
-      processEvents(session, project, analysisDate);
+      processEvents(project, analysisDate);
       saveVersionEvent(session, project, analysisDate);
     }
 
-    private void processEvents(DbSession session, Component component, Long analysisDate) {
+    private void processEvents(Component component, Long analysisDate) {
       Function<Event, EventDto> eventToEventDto = event -> newBaseEvent(component, analysisDate)
         .setName(event.getName())
         .setCategory(convertCategory(event.getCategory()))
         .setDescription(event.getDescription())
         .setData(event.getData());
-      // FIXME bulk insert
-      for (EventDto batchEventDto : StreamSupport.stream(eventRepository.getEvents(component).spliterator(), false).map(eventToEventDto).collect(Collectors.toList())) {
-        dbClient.eventDao().insert(session, batchEventDto);
-      }
+      StreamSupport.stream(eventRepository.getEvents(component).spliterator(), false)
+        .map(eventToEventDto)
+        .forEach(inserter::add);
     }
 
     private void saveVersionEvent(DbSession session, Component component, Long analysisDate) {
       String version = component.getReportAttributes().getVersion();
       if (version != null) {
         deletePreviousEventsHavingSameVersion(session, version, component);
-        dbClient.eventDao().insert(session, newBaseEvent(component, analysisDate)
+        inserter.add(newBaseEvent(component, analysisDate)
           .setName(version)
           .setCategory(EventDto.CATEGORY_VERSION));
       }
@@ -21,10 +21,12 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -53,17 +55,20 @@ import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
 import org.sonar.server.computation.task.projectanalysis.source.ComputeFileSourceData;
 import org.sonar.server.computation.task.projectanalysis.source.CoverageLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.DuplicationLineReader;
+import org.sonar.server.computation.task.projectanalysis.source.FileSourceInputsHashComputer;
 import org.sonar.server.computation.task.projectanalysis.source.HighlightingLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.LineReader;
 import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter;
 import org.sonar.server.computation.task.projectanalysis.source.ScmLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SymbolsLineReader;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
-public class PersistFileSourcesStep implements ComputationStep {
+public class PersistFileSourcesStep implements ConcurrentComputationStep {
+
+  private static final long MAX_PENDING_BYTES = 5L * 1024 * 1024;
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -86,11 +91,12 @@ public class PersistFileSourcesStep implements ComputationStep {
 
   @Override
   public void execute() {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
-    DbSession session = dbClient.openSession(false);
+    // Batch session is committed when the size of pending data is too high, as keeping all data in memory can produce OOM
+    DbSession session = dbClient.openSession(true);
     try {
       new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(session))
         .visit(treeRootHolder.getRoot());
+      session.commit();
     } finally {
       MyBatis.closeQuietly(session);
     }
@@ -99,13 +105,17 @@ public class PersistFileSourcesStep implements ComputationStep {
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
 
     private final DbSession session;
+    private final FileSourceInputsHashComputer inputsHashComputer;
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
+    // size of the data written but not committed yet
+    private long pendingBytes = 0L;
 
     private FileSourceVisitor(DbSession session) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
       this.session = session;
+      this.inputsHashComputer = new FileSourceInputsHashComputer(reportReader, sourceLinesRepository, scmInfoRepository, duplicationRepository);
     }
 
     @Override
@@ -125,12 +135,19 @@ public class PersistFileSourcesStep implements ComputationStep {
     public void visitFile(Component file) {
       int fileRef = file.getReportAttributes().getRef();
       ScannerReport.Component component = reportReader.readComponent(fileRef);
+      String inputsHash = inputsHashComputer.compute(file, component.getLines());
+      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      if (previousDto != null && inputsHash.equals(previousDto.getInputsHash())) {
+        // none of the data used to compute sources has changed since previous analysis
+        return;
+      }
+
       CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
       LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file);
       try {
         ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), component.getLines());
         ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange());
+        persistSource(fileSourceData, file.getUuid(), inputsHash, lineReaders.getLatestChange());
       } catch (Exception e) {
         throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
       } finally {
@@ -139,7 +156,7 @@ public class PersistFileSourcesStep implements ComputationStep {
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange) {
+    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, String inputsHash, @Nullable Changeset latestChange) {
       DbFileSources.Data fileData = fileSourceData.getFileSourceData();
 
       byte[] data = FileSourceDto.encodeSourceData(fileData);
@@ -156,12 +173,13 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setBinaryData(data)
           .setSrcHash(srcHash)
           .setDataHash(dataHash)
+          .setInputsHash(inputsHash)
           .setLineHashes(lineHashes)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
           .setRevision(computeRevision(latestChange));
         dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
+        commitIfNeeded(data.length + lineHashes.length());
       } else {
         // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
@@ -173,15 +191,28 @@ public class PersistFileSourcesStep implements ComputationStep {
             .setBinaryData(data)
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
+            .setInputsHash(inputsHash)
             .setLineHashes(lineHashes)
             .setRevision(revision)
             .setUpdatedAt(system2.now());
           dbClient.fileSourceDao().update(session, previousDto);
-          session.commit();
+          commitIfNeeded(data.length + lineHashes.length());
+        } else {
+          // sources are unchanged but inputs hash is missing (progressive migration) or a change of inputs has no impact
+          dbClient.fileSourceDao().updateInputsHash(session, previousDto.getId(), inputsHash);
+          commitIfNeeded(inputsHash.length());
         }
       }
     }
 
+    private void commitIfNeeded(long writtenBytes) {
+      pendingBytes += writtenBytes;
+      if (pendingBytes >= MAX_PENDING_BYTES) {
+        session.commit();
+        pendingBytes = 0L;
+      }
+    }
+
     @CheckForNull
     private String computeRevision(@Nullable Changeset latestChange) {
       if (latestChange == null) {
@@ -242,6 +273,16 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Class<?>> getInputs() {
+    return ImmutableSet.of(TreeRootHolder.class, BatchReportReader.class, SourceLinesRepository.class, DuplicationRepository.class);
+  }
+
+  @Override
+  public Set<Class<?>> getOutputs() {
+    return ImmutableSet.of(ScmInfoRepository.class);
+  }
+
   @Override
   public String getDescription() {
     return "Persist sources";
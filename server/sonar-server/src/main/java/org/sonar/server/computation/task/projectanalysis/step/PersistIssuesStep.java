@@ -21,11 +21,13 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import org.sonar.api.issue.IssueComment;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.issue.IssueChangeDto;
-import org.sonar.db.issue.IssueChangeMapper;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
@@ -39,6 +41,8 @@ import org.sonar.server.computation.task.step.ComputationStep;
 
 public class PersistIssuesStep implements ComputationStep {
 
+  private static final Logger LOGGER = Loggers.get(PersistIssuesStep.class);
+
   private final DbClient dbClient;
   private final System2 system2;
   private final UpdateConflictResolver conflictResolver;
@@ -56,9 +60,11 @@ public class PersistIssuesStep implements ComputationStep {
 
   @Override
   public void execute() {
+    long startedAt = System.currentTimeMillis();
     DbSession session = dbClient.openSession(true);
     IssueMapper mapper = session.getMapper(IssueMapper.class);
-    IssueChangeMapper changeMapper = session.getMapper(IssueChangeMapper.class);
+    BulkInserter<IssueDto> issueInserter = dbClient.issueDao().newBulkInserter(session);
+    BulkInserter<IssueChangeDto> changeInserter = dbClient.issueChangeDao().newBulkInserter(session);
 
     CloseableIterator<DefaultIssue> issues = issueCache.traverse();
     try {
@@ -68,7 +74,7 @@ public class PersistIssuesStep implements ComputationStep {
         if (issue.isNew()) {
           Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
           IssueDto dto = IssueDto.toDtoForComputationInsert(issue, ruleId, system2.now());
-          mapper.insert(dto);
+          issueInserter.add(dto);
           saved = true;
         } else if (issue.isChanged()) {
           IssueDto dto = IssueDto.toDtoForUpdate(issue, system2.now());
@@ -81,29 +87,36 @@ public class PersistIssuesStep implements ComputationStep {
           saved = true;
         }
         if (saved) {
-          insertChanges(changeMapper, issue);
+          insertChanges(changeInserter, issue);
         }
       }
+      issueInserter.close();
+      changeInserter.close();
       session.flushStatements();
       session.commit();
+      long rows = issueInserter.getRows() + changeInserter.getRows();
+      long duration = System.currentTimeMillis() - startedAt;
+      // both inserters are used during the whole traversal, so their throughputs can't be summed
+      LOGGER.debug("  {} issues and {} changes inserted by {} statements | throughput={} rows/s", issueInserter.getRows(), changeInserter.getRows(),
+        issueInserter.getStatements() + changeInserter.getStatements(), rows * 1000L / Math.max(1L, duration));
     } finally {
       MyBatis.closeQuietly(session);
       issues.close();
     }
   }
 
-  private static void insertChanges(IssueChangeMapper mapper, DefaultIssue issue) {
+  private static void insertChanges(BulkInserter<IssueChangeDto> inserter, DefaultIssue issue) {
     for (IssueComment comment : issue.comments()) {
       DefaultIssueComment c = (DefaultIssueComment) comment;
       if (c.isNew()) {
         IssueChangeDto changeDto = IssueChangeDto.of(c);
-        mapper.insert(changeDto);
+        inserter.add(changeDto);
       }
     }
     FieldDiffs diffs = issue.currentChange();
     if (!issue.isNew() && diffs != null) {
       IssueChangeDto changeDto = IssueChangeDto.of(issue.key(), diffs);
-      mapper.insert(changeDto);
+      inserter.add(changeDto);
     }
   }
 
@@ -27,9 +27,11 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.db.measure.MeasureDao;
 import org.sonar.db.measure.MeasureDto;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
@@ -52,6 +54,8 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class PersistMeasuresStep implements ComputationStep {
 
+  private static final Logger LOGGER = Loggers.get(PersistMeasuresStep.class);
+
   /**
    * List of metrics that should not be persisted on file measure (Waiting for SONAR-6688 to be implemented)
    */
@@ -84,19 +88,22 @@ public class PersistMeasuresStep implements ComputationStep {
   public void execute() {
     DbSession dbSession = dbClient.openSession(true);
     try {
-      new DepthTraversalTypeAwareCrawler(new MeasureVisitor(dbSession)).visit(treeRootHolder.getRoot());
+      BulkInserter<MeasureDto> inserter = dbClient.measureDao().newBulkInserter(dbSession);
+      new DepthTraversalTypeAwareCrawler(new MeasureVisitor(inserter)).visit(treeRootHolder.getRoot());
+      inserter.close();
       dbSession.commit();
+      LOGGER.debug("  {} measures inserted by {} statements | throughput={} rows/s", inserter.getRows(), inserter.getStatements(), inserter.getThroughput());
     } finally {
       dbSession.close();
     }
   }
 
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
-    private final DbSession session;
+    private final BulkInserter<MeasureDto> inserter;
 
-    private MeasureVisitor(DbSession session) {
+    private MeasureVisitor(BulkInserter<MeasureDto> inserter) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
-      this.session = session;
+      this.inserter = inserter;
     }
 
     @Override
@@ -114,10 +121,8 @@ public class PersistMeasuresStep implements ComputationStep {
 
         Metric metric = metricRepository.getByKey(metricKey);
         Predicate<Measure> notBestValueOptimized = Predicates.not(BestValueOptimization.from(metric, component));
-        MeasureDao measureDao = dbClient.measureDao();
         for (Measure measure : from(measures.getValue()).filter(NonEmptyMeasure.INSTANCE).filter(notBestValueOptimized)) {
-          MeasureDto measureDto = measureToMeasureDto.toMeasureDto(measure, metric, component);
-          measureDao.insert(session, measureDto);
+          inserter.add(measureToMeasureDto.toMeasureDto(measure, metric, component));
         }
       }
     }
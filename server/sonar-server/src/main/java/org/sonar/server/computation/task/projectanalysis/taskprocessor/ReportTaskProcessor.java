@@ -20,8 +20,10 @@
 package org.sonar.server.computation.task.projectanalysis.taskprocessor;
 
 import java.util.Collections;
+import java.util.Optional;
 import java.util.Set;
 import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.settings.SettingsLoader;
@@ -72,8 +74,9 @@ public class ReportTaskProcessor implements CeTaskProcessor {
     TaskContainer ceContainer = containerFactory.create(serverContainer, task, componentProviders);
 
     try {
-      ceContainer.getComponentByType(ComputationStepExecutor.class).execute();
-      return ceContainer.getComponentByType(TaskResultHolder.class).getResult();
+      ComputationStepExecutor stepExecutor = ceContainer.getComponentByType(ComputationStepExecutor.class);
+      stepExecutor.execute();
+      return new ReportTaskResult(ceContainer.getComponentByType(TaskResultHolder.class).getResult(), stepExecutor.getStepTimingsAsJson());
     } finally {
       ensureThreadLocalIsClean(ceContainer);
 
@@ -85,4 +88,25 @@ public class ReportTaskProcessor implements CeTaskProcessor {
   private static void ensureThreadLocalIsClean(TaskContainer ceContainer) {
     ceContainer.getComponentByType(ThreadLocalSettings.class).unload();
   }
+
+  @Immutable
+  private static class ReportTaskResult implements CeTaskResult {
+    private final CeTaskResult result;
+    private final String stepTimings;
+
+    private ReportTaskResult(CeTaskResult result, String stepTimings) {
+      this.result = result;
+      this.stepTimings = stepTimings;
+    }
+
+    @Override
+    public Optional<String> getAnalysisUuid() {
+      return result.getAnalysisUuid();
+    }
+
+    @Override
+    public Optional<String> getStepTimings() {
+      return Optional.of(stepTimings);
+    }
+  }
 }
@@ -19,37 +19,86 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.server.computation.configuration.CeConfiguration;
 
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Executes the steps in the order given by {@link ComputationSteps#instances()}. When {@link CeConfiguration#getStepsParallelism()}
+ * is greater than 1, the {@link ConcurrentComputationStep} which do not depend on each other are executed concurrently by a
+ * pool of threads. Other steps are always executed by the calling thread, alone.
+ * <p>
+ * Start, relative to the start of the first step, and duration of each step are available from {@link #getStepTimingsAsJson()}.
+ * </p>
+ */
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
 
   private final ComputationSteps steps;
   @CheckForNull
   private final Listener listener;
+  private final int parallelism;
+  private final Queue<StepTiming> timings = new ConcurrentLinkedQueue<>();
+  private long startedAt;
 
   /**
    * Used when no {@link ComputationStepExecutor.Listener} is available in pico
    * container.
    */
   public ComputationStepExecutor(ComputationSteps steps) {
-    this(steps, null);
+    this(steps, (Listener) null);
   }
 
   public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener) {
     this.steps = steps;
     this.listener = listener;
+    this.parallelism = 1;
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, CeConfiguration ceConfiguration) {
+    this(steps, ceConfiguration, null);
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, CeConfiguration ceConfiguration, @Nullable Listener listener) {
+    this.steps = steps;
+    this.listener = listener;
+    this.parallelism = ceConfiguration.getStepsParallelism();
   }
 
   public void execute() {
-    Profiler stepProfiler = Profiler.create(LOGGER);
     boolean allStepsExecuted = false;
+    timings.clear();
+    startedAt = System.currentTimeMillis();
     try {
-      executeSteps(stepProfiler);
+      if (parallelism > 1) {
+        executeConcurrently(new ComputationStepGraph(newArrayList(steps.instances())));
+      } else {
+        executeSequentially();
+      }
       allStepsExecuted = true;
     } finally {
       if (listener != null) {
@@ -58,14 +107,109 @@ public final class ComputationStepExecutor {
     }
   }
 
-  private void executeSteps(Profiler stepProfiler) {
+  /**
+   * Steps executed by the last call to {@link #execute()}, for example
+   * {@code [{"step":"Extract report","start":0,"duration":154}, ...]}. Times are in milliseconds.
+   */
+  public String getStepTimingsAsJson() {
+    List<StepTiming> sorted = new ArrayList<>(timings);
+    sorted.sort(Comparator.comparingLong(t -> t.start));
+    StringWriter json = new StringWriter();
+    JsonWriter writer = JsonWriter.of(json);
+    writer.beginArray();
+    for (StepTiming timing : sorted) {
+      writer.beginObject()
+        .prop("step", timing.description)
+        .prop("start", timing.start)
+        .prop("duration", timing.duration)
+        .endObject();
+    }
+    writer.endArray().close();
+    return json.toString();
+  }
+
+  private void executeSequentially() {
     for (ComputationStep step : steps.instances()) {
-      stepProfiler.start();
-      step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+      executeStep(step);
+    }
+  }
+
+  private void executeConcurrently(ComputationStepGraph graph) {
+    ExecutorService executorService = Executors.newFixedThreadPool(parallelism,
+      new ThreadFactoryBuilder().setNameFormat("ComputationStep-%d").setDaemon(true).build());
+    CompletionService<Integer> completionService = new ExecutorCompletionService<>(executorService);
+    Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+    int[] remainingPredecessors = new int[graph.size()];
+    Deque<Integer> ready = new ArrayDeque<>();
+    for (int i = 0; i < graph.size(); i++) {
+      remainingPredecessors[i] = graph.getPredecessorCount(i);
+      if (remainingPredecessors[i] == 0) {
+        ready.add(i);
+      }
+    }
+    try {
+      int completed = 0;
+      int running = 0;
+      while (completed < graph.size()) {
+        while (!ready.isEmpty()) {
+          int index = ready.poll();
+          if (graph.isConcurrent(index)) {
+            completionService.submit(() -> executeStep(graph.get(index), loggingContext), index);
+            running++;
+          } else {
+            // other steps are all completed
+            executeStep(graph.get(index));
+            completed++;
+            release(graph, index, remainingPredecessors, ready);
+          }
+        }
+        if (running > 0) {
+          int index = Uninterruptibles.getUninterruptibly(completionService.take());
+          running--;
+          completed++;
+          release(graph, index, remainingPredecessors, ready);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing steps", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static void release(ComputationStepGraph graph, int index, int[] remainingPredecessors, Deque<Integer> ready) {
+    for (int successor : graph.getSuccessors(index)) {
+      remainingPredecessors[successor]--;
+      if (remainingPredecessors[successor] == 0) {
+        ready.add(successor);
+      }
     }
   }
 
+  private void executeStep(ComputationStep step, @Nullable Map<String, String> loggingContext) {
+    if (loggingContext != null) {
+      MDC.setContextMap(loggingContext);
+    }
+    try {
+      executeStep(step);
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  private void executeStep(ComputationStep step) {
+    Profiler stepProfiler = Profiler.create(LOGGER).start();
+    long start = System.currentTimeMillis() - startedAt;
+    step.execute();
+    String description = step.getDescription();
+    long duration = stepProfiler.stopDebug(description);
+    timings.add(new StepTiming(description, start, duration));
+  }
+
   private void executeListener(boolean allStepsExecuted) {
     try {
       listener.finished(allStepsExecuted);
@@ -80,4 +224,16 @@ public final class ComputationStepExecutor {
   public interface Listener {
     void finished(boolean allStepsExecuted);
   }
+
+  private static class StepTiming {
+    private final String description;
+    private final long start;
+    private final long duration;
+
+    private StepTiming(String description, long start, long duration) {
+      this.description = description;
+      this.start = start;
+      this.duration = duration;
+    }
+  }
 }
@@ -0,0 +1,105 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dependencies between steps, given in execution order. A step depends on:
+ * <ul>
+ *   <li>all the preceding steps, if it does not implement {@link ConcurrentComputationStep}</li>
+ *   <li>otherwise, the last preceding step which does not implement {@link ConcurrentComputationStep} and the
+ *   preceding {@link ConcurrentComputationStep} with conflicting inputs or outputs</li>
+ * </ul>
+ */
+class ComputationStepGraph {
+
+  private final List<ComputationStep> steps;
+  private final List<List<Integer>> successors = new ArrayList<>();
+  private final int[] predecessorCounts;
+
+  ComputationStepGraph(List<ComputationStep> steps) {
+    this.steps = steps;
+    this.predecessorCounts = new int[steps.size()];
+    for (int i = 0; i < steps.size(); i++) {
+      successors.add(new ArrayList<>());
+    }
+    int lastBarrier = -1;
+    for (int i = 0; i < steps.size(); i++) {
+      if (isConcurrent(i)) {
+        if (lastBarrier >= 0) {
+          addDependency(lastBarrier, i);
+        }
+        for (int j = lastBarrier + 1; j < i; j++) {
+          if (conflict((ConcurrentComputationStep) steps.get(j), (ConcurrentComputationStep) steps.get(i))) {
+            addDependency(j, i);
+          }
+        }
+      } else {
+        // a barrier waits for all the steps since previous barrier, which itself waits for all the steps before it
+        for (int j = Math.max(0, lastBarrier); j < i; j++) {
+          addDependency(j, i);
+        }
+        lastBarrier = i;
+      }
+    }
+  }
+
+  int size() {
+    return steps.size();
+  }
+
+  ComputationStep get(int index) {
+    return steps.get(index);
+  }
+
+  boolean isConcurrent(int index) {
+    return steps.get(index) instanceof ConcurrentComputationStep;
+  }
+
+  /**
+   * Number of steps which must be completed before starting the given step
+   */
+  int getPredecessorCount(int index) {
+    return predecessorCounts[index];
+  }
+
+  List<Integer> getSuccessors(int index) {
+    return Collections.unmodifiableList(successors.get(index));
+  }
+
+  private void addDependency(int from, int to) {
+    successors.get(from).add(to);
+    predecessorCounts[to]++;
+  }
+
+  private static boolean conflict(ConcurrentComputationStep before, ConcurrentComputationStep after) {
+    return intersect(before.getOutputs(), after.getInputs())
+      || intersect(before.getOutputs(), after.getOutputs())
+      || intersect(before.getInputs(), after.getOutputs());
+  }
+
+  private static boolean intersect(Set<Class<?>> s1, Set<Class<?>> s2) {
+    return !Collections.disjoint(s1, s2);
+  }
+}
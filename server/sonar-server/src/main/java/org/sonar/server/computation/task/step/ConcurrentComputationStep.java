@@ -0,0 +1,43 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.Set;
+
+/**
+ * A {@link ComputationStep} which declares the data it reads and writes, so that {@link ComputationStepExecutor} can
+ * execute it concurrently with the neighbouring steps which do not write the data it reads, nor read or write the data
+ * it writes. Data is identified by the type of the component holding it, generally a holder or a repository.
+ * <p>
+ * Steps which do not implement this interface are executed alone, once all the preceding steps are completed.
+ * </p>
+ */
+public interface ConcurrentComputationStep extends ComputationStep {
+
+  /**
+   * Types of the components read by the step, which must be thread-safe for reading.
+   */
+  Set<Class<?>> getInputs();
+
+  /**
+   * Types of the components written by the step, including the ones which are lazily loaded when read.
+   */
+  Set<Class<?>> getOutputs();
+}
@@ -19,10 +19,13 @@
  */
 package org.sonar.server.computation.taskprocessor;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
@@ -31,26 +34,44 @@ import org.picocontainer.Startable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.configuration.CeConfiguration;
+import org.sonar.server.computation.queue.CeQueueSignal;
 
-import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Chains calls to {@link CeWorkerCallable} for each worker. When a call had nothing to do, next one is delayed and the
+ * delay doubles after each consecutive empty call, from {@link CeConfiguration#getQueuePollingDelay()} up to
+ * {@link CeConfiguration#getQueuePollingMaxDelay()}. Delayed calls are brought forward when {@link CeQueueSignal}
+ * reports a submission.
+ */
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startable {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
 
   private final CeProcessingSchedulerExecutorService executorService;
   private final CeWorkerCallable workerRunnable;
+  private final CeQueueSignal queueSignal;
 
   private final long delayBetweenTasks;
+  private final long maxDelayBetweenTasks;
   private final TimeUnit timeUnit;
   private final ChainingCallback[] chainingCallbacks;
+  private final Runnable wakeUpListener = new Runnable() {
+    @Override
+    public void run() {
+      for (ChainingCallback chainingCallback : chainingCallbacks) {
+        chainingCallback.wakeUp();
+      }
+    }
+  };
 
   public CeProcessingSchedulerImpl(CeConfiguration ceConfiguration,
-    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerCallable workerRunnable) {
+    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerCallable workerRunnable, CeQueueSignal queueSignal) {
     this.executorService = processingExecutorService;
     this.workerRunnable = workerRunnable;
+    this.queueSignal = queueSignal;
 
     this.delayBetweenTasks = ceConfiguration.getQueuePollingDelay();
+    this.maxDelayBetweenTasks = Math.max(delayBetweenTasks, ceConfiguration.getQueuePollingMaxDelay());
     this.timeUnit = MILLISECONDS;
 
     int workerCount = ceConfiguration.getWorkerCount();
@@ -68,13 +89,14 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
   @Override
   public void startScheduling() {
     for (ChainingCallback chainingCallback : chainingCallbacks) {
-      ListenableScheduledFuture<Boolean> future = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
-      addCallback(future, chainingCallback, executorService);
+      chainingCallback.start();
     }
+    queueSignal.addListener(wakeUpListener);
   }
 
   @Override
   public void stop() {
+    queueSignal.removeListener(wakeUpListener);
     for (ChainingCallback chainingCallback : chainingCallbacks) {
       chainingCallback.stop();
     }
@@ -84,10 +106,23 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     private final AtomicBoolean keepRunning = new AtomicBoolean(true);
     @CheckForNull
     private ListenableFuture<Boolean> workerFuture;
+    // delay of the next call if current one has nothing to do
+    private long nextDelay = delayBetweenTasks;
+    // the call scheduled with a delay which has not started yet, if any
+    @CheckForNull
+    private DelayedCall pendingDelayedCall;
+
+    private synchronized void start() {
+      pendingDelayedCall = new DelayedCall(this);
+      ListenableScheduledFuture<Boolean> future = executorService.schedule(pendingDelayedCall, delayBetweenTasks, timeUnit);
+      workerFuture = future;
+      Futures.addCallback(future, this, executorService);
+    }
 
     @Override
-    public void onSuccess(@Nullable Boolean result) {
+    public synchronized void onSuccess(@Nullable Boolean result) {
       if (result != null && result) {
+        nextDelay = delayBetweenTasks;
         chainWithoutDelay();
       } else {
         chainWithDelay();
@@ -95,10 +130,43 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     }
 
     @Override
-    public void onFailure(Throwable t) {
+    public synchronized void onFailure(Throwable t) {
+      if (t instanceof CancellationException) {
+        // cancelled by stop() or by wakeUp(), which takes care of chaining
+        return;
+      }
       if (t instanceof Error) {
         LOG.error("Compute Engine execution failed. Scheduled processing interrupted.", t);
       } else {
+        nextDelay = delayBetweenTasks;
+        chainWithoutDelay();
+      }
+    }
+
+    /**
+     * Called by the delayed call when it starts.
+     *
+     * @return {@code false} if the call has been replaced by {@link #wakeUp()} and must not call the worker
+     */
+    private synchronized boolean startDelayedCall(DelayedCall delayedCall) {
+      if (pendingDelayedCall != delayedCall) {
+        return false;
+      }
+      pendingDelayedCall = null;
+      return true;
+    }
+
+    /**
+     * Replaces the pending delayed call, if any, by a call without delay. Nothing is done if the delayed call has
+     * already started, as the worker is busy and chains its next call itself.
+     */
+    private synchronized void wakeUp() {
+      if (pendingDelayedCall != null && keepRunning() && workerFuture != null) {
+        // Future#cancel(boolean) may succeed even if the call is about to start. Resetting pendingDelayedCall
+        // guarantees that it does not call the worker.
+        pendingDelayedCall = null;
+        workerFuture.cancel(false);
+        nextDelay = delayBetweenTasks;
         chainWithoutDelay();
       }
     }
@@ -112,7 +180,9 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
 
     private void chainWithDelay() {
       if (keepRunning()) {
-        workerFuture = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
+        pendingDelayedCall = new DelayedCall(this);
+        workerFuture = executorService.schedule(pendingDelayedCall, nextDelay, timeUnit);
+        nextDelay = Math.min(nextDelay * 2, maxDelayBetweenTasks);
       }
       addCallback();
     }
@@ -134,4 +204,29 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
       }
     }
   }
+
+  /**
+   * Call of the worker scheduled with a delay, which does nothing if {@link ChainingCallback#wakeUp()} has replaced it
+   * by a call without delay before it started.
+   */
+  @VisibleForTesting
+  final class DelayedCall implements Callable<Boolean> {
+    private final ChainingCallback chainingCallback;
+
+    private DelayedCall(ChainingCallback chainingCallback) {
+      this.chainingCallback = chainingCallback;
+    }
+
+    @Override
+    public Boolean call() throws Exception {
+      if (!chainingCallback.startDelayedCall(this)) {
+        return false;
+      }
+      return workerRunnable.call();
+    }
+
+    CeWorkerCallable getWorker() {
+      return workerRunnable;
+    }
+  }
 }
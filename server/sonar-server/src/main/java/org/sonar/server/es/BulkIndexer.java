@@ -21,10 +21,14 @@ package org.sonar.server.es;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Semaphore;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -35,10 +39,11 @@ import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
-import org.elasticsearch.common.unit.ByteSizeUnit;
-import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.sort.SortOrder;
@@ -52,38 +57,57 @@ import static java.lang.String.format;
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
+ *   <li>bulk request is sent on the wire when its size is higher than the flush size (1Mb by default)</li>
+ *   <li>bulk requests are executed asynchronously. The number of requests being executed at the same time
+ *   is limited, callers are blocked when the limit is reached</li>
+ *   <li>flush size and number of concurrent requests are lowered when Elasticsearch rejects requests or is slow
+ *   to respond, and are raised again up to their configured values (see {@link BulkIndexerSettings})
+ *   when responses are fast</li>
+ *   <li>documents rejected by Elasticsearch are sent again, up to {@value #MAX_ATTEMPTS} times</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
  *   <li>index refresh is optional (enabled by default)</li>
  * </ul>
+ * Activity is reported in {@link EsClient#getBulkStatistics()}.
  */
 public class BulkIndexer implements Startable {
 
   private static final Logger LOGGER = Loggers.get(BulkIndexer.class);
-  private static final long FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB).bytes();
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final String ALREADY_STARTED_MESSAGE = "Bulk indexing is already started";
+  private static final TimeValue SCROLL_TIME = TimeValue.timeValueMinutes(5);
+  private static final int DELETION_PAGE_SIZE = 500;
+  static final int MAX_ATTEMPTS = 3;
+  static final long MIN_FLUSH_BYTE_SIZE = 128L * 1024L;
+  // bulk requests faster than this threshold allow to raise concurrency and flush size
+  private static final long FAST_BULK_LATENCY_MS = 1_000L;
+  // bulk requests slower than this threshold lower concurrency
+  private static final long SLOW_BULK_LATENCY_MS = 5_000L;
 
   private final EsClient client;
   private final String indexName;
+  private final BulkIndexerStatistics.IndexStatistics statistics;
   private boolean large = false;
-  private long flushByteSize = FLUSH_BYTE_SIZE;
+  private long maxFlushByteSize;
+  private final AtomicLong flushByteSize = new AtomicLong();
+  private int concurrentRequests;
   private BulkRequestBuilder bulkRequest = null;
   private Map<String, Object> largeInitialSettings = null;
   private final AtomicLong counter = new AtomicLong(0L);
-  private final int concurrentRequests;
-  private final Semaphore semaphore;
+  private InFlightLimiter limiter;
+  private final Queue<Retry> retries = new ConcurrentLinkedQueue<>();
   private final ProgressLogger progress;
+  private long startedAt;
 
   public BulkIndexer(EsClient client, String indexName) {
     this.client = client;
     this.indexName = indexName;
+    this.statistics = client.getBulkStatistics().forIndex(indexName);
     this.progress = new ProgressLogger(format("Progress[BulkIndexer[%s]]", indexName), counter, LOGGER)
       .setPluralLabel("requests");
 
-    // see https://jira.sonarsource.com/browse/SONAR-8075
-    this.concurrentRequests = Math.max(1, Runtime.getRuntime().availableProcessors() / 5);
-    this.semaphore = new Semaphore(concurrentRequests);
+    BulkIndexerSettings settings = client.getBulkSettings();
+    this.concurrentRequests = settings.concurrentRequests(indexName);
+    this.maxFlushByteSize = settings.flushByteSize(indexName);
   }
 
   /**
@@ -97,7 +121,27 @@ public class BulkIndexer implements Startable {
   }
 
   public BulkIndexer setFlushByteSize(long flushByteSize) {
-    this.flushByteSize = flushByteSize;
+    Preconditions.checkArgument(flushByteSize > 0, "Flush size must be strictly positive: %s", flushByteSize);
+    this.maxFlushByteSize = flushByteSize;
+    this.flushByteSize.set(flushByteSize);
+    return this;
+  }
+
+  /**
+   * Maximum number of bulk requests being executed at the same time
+   */
+  public BulkIndexer setConcurrentRequests(int concurrentRequests) {
+    Preconditions.checkState(bulkRequest == null, ALREADY_STARTED_MESSAGE);
+    Preconditions.checkArgument(concurrentRequests > 0, "Number of concurrent requests must be strictly positive: %s", concurrentRequests);
+    this.concurrentRequests = concurrentRequests;
+    return this;
+  }
+
+  /**
+   * Number of documents expected to be indexed, if known. Progress logs then include the estimated remaining time.
+   */
+  public BulkIndexer setExpectedCount(long count) {
+    progress.setTotal(count);
     return this;
   }
 
@@ -124,33 +168,44 @@ public class BulkIndexer implements Startable {
       updateSettings(bulkSettings);
     }
     bulkRequest = client.prepareBulk().setRefresh(false);
+    flushByteSize.set(maxFlushByteSize);
+    limiter = new InFlightLimiter(concurrentRequests);
+    retries.clear();
     counter.set(0L);
+    startedAt = System.currentTimeMillis();
     progress.start();
   }
 
   public void add(ActionRequest request) {
+    resendRejected();
     bulkRequest.request().add(request);
-    if (bulkRequest.request().estimatedSizeInBytes() >= flushByteSize) {
-      executeBulk();
+    if (bulkRequest.request().estimatedSizeInBytes() >= flushByteSize.get()) {
+      flush();
     }
   }
 
   public void addDeletion(SearchRequestBuilder searchRequest) {
     searchRequest
       .addSort("_doc", SortOrder.ASC)
-      .setScroll(TimeValue.timeValueMinutes(5))
-      .setSize(100)
+      .setScroll(SCROLL_TIME)
+      .setSize(DELETION_PAGE_SIZE)
       // load only doc ids, not _source fields
       .setFetchSource(false);
 
-    // this search is synchronous. An optimization would be to be non-blocking,
-    // but it requires to tracking pending requests in close().
-    // Same semaphore can't be reused because of potential deadlock (requires to acquire
-    // two locks)
     SearchResponse searchResponse = searchRequest.get();
 
     while (true) {
       SearchHit[] hits = searchResponse.getHits().getHits();
+      String scrollId = searchResponse.getScrollId();
+      if (hits.length == 0) {
+        client.nativeClient().prepareClearScroll().addScrollId(scrollId).get();
+        break;
+      }
+
+      // next page is loaded while the deletions of current page are being sent
+      PlainActionFuture<SearchResponse> nextPage = PlainActionFuture.newFuture();
+      client.prepareSearchScroll(scrollId).setScroll(SCROLL_TIME).execute(nextPage);
+
       for (SearchHit hit : hits) {
         DeleteRequestBuilder deleteRequestBuilder = client.prepareDelete(hit.index(), hit.type(), hit.getId());
         SearchHitField routing = hit.field("_routing");
@@ -160,11 +215,10 @@ public class BulkIndexer implements Startable {
         add(deleteRequestBuilder.request());
       }
 
-      String scrollId = searchResponse.getScrollId();
-      searchResponse = client.prepareSearchScroll(scrollId).setScroll(TimeValue.timeValueMinutes(5)).get();
-      if (hits.length == 0) {
-        client.nativeClient().prepareClearScroll().addScrollId(scrollId).get();
-        break;
+      try {
+        searchResponse = nextPage.actionGet();
+      } catch (Exception e) {
+        throw new IllegalStateException(format("Fail to execute ES search scroll request for scroll id '%s'", scrollId), e);
       }
     }
   }
@@ -184,16 +238,19 @@ public class BulkIndexer implements Startable {
 
   @Override
   public void stop() {
-    if (bulkRequest.numberOfActions() > 0) {
-      executeBulk();
-    }
-    try {
-      if (semaphore.tryAcquire(concurrentRequests, 10, TimeUnit.MINUTES)) {
-        semaphore.release(concurrentRequests);
+    long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10);
+    do {
+      resendRejected();
+      if (bulkRequest.numberOfActions() > 0) {
+        flush();
       }
-    } catch (InterruptedException e) {
-      throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes", e);
-    }
+      // responses of pending requests may add new rejected documents to be sent again
+      if (!limiter.awaitIdle(deadline - System.currentTimeMillis())) {
+        LOGGER.warn("Elasticsearch bulk requests on index [{}] still being executed after 10 minutes", indexName);
+        break;
+      }
+    } while (!retries.isEmpty());
+    statistics.addBusyTime(System.currentTimeMillis() - startedAt);
     progress.stop();
     client.prepareRefresh(indexName).get();
     if (large) {
@@ -213,36 +270,181 @@ public class BulkIndexer implements Startable {
     req.get();
   }
 
-  private void executeBulk() {
-    final BulkRequestBuilder req = this.bulkRequest;
+  private void flush() {
+    BulkRequestBuilder req = this.bulkRequest;
     this.bulkRequest = client.prepareBulk().setRefresh(false);
-    semaphore.acquireUninterruptibly();
-    req.execute(new BulkResponseActionListener(req));
+    executeBulk(req, 1);
+  }
+
+  /**
+   * Rejected documents are sent from the calling thread, never from the threads of Elasticsearch client
+   * which execute the response listeners.
+   */
+  private void resendRejected() {
+    Retry retry = retries.poll();
+    while (retry != null) {
+      BulkRequestBuilder req = client.prepareBulk().setRefresh(false);
+      req.request().add(retry.requests);
+      executeBulk(req, retry.attempt);
+      retry = retries.poll();
+    }
+  }
+
+  private void executeBulk(BulkRequestBuilder req, int attempt) {
+    limiter.acquire();
+    statistics.onBulkSent(req.request().estimatedSizeInBytes());
+    req.execute(new BulkResponseActionListener(req, attempt, System.currentTimeMillis()));
+  }
+
+  private void onPressure() {
+    limiter.halve();
+    flushByteSize.updateAndGet(size -> Math.min(maxFlushByteSize, Math.max(MIN_FLUSH_BYTE_SIZE, size / 2)));
+  }
+
+  private void onLatency(long latencyMs) {
+    if (latencyMs <= FAST_BULK_LATENCY_MS) {
+      limiter.increment();
+      flushByteSize.updateAndGet(size -> Math.min(maxFlushByteSize, size * 2));
+    } else if (latencyMs >= SLOW_BULK_LATENCY_MS) {
+      limiter.decrement();
+    }
+  }
+
+  private static boolean isRejection(Throwable e) {
+    return ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException;
   }
 
   private class BulkResponseActionListener implements ActionListener<BulkResponse> {
     private final BulkRequestBuilder req;
+    private final int attempt;
+    private final long sentAt;
 
-    BulkResponseActionListener(BulkRequestBuilder req) {
+    BulkResponseActionListener(BulkRequestBuilder req, int attempt, long sentAt) {
       this.req = req;
+      this.attempt = attempt;
+      this.sentAt = sentAt;
     }
 
     @Override
     public void onResponse(BulkResponse response) {
-      semaphore.release();
-      counter.addAndGet(response.getItems().length);
-
-      for (BulkItemResponse item : response.getItems()) {
-        if (item.isFailed()) {
-          LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+      try {
+        List<ActionRequest> rejected = new ArrayList<>();
+        int failures = 0;
+        for (BulkItemResponse item : response.getItems()) {
+          if (!item.isFailed()) {
+            continue;
+          }
+          if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS && attempt < MAX_ATTEMPTS) {
+            rejected.add(req.request().requests().get(item.getItemId()));
+          } else {
+            failures++;
+            LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+          }
         }
+        int processed = response.getItems().length - rejected.size();
+        counter.addAndGet(processed);
+        statistics.onBulkResponse(System.currentTimeMillis() - sentAt, processed - failures, failures, rejected.size());
+        if (rejected.isEmpty()) {
+          onLatency(System.currentTimeMillis() - sentAt);
+        } else {
+          retries.add(new Retry(rejected, attempt + 1));
+          onPressure();
+        }
+      } finally {
+        limiter.release();
       }
     }
 
     @Override
     public void onFailure(Throwable e) {
-      semaphore.release();
-      LOGGER.error("Fail to execute bulk index request: " + req, e);
+      try {
+        boolean rejected = isRejection(e);
+        statistics.onBulkFailure(System.currentTimeMillis() - sentAt, rejected);
+        if (rejected && attempt < MAX_ATTEMPTS) {
+          LOGGER.debug("Bulk request on index [{}] rejected by Elasticsearch, it will be sent again", indexName);
+          retries.add(new Retry(new ArrayList<>(req.request().requests()), attempt + 1));
+          onPressure();
+        } else {
+          LOGGER.error("Fail to execute bulk index request: " + req, e);
+        }
+      } finally {
+        limiter.release();
+      }
+    }
+  }
+
+  private static class Retry {
+    private final List<ActionRequest> requests;
+    private final int attempt;
+
+    Retry(List<ActionRequest> requests, int attempt) {
+      this.requests = requests;
+      this.attempt = attempt;
+    }
+  }
+
+  /**
+   * Limits the number of bulk requests being executed. Unlike a {@link java.util.concurrent.Semaphore}, the limit
+   * can be changed while requests are being executed.
+   */
+  private static class InFlightLimiter {
+    private final int maxLimit;
+    private int limit;
+    private int inFlight = 0;
+
+    InFlightLimiter(int maxLimit) {
+      this.maxLimit = maxLimit;
+      this.limit = maxLimit;
+    }
+
+    synchronized void acquire() {
+      try {
+        while (inFlight >= limit) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for Elasticsearch bulk requests", e);
+      }
+      inFlight++;
+    }
+
+    synchronized void release() {
+      inFlight--;
+      notifyAll();
+    }
+
+    /**
+     * @return false if requests are still being executed after the timeout
+     */
+    synchronized boolean awaitIdle(long timeoutMs) {
+      long deadline = System.currentTimeMillis() + timeoutMs;
+      try {
+        long remaining = timeoutMs;
+        while (inFlight > 0 && remaining > 0) {
+          wait(remaining);
+          remaining = deadline - System.currentTimeMillis();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for Elasticsearch bulk requests", e);
+      }
+      return inFlight == 0;
+    }
+
+    synchronized void halve() {
+      limit = Math.max(1, limit / 2);
+    }
+
+    synchronized void decrement() {
+      limit = Math.max(1, limit - 1);
+    }
+
+    synchronized void increment() {
+      if (limit < maxLimit) {
+        limit++;
+        notifyAll();
+      }
     }
   }
 }
@@ -0,0 +1,98 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import javax.annotation.concurrent.Immutable;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.log.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * Sizing of the requests sent by {@link BulkIndexer}, which can be defined globally and overridden per index:
+ * <ul>
+ *   <li>{@value #CONCURRENT_REQUESTS_PROPERTY} or sonar.search.bulk.[index].concurrentRequests: maximum number of
+ *   bulk requests being executed at the same time</li>
+ *   <li>{@value #FLUSH_BYTE_SIZE_PROPERTY} or sonar.search.bulk.[index].flushByteSize: maximum size in bytes of a
+ *   bulk request</li>
+ *   <li>{@value #INDEXING_THREADS_PROPERTY} or sonar.search.bulk.[index].indexingThreads: number of threads reading
+ *   the database when an index is fully populated, for the indexers that support it</li>
+ * </ul>
+ * These are upper bounds: {@link BulkIndexer} lowers them when Elasticsearch rejects requests or is slow to respond.
+ */
+@Immutable
+public class BulkIndexerSettings {
+
+  public static final String PROPERTY_PREFIX = "sonar.search.bulk.";
+  public static final String CONCURRENT_REQUESTS_PROPERTY = PROPERTY_PREFIX + "concurrentRequests";
+  public static final String FLUSH_BYTE_SIZE_PROPERTY = PROPERTY_PREFIX + "flushByteSize";
+  public static final String INDEXING_THREADS_PROPERTY = PROPERTY_PREFIX + "indexingThreads";
+
+  // see https://jira.sonarsource.com/browse/SONAR-8075
+  static final int DEFAULT_CONCURRENT_REQUESTS = Math.max(1, Runtime.getRuntime().availableProcessors() / 5);
+  static final long DEFAULT_FLUSH_BYTE_SIZE = 1024L * 1024L;
+  // each thread holds a connection of the database pool
+  static final int DEFAULT_INDEXING_THREADS = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+  private static final Logger LOGGER = EsClient.LOGGER;
+
+  private final Settings settings;
+
+  public BulkIndexerSettings(Settings settings) {
+    this.settings = settings;
+  }
+
+  public static BulkIndexerSettings defaults() {
+    return new BulkIndexerSettings(new MapSettings());
+  }
+
+  public int concurrentRequests(String indexName) {
+    return (int) positiveValue(indexName, "concurrentRequests", DEFAULT_CONCURRENT_REQUESTS);
+  }
+
+  public long flushByteSize(String indexName) {
+    return positiveValue(indexName, "flushByteSize", DEFAULT_FLUSH_BYTE_SIZE);
+  }
+
+  public int indexingThreads(String indexName) {
+    return (int) positiveValue(indexName, "indexingThreads", DEFAULT_INDEXING_THREADS);
+  }
+
+  private long positiveValue(String indexName, String suffix, long defaultValue) {
+    String indexKey = PROPERTY_PREFIX + indexName + "." + suffix;
+    String key = settings.hasKey(indexKey) ? indexKey : (PROPERTY_PREFIX + suffix);
+    String value = settings.getString(key);
+    if (value == null || value.isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      long result = Long.parseLong(value.trim());
+      if (result > 0) {
+        LOGGER.debug("Bulk indexing of {} uses {}={}", indexName, key, result);
+        return result;
+      }
+    } catch (NumberFormatException e) {
+      // fail below
+    }
+    throw MessageException.of(format("Value '%s' of property %s is invalid. It must be a number strictly greater than 0.", value, key));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the bulk requests sent by all the {@link BulkIndexer} of a process, per index.
+ */
+public class BulkIndexerStatistics {
+
+  private final ConcurrentMap<String, IndexStatistics> statisticsByIndex = new ConcurrentHashMap<>();
+
+  public IndexStatistics forIndex(String indexName) {
+    return statisticsByIndex.computeIfAbsent(indexName, i -> new IndexStatistics());
+  }
+
+  /**
+   * Statistics of the indices which have been bulk indexed since startup, sorted by index name
+   */
+  public SortedMap<String, IndexStatistics> all() {
+    return new TreeMap<>(statisticsByIndex);
+  }
+
+  public static class IndexStatistics {
+    private final AtomicLong bulkRequests = new AtomicLong();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong busyTime = new AtomicLong();
+    private final AtomicLong latency = new AtomicLong();
+
+    void onBulkSent(long sizeInBytes) {
+      bulkRequests.incrementAndGet();
+      bytes.addAndGet(sizeInBytes);
+      queueDepth.incrementAndGet();
+    }
+
+    void onBulkResponse(long latencyMs, int succeededDocuments, int failedDocuments, int rejectedDocuments) {
+      queueDepth.decrementAndGet();
+      latency.addAndGet(latencyMs);
+      documents.addAndGet(succeededDocuments);
+      failures.addAndGet(failedDocuments);
+      rejections.addAndGet(rejectedDocuments);
+    }
+
+    void onBulkFailure(long latencyMs, boolean rejected) {
+      queueDepth.decrementAndGet();
+      latency.addAndGet(latencyMs);
+      if (rejected) {
+        rejections.incrementAndGet();
+      } else {
+        failures.incrementAndGet();
+      }
+    }
+
+    void addBusyTime(long durationMs) {
+      busyTime.addAndGet(durationMs);
+    }
+
+    /**
+     * Number of bulk requests sent to Elasticsearch
+     */
+    public long getBulkRequests() {
+      return bulkRequests.get();
+    }
+
+    /**
+     * Number of documents successfully indexed or deleted
+     */
+    public long getDocuments() {
+      return documents.get();
+    }
+
+    public long getBytes() {
+      return bytes.get();
+    }
+
+    /**
+     * Number of documents, or whole bulk requests, which failed for another reason than a rejection
+     */
+    public long getFailures() {
+      return failures.get();
+    }
+
+    /**
+     * Number of documents, or whole bulk requests, rejected by Elasticsearch because its queues were full.
+     * Rejected documents are sent again.
+     */
+    public long getRejections() {
+      return rejections.get();
+    }
+
+    /**
+     * Number of bulk requests currently being executed
+     */
+    public long getQueueDepth() {
+      return queueDepth.get();
+    }
+
+    /**
+     * Average number of documents indexed per second while bulk indexers were running
+     */
+    public long getThroughput() {
+      long time = busyTime.get();
+      return time == 0L ? 0L : (documents.get() * 1000L / time);
+    }
+
+    /**
+     * Average time in milliseconds to execute a bulk request
+     */
+    public long getAverageLatency() {
+      long count = bulkRequests.get() - queueDepth.get();
+      return count <= 0L ? 0L : (latency.get() / count);
+    }
+  }
+}
@@ -79,9 +79,16 @@ public class EsClient implements Closeable {
   public static final Logger LOGGER = Loggers.get("es");
 
   private final Client nativeClient;
+  private final BulkIndexerSettings bulkSettings;
+  private final BulkIndexerStatistics bulkStatistics = new BulkIndexerStatistics();
 
   public EsClient(Client nativeClient) {
+    this(nativeClient, BulkIndexerSettings.defaults());
+  }
+
+  public EsClient(Client nativeClient, BulkIndexerSettings bulkSettings) {
     this.nativeClient = requireNonNull(nativeClient);
+    this.bulkSettings = requireNonNull(bulkSettings);
   }
 
   public RefreshRequestBuilder prepareRefresh(String... indices) {
@@ -189,6 +196,14 @@ public class EsClient implements Closeable {
     return (long) max.getValue();
   }
 
+  public BulkIndexerSettings getBulkSettings() {
+    return bulkSettings;
+  }
+
+  public BulkIndexerStatistics getBulkStatistics() {
+    return bulkStatistics;
+  }
+
   public Client nativeClient() {
     return nativeClient;
   }
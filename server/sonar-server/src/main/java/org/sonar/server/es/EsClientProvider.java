@@ -66,7 +66,7 @@ public class EsClientProvider extends ProviderAdapter {
         LOGGER.info("Connected to local Elasticsearch: [{}]", displayedAddresses(nativeClient));
       }
 
-      cache = new EsClient(nativeClient);
+      cache = new EsClient(nativeClient, new BulkIndexerSettings(settings));
     }
     return cache;
   }
@@ -19,9 +19,19 @@
  */
 package org.sonar.server.es;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.component.es.ProjectMeasuresIndexer;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.permission.index.PermissionIndexer;
@@ -44,7 +54,7 @@ public class IndexerStartupTask {
   /**
    * Limitation - {@link org.sonar.server.es.BaseIndexer} are not injected through an array or a collection
    * because we need {@link PermissionIndexer} to be executed before
-   * {@link org.sonar.server.issue.index.IssueIndexer}
+   * {@link org.sonar.server.issue.index.IssueIndexer}. Other indexers are executed concurrently.
    */
   public IndexerStartupTask(TestIndexer testIndexer, PermissionIndexer permissionIndexer, IssueIndexer issueIndexer,
                             UserIndexer userIndexer, ViewIndexer viewIndexer, ProjectMeasuresIndexer projectMeasuresIndexer,
@@ -60,25 +70,33 @@ public class IndexerStartupTask {
 
   public void execute() {
     if (!settings.getBoolean("sonar.internal.es.disableIndexes")) {
+      // authorization must be indexed before issues and project measures
+      index("authorization", permissionIndexer::indexAllIfEmpty);
 
-      LOG.info("Index authorization");
-      permissionIndexer.indexAllIfEmpty();
-
-      LOG.info("Index issues");
-      issueIndexer.index();
-
-      LOG.info("Index tests");
-      testIndexer.index();
-
-      LOG.info("Index users");
-      userIndexer.index();
-
-      LOG.info("Index views");
-      viewIndexer.index();
-
-      LOG.info("Index project measures");
-      projectMeasuresIndexer.index();
+      ExecutorService executor = Executors.newFixedThreadPool(5,
+        new ThreadFactoryBuilder().setNameFormat("IndexerStartupTask-%d").setDaemon(true).build());
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> index("issues", issueIndexer::index)));
+        futures.add(executor.submit(() -> index("tests", testIndexer::index)));
+        futures.add(executor.submit(() -> index("users", userIndexer::index)));
+        futures.add(executor.submit(() -> index("views", viewIndexer::index)));
+        futures.add(executor.submit(() -> index("project measures", projectMeasuresIndexer::index)));
+        for (Future<?> future : futures) {
+          Uninterruptibles.getUninterruptibly(future);
+        }
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      } finally {
+        executor.shutdownNow();
+      }
     }
   }
 
+  private static void index(String label, Runnable indexer) {
+    Profiler profiler = Profiler.create(LOG).startInfo("Index " + label);
+    indexer.run();
+    profiler.stopInfo();
+  }
+
 }
@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Range of project uuids, used to split the rows of a table between threads when an index is fully populated.
+ * Lower bound is inclusive and upper bound is exclusive. A null bound means that the range is not bounded on this side,
+ * so that ranges returned by {@link #split(List, int)} cover all the possible uuids, including the ones of projects
+ * created during indexing.
+ */
+@Immutable
+public class ProjectUuidRange {
+
+  private static final String SQL_ROOT_UUIDS = "select p.uuid from projects p where p.uuid=p.root_uuid order by p.uuid";
+
+  @CheckForNull
+  private final String from;
+  @CheckForNull
+  private final String to;
+
+  ProjectUuidRange(@Nullable String from, @Nullable String to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  @CheckForNull
+  public String getFrom() {
+    return from;
+  }
+
+  @CheckForNull
+  public String getTo() {
+    return to;
+  }
+
+  /**
+   * SQL condition, starting with " where ", on the given column. Empty if the range is not bounded.
+   * Parameters are set by {@link #setParameters(PreparedStatement, int)}.
+   */
+  public String toSqlWhereClause(String column) {
+    if (from == null && to == null) {
+      return "";
+    }
+    StringBuilder sql = new StringBuilder(" where ");
+    if (from != null) {
+      sql.append(column).append(">=?");
+    }
+    if (to != null) {
+      sql.append(from != null ? " and " : "").append(column).append("<?");
+    }
+    return sql.toString();
+  }
+
+  /**
+   * @return the index of the next parameter of the statement
+   */
+  public int setParameters(PreparedStatement stmt, int firstIndex) throws SQLException {
+    int index = firstIndex;
+    if (from != null) {
+      stmt.setString(index, from);
+      index++;
+    }
+    if (to != null) {
+      stmt.setString(index, to);
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * Splits the uuids of root components (projects, views, ...) in at most {@code count} ranges.
+   */
+  public static List<ProjectUuidRange> split(DbClient dbClient, DbSession dbSession, int count) {
+    List<String> uuids = new ArrayList<>();
+    try (PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(dbSession, SQL_ROOT_UUIDS);
+      ResultSet rs = stmt.executeQuery()) {
+      while (rs.next()) {
+        uuids.add(rs.getString(1));
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to select uuids of root components", e);
+    }
+    return split(uuids, count);
+  }
+
+  /**
+   * Splits the given uuids in at most {@code count} ranges of same size. Uuids must be sorted by the database,
+   * as its collation may differ from the natural order of Java strings.
+   */
+  public static List<ProjectUuidRange> split(List<String> sortedUuids, int count) {
+    checkArgument(count > 0, "Number of ranges must be strictly positive: %s", count);
+    int size = sortedUuids.size();
+    if (count == 1 || size <= 1) {
+      return Collections.singletonList(new ProjectUuidRange(null, null));
+    }
+    List<ProjectUuidRange> ranges = new ArrayList<>();
+    String from = null;
+    int previousIndex = 0;
+    for (int i = 1; i < count; i++) {
+      int index = (int) ((long) i * size / count);
+      if (index > previousIndex) {
+        String to = sortedUuids.get(index);
+        ranges.add(new ProjectUuidRange(from, to));
+        from = to;
+        previousIndex = index;
+      }
+    }
+    ranges.add(new ProjectUuidRange(from, null));
+    return ranges;
+  }
+
+  @Override
+  public String toString() {
+    return "[" + (from == null ? "" : from) + ", " + (to == null ? "" : to) + ")";
+  }
+}
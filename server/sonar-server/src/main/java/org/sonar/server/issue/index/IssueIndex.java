@@ -686,9 +686,26 @@ public class IssueIndex extends BaseIndex {
    * Only fields needed for the batch are returned.
    */
   public Iterator<IssueDoc> selectIssuesForBatch(ComponentDto component) {
+    return selectIssuesForBatch(component, null, null);
+  }
+
+  /**
+   * @param fileUuids if not null, only the issues of these files and the issues which are not on a file are returned
+   * @param changedSince if not null, only the issues updated since this date are returned, including closed issues
+   */
+  public Iterator<IssueDoc> selectIssuesForBatch(ComponentDto component, @Nullable Collection<String> fileUuids, @Nullable Date changedSince) {
     BoolQueryBuilder filter = boolQuery()
-      .must(createAuthorizationFilter(true, userSession.getUserId(), userSession.getUserGroups()))
-      .mustNot(termsQuery(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
+      .must(createAuthorizationFilter(true, userSession.getUserId(), userSession.getUserGroups()));
+    if (changedSince == null) {
+      filter.mustNot(termsQuery(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
+    } else {
+      filter.must(QueryBuilders.rangeQuery(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT).gte(changedSince));
+    }
+    if (fileUuids != null) {
+      filter.must(boolQuery()
+        .should(termsQuery(IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, fileUuids))
+        .should(boolQuery().mustNot(existsQuery(IssueIndexDefinition.FIELD_ISSUE_FILE_PATH))));
+    }
 
     switch (component.scope()) {
       case Scopes.PROJECT:
@@ -19,8 +19,16 @@
  */
 package org.sonar.server.issue.index;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
@@ -31,6 +39,7 @@ import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.ProjectUuidRange;
 
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
@@ -44,6 +53,8 @@ public class IssueIndexer extends BaseIndexer {
 
   private static final String DELETE_ERROR_MESSAGE = "Fail to delete some issues of project [%s]";
   private static final int MAX_BATCH_SIZE = 1000;
+  // more ranges than threads, so that threads remain busy when projects have very different sizes
+  private static final int RANGES_PER_THREAD = 4;
 
   private final DbClient dbClient;
 
@@ -54,11 +65,15 @@ public class IssueIndexer extends BaseIndexer {
 
   @Override
   protected long doIndex(long lastUpdatedAt) {
+    if (lastUpdatedAt <= 0L) {
+      // index is empty
+      return doIndexAll();
+    }
     return doIndex(createBulkIndexer(false), lastUpdatedAt, null);
   }
 
   public void indexAll() {
-    doIndex(createBulkIndexer(true), 0L, null);
+    doIndexAll();
   }
 
   public void index(String projectUuid) {
@@ -81,17 +96,72 @@ public class IssueIndexer extends BaseIndexer {
     }
   }
 
-  private long doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues) {
+  /**
+   * Issues are read concurrently by ranges of projects, each range with its own database session, and are
+   * sent to a single bulk indexer.
+   */
+  private long doIndexAll() {
+    BulkIndexer bulk = createBulkIndexer(true);
+    int threads = esClient.getBulkSettings().indexingThreads(INDEX);
+    List<ProjectUuidRange> ranges;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      ranges = ProjectUuidRange.split(dbClient, dbSession, threads * RANGES_PER_THREAD);
+      bulk.setExpectedCount(IssueResultSetIterator.countAll(dbClient, dbSession));
+    }
+    if (ranges.size() == 1) {
+      return doIndex(bulk, 0L, null);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, ranges.size()),
+      new ThreadFactoryBuilder().setNameFormat("IssueIndexer-%d").setDaemon(true).build());
+    try {
+      bulk.start();
+      List<Future<Long>> futures = new ArrayList<>();
+      for (ProjectUuidRange range : ranges) {
+        futures.add(executor.submit(() -> doIndex(bulk, range)));
+      }
+      long maxDate = 0L;
+      for (Future<Long> future : futures) {
+        maxDate = Math.max(maxDate, Uninterruptibles.getUninterruptibly(future));
+      }
+      bulk.stop();
+      return maxDate;
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private long doIndex(BulkIndexer bulk, ProjectUuidRange range) {
+    try (DbSession dbSession = dbClient.openSession(false);
+      IssueResultSetIterator rowIt = IssueResultSetIterator.create(dbClient, dbSession, range)) {
+      return addAll(bulk, rowIt);
+    }
+  }
+
+  private static long doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues) {
     bulk.start();
+    long maxDate = addAll(bulk, issues);
+    bulk.stop();
+    return maxDate;
+  }
+
+  /**
+   * Issues may be added by several threads, but {@link BulkIndexer} is not thread-safe
+   */
+  private static long addAll(BulkIndexer bulk, Iterator<IssueDoc> issues) {
     long maxDate = 0L;
     while (issues.hasNext()) {
       IssueDoc issue = issues.next();
-      bulk.add(newIndexRequest(issue));
+      IndexRequest request = newIndexRequest(issue);
+      synchronized (bulk) {
+        bulk.add(request);
+      }
 
       // it's more efficient to sort programmatically than in SQL on some databases (MySQL for instance)
       maxDate = Math.max(maxDate, issue.getTechnicalUpdateDate().getTime());
     }
-    bulk.stop();
     return maxDate;
   }
 
@@ -38,6 +38,7 @@ import org.sonar.db.DatabaseUtils;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ResultSetIterator;
+import org.sonar.server.es.ProjectUuidRange;
 
 import static org.sonar.api.utils.DateUtils.longToDate;
 import static org.sonar.db.DatabaseUtils.getLong;
@@ -92,6 +93,8 @@ class IssueResultSetIterator extends ResultSetIterator<IssueDoc> {
 
   private static final String PROJECT_FILTER = " AND root.uuid=?";
 
+  private static final String SQL_COUNT = "select count(1) from issues";
+
   private static final Splitter TAGS_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
 
   private static final Splitter MODULE_PATH_SPLITTER = Splitter.on('.').trimResults().omitEmptyStrings();
@@ -119,6 +122,29 @@ class IssueResultSetIterator extends ResultSetIterator<IssueDoc> {
     }
   }
 
+  /**
+   * Issues of the projects of the given range, regardless of their update date
+   */
+  static IssueResultSetIterator create(DbClient dbClient, DbSession session, ProjectUuidRange projectRange) {
+    try {
+      String sql = SQL_ALL + projectRange.toSqlWhereClause("i.project_uuid");
+      PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, sql);
+      projectRange.setParameters(stmt, 1);
+      return new IssueResultSetIterator(stmt);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to prepare SQL request to select issues of projects " + projectRange, e);
+    }
+  }
+
+  static long countAll(DbClient dbClient, DbSession session) {
+    try (PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, SQL_COUNT);
+      ResultSet rs = stmt.executeQuery()) {
+      return rs.next() ? rs.getLong(1) : 0L;
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to count issues", e);
+    }
+  }
+
   @CheckForNull
   private static String extractDirPath(@Nullable String filePath, String scope) {
     if (filePath != null) {
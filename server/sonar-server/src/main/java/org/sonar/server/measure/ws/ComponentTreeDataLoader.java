@@ -42,6 +42,7 @@ import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.sonar.api.measures.Metric.ValueType;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.ResourceTypes;
 import org.sonar.api.web.UserRole;
@@ -109,19 +110,22 @@ public class ComponentTreeDataLoader {
           .build();
       }
       Long developerId = searchDeveloperId(dbSession, wsRequest);
+      List<MetricDto> metrics = searchMetrics(dbSession, wsRequest);
+      List<WsMeasures.Period> periods = snapshotToWsPeriods(baseSnapshot.get());
 
-      ComponentTreeQuery dbQuery = toComponentTreeQuery(wsRequest, baseComponent);
+      ComponentTreeQuery dbQuery = toComponentTreeQuery(wsRequest, baseComponent, metrics, periods, developerId);
       ComponentDtosAndTotal componentDtosAndTotal = searchComponents(dbSession, dbQuery, wsRequest);
       List<ComponentDto> components = componentDtosAndTotal.componentDtos;
-      List<MetricDto> metrics = searchMetrics(dbSession, wsRequest);
-      List<WsMeasures.Period> periods = snapshotToWsPeriods(baseSnapshot.get());
       Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric = searchMeasuresByComponentUuidAndMetric(dbSession, baseComponent, components, metrics,
         periods, developerId);
 
-      components = filterComponents(components, measuresByComponentUuidAndMetric, metrics, wsRequest);
-      components = sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
-      int componentCount = computeComponentCount(componentDtosAndTotal.total, components, componentWithMeasuresOnly(wsRequest));
-      components = paginateComponents(components, wsRequest);
+      int componentCount = componentDtosAndTotal.total;
+      if (isSortByMetricInMemory(wsRequest, dbQuery)) {
+        components = filterComponents(components, measuresByComponentUuidAndMetric, metrics, wsRequest);
+        components = ComponentTreeSort.sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
+        componentCount = computeComponentCount(componentCount, components, componentWithMeasuresOnly(wsRequest));
+        components = paginateComponents(components, wsRequest);
+      }
       Map<String, ComponentDto> referenceComponentsById = searchReferenceComponentsById(dbSession, components);
 
       return ComponentTreeData.builder()
@@ -260,34 +264,24 @@ public class ComponentTreeDataLoader {
       return components;
     }
 
-    final String metricKeyToSort = wsRequest.getMetricSort();
-    Optional<MetricDto> metricToSort = from(metrics).firstMatch(new MatchMetricKey(metricKeyToSort));
-    checkState(metricToSort.isPresent(), "Metric '%s' not found", metricKeyToSort, wsRequest.getMetricKeys());
-
     return components
       .stream()
-      .filter(new HasMeasure(measuresByComponentUuidAndMetric, metricToSort.get(), wsRequest))
+      .filter(new HasMeasure(measuresByComponentUuidAndMetric, metricToSort(metrics, wsRequest), wsRequest))
       .collect(Collectors.toList());
   }
 
-  private static boolean componentWithMeasuresOnly(ComponentTreeWsRequest wsRequest) {
-    return WITH_MEASURES_ONLY_METRIC_SORT_FILTER.equals(wsRequest.getMetricSortFilter());
+  private static MetricDto metricToSort(List<MetricDto> metrics, ComponentTreeWsRequest wsRequest) {
+    final String metricKeyToSort = wsRequest.getMetricSort();
+    Optional<MetricDto> metricToSort = from(metrics).firstMatch(new MatchMetricKey(metricKeyToSort));
+    checkState(metricToSort.isPresent(), "Metric '%s' not found", metricKeyToSort, wsRequest.getMetricKeys());
+    return metricToSort.get();
   }
 
-  private static List<ComponentDto> sortComponents(List<ComponentDto> components, ComponentTreeWsRequest wsRequest, List<MetricDto> metrics,
-    Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric) {
-    if (!isSortByMetric(wsRequest)) {
-      return components;
-    }
-
-    return ComponentTreeSort.sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
+  private static boolean componentWithMeasuresOnly(ComponentTreeWsRequest wsRequest) {
+    return WITH_MEASURES_ONLY_METRIC_SORT_FILTER.equals(wsRequest.getMetricSortFilter());
   }
 
   private static List<ComponentDto> paginateComponents(List<ComponentDto> components, ComponentTreeWsRequest wsRequest) {
-    if (!isSortByMetric(wsRequest)) {
-      return components;
-    }
-
     return from(components)
       .skip(offset(wsRequest.getPage(), wsRequest.getPageSize()))
       .limit(wsRequest.getPageSize())
@@ -299,6 +293,14 @@ public class ComponentTreeDataLoader {
     return wsRequest.getSort().contains(METRIC_SORT) || wsRequest.getSort().contains(METRIC_PERIOD_SORT);
   }
 
+  /**
+   * Components are sorted by database, unless they are sorted by a metric which can't be, see {@link ComponentTreeSort#isSortableByDatabase(MetricDto, ComponentTreeWsRequest)}.
+   * In this case, all the components are loaded, then filtered, sorted and paginated in memory.
+   */
+  private static boolean isSortByMetricInMemory(ComponentTreeWsRequest wsRequest, ComponentTreeQuery dbQuery) {
+    return isSortByMetric(wsRequest) && dbQuery.getMeasureSort() == null;
+  }
+
   @CheckForNull
   private List<String> childrenQualifiers(ComponentTreeWsRequest request, String baseQualifier) {
     List<String> requestQualifiers = request.getQualifiers();
@@ -320,17 +322,14 @@ public class ComponentTreeDataLoader {
     return new ArrayList<>(qualifiersIntersection);
   }
 
-  private ComponentTreeQuery toComponentTreeQuery(ComponentTreeWsRequest wsRequest, ComponentDto baseComponent) {
+  private ComponentTreeQuery toComponentTreeQuery(ComponentTreeWsRequest wsRequest, ComponentDto baseComponent, List<MetricDto> metrics,
+    List<WsMeasures.Period> periods, @Nullable Long developerId) {
     List<String> childrenQualifiers = childrenQualifiers(wsRequest, baseComponent.qualifier());
 
-    List<String> sortsWithoutMetricSort = newArrayList(Iterables.filter(wsRequest.getSort(), IsNotMetricSort.INSTANCE));
-    sortsWithoutMetricSort = sortsWithoutMetricSort.isEmpty() ? singletonList(NAME_SORT) : sortsWithoutMetricSort;
-
     ComponentTreeQuery.Builder dbQuery = ComponentTreeQuery.builder()
       .setBaseUuid(baseComponent.uuid())
       .setPage(wsRequest.getPage())
       .setPageSize(wsRequest.getPageSize())
-      .setSortFields(sortsWithoutMetricSort)
       .setAsc(wsRequest.getAsc());
 
     if (wsRequest.getQuery() != null) {
@@ -339,8 +338,17 @@ public class ComponentTreeDataLoader {
     if (childrenQualifiers != null) {
       dbQuery.setQualifiers(childrenQualifiers);
     }
-    // load all components if we must sort by metric value
-    if (isSortByMetric(wsRequest)) {
+
+    ComponentTreeQuery.MeasureSort measureSort = isSortByMetric(wsRequest) ? toMeasureSort(wsRequest, metrics, periods, developerId) : null;
+    if (measureSort != null) {
+      dbQuery.setSortFields(Lists.transform(wsRequest.getSort(), MetricSortToMeasureSortField.INSTANCE));
+      dbQuery.setMeasureSort(measureSort);
+    } else {
+      List<String> sortsWithoutMetricSort = newArrayList(Iterables.filter(wsRequest.getSort(), IsNotMetricSort.INSTANCE));
+      dbQuery.setSortFields(sortsWithoutMetricSort.isEmpty() ? singletonList(NAME_SORT) : sortsWithoutMetricSort);
+    }
+    // load all components if we must sort by metric value in memory
+    if (isSortByMetric(wsRequest) && measureSort == null) {
       dbQuery.setPage(1);
       dbQuery.setPageSize(Integer.MAX_VALUE);
     }
@@ -348,6 +356,37 @@ public class ComponentTreeDataLoader {
     return dbQuery.build();
   }
 
+  @CheckForNull
+  private static ComponentTreeQuery.MeasureSort toMeasureSort(ComponentTreeWsRequest wsRequest, List<MetricDto> metrics, List<WsMeasures.Period> periods,
+    @Nullable Long developerId) {
+    MetricDto metric = metricToSort(metrics, wsRequest);
+    if (!ComponentTreeSort.isSortableByDatabase(metric, wsRequest)) {
+      return null;
+    }
+
+    Integer periodIndex = wsRequest.getSort().contains(METRIC_PERIOD_SORT) ? wsRequest.getMetricPeriodSort() : null;
+    return ComponentTreeQuery.MeasureSort.builder()
+      .setMetricId(metric.getId())
+      .setPeriodIndex(periodIndex)
+      .setLevel(ValueType.LEVEL.name().equals(metric.getValueType()))
+      .setPersonId(developerId)
+      .setBestValue(bestValueToSort(metric, periodIndex, periods), QUALIFIERS_ELIGIBLE_FOR_BEST_VALUE)
+      .setWithMeasuresOnly(componentWithMeasuresOnly(wsRequest))
+      .build();
+  }
+
+  /**
+   * Value or variation to sort on of the measures added by {@link #addBestValuesToMeasures(Table, List, List, List)}
+   */
+  @CheckForNull
+  private static Double bestValueToSort(MetricDto metric, @Nullable Integer periodIndex, List<WsMeasures.Period> periods) {
+    if (!MetricDtoFunctions.isOptimizedForBestValue().apply(metric)) {
+      return null;
+    }
+    MeasureDto bestValue = new MetricDtoToMetricDtoWithBestValue(periods).apply(metric).getBestValue();
+    return periodIndex == null ? bestValue.getValue() : bestValue.getVariation(periodIndex);
+  }
+
   private void checkPermissions(ComponentDto baseComponent) {
     String projectUuid = firstNonNull(baseComponent.projectUuid(), baseComponent.uuid());
     if (!userSession.hasComponentUuidPermission(UserRole.ADMIN, projectUuid) &&
@@ -406,6 +445,15 @@ public class ComponentTreeDataLoader {
     }
   }
 
+  private enum MetricSortToMeasureSortField implements Function<String, String> {
+    INSTANCE;
+
+    @Override
+    public String apply(@Nonnull String input) {
+      return IsNotMetricSort.INSTANCE.apply(input) ? input : ComponentTreeQuery.MEASURE_SORT_FIELD;
+    }
+  }
+
   private static class MatchMetricKey implements Predicate<MetricDto> {
     private final String metricKeyToSort;
 
@@ -66,6 +66,19 @@ class ComponentTreeSort {
     // static method only
   }
 
+  /**
+   * Numerical and level metrics can be sorted by database, see {@link org.sonar.db.component.ComponentTreeQuery.MeasureSort}.
+   * Textual metrics can't, as their values can be stored in a BLOB.
+   */
+  static boolean isSortableByDatabase(MetricDto metric, ComponentTreeWsRequest wsRequest) {
+    ValueType metricValueType = ValueType.valueOf(metric.getValueType());
+    boolean isNumeric = NUMERIC_VALUE_TYPES.contains(metricValueType);
+    if (wsRequest.getSort().contains(METRIC_PERIOD_SORT) && !isNumeric) {
+      throw new BadRequestException(format("Impossible to sort metric '%s' by measure period.", metric.getKey()));
+    }
+    return isNumeric || ValueType.LEVEL.equals(metricValueType);
+  }
+
   static List<ComponentDto> sortComponents(List<ComponentDto> components, ComponentTreeWsRequest wsRequest, List<MetricDto> metrics,
     Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric) {
     List<String> sortParameters = wsRequest.getSort();
@@ -27,8 +27,11 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import java.io.IOException;
 import java.io.InvalidClassException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
@@ -97,13 +100,48 @@ public class DefaultNotificationManager implements NotificationManager {
     }
     notificationQueueDao.delete(notificationDtos);
 
-    return convertToNotification(notificationDtos);
+    return convertToNotification(notificationDtos.get(0));
   }
 
-  private Notification convertToNotification(List<NotificationQueueDto> notifications) {
+  /**
+   * Give at most {@code batchSize} of the oldest notifications of the queue so that they can be processed. Notifications
+   * which can not be deserialized are ignored. The returned batch is empty only if the queue is empty.
+   * <p/>
+   * Notifications stay in the queue until {@link #removeFromQueue(Batch)} is called, so that a stop or a crash
+   * of the server before they are delivered does not lose them.
+   */
+  public Batch getFromQueue(int batchSize) {
+    List<NotificationQueueDto> notificationDtos = notificationQueueDao.selectOldest(batchSize);
+    while (!notificationDtos.isEmpty()) {
+      List<Notification> notifications = new ArrayList<>(notificationDtos.size());
+      for (NotificationQueueDto notificationDto : notificationDtos) {
+        Notification notification = convertToNotification(notificationDto);
+        if (notification != null) {
+          notifications.add(notification);
+        }
+      }
+      if (!notifications.isEmpty()) {
+        return new Batch(notifications, notificationDtos);
+      }
+      notificationQueueDao.delete(notificationDtos);
+      notificationDtos = notificationQueueDao.selectOldest(batchSize);
+    }
+    return new Batch(Collections.emptyList(), Collections.emptyList());
+  }
+
+  /**
+   * Remove from the queue the notifications of a batch given by {@link #getFromQueue(int)}, once they are processed.
+   */
+  public void removeFromQueue(Batch batch) {
+    if (!batch.dtos.isEmpty()) {
+      notificationQueueDao.delete(batch.dtos);
+    }
+  }
+
+  @CheckForNull
+  private Notification convertToNotification(NotificationQueueDto notificationDto) {
     try {
-      // If batchSize is increased then we should return a list instead of a single element
-      return notifications.get(0).toNotification();
+      return notificationDto.toNotification();
     } catch (InvalidClassException e) {
       // SONAR-4739
       if (!alreadyLoggedDeserializationIssue) {
@@ -166,6 +204,28 @@ public class DefaultNotificationManager implements NotificationManager {
     return Arrays.asList(notificationChannels);
   }
 
+  /**
+   * Notifications given by {@link #getFromQueue(int)}
+   */
+  public static final class Batch {
+    private final List<Notification> notifications;
+    private final List<NotificationQueueDto> dtos;
+
+    @VisibleForTesting
+    Batch(List<Notification> notifications, List<NotificationQueueDto> dtos) {
+      this.notifications = notifications;
+      this.dtos = dtos;
+    }
+
+    public List<Notification> getNotifications() {
+      return notifications;
+    }
+
+    public boolean isEmpty() {
+      return notifications.isEmpty();
+    }
+  }
+
   private static void addUsersToRecipientListForChannel(List<String> users, SetMultimap<String, NotificationChannel> recipients, NotificationChannel channel) {
     for (String username : users) {
       recipients.put(username, channel);
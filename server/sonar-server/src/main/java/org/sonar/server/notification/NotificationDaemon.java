@@ -21,9 +21,12 @@ package org.sonar.server.notification;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.picocontainer.Startable;
 import org.sonar.api.Properties;
 import org.sonar.api.Property;
@@ -32,6 +35,7 @@ import org.sonar.api.notifications.Notification;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.Jmx;
 
 @Properties({
   @Property(
@@ -43,34 +47,52 @@ import org.sonar.api.utils.log.Loggers;
     key = NotificationDaemon.PROPERTY_DELAY_BEFORE_REPORTING_STATUS,
     defaultValue = "600",
     name = "Delay before reporting notification status, in seconds",
+    global = false),
+  @Property(
+    key = NotificationDaemon.PROPERTY_WORKER_COUNT,
+    defaultValue = "1",
+    name = "Number of threads delivering notifications in parallel",
     global = false)
 })
 @ServerSide
-public class NotificationDaemon implements Startable {
+public class NotificationDaemon implements NotificationDaemonMBean, Startable {
   private static final String THREAD_NAME_PREFIX = "sq-notification-service-";
+  private static final String WORKER_THREAD_NAME_PREFIX = "sq-notification-worker-";
+  private static final int BATCH_SIZE = 100;
 
   private static final Logger LOG = Loggers.get(NotificationDaemon.class);
 
   public static final String PROPERTY_DELAY = "sonar.notifications.delay";
   public static final String PROPERTY_DELAY_BEFORE_REPORTING_STATUS = "sonar.notifications.runningDelayBeforeReportingStatus";
+  public static final String PROPERTY_WORKER_COUNT = "sonar.notifications.workerCount";
 
   private final long delayInSeconds;
   private final long delayBeforeReportingStatusInSeconds;
+  private final int workerCount;
   private final DefaultNotificationManager manager;
   private final NotificationService service;
+  private final AtomicLong deliveredCount = new AtomicLong();
+  private final AtomicLong deliveryTime = new AtomicLong();
 
   private ScheduledExecutorService executorService;
+  private ExecutorService workers;
   private boolean stopping = false;
 
   public NotificationDaemon(Settings settings, DefaultNotificationManager manager, NotificationService service) {
     this.delayInSeconds = settings.getLong(PROPERTY_DELAY);
     this.delayBeforeReportingStatusInSeconds = settings.getLong(PROPERTY_DELAY_BEFORE_REPORTING_STATUS);
+    this.workerCount = Math.max(1, settings.getInt(PROPERTY_WORKER_COUNT));
     this.manager = manager;
     this.service = service;
   }
 
   @Override
   public void start() {
+    workers = Executors.newFixedThreadPool(workerCount,
+      new ThreadFactoryBuilder()
+        .setNameFormat(WORKER_THREAD_NAME_PREFIX + "%d")
+        .setPriority(Thread.MIN_PRIORITY)
+        .build());
     executorService = Executors.newSingleThreadScheduledExecutor(
       new ThreadFactoryBuilder()
         .setNameFormat(THREAD_NAME_PREFIX + "%d")
@@ -83,15 +105,19 @@ public class NotificationDaemon implements Startable {
         LOG.error("Error in NotificationService", e);
       }
     }, 0, delayInSeconds, TimeUnit.SECONDS);
-    LOG.info("Notification service started (delay {} sec.)", delayInSeconds);
+    Jmx.register(OBJECT_NAME, this);
+    LOG.info("Notification service started (delay {} sec., {} workers)", delayInSeconds, workerCount);
   }
 
   @Override
   public void stop() {
     try {
       stopping = true;
+      Jmx.unregister(OBJECT_NAME);
       executorService.shutdown();
       executorService.awaitTermination(5, TimeUnit.SECONDS);
+      workers.shutdown();
+      workers.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       LOG.error("Error during stop of notification service", e);
       Thread.currentThread().interrupt();
@@ -104,22 +130,29 @@ public class NotificationDaemon implements Startable {
     long start = now();
     long lastLog = start;
     long notifSentCount = 0;
+    long batchStart = start;
 
-    Notification notifToSend = manager.getFromQueue();
-    while (notifToSend != null) {
-      service.deliver(notifToSend);
-      notifSentCount++;
+    DefaultNotificationManager.Batch batch = manager.getFromQueue(BATCH_SIZE);
+    while (!batch.isEmpty()) {
+      List<Notification> notifsToSend = batch.getNotifications();
+      service.deliver(notifsToSend, workers, workerCount);
+      // removed only once delivered, so that a stop or a crash does not lose the notifications of the batch
+      manager.removeFromQueue(batch);
+      notifSentCount += notifsToSend.size();
+      deliveredCount.addAndGet(notifsToSend.size());
+      long now = now();
+      deliveryTime.addAndGet(now - batchStart);
+      batchStart = now;
       if (stopping) {
         break;
       }
-      long now = now();
       if (now - lastLog > delayBeforeReportingStatusInSeconds * 1000) {
         long remainingNotifCount = manager.count();
         lastLog = now;
         long spentTimeInMinutes = (now - start) / (60 * 1000);
         log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
       }
-      notifToSend = manager.getFromQueue();
+      batch = manager.getFromQueue(BATCH_SIZE);
     }
   }
 
@@ -129,6 +162,26 @@ public class NotificationDaemon implements Startable {
       notifSentCount, spentTimeInMinutes, remainingNotifCount);
   }
 
+  @Override
+  public long getQueueSize() {
+    return manager.count();
+  }
+
+  @Override
+  public long getDeliveredCount() {
+    return deliveredCount.get();
+  }
+
+  @Override
+  public long getDeliveryTime() {
+    return deliveryTime.get();
+  }
+
+  @Override
+  public int getWorkerCount() {
+    return workerCount;
+  }
+
   @VisibleForTesting
   long now() {
     return System.currentTimeMillis();
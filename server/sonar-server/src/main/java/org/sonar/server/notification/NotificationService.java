@@ -20,15 +20,22 @@
 package org.sonar.server.notification;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.notifications.Notification;
@@ -65,7 +72,46 @@ public class NotificationService {
   }
 
   public void deliver(Notification notification) {
-    final SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
+    dispatch(notification, recipientsOf(notification));
+  }
+
+  /**
+   * Delivers a batch of notifications. Deliveries are grouped by recipient, so that all the notifications of a user
+   * are delivered by the same task, and recipients are spread over at most {@code parallelism} tasks executed
+   * by {@code executor}. Returns when all the tasks are completed.
+   */
+  public void deliver(List<Notification> notifications, ExecutorService executor, int parallelism) {
+    Map<String, ListMultimap<NotificationChannel, Notification>> deliveriesByRecipient = new LinkedHashMap<>();
+    for (Notification notification : notifications) {
+      for (Map.Entry<String, NotificationChannel> recipient : recipientsOf(notification).entries()) {
+        deliveriesByRecipient
+          .computeIfAbsent(recipient.getKey(), username -> ArrayListMultimap.create())
+          .put(recipient.getValue(), notification);
+      }
+    }
+    if (deliveriesByRecipient.isEmpty()) {
+      return;
+    }
+
+    int recipientsPerTask = (deliveriesByRecipient.size() + parallelism - 1) / parallelism;
+    List<Future<?>> futures = new ArrayList<>();
+    for (List<String> usernames : Lists.partition(new ArrayList<>(deliveriesByRecipient.keySet()), recipientsPerTask)) {
+      futures.add(executor.submit(() -> deliver(usernames, deliveriesByRecipient)));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        LOG.warn("Unable to deliver notifications", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private SetMultimap<String, NotificationChannel> recipientsOf(Notification notification) {
+    SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
     for (NotificationDispatcher dispatcher : dispatchers) {
       NotificationDispatcher.Context context = new ContextImpl(recipients);
       try {
@@ -75,7 +121,27 @@ public class NotificationService {
         LOG.warn(String.format("Unable to dispatch notification %s using %s", notification, dispatcher), e);
       }
     }
-    dispatch(notification, recipients);
+    return recipients;
+  }
+
+  private static void deliver(List<String> usernames, Map<String, ListMultimap<NotificationChannel, Notification>> deliveriesByRecipient) {
+    Map<NotificationChannel, ListMultimap<String, Notification>> deliveriesByChannel = new LinkedHashMap<>();
+    for (String username : usernames) {
+      for (Map.Entry<NotificationChannel, Notification> delivery : deliveriesByRecipient.get(username).entries()) {
+        deliveriesByChannel
+          .computeIfAbsent(delivery.getKey(), channel -> ArrayListMultimap.create())
+          .put(username, delivery.getValue());
+      }
+    }
+    for (Map.Entry<NotificationChannel, ListMultimap<String, Notification>> entry : deliveriesByChannel.entrySet()) {
+      NotificationChannel channel = entry.getKey();
+      try {
+        channel.deliverAll(entry.getValue().asMap());
+      } catch (Exception e) {
+        // catch all exceptions in order to deliver via other channels
+        LOG.warn("Unable to deliver notifications via " + channel, e);
+      }
+    }
   }
 
   private void dispatch(Notification notification, SetMultimap<String, NotificationChannel> recipients) {
@@ -84,16 +150,20 @@ public class NotificationService {
       Collection<NotificationChannel> userChannels = entry.getValue();
       LOG.debug("For user {} via {}", username, userChannels);
       for (NotificationChannel channel : userChannels) {
-        try {
-          channel.deliver(notification, username);
-        } catch (Exception e) {
-          // catch all exceptions in order to deliver via other channels
-          LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
-        }
+        deliver(channel, notification, username);
       }
     }
   }
 
+  private static void deliver(NotificationChannel channel, Notification notification, String username) {
+    try {
+      channel.deliver(notification, username);
+    } catch (Exception e) {
+      // catch all exceptions in order to deliver via other channels
+      LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
+    }
+  }
+
   @VisibleForTesting
   protected List<NotificationDispatcher> getDispatchers() {
     return dispatchers;
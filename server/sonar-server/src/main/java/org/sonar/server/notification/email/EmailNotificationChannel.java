@@ -21,6 +21,14 @@ package org.sonar.server.notification.email;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.mail.EmailException;
 import org.apache.commons.mail.SimpleEmail;
@@ -132,6 +140,36 @@ public class EmailNotificationChannel extends NotificationChannel {
     }
   }
 
+  /**
+   * Delivers the notifications of several users. Each user is loaded once and all the emails are sent through
+   * the same SMTP connection.
+   */
+  @Override
+  public void deliverAll(Map<String, Collection<Notification>> notificationsByRecipient) {
+    if (StringUtils.isBlank(configuration.getSmtpHost())) {
+      LOG.debug("SMTP host was not configured - email will not be sent");
+      return;
+    }
+    List<EmailMessage> emailMessages = new ArrayList<>();
+    for (Map.Entry<String, Collection<Notification>> entry : notificationsByRecipient.entrySet()) {
+      User user = userFinder.findByLogin(entry.getKey());
+      if (user == null || StringUtils.isBlank(user.email())) {
+        LOG.debug("User does not exist or has no email: {}", entry.getKey());
+        continue;
+      }
+      for (Notification notification : entry.getValue()) {
+        EmailMessage emailMessage = format(notification);
+        if (emailMessage != null) {
+          emailMessage.setTo(user.email());
+          emailMessages.add(emailMessage);
+        }
+      }
+    }
+    if (!emailMessages.isEmpty()) {
+      send(emailMessages);
+    }
+  }
+
   private void send(EmailMessage emailMessage) throws EmailException {
     // Trick to correctly initialize javax.mail library
     ClassLoader classloader = Thread.currentThread().getContextClassLoader();
@@ -139,52 +177,97 @@ public class EmailNotificationChannel extends NotificationChannel {
 
     try {
       LOG.debug("Sending email: {}", emailMessage);
-      String host = null;
-      try {
-        host = new URL(configuration.getServerBaseURL()).getHost();
-      } catch (MalformedURLException e) {
-        // ignore
-      }
+      newEmail(emailMessage).send();
+    } finally {
+      Thread.currentThread().setContextClassLoader(classloader);
+    }
+  }
 
-      SimpleEmail email = new SimpleEmail();
-      if (StringUtils.isNotBlank(host)) {
-        /*
-         * Set headers for proper threading: GMail will not group messages, even if they have same subject, but don't have "In-Reply-To" and
-         * "References" headers. TODO investigate threading in other clients like KMail, Thunderbird, Outlook
-         */
-        if (StringUtils.isNotEmpty(emailMessage.getMessageId())) {
-          String messageId = "<" + emailMessage.getMessageId() + "@" + host + ">";
-          email.addHeader(IN_REPLY_TO_HEADER, messageId);
-          email.addHeader(REFERENCES_HEADER, messageId);
+  private void send(List<EmailMessage> emailMessages) {
+    // Trick to correctly initialize javax.mail library
+    ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+
+    Transport transport = null;
+    try {
+      for (EmailMessage emailMessage : emailMessages) {
+        try {
+          LOG.debug("Sending email: {}", emailMessage);
+          SimpleEmail email = newEmail(emailMessage);
+          email.buildMimeMessage();
+          MimeMessage mimeMessage = email.getMimeMessage();
+          mimeMessage.saveChanges();
+          if (transport == null) {
+            transport = email.getMailSession().getTransport();
+            transport.connect();
+          }
+          transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+        } catch (EmailException | MessagingException e) {
+          LOG.error("Unable to send email", e);
+          // connection is re-opened for next email
+          close(transport);
+          transport = null;
         }
-        // Set headers for proper filtering
-        email.addHeader(LIST_ID_HEADER, "SonarQube <sonar." + host + ">");
-        email.addHeader(LIST_ARCHIVE_HEADER, configuration.getServerBaseURL());
       }
-      // Set general information
-      email.setCharset("UTF-8");
-      String from = StringUtils.isBlank(emailMessage.getFrom()) ? FROM_NAME_DEFAULT : (emailMessage.getFrom() + " (SonarQube)");
-      email.setFrom(configuration.getFrom(), from);
-      email.addTo(emailMessage.getTo(), " ");
-      String subject = StringUtils.defaultIfBlank(StringUtils.trimToEmpty(configuration.getPrefix()) + " ", "")
-        + StringUtils.defaultString(emailMessage.getSubject(), SUBJECT_DEFAULT);
-      email.setSubject(subject);
-      email.setMsg(emailMessage.getMessage());
-      // Send
-      email.setHostName(configuration.getSmtpHost());
-      configureSecureConnection(email);
-      if (StringUtils.isNotBlank(configuration.getSmtpUsername()) || StringUtils.isNotBlank(configuration.getSmtpPassword())) {
-        email.setAuthentication(configuration.getSmtpUsername(), configuration.getSmtpPassword());
-      }
-      email.setSocketConnectionTimeout(SOCKET_TIMEOUT);
-      email.setSocketTimeout(SOCKET_TIMEOUT);
-      email.send();
-
     } finally {
+      close(transport);
       Thread.currentThread().setContextClassLoader(classloader);
     }
   }
 
+  private static void close(@Nullable Transport transport) {
+    if (transport != null) {
+      try {
+        transport.close();
+      } catch (MessagingException e) {
+        LOG.debug("Unable to close SMTP connection", e);
+      }
+    }
+  }
+
+  private SimpleEmail newEmail(EmailMessage emailMessage) throws EmailException {
+    String host = null;
+    try {
+      host = new URL(configuration.getServerBaseURL()).getHost();
+    } catch (MalformedURLException e) {
+      // ignore
+    }
+
+    SimpleEmail email = new SimpleEmail();
+    if (StringUtils.isNotBlank(host)) {
+      /*
+       * Set headers for proper threading: GMail will not group messages, even if they have same subject, but don't have "In-Reply-To" and
+       * "References" headers. TODO investigate threading in other clients like KMail, Thunderbird, Outlook
+       */
+      if (StringUtils.isNotEmpty(emailMessage.getMessageId())) {
+        String messageId = "<" + emailMessage.getMessageId() + "@" + host + ">";
+        email.addHeader(IN_REPLY_TO_HEADER, messageId);
+        email.addHeader(REFERENCES_HEADER, messageId);
+      }
+      // Set headers for proper filtering
+      email.addHeader(LIST_ID_HEADER, "SonarQube <sonar." + host + ">");
+      email.addHeader(LIST_ARCHIVE_HEADER, configuration.getServerBaseURL());
+    }
+    // Set general information
+    email.setCharset("UTF-8");
+    String from = StringUtils.isBlank(emailMessage.getFrom()) ? FROM_NAME_DEFAULT : (emailMessage.getFrom() + " (SonarQube)");
+    email.setFrom(configuration.getFrom(), from);
+    email.addTo(emailMessage.getTo(), " ");
+    String subject = StringUtils.defaultIfBlank(StringUtils.trimToEmpty(configuration.getPrefix()) + " ", "")
+      + StringUtils.defaultString(emailMessage.getSubject(), SUBJECT_DEFAULT);
+    email.setSubject(subject);
+    email.setMsg(emailMessage.getMessage());
+    // Send
+    email.setHostName(configuration.getSmtpHost());
+    configureSecureConnection(email);
+    if (StringUtils.isNotBlank(configuration.getSmtpUsername()) || StringUtils.isNotBlank(configuration.getSmtpPassword())) {
+      email.setAuthentication(configuration.getSmtpUsername(), configuration.getSmtpPassword());
+    }
+    email.setSocketConnectionTimeout(SOCKET_TIMEOUT);
+    email.setSocketTimeout(SOCKET_TIMEOUT);
+    return email;
+  }
+
   private void configureSecureConnection(SimpleEmail email) {
     if (StringUtils.equalsIgnoreCase(configuration.getSecureConnection(), "ssl")) {
       email.setSSLOnConnect(true);
@@ -35,6 +35,7 @@ import org.sonar.db.permission.PermissionRepository;
 import org.sonar.db.permission.template.PermissionTemplateDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 
 import static java.util.Arrays.asList;
@@ -48,14 +49,16 @@ public class PermissionService {
   private final PermissionIndexer permissionIndexer;
   private final UserSession userSession;
   private final ComponentFinder componentFinder;
+  private final AuthorizationCache authorizationCache;
 
   public PermissionService(DbClient dbClient, PermissionRepository permissionRepository, PermissionIndexer permissionIndexer, UserSession userSession,
-                           ComponentFinder componentFinder) {
+                           ComponentFinder componentFinder, AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.permissionRepository = permissionRepository;
     this.permissionIndexer = permissionIndexer;
     this.userSession = userSession;
     this.componentFinder = componentFinder;
+    this.authorizationCache = authorizationCache;
   }
 
   /**
@@ -87,6 +90,7 @@ public class PermissionService {
     Long userId = Qualifiers.PROJECT.equals(component.qualifier()) && currentUserId != null ? currentUserId.longValue() : null;
     permissionRepository.applyDefaultPermissionTemplate(session, component, userId);
     session.commit();
+    authorizationCache.invalidateAll();
     indexProjectPermissions(session, asList(component.uuid()));
   }
 
@@ -110,6 +114,7 @@ public class PermissionService {
       permissionRepository.apply(dbSession, template, project, null);
     }
     dbSession.commit();
+    authorizationCache.invalidateAll();
     indexProjectPermissions(dbSession, projects.stream().map(ComponentDto::uuid).collect(Collectors.toList()));
   }
 
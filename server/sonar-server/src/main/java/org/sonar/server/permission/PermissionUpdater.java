@@ -28,6 +28,7 @@ import java.util.Set;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.user.AuthorizationCache;
 
 /**
  * Add or remove global/project permissions to a group. This class
@@ -40,18 +41,23 @@ public class PermissionUpdater {
   private final PermissionIndexer permissionIndexer;
   private final UserPermissionChanger userPermissionChanger;
   private final GroupPermissionChanger groupPermissionChanger;
+  private final AuthorizationCache authorizationCache;
 
   public PermissionUpdater(DbClient dbClient, PermissionIndexer permissionIndexer,
-                           UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger) {
+                           UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger,
+                           AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.permissionIndexer = permissionIndexer;
     this.userPermissionChanger = userPermissionChanger;
     this.groupPermissionChanger = groupPermissionChanger;
+    this.authorizationCache = authorizationCache;
   }
 
   public void apply(DbSession dbSession, Collection<PermissionChange> changes) {
     Set<Long> projectIds = new HashSet<>();
     List<String> projectUuids = new ArrayList<>();
+    Set<Long> changedUserIds = new HashSet<>();
+    boolean changedGroups = false;
     for (PermissionChange change : changes) {
       boolean changed = doApply(dbSession, change);
       Optional<ProjectId> projectId = change.getProjectId();
@@ -59,17 +65,31 @@ public class PermissionUpdater {
         projectIds.add(projectId.get().getId());
         projectUuids.add(projectId.get().getUuid());
       }
+      if (changed && change instanceof UserPermissionChange) {
+        changedUserIds.add(((UserPermissionChange) change).getUserId().getId());
+      } else if (changed) {
+        changedGroups = true;
+      }
     }
     for (Long projectId : projectIds) {
       dbClient.resourceDao().updateAuthorizationDate(projectId, dbSession);
     }
     dbSession.commit();
+    invalidateAuthorizations(changedGroups, changedUserIds);
 
     if (!projectIds.isEmpty()) {
       permissionIndexer.index(dbSession, projectUuids);
     }
   }
 
+  private void invalidateAuthorizations(boolean changedGroups, Set<Long> changedUserIds) {
+    if (changedGroups) {
+      authorizationCache.invalidateAll();
+    } else {
+      changedUserIds.forEach(authorizationCache::invalidate);
+    }
+  }
+
   private boolean doApply(DbSession dbSession, PermissionChange change) {
     if (change instanceof UserPermissionChange) {
       return userPermissionChanger.apply(dbSession, (UserPermissionChange) change);
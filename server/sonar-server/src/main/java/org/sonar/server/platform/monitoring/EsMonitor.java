@@ -29,6 +29,7 @@ import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.sonar.server.es.BulkIndexerStatistics;
 import org.sonar.server.es.EsClient;
 
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
@@ -85,6 +86,20 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
       attributes.put("Shards", indexStats.getValue().getShards().length);
       attributes.put("Store Size", byteCountToDisplaySize(indexStats.getValue().getPrimaries().getStore().getSizeInBytes()));
     }
+    // bulk indexing done by the current process
+    for (Map.Entry<String, BulkIndexerStatistics.IndexStatistics> bulkStats : esClient.getBulkStatistics().all().entrySet()) {
+      LinkedHashMap<String, Object> attributes = indices.get(bulkStats.getKey());
+      if (attributes != null) {
+        BulkIndexerStatistics.IndexStatistics stats = bulkStats.getValue();
+        attributes.put("Bulk Requests", stats.getBulkRequests());
+        attributes.put("Bulk Documents", stats.getDocuments());
+        attributes.put("Bulk Throughput (docs/s)", stats.getThroughput());
+        attributes.put("Bulk Average Latency (ms)", stats.getAverageLatency());
+        attributes.put("Bulk Queue Depth", stats.getQueueDepth());
+        attributes.put("Bulk Rejections", stats.getRejections());
+        attributes.put("Bulk Failures", stats.getFailures());
+      }
+    }
     return indices;
   }
 
@@ -38,6 +38,7 @@ import org.sonar.server.authentication.IdentityProviderRepository;
 import org.sonar.server.platform.ServerId;
 import org.sonar.server.platform.ServerIdLoader;
 import org.sonar.server.platform.ServerLogging;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.SecurityRealmFactory;
 
 public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonitorMBean {
@@ -52,16 +53,18 @@ public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonit
   private final Server server;
   private final ServerLogging serverLogging;
   private final ServerIdLoader serverIdLoader;
+  private final AuthorizationCache authorizationCache;
 
   public SonarQubeMonitor(Settings settings, SecurityRealmFactory securityRealmFactory,
     IdentityProviderRepository identityProviderRepository, Server server, ServerLogging serverLogging,
-    ServerIdLoader serverIdLoader) {
+    ServerIdLoader serverIdLoader, AuthorizationCache authorizationCache) {
     this.settings = settings;
     this.securityRealmFactory = securityRealmFactory;
     this.identityProviderRepository = identityProviderRepository;
     this.server = server;
     this.serverLogging = serverLogging;
     this.serverIdLoader = serverIdLoader;
+    this.authorizationCache = authorizationCache;
   }
 
   @Override
@@ -144,6 +147,9 @@ public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonit
     attributes.put("Temp Dir", settings.getString(ProcessProperties.PATH_TEMP));
     attributes.put("Logs Dir", settings.getString(ProcessProperties.PATH_LOGS));
     attributes.put("Logs Level", getLogLevel());
+    attributes.put("Authorization Cache Size", authorizationCache.getSize());
+    attributes.put("Authorization Cache Hit Ratio", authorizationCache.getHitRatio());
+    attributes.put("Authorization Cache Invalidations", authorizationCache.getInvalidationCount());
     return attributes;
   }
 
@@ -243,6 +243,7 @@ import org.sonar.server.ui.ws.GlobalNavigationAction;
 import org.sonar.server.ui.ws.NavigationWs;
 import org.sonar.server.ui.ws.SettingsNavigationAction;
 import org.sonar.server.updatecenter.UpdateCenterModule;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.DefaultUserFinder;
 import org.sonar.server.user.DefaultUserService;
 import org.sonar.server.user.DeprecatedUserFinder;
@@ -423,6 +424,7 @@ public class PlatformLevel4 extends PlatformLevel {
       UserIndexer.class,
       UserIndex.class,
       UserUpdater.class,
+      AuthorizationCache.class,
       UsersWsModule.class,
       UserTokenModule.class,
 
@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.DbClient;
+import org.sonar.db.user.UserDto;
+
+/**
+ * Server-wide cache of the groups and permissions of users, shared by the {@link ServerUserSession} of their
+ * requests so that permissions are not loaded again from database on each request.
+ * <p>
+ * Components which change permissions or group memberships must call {@link #invalidate(long)} or
+ * {@link #invalidateAll()} once their changes are committed. Entries also expire {@link #EXPIRATION_SECONDS} seconds
+ * after being loaded, which bounds the staleness of permissions changed by other means, for example by the
+ * application of permission templates on provisioning, or by the Compute Engine which runs in another JVM and
+ * can't invalidate this cache.
+ */
+@ServerSide
+public class AuthorizationCache {
+
+  static final long EXPIRATION_SECONDS = 60;
+  static final int MAX_SIZE = 10_000;
+  private static final long ANONYMOUS = -1L;
+
+  private final DbClient dbClient;
+  private final Cache<Long, UserAuthorizations> cache;
+  private final AtomicLong invalidationCount = new AtomicLong();
+
+  public AuthorizationCache(DbClient dbClient) {
+    this(dbClient, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  AuthorizationCache(DbClient dbClient, Ticker ticker) {
+    this.dbClient = dbClient;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .expireAfterWrite(EXPIRATION_SECONDS, TimeUnit.SECONDS)
+      .ticker(ticker)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * @param userDto the authenticated user or {@code null} for anonymous
+   */
+  UserAuthorizations get(@Nullable UserDto userDto) {
+    if (userDto != null && userDto.getId() == null) {
+      // not persisted, can't be cached
+      return new UserAuthorizations(dbClient, userDto);
+    }
+    long key = userDto == null ? ANONYMOUS : userDto.getId();
+    try {
+      return cache.get(key, () -> new UserAuthorizations(dbClient, userDto));
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to load authorizations of user " + userDto, e.getCause());
+    }
+  }
+
+  /**
+   * To be called when the permissions or the groups of the specified user changed.
+   */
+  public void invalidate(long userId) {
+    cache.invalidate(userId);
+    invalidationCount.incrementAndGet();
+  }
+
+  /**
+   * To be called when the permissions of a group, including Anyone, or of a project changed.
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+    invalidationCount.incrementAndGet();
+  }
+
+  public long getSize() {
+    return cache.size();
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  /**
+   * Ratio of the lookups which did not require loading from database, {@code 1.0} if there was no lookup yet.
+   */
+  public double getHitRatio() {
+    return cache.stats().hitRate();
+  }
+
+  public long getInvalidationCount() {
+    return invalidationCount.get();
+  }
+}
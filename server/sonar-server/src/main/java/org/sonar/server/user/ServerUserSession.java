@@ -19,76 +19,55 @@
  */
 package org.sonar.server.user;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.SetMultimap;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import org.sonar.api.security.DefaultGroups;
-import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
 import org.sonar.db.component.ResourceDao;
 import org.sonar.db.component.ResourceDto;
-import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 
 import static com.google.common.collect.Maps.newHashMap;
 import static java.util.Objects.requireNonNull;
 
 /**
- * Part of the current HTTP session
+ * Part of the current HTTP session. Groups and permissions are loaded lazily and, when the session is created with
+ * an {@link AuthorizationCache}, are shared with the other sessions of the same user.
  */
 public class ServerUserSession extends AbstractUserSession {
   private Map<String, String> projectKeyByComponentKey = newHashMap();
 
   @CheckForNull
   private final UserDto userDto;
-  private final DbClient dbClient;
   private final ResourceDao resourceDao;
-  private final Set<String> userGroups;
-  private List<String> globalPermissions = null;
-  private SetMultimap<String, String> projectKeyByPermission = HashMultimap.create();
-  private SetMultimap<String, String> projectUuidByPermission = HashMultimap.create();
-  private SetMultimap<String, String> permissionsByOrganizationUuid;
+  private final UserAuthorizations authorizations;
   private Map<String, String> projectUuidByComponentUuid = newHashMap();
-  private List<String> projectPermissionsCheckedByKey = new ArrayList<>();
-  private List<String> projectPermissionsCheckedByUuid = new ArrayList<>();
 
-  private ServerUserSession(DbClient dbClient, @Nullable UserDto userDto) {
+  private ServerUserSession(DbClient dbClient, @Nullable UserDto userDto, UserAuthorizations authorizations) {
     this.userDto = userDto;
-    this.dbClient = dbClient;
     this.resourceDao = dbClient.resourceDao();
-    this.userGroups = loadUserGroups();
+    this.authorizations = authorizations;
   }
 
   public static ServerUserSession createForUser(DbClient dbClient, UserDto userDto) {
     requireNonNull(userDto, "UserDto must not be null");
-    return new ServerUserSession(dbClient, userDto);
+    return new ServerUserSession(dbClient, userDto, new UserAuthorizations(dbClient, userDto));
+  }
+
+  public static ServerUserSession createForUser(DbClient dbClient, AuthorizationCache authorizationCache, UserDto userDto) {
+    requireNonNull(userDto, "UserDto must not be null");
+    return new ServerUserSession(dbClient, userDto, authorizationCache.get(userDto));
   }
 
   public static ServerUserSession createForAnonymous(DbClient dbClient) {
-    return new ServerUserSession(dbClient, null);
+    return new ServerUserSession(dbClient, null, new UserAuthorizations(dbClient, null));
   }
 
-  private Set<String> loadUserGroups() {
-    if (this.userDto == null) {
-      return Collections.singleton(DefaultGroups.ANYONE);
-    }
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      return Stream.concat(
-        Stream.of(DefaultGroups.ANYONE),
-        dbClient.groupDao().selectByUserLogin(dbSession, userDto.getLogin()).stream().map(GroupDto::getName))
-        .collect(Collectors.toSet());
-    }
+  public static ServerUserSession createForAnonymous(DbClient dbClient, AuthorizationCache authorizationCache) {
+    return new ServerUserSession(dbClient, null, authorizationCache.get(null));
   }
 
   @Override
@@ -111,7 +90,7 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   public Set<String> getUserGroups() {
-    return userGroups;
+    return authorizations.getGroups();
   }
 
   @Override
@@ -131,35 +110,12 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   public boolean hasOrganizationPermission(String organizationUuid, String permission) {
-    if (permissionsByOrganizationUuid == null) {
-      permissionsByOrganizationUuid = HashMultimap.create();
-    }
-    Set<String> permissions;
-    if (permissionsByOrganizationUuid.containsKey(organizationUuid)) {
-      permissions = permissionsByOrganizationUuid.get(organizationUuid);
-    } else {
-      permissions = loadOrganizationPermissions(organizationUuid);
-      permissionsByOrganizationUuid.putAll(organizationUuid, permissions);
-    }
-    return permissions.contains(permission);
- }
-
-  private Set<String> loadOrganizationPermissions(String organizationUuid) {
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      if (userDto != null && userDto.getId() != null) {
-        return dbClient.authorizationDao().selectOrganizationPermissions(dbSession, organizationUuid, userDto.getId());
-      }
-      return dbClient.authorizationDao().selectOrganizationPermissionsOfAnonymous(dbSession, organizationUuid);
-    }
+    return authorizations.getOrganizationPermissions(organizationUuid).contains(permission);
   }
 
   @Override
   public List<String> globalPermissions() {
-    if (globalPermissions == null) {
-      List<String> permissionKeys = dbClient.authorizationDao().selectGlobalPermissions(getLogin());
-      globalPermissions = ImmutableList.copyOf(permissionKeys);
-    }
-    return globalPermissions;
+    return authorizations.getGlobalPermissions();
   }
 
   @Override
@@ -188,16 +144,7 @@ public class ServerUserSession extends AbstractUserSession {
     if (isRoot()) {
       return true;
     }
-    if (!projectPermissionsCheckedByKey.contains(permission)) {
-      try (DbSession dbSession = dbClient.openSession(false)) {
-        Collection<String> projectKeys = dbClient.authorizationDao().selectAuthorizedRootProjectsKeys(dbSession, getUserId(), permission);
-        for (String key : projectKeys) {
-          projectKeyByPermission.put(permission, key);
-        }
-        projectPermissionsCheckedByKey.add(permission);
-      }
-    }
-    return projectKeyByPermission.get(permission).contains(projectKey);
+    return authorizations.getAuthorizedProjectKeys(permission).contains(projectKey);
   }
 
   @Override
@@ -224,20 +171,7 @@ public class ServerUserSession extends AbstractUserSession {
 
   // To keep private
   private boolean hasProjectPermissionByUuid(String permission, String projectUuid) {
-    if (!projectPermissionsCheckedByUuid.contains(permission)) {
-      try (DbSession dbSession = dbClient.openSession(false)) {
-        Collection<String> projectUuids = dbClient.authorizationDao().selectAuthorizedRootProjectsUuids(dbSession, getUserId(), permission);
-        addProjectPermission(permission, projectUuids);
-      }
-    }
-    return projectUuidByPermission.get(permission).contains(projectUuid);
-  }
-
-  private void addProjectPermission(String permission, Collection<String> authorizedProjectUuids) {
-    for (String key : authorizedProjectUuids) {
-      projectUuidByPermission.put(permission, key);
-    }
-    projectPermissionsCheckedByUuid.add(permission);
+    return authorizations.getAuthorizedProjectUuids(permission).contains(projectUuid);
   }
 
 }
@@ -0,0 +1,140 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.security.DefaultGroups;
+import org.sonar.core.util.stream.Collectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.user.GroupDto;
+import org.sonar.db.user.UserDto;
+
+/**
+ * Groups and permissions of a user, or of anonymous, loaded lazily from database. Instances can be shared by the
+ * sessions of concurrent requests through {@link AuthorizationCache}, hence they are thread-safe. Loading the same
+ * permissions concurrently is harmless: the first loaded value is kept.
+ */
+class UserAuthorizations {
+
+  private final DbClient dbClient;
+  @CheckForNull
+  private final UserDto userDto;
+  private final Set<String> groups;
+  @CheckForNull
+  private volatile List<String> globalPermissions;
+  private final ConcurrentMap<String, Set<String>> permissionsByOrganizationUuid = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> projectKeysByPermission = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> projectUuidsByPermission = new ConcurrentHashMap<>();
+
+  UserAuthorizations(DbClient dbClient, @Nullable UserDto userDto) {
+    this.dbClient = dbClient;
+    this.userDto = userDto;
+    this.groups = loadGroups();
+  }
+
+  private Set<String> loadGroups() {
+    if (userDto == null) {
+      return Collections.singleton(DefaultGroups.ANYONE);
+    }
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return Stream.concat(
+        Stream.of(DefaultGroups.ANYONE),
+        dbClient.groupDao().selectByUserLogin(dbSession, userDto.getLogin()).stream().map(GroupDto::getName))
+        .collect(Collectors.toSet());
+    }
+  }
+
+  Set<String> getGroups() {
+    return groups;
+  }
+
+  List<String> getGlobalPermissions() {
+    List<String> permissions = globalPermissions;
+    if (permissions == null) {
+      permissions = ImmutableList.copyOf(dbClient.authorizationDao().selectGlobalPermissions(userDto == null ? null : userDto.getLogin()));
+      globalPermissions = permissions;
+    }
+    return permissions;
+  }
+
+  Set<String> getOrganizationPermissions(String organizationUuid) {
+    Set<String> permissions = permissionsByOrganizationUuid.get(organizationUuid);
+    if (permissions == null) {
+      permissions = loadOrganizationPermissions(organizationUuid);
+      Set<String> loaded = permissionsByOrganizationUuid.putIfAbsent(organizationUuid, permissions);
+      return loaded == null ? permissions : loaded;
+    }
+    return permissions;
+  }
+
+  private Set<String> loadOrganizationPermissions(String organizationUuid) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      if (userDto != null && userDto.getId() != null) {
+        return ImmutableSet.copyOf(dbClient.authorizationDao().selectOrganizationPermissions(dbSession, organizationUuid, userDto.getId()));
+      }
+      return ImmutableSet.copyOf(dbClient.authorizationDao().selectOrganizationPermissionsOfAnonymous(dbSession, organizationUuid));
+    }
+  }
+
+  /**
+   * Keys of the root projects on which the user has the specified permission
+   */
+  Set<String> getAuthorizedProjectKeys(String permission) {
+    Set<String> projectKeys = projectKeysByPermission.get(permission);
+    if (projectKeys == null) {
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        projectKeys = ImmutableSet.copyOf(dbClient.authorizationDao().selectAuthorizedRootProjectsKeys(dbSession, getUserId(), permission));
+      }
+      Set<String> loaded = projectKeysByPermission.putIfAbsent(permission, projectKeys);
+      return loaded == null ? projectKeys : loaded;
+    }
+    return projectKeys;
+  }
+
+  /**
+   * UUIDs of the root projects on which the user has the specified permission
+   */
+  Set<String> getAuthorizedProjectUuids(String permission) {
+    Set<String> projectUuids = projectUuidsByPermission.get(permission);
+    if (projectUuids == null) {
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        projectUuids = ImmutableSet.copyOf(dbClient.authorizationDao().selectAuthorizedRootProjectsUuids(dbSession, getUserId(), permission));
+      }
+      Set<String> loaded = projectUuidsByPermission.putIfAbsent(permission, projectUuids);
+      return loaded == null ? projectUuids : loaded;
+    }
+    return projectUuids;
+  }
+
+  @CheckForNull
+  private Integer getUserId() {
+    return userDto == null ? null : userDto.getId().intValue();
+  }
+}
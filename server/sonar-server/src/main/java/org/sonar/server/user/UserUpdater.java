@@ -73,15 +73,17 @@ public class UserUpdater {
   private final UserIndexer userIndexer;
   private final System2 system2;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final AuthorizationCache authorizationCache;
 
   public UserUpdater(NewUserNotifier newUserNotifier, Settings settings, DbClient dbClient, UserIndexer userIndexer, System2 system2,
-    DefaultOrganizationProvider defaultOrganizationProvider) {
+    DefaultOrganizationProvider defaultOrganizationProvider, AuthorizationCache authorizationCache) {
     this.newUserNotifier = newUserNotifier;
     this.settings = settings;
     this.dbClient = dbClient;
     this.userIndexer = userIndexer;
     this.system2 = system2;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.authorizationCache = authorizationCache;
   }
 
   /**
@@ -110,6 +112,8 @@ public class UserUpdater {
       isUserReactivated = reactivateUser(dbSession, userDto, login, newUser);
     }
     dbSession.commit();
+    // user may have been added to the default group
+    authorizationCache.invalidate(userDto.getId());
     notifyNewUser(userDto.getLogin(), userDto.getName(), newUser.email());
     userIndexer.index();
     return new CreatedUser(userDto.getId(), isUserReactivated);
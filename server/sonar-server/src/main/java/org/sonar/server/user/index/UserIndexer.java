@@ -43,6 +43,9 @@ public class UserIndexer extends BaseIndexer {
 
     DbSession dbSession = dbClient.openSession(false);
     try {
+      if (lastUpdatedAt == 0L) {
+        bulk.setExpectedCount(UserResultSetIterator.countAll(dbClient, dbSession));
+      }
       UserResultSetIterator rowIt = UserResultSetIterator.create(dbClient, dbSession, lastUpdatedAt);
       long maxUpdatedAt = doIndex(bulk, rowIt);
       rowIt.close();
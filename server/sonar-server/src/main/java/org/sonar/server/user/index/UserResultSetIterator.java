@@ -49,6 +49,8 @@ class UserResultSetIterator extends ResultSetIterator<UserDoc> {
 
   private static final String SQL_AFTER_DATE = SQL_ALL + " where u.updated_at>?";
 
+  private static final String SQL_COUNT = "select count(1) from users u";
+
   private UserResultSetIterator(PreparedStatement stmt) throws SQLException {
     super(stmt);
   }
@@ -66,6 +68,15 @@ class UserResultSetIterator extends ResultSetIterator<UserDoc> {
     }
   }
 
+  static long countAll(DbClient dbClient, DbSession session) {
+    try (PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, SQL_COUNT);
+      ResultSet rs = stmt.executeQuery()) {
+      return rs.next() ? rs.getLong(1) : 0L;
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to count users", e);
+    }
+  }
+
   @Override
   protected UserDoc read(ResultSet rs) throws SQLException {
     UserDoc doc = new UserDoc(Maps.<String, Object>newHashMapWithExpectedSize(7));
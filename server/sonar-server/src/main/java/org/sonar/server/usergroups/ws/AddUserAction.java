@@ -29,6 +29,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 
 import static java.lang.String.format;
@@ -45,12 +46,15 @@ public class AddUserAction implements UserGroupsWsAction {
   private final UserSession userSession;
   private final GroupWsSupport support;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final AuthorizationCache authorizationCache;
 
-  public AddUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support, DefaultOrganizationProvider defaultOrganizationProvider) {
+  public AddUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support, DefaultOrganizationProvider defaultOrganizationProvider,
+    AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
     this.support = support;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.authorizationCache = authorizationCache;
   }
 
   @Override
@@ -82,6 +86,7 @@ public class AddUserAction implements UserGroupsWsAction {
         dbClient.userGroupDao().insert(dbSession, membershipDto);
         dbClient.userDao().updateRootFlagFromPermissions(dbSession, user.getId(), defaultOrganizationProvider.get().getUuid());
         dbSession.commit();
+        authorizationCache.invalidate(user.getId());
       }
 
       response.noContent();
@@ -28,6 +28,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 
 import static java.lang.String.format;
@@ -44,12 +45,15 @@ public class RemoveUserAction implements UserGroupsWsAction {
   private final UserSession userSession;
   private final GroupWsSupport support;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final AuthorizationCache authorizationCache;
 
-  public RemoveUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support, DefaultOrganizationProvider defaultOrganizationProvider) {
+  public RemoveUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support, DefaultOrganizationProvider defaultOrganizationProvider,
+    AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
     this.support = support;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.authorizationCache = authorizationCache;
   }
 
   @Override
@@ -78,6 +82,7 @@ public class RemoveUserAction implements UserGroupsWsAction {
       dbClient.userGroupDao().delete(dbSession, group.getId(), user.getId());
       dbClient.userDao().updateRootFlagFromPermissions(dbSession, user.getId(), defaultOrganizationProvider.get().getUuid());
       dbSession.commit();
+      authorizationCache.invalidate(user.getId());
 
       response.noContent();
     }
@@ -19,36 +19,57 @@
  */
 package org.sonar.server.util.cache;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.io.Serializable;
+import javax.annotation.CheckForNull;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
-import org.sonar.server.util.ObjectInputStreamIterator;
 
 /**
  * Serialize and deserialize objects on disk. No search capabilities, only traversal (full scan).
+ * <p>
+ * Objects are encoded by a {@link DiskCacheCodec}, Java serialization by default. Encoded objects are grouped in
+ * blocks of about {@value #BLOCK_SIZE} bytes, which are optionally compressed with LZ4. Each block is written
+ * as a header (format, size of decoded data, size of stored data) followed by the stored data.
+ * </p>
  */
-public class DiskCache<O extends Serializable> {
+public class DiskCache<O> {
+
+  static final int BLOCK_SIZE = 64 * 1024;
+  private static final byte RAW_BLOCK = 0;
+  private static final byte LZ4_BLOCK = 1;
 
   private final File file;
   private final System2 system2;
+  private final DiskCacheCodec<O> codec;
+  private final boolean compressed;
 
   public DiskCache(File file, System2 system2) {
+    this(file, system2, new SerializableCodec<O>(), false);
+  }
+
+  public DiskCache(File file, System2 system2, DiskCacheCodec<O> codec, boolean compressed) {
     this.system2 = system2;
     this.file = file;
+    this.codec = codec;
+    this.compressed = compressed;
     OutputStream output = null;
     boolean threw = true;
     try {
-      // writes the serialization stream header required when calling "traverse()"
-      // on empty stream. Moreover it allows to call multiple times "newAppender()"
-      output = new ObjectOutputStream(new FileOutputStream(file));
-      output.flush();
+      // creates or truncates the file, so that it can be traversed before first append
+      output = new FileOutputStream(file);
       threw = false;
     } catch (IOException e) {
       throw new IllegalStateException("Fail to write into file: " + file, e);
@@ -69,41 +90,158 @@ public class DiskCache<O extends Serializable> {
 
   public CloseableIterator<O> traverse() {
     try {
-      return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      return new BlockIterator(new DataInputStream(new BufferedInputStream(FileUtils.openInputStream(file), BLOCK_SIZE)));
     } catch (IOException e) {
       throw new IllegalStateException("Fail to traverse file: " + file, e);
     }
   }
 
+  /**
+   * Appends objects to the file. An appender can be shared by threads. Several appenders can be opened on
+   * the same cache, each block being written atomically.
+   */
   public class DiskAppender implements AutoCloseable {
-    private final ObjectOutputStream output;
+    private final DataOutputStream output;
+    private final BlockBuffer block = new BlockBuffer();
+    private final DataOutputStream blockOutput = new DataOutputStream(block);
+    @CheckForNull
+    private final LZ4Compressor compressor;
 
     private DiskAppender() {
       try {
-        this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
-          @Override
-          protected void writeStreamHeader() throws IOException {
-            // do not write stream headers as it's already done in constructor of DiskCache
-          }
-        };
+        this.output = new DataOutputStream(new FileOutputStream(file, true));
       } catch (IOException e) {
         throw new IllegalStateException("Fail to open file " + file, e);
       }
+      this.compressor = compressed ? LZ4Factory.fastestInstance().fastCompressor() : null;
     }
 
-    public DiskAppender append(O object) {
+    public synchronized DiskAppender append(O object) {
+      int mark = block.size();
+      boolean threw = true;
       try {
-        output.writeObject(object);
-        output.reset();
-        return this;
+        codec.write(object, blockOutput);
+        threw = false;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to write into file " + file, e);
+      } finally {
+        if (threw) {
+          // drop the partially encoded object
+          block.truncate(mark);
+        }
+      }
+      if (block.size() >= BLOCK_SIZE) {
+        writeBlock();
+      }
+      return this;
+    }
+
+    private void writeBlock() {
+      // header and data of the block must not be interleaved with the blocks written by other appenders
+      synchronized (DiskCache.this) {
+        writeBlockUnsynchronized();
+      }
+    }
+
+    private void writeBlockUnsynchronized() {
+      try {
+        int rawLength = block.size();
+        if (compressor == null) {
+          output.writeByte(RAW_BLOCK);
+          output.writeInt(rawLength);
+          output.writeInt(rawLength);
+          output.write(block.buffer(), 0, rawLength);
+        } else {
+          byte[] compressedBytes = new byte[compressor.maxCompressedLength(rawLength)];
+          int compressedLength = compressor.compress(block.buffer(), 0, rawLength, compressedBytes, 0, compressedBytes.length);
+          output.writeByte(LZ4_BLOCK);
+          output.writeInt(rawLength);
+          output.writeInt(compressedLength);
+          output.write(compressedBytes, 0, compressedLength);
+        }
+        block.reset();
       } catch (IOException e) {
         throw new IllegalStateException("Fail to write into file " + file, e);
       }
     }
 
     @Override
-    public void close() {
-      system2.close(output);
+    public synchronized void close() {
+      try {
+        if (block.size() > 0) {
+          writeBlock();
+        }
+      } finally {
+        system2.close(output);
+      }
+    }
+  }
+
+  private class BlockIterator extends CloseableIterator<O> {
+    private final DataInputStream input;
+    private DataInputStream blockInput = new DataInputStream(new ByteArrayInputStream(new byte[0]));
+    @CheckForNull
+    private LZ4FastDecompressor decompressor;
+
+    BlockIterator(DataInputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    @CheckForNull
+    protected O doNext() {
+      try {
+        if (blockInput.available() == 0 && !readBlock()) {
+          return null;
+        }
+        return codec.read(blockInput);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    private boolean readBlock() throws IOException {
+      int format = input.read();
+      if (format < 0) {
+        return false;
+      }
+      int rawLength = input.readInt();
+      int storedLength = input.readInt();
+      byte[] stored = new byte[storedLength];
+      input.readFully(stored);
+      byte[] raw;
+      if (format == LZ4_BLOCK) {
+        if (decompressor == null) {
+          decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+        }
+        raw = new byte[rawLength];
+        decompressor.decompress(stored, 0, raw, 0, rawLength);
+      } else if (format == RAW_BLOCK) {
+        raw = stored;
+      } else {
+        throw new IllegalStateException("Unknown format of block in file " + file + ": " + format);
+      }
+      blockInput = new DataInputStream(new ByteArrayInputStream(raw));
+      return true;
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private static class BlockBuffer extends ByteArrayOutputStream {
+    BlockBuffer() {
+      super(BLOCK_SIZE + BLOCK_SIZE / 4);
+    }
+
+    byte[] buffer() {
+      return buf;
+    }
+
+    void truncate(int size) {
+      count = size;
     }
   }
 }
@@ -100,6 +100,7 @@ public class ViewIndexer extends BaseIndexer {
 
   private void index(DbSession dbSession, Map<String, String> viewAndProjectViewUuidMap, boolean needClearCache) {
     final BulkIndexer bulk = new BulkIndexer(esClient, ViewIndexDefinition.INDEX);
+    bulk.setExpectedCount(viewAndProjectViewUuidMap.size());
     bulk.start();
     for (Map.Entry<String, String> entry : viewAndProjectViewUuidMap.entrySet()) {
       String viewUuid = entry.getKey();
@@ -38,13 +38,17 @@ import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.NewUserNotifier;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndexer;
 
 import static com.google.common.collect.Sets.newHashSet;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.sonar.db.organization.OrganizationTesting.newOrganizationDto;
 import static org.sonar.db.user.UserTesting.newUserDto;
 
@@ -73,14 +77,16 @@ public class UserIdentityAuthenticatorTest {
 
   private Settings settings = new MapSettings();
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
+  private AuthorizationCache authorizationCache = mock(AuthorizationCache.class);
   private UserUpdater userUpdater = new UserUpdater(
     mock(NewUserNotifier.class),
     settings,
     db.getDbClient(),
     mock(UserIndexer.class),
     System2.INSTANCE,
-    defaultOrganizationProvider);
-  private UserIdentityAuthenticator underTest = new UserIdentityAuthenticator(db.getDbClient(), userUpdater, defaultOrganizationProvider);
+    defaultOrganizationProvider,
+    authorizationCache);
+  private UserIdentityAuthenticator underTest = new UserIdentityAuthenticator(db.getDbClient(), userUpdater, defaultOrganizationProvider, authorizationCache);
   private GroupDto defaultGroup;
 
   @Before
@@ -169,6 +175,7 @@ public class UserIdentityAuthenticatorTest {
     authenticate(USER_LOGIN, "group1", "group2", "group3");
 
     assertThat(db.users().selectGroupIdsOfUser(user)).containsOnly(group1.getId(), group2.getId());
+    verify(authorizationCache).invalidate(user.getId());
   }
 
   @Test
@@ -185,6 +192,22 @@ public class UserIdentityAuthenticatorTest {
     authenticate(USER_LOGIN, "group1");
 
     assertThat(db.users().selectGroupIdsOfUser(user)).containsOnly(group1.getId());
+    verify(authorizationCache).invalidate(user.getId());
+  }
+
+  @Test
+  public void authenticate_existing_user_with_same_groups_does_not_invalidate_authorizations() throws Exception {
+    UserDto user = db.users().insertUser(newUserDto()
+      .setLogin(USER_LOGIN)
+      .setActive(true)
+      .setName("John"));
+    GroupDto group1 = db.users().insertGroup(db.getDefaultOrganization(), "group1");
+    db.users().insertMember(group1, user);
+
+    authenticate(USER_LOGIN, "group1");
+
+    assertThat(db.users().selectGroupIdsOfUser(user)).containsOnly(group1.getId());
+    verify(authorizationCache, never()).invalidate(anyLong());
   }
 
   @Test
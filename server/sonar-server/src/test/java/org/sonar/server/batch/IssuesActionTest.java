@@ -20,14 +20,18 @@
 package org.sonar.server.batch;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.config.MapSettings;
+import org.sonar.api.issue.Issue;
 import org.sonar.api.security.DefaultGroups;
+import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.api.web.UserRole;
 import org.sonar.db.DbTester;
@@ -48,6 +52,7 @@ import org.sonar.server.platform.ServerFileSystem;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.WsTester;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -311,6 +316,89 @@ public class IssuesActionTest {
     assertThat(serverIssue.getModuleKey()).isEqualTo(MODULE_KEY);
   }
 
+  @Test
+  public void issues_of_given_files() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto(MODULE_UUID, project).setKey(MODULE_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(module, null, FILE_UUID).setKey(FILE_KEY).setPath("src/org/struts/Action.java");
+    ComponentDto otherFile = ComponentTesting.newFileDto(module, null, "DEFG").setKey("Other.java").setPath("src/org/struts/Other.java");
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, file, otherFile);
+    db.getSession().commit();
+
+    indexIssues(
+      IssueTesting.newDoc("ON_MODULE", module),
+      IssueTesting.newDoc("ON_FILE", file),
+      IssueTesting.newDoc("ON_OTHER_FILE", otherFile));
+
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues")
+      .setParam("key", PROJECT_KEY)
+      .setMultiParam("files", asList(FILE_KEY, "Unknown.java"));
+
+    assertThat(readIssueKeys(request)).containsOnly("ON_MODULE", "ON_FILE");
+  }
+
+  @Test
+  public void issues_of_given_files_with_commas_in_keys() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto(MODULE_UUID, project).setKey(MODULE_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(module, null, FILE_UUID).setKey(MODULE_KEY + ":src/a,b.xoo").setPath("src/a,b.xoo");
+    ComponentDto otherFile = ComponentTesting.newFileDto(module, null, "DEFG").setKey(MODULE_KEY + ":src/a").setPath("src/a");
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, file, otherFile);
+    db.getSession().commit();
+
+    indexIssues(
+      IssueTesting.newDoc("ON_FILE", file),
+      IssueTesting.newDoc("ON_OTHER_FILE", otherFile));
+
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues")
+      .setParam("key", PROJECT_KEY)
+      .setMultiParam("files", asList(MODULE_KEY + ":src/a,b.xoo"));
+
+    assertThat(readIssueKeys(request)).containsOnly("ON_FILE");
+  }
+
+  @Test
+  public void no_issues_of_files_if_empty_file_key_is_given() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto module = ComponentTesting.newModuleDto(MODULE_UUID, project).setKey(MODULE_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(module, null, FILE_UUID).setKey(FILE_KEY).setPath("src/org/struts/Action.java");
+    db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
+    db.getSession().commit();
+
+    indexIssues(
+      IssueTesting.newDoc("ON_MODULE", module),
+      IssueTesting.newDoc("ON_FILE", file));
+
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues")
+      .setParam("key", PROJECT_KEY)
+      .setParam("files", "");
+
+    assertThat(readIssueKeys(request)).containsOnly("ON_MODULE");
+  }
+
+  @Test
+  public void issues_changed_since_date() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(project, null, FILE_UUID).setKey(FILE_KEY).setPath("src/org/struts/Action.java");
+    db.getDbClient().componentDao().insert(db.getSession(), project, file);
+    db.getSession().commit();
+
+    indexIssues(
+      IssueTesting.newDoc("UNCHANGED", file).setTechnicalUpdateDate(DateUtils.parseDate("2016-09-30")),
+      IssueTesting.newDoc("CHANGED", file).setTechnicalUpdateDate(DateUtils.parseDate("2016-10-02")),
+      IssueTesting.newDoc("CLOSED", file).setTechnicalUpdateDate(DateUtils.parseDate("2016-10-03")).setStatus(Issue.STATUS_CLOSED));
+
+    addBrowsePermissionOnComponent(PROJECT_KEY);
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues")
+      .setParam("key", PROJECT_KEY)
+      .setParam("changedSince", "2016-10-01");
+
+    assertThat(readIssueKeys(request)).containsOnly("CHANGED", "CLOSED");
+  }
+
   @Test
   public void fail_without_browse_permission_on_file() throws Exception {
     addBrowsePermissionOnComponent(PROJECT_KEY);
@@ -319,6 +407,16 @@ public class IssuesActionTest {
     tester.newGetRequest("batch", "issues").setParam("key", "Other component key").execute();
   }
 
+  private static List<String> readIssueKeys(WsTester.TestRequest request) throws Exception {
+    List<String> keys = new ArrayList<>();
+    ByteArrayInputStream input = new ByteArrayInputStream(request.execute().output());
+    ServerIssue serverIssue;
+    while ((serverIssue = ServerIssue.parseDelimitedFrom(input)) != null) {
+      keys.add(serverIssue.getKey());
+    }
+    return keys;
+  }
+
   private void indexIssues(IssueDoc... issues) {
     issueIndexer.index(Arrays.asList(issues).iterator());
     for (IssueDoc issue : issues) {
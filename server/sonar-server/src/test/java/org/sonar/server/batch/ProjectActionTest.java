@@ -19,11 +19,19 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.collect.ImmutableMap;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import javax.annotation.Nullable;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
+import org.sonar.server.batch.ProjectDataLoader.FileDataHandler;
+import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.MediaTypes;
@@ -31,12 +39,18 @@ import org.sonarqube.ws.WsBatch.WsProjectResponse;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sonar.test.JsonAssert.assertJson;
 
 public class ProjectActionTest {
 
+  private static final String VERSION = "abcdef";
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
   ProjectDataLoader projectDataLoader = mock(ProjectDataLoader.class);
 
   WsActionTester ws;
@@ -50,22 +64,20 @@ public class ProjectActionTest {
   public void project_referentials() throws Exception {
     String projectKey = "org.codehaus.sonar:sonar";
 
-    ProjectRepositories projectReferentials = mock(ProjectRepositories.class);
-    when(projectReferentials.toJson()).thenReturn("{\"settingsByModule\": {}}");
-
     ArgumentCaptor<ProjectDataQuery> queryArgumentCaptor = ArgumentCaptor.forClass(ProjectDataQuery.class);
-    when(projectDataLoader.load(queryArgumentCaptor.capture())).thenReturn(projectReferentials);
+    when(projectDataLoader.load(queryArgumentCaptor.capture(), any(ProjectRepositories.class), any(FileDataHandler.class))).thenReturn(VERSION);
 
     TestResponse response = ws.newRequest()
       .setParam("key", projectKey)
       .setParam("profile", "Default")
       .setParam("preview", "false")
       .execute();
-    assertJson(response.getInput()).isSimilarTo("{\"settingsByModule\": {}}");
+    assertJson(response.getInput()).isSimilarTo("{\"settingsByModule\": {}, \"version\": \"" + VERSION + "\"}");
 
     assertThat(queryArgumentCaptor.getValue().getModuleKey()).isEqualTo(projectKey);
     assertThat(queryArgumentCaptor.getValue().getProfileName()).isEqualTo("Default");
     assertThat(queryArgumentCaptor.getValue().isIssuesMode()).isFalse();
+    assertThat(queryArgumentCaptor.getValue().getVersion()).isNull();
   }
 
   /**
@@ -75,8 +87,7 @@ public class ProjectActionTest {
   public void do_not_fail_when_a_path_is_null() throws Exception {
     String projectKey = "org.codehaus.sonar:sonar";
 
-    ProjectRepositories projectRepositories = new ProjectRepositories().addFileData("module-1", null, new FileData(null, null));
-    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+    mockFileData("module-1", null, new FileData(null, null));
 
     TestResponse result = ws.newRequest()
       .setMediaType(MediaTypes.PROTOBUF)
@@ -87,4 +98,81 @@ public class ProjectActionTest {
     WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
     assertThat(wsProjectResponse.getFileDataByModuleAndPath()).isEmpty();
   }
+
+  @Test
+  public void return_304_when_version_is_already_known() throws Exception {
+    when(projectDataLoader.load(any(ProjectDataQuery.class), any(ProjectRepositories.class), any(FileDataHandler.class))).thenReturn(VERSION);
+
+    TestResponse result = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setParam("version", VERSION)
+      .execute();
+
+    assertThat(result.getStatus()).isEqualTo(HttpURLConnection.HTTP_NOT_MODIFIED);
+    assertThat(result.getInput()).isEmpty();
+  }
+
+  @Test
+  public void return_data_when_version_changed() throws Exception {
+    mockFileData("module-1", "src/Foo.java", new FileData("hash", "rev"));
+
+    TestResponse result = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setParam("version", "old")
+      .execute();
+
+    WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
+    assertThat(wsProjectResponse.getVersion()).isEqualTo(VERSION);
+    assertThat(wsProjectResponse.getFileDataByModuleAndPath().get("module-1").getFileDataByPath().get("src/Foo.java").getHash()).isEqualTo("hash");
+  }
+
+  @Test
+  public void stream_file_data() throws Exception {
+    doAnswer(invocation -> {
+      ((ProjectRepositories) invocation.getArguments()[1]).addSettings("module-1", ImmutableMap.of("foo", "bar"));
+      FileDataHandler handler = (FileDataHandler) invocation.getArguments()[2];
+      for (int i = 0; i < 1_500; i++) {
+        handler.handle("module-1", "src/File" + i + ".java", new FileData("hash" + i, "rev"));
+      }
+      return VERSION;
+    }).when(projectDataLoader).load(any(ProjectDataQuery.class), any(ProjectRepositories.class), any(FileDataHandler.class));
+
+    TestResponse result = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setParam("streaming", "true")
+      .execute();
+
+    InputStream input = result.getInputStream();
+    WsProjectResponse firstFiles = WsProjectResponse.parseDelimitedFrom(input);
+    WsProjectResponse otherFiles = WsProjectResponse.parseDelimitedFrom(input);
+    WsProjectResponse last = WsProjectResponse.parseDelimitedFrom(input);
+    assertThat(WsProjectResponse.parseDelimitedFrom(input)).isNull();
+    assertThat(firstFiles.getFileDataByModuleAndPath().get("module-1").getFileDataByPath()).hasSize(1_000);
+    assertThat(otherFiles.getFileDataByModuleAndPath().get("module-1").getFileDataByPath()).hasSize(500).containsKey("src/File1499.java");
+    assertThat(last.getFileDataByModuleAndPath()).isEmpty();
+    assertThat(last.getVersion()).isEqualTo(VERSION);
+    assertThat(last.getSettingsByModule().get("module-1").getSettings()).containsEntry("foo", "bar");
+  }
+
+  @Test
+  public void streaming_requires_protobuf_format() {
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Streaming is only supported with protobuf format");
+
+    ws.newRequest()
+      .setMediaType(MediaTypes.JSON)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setParam("streaming", "true")
+      .execute();
+  }
+
+  private void mockFileData(String moduleKey, @Nullable String path, FileData fileData) {
+    doAnswer(invocation -> {
+      ((FileDataHandler) invocation.getArguments()[2]).handle(moduleKey, path, fileData);
+      return VERSION;
+    }).when(projectDataLoader).load(any(ProjectDataQuery.class), any(ProjectRepositories.class), any(FileDataHandler.class));
+  }
 }
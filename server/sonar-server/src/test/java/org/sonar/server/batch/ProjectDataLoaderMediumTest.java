@@ -20,8 +20,11 @@
 package org.sonar.server.batch;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -34,6 +37,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.component.SnapshotTesting;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.db.qualityprofile.QualityProfileDto;
 import org.sonar.db.source.FileSourceDao;
@@ -562,6 +566,62 @@ public class ProjectDataLoaderMediumTest {
     assertThat(ref.fileData(project.key(), projectFile.path())).isNull();
   }
 
+  @Test
+  public void version_changes_with_analyses_and_settings() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    userSessionRule.login("john").setGlobalPermissions(SCAN_EXECUTION);
+    tester.get(DbClient.class).componentDao().insert(dbSession, project);
+    addDefaultProfile();
+    ComponentDto file = ComponentTesting.newFileDto(project, null, "file");
+    tester.get(DbClient.class).componentDao().insert(dbSession, file);
+    tester.get(FileSourceDao.class).insert(newFileSourceDto(file).setSrcHash("123456"));
+    dbSession.commit();
+
+    String version = loadVersion(project, null);
+    assertThat(loadVersion(project, null)).isEqualTo(version);
+
+    tester.get(DbClient.class).snapshotDao().insert(dbSession, SnapshotTesting.newAnalysis(project));
+    dbSession.commit();
+    String versionAfterAnalysis = loadVersion(project, null);
+    assertThat(versionAfterAnalysis).isNotEqualTo(version);
+
+    tester.get(DbClient.class).propertiesDao().saveProperty(
+      dbSession, new PropertyDto().setKey("sonar.jira.project.key").setValue("SONAR").setResourceId(project.getId()));
+    dbSession.commit();
+    assertThat(loadVersion(project, null)).isNotEqualTo(versionAfterAnalysis);
+  }
+
+  @Test
+  public void do_not_read_file_data_when_version_is_already_known() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    userSessionRule.login("john").setGlobalPermissions(SCAN_EXECUTION);
+    tester.get(DbClient.class).componentDao().insert(dbSession, project);
+    addDefaultProfile();
+    ComponentDto file = ComponentTesting.newFileDto(project, null, "file");
+    tester.get(DbClient.class).componentDao().insert(dbSession, file);
+    tester.get(FileSourceDao.class).insert(newFileSourceDto(file).setSrcHash("123456"));
+    tester.get(DbClient.class).propertiesDao().saveProperty(
+      dbSession, new PropertyDto().setKey("sonar.jira.project.key").setValue("SONAR").setResourceId(project.getId()));
+    dbSession.commit();
+    String version = loadVersion(project, null);
+
+    List<String> paths = new ArrayList<>();
+    ProjectRepositories ref = new ProjectRepositories();
+    assertThat(underTest.load(ProjectDataQuery.create().setModuleKey(project.key()).setVersion(version), ref, (moduleKey, path, fileData) -> paths.add(path)))
+      .isEqualTo(version);
+    assertThat(paths).isEmpty();
+    assertThat(ref.settings(project.key())).containsEntry("sonar.jira.project.key", "SONAR");
+
+    assertThat(underTest.load(ProjectDataQuery.create().setModuleKey(project.key()).setVersion("old"), ref, (moduleKey, path, fileData) -> paths.add(path)))
+      .isEqualTo(version);
+    assertThat(paths).containsExactly(file.path());
+  }
+
+  private String loadVersion(ComponentDto project, @Nullable String knownVersion) {
+    return underTest.load(ProjectDataQuery.create().setModuleKey(project.key()).setVersion(knownVersion), new ProjectRepositories(), (moduleKey, path, fileData) -> {
+    });
+  }
+
   private void addDefaultProfile() {
     QualityProfileDto profileDto = newQProfileDto(QProfileName.createFor(ServerTester.Xoo.KEY, "SonarQube way"), "abcd").setRulesUpdatedAt(
       formatDateTime(new Date())).setDefault(true);
@@ -24,6 +24,7 @@ import org.junit.Test;
 import org.mockito.Matchers;
 import org.sonar.core.util.Protobuf;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.server.computation.queue.ReportSubmitter;
 import org.sonarqube.ws.MediaTypes;
@@ -48,7 +49,7 @@ public class SubmitActionTest {
   @Test
   public void submit_task_to_the_queue_and_ask_for_immediate_processing() {
     CeTask task = new CeTask.Builder().setUuid("TASK_1").setType(CeTaskTypes.REPORT).setComponentUuid("PROJECT_1").setSubmitterLogin("robert").build();
-    when(reportSubmitter.submit(eq("my_project"), Matchers.isNull(String.class), eq("My Project"), any(InputStream.class))).thenReturn(task);
+    when(reportSubmitter.submit(eq("my_project"), Matchers.isNull(String.class), eq("My Project"), eq(CeQueueLane.NORMAL), any(InputStream.class))).thenReturn(task);
 
     TestResponse wsResponse = tester.newRequest()
       .setParam("projectKey", "my_project")
@@ -58,7 +59,7 @@ public class SubmitActionTest {
       .setMethod("POST")
       .execute();
 
-    verify(reportSubmitter).submit(eq("my_project"), Matchers.isNull(String.class), eq("My Project"), any(InputStream.class));
+    verify(reportSubmitter).submit(eq("my_project"), Matchers.isNull(String.class), eq("My Project"), eq(CeQueueLane.NORMAL), any(InputStream.class));
 
     WsCe.SubmitResponse submitResponse = Protobuf.read(wsResponse.getInputStream(), WsCe.SubmitResponse.PARSER);
     assertThat(submitResponse.getTaskId()).isEqualTo("TASK_1");
@@ -68,7 +69,7 @@ public class SubmitActionTest {
   @Test
   public void test_example_json_response() {
     CeTask task = new CeTask.Builder().setUuid("TASK_1").setType(CeTaskTypes.REPORT).setComponentUuid("PROJECT_1").setSubmitterLogin("robert").build();
-    when(reportSubmitter.submit(eq("my_project"), Matchers.isNull(String.class), eq("My Project"), any(InputStream.class))).thenReturn(task);
+    when(reportSubmitter.submit(eq("my_project"), Matchers.isNull(String.class), eq("My Project"), eq(CeQueueLane.NORMAL), any(InputStream.class))).thenReturn(task);
 
     TestResponse wsResponse = tester.newRequest()
       .setParam("projectKey", "my_project")
@@ -87,7 +88,7 @@ public class SubmitActionTest {
   @Test
   public void project_name_is_optional() {
     CeTask task = new CeTask.Builder().setUuid("TASK_1").setType(CeTaskTypes.REPORT).setComponentUuid("PROJECT_1").setSubmitterLogin("robert").build();
-    when(reportSubmitter.submit(eq("my_project"), Matchers.isNull(String.class), eq("my_project"), any(InputStream.class))).thenReturn(task);
+    when(reportSubmitter.submit(eq("my_project"), Matchers.isNull(String.class), eq("my_project"), eq(CeQueueLane.NORMAL), any(InputStream.class))).thenReturn(task);
 
     tester.newRequest()
       .setParam("projectKey", "my_project")
@@ -96,7 +97,23 @@ public class SubmitActionTest {
       .setMethod("POST")
       .execute();
 
-    verify(reportSubmitter).submit(eq("my_project"), Matchers.isNull(String.class), eq("my_project"), any(InputStream.class));
+    verify(reportSubmitter).submit(eq("my_project"), Matchers.isNull(String.class), eq("my_project"), eq(CeQueueLane.NORMAL), any(InputStream.class));
 
   }
+
+  @Test
+  public void submit_to_lane() {
+    CeTask task = new CeTask.Builder().setUuid("TASK_1").setType(CeTaskTypes.REPORT).setComponentUuid("PROJECT_1").setSubmitterLogin("robert").build();
+    when(reportSubmitter.submit(eq("my_project"), Matchers.isNull(String.class), eq("my_project"), eq(CeQueueLane.BATCH), any(InputStream.class))).thenReturn(task);
+
+    tester.newRequest()
+      .setParam("projectKey", "my_project")
+      .setParam("report", "{binary}")
+      .setParam("lane", "BATCH")
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setMethod("POST")
+      .execute();
+
+    verify(reportSubmitter).submit(eq("my_project"), Matchers.isNull(String.class), eq("my_project"), eq(CeQueueLane.BATCH), any(InputStream.class));
+  }
 }
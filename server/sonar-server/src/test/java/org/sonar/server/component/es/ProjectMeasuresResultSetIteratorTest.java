@@ -166,6 +166,17 @@ public class ProjectMeasuresResultSetIteratorTest {
     assertThat(createResultSetAndReturnDocsById()).hasSize(3);
   }
 
+  @Test
+  public void count_all_enabled_projects() {
+    componentDbTester.insertProjectAndSnapshot(newProjectDto());
+    componentDbTester.insertComponent(newProjectDto());
+    componentDbTester.insertComponent(newProjectDto().setEnabled(false));
+    componentDbTester.insertProjectAndSnapshot(newView());
+    componentDbTester.insertProjectAndSnapshot(newDeveloper("dev"));
+
+    assertThat(ProjectMeasuresResultSetIterator.countAll(dbClient, dbSession)).isEqualTo(2L);
+  }
+
   @Test
   public void return_project_without_analysis() throws Exception {
     ComponentDto project = componentDbTester.insertComponent(newProjectDto());
@@ -29,6 +29,9 @@ import org.sonar.api.utils.MessageException;
 
 import static java.lang.Math.abs;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_QUEUE_POLLING_MAX_DELAY_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_STEPS_PARALLELISM_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_VISITORS_PARALLELISM_PROPERTY;
 import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_WORKERS_COUNT_PROPERTY;
 
 public class CeConfigurationImplTest {
@@ -103,6 +106,104 @@ public class CeConfigurationImplTest {
     new CeConfigurationImpl(settings);
   }
 
+  @Test
+  public void getQueuePollingMaxDelay_returns_2000_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getQueuePollingMaxDelay()).isEqualTo(2000L);
+  }
+
+  @Test
+  public void getQueuePollingMaxDelay_returns_2000_when_property_is_empty() {
+    settings.setProperty(CE_QUEUE_POLLING_MAX_DELAY_PROPERTY, "");
+
+    assertThat(new CeConfigurationImpl(settings).getQueuePollingMaxDelay()).isEqualTo(2000L);
+  }
+
+  @Test
+  public void getQueuePollingMaxDelay_returns_value_of_property() {
+    settings.setProperty(CE_QUEUE_POLLING_MAX_DELAY_PROPERTY, 10000);
+
+    assertThat(new CeConfigurationImpl(settings).getQueuePollingMaxDelay()).isEqualTo(10000L);
+  }
+
+  @Test
+  public void getQueuePollingMaxDelay_accepts_value_equal_to_queue_polling_delay() {
+    settings.setProperty(CE_QUEUE_POLLING_MAX_DELAY_PROPERTY, 500);
+
+    CeConfigurationImpl underTest = new CeConfigurationImpl(settings);
+
+    assertThat(underTest.getQueuePollingMaxDelay()).isEqualTo(underTest.getQueuePollingDelay());
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_max_delay_property_is_less_than_queue_polling_delay() {
+    settings.setProperty(CE_QUEUE_POLLING_MAX_DELAY_PROPERTY, "499");
+
+    expectMaxDelayMessageException("499");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_max_delay_property_is_not_a_long() {
+    settings.setProperty(CE_QUEUE_POLLING_MAX_DELAY_PROPERTY, "2s");
+
+    expectMaxDelayMessageException("2s");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void getVisitorsParallelism_returns_1_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getVisitorsParallelism()).isEqualTo(1);
+  }
+
+  @Test
+  public void getVisitorsParallelism_returns_value_of_property() {
+    settings.setProperty(CE_VISITORS_PARALLELISM_PROPERTY, 4);
+
+    assertThat(new CeConfigurationImpl(settings).getVisitorsParallelism()).isEqualTo(4);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_visitors_parallelism_property_is_0() {
+    settings.setProperty(CE_VISITORS_PARALLELISM_PROPERTY, "0");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value '0' of property " + CE_VISITORS_PARALLELISM_PROPERTY + " is invalid. " +
+      "It must an integer strictly greater than 0");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void getStepsParallelism_returns_1_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getStepsParallelism()).isEqualTo(1);
+  }
+
+  @Test
+  public void getStepsParallelism_returns_value_of_property() {
+    settings.setProperty(CE_STEPS_PARALLELISM_PROPERTY, 3);
+
+    assertThat(new CeConfigurationImpl(settings).getStepsParallelism()).isEqualTo(3);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_steps_parallelism_property_is_not_an_integer() {
+    settings.setProperty(CE_STEPS_PARALLELISM_PROPERTY, "foo");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value 'foo' of property " + CE_STEPS_PARALLELISM_PROPERTY + " is invalid. " +
+      "It must an integer strictly greater than 0");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  private void expectMaxDelayMessageException(String value) {
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value '" + value + "' of property " + CE_QUEUE_POLLING_MAX_DELAY_PROPERTY + " is invalid. " +
+      "It must a number of milliseconds greater than or equal to 500");
+  }
+
   private void expectMessageException(int value) {
     expectedException.expect(MessageException.class);
     expectedException.expectMessage("value '" + value + "' of property " + CE_WORKERS_COUNT_PROPERTY + " is invalid. " +
@@ -29,6 +29,9 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class CeConfigurationRule extends ExternalResource implements CeConfiguration {
   private int workerCount = CeConfigurationImpl.DEFAULT_WORKER_COUNT;
   private long queuePollingDelay = CeConfigurationImpl.DEFAULT_QUEUE_POLLING_DELAY;
+  private long queuePollingMaxDelay = CeConfigurationImpl.DEFAULT_QUEUE_POLLING_MAX_DELAY;
+  private int visitorsParallelism = CeConfigurationImpl.DEFAULT_VISITORS_PARALLELISM;
+  private int stepsParallelism = CeConfigurationImpl.DEFAULT_STEPS_PARALLELISM;
 
   @Override
   public int getWorkerCount() {
@@ -50,4 +53,36 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     checkArgument(queuePollingDelay > 0, "Queue polling delay must be >= 0");
     this.queuePollingDelay = queuePollingDelay;
   }
+
+  @Override
+  public long getQueuePollingMaxDelay() {
+    return queuePollingMaxDelay;
+  }
+
+  public void setQueuePollingMaxDelay(int queuePollingMaxDelay) {
+    checkArgument(queuePollingMaxDelay > 0, "Queue polling max delay must be >= 0");
+    this.queuePollingMaxDelay = queuePollingMaxDelay;
+  }
+
+  @Override
+  public int getVisitorsParallelism() {
+    return visitorsParallelism;
+  }
+
+  public CeConfigurationRule setVisitorsParallelism(int visitorsParallelism) {
+    checkArgument(visitorsParallelism >= 1, "visitors parallelism must be >= 1");
+    this.visitorsParallelism = visitorsParallelism;
+    return this;
+  }
+
+  @Override
+  public int getStepsParallelism() {
+    return stepsParallelism;
+  }
+
+  public CeConfigurationRule setStepsParallelism(int stepsParallelism) {
+    checkArgument(stepsParallelism >= 1, "steps parallelism must be >= 1");
+    this.stepsParallelism = stepsParallelism;
+    return this;
+  }
 }
@@ -24,6 +24,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeQueueDto;
@@ -50,6 +51,8 @@ public class CEQueueStatusImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(0);
     assertThat(underTest.getSuccessCount()).isEqualTo(0);
     assertThat(underTest.getProcessingTime()).isEqualTo(0);
+    assertThat(underTest.getPollCount()).isEqualTo(0);
+    assertThat(underTest.getPickupLatency()).isEqualTo(0);
   }
 
   @Test
@@ -133,10 +136,68 @@ public class CEQueueStatusImplTest {
     assertThat(underTest.getProcessingTime()).isEqualTo(calls);
   }
 
+  @Test
+  public void addPoll_any_number_of_call_change_by_1_per_call() {
+    int calls = new Random().nextInt(SOME_RANDOM_MAX);
+    for (int i = 0; i < calls; i++) {
+      underTest.addPoll();
+    }
+
+    assertThat(underTest.getPollCount()).isEqualTo(calls);
+    assertThat(underTest.getInProgressCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void addPickupLatency_throws_IAE_if_latency_is_less_than_0() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Pickup latency can not be < 0");
+
+    underTest.addPickupLatency(-1);
+  }
+
+  @Test
+  public void addPickupLatency_sums_latencies() {
+    underTest.addPickupLatency(SOME_PROCESSING_TIME);
+    underTest.addPickupLatency(1);
+
+    assertThat(underTest.getPickupLatency()).isEqualTo(SOME_PROCESSING_TIME + 1);
+    assertThat(underTest.getInProgressCount()).isEqualTo(0);
+  }
+
   @Test
   public void count_Pending_from_database() {
     when(dbClient.ceQueueDao().countByStatus(any(DbSession.class), eq(CeQueueDto.Status.PENDING))).thenReturn(42);
 
     assertThat(underTest.getPendingCount()).isEqualTo(42);
   }
+
+  @Test
+  public void addPickupLatency_of_lane_sums_latencies_of_lane_and_total() {
+    underTest.addPickupLatency(CeQueueLane.BATCH, SOME_PROCESSING_TIME);
+    underTest.addPickupLatency(CeQueueLane.BATCH, 1);
+    underTest.addPickupLatency(CeQueueLane.INTERACTIVE, 2);
+
+    assertThat(underTest.getPickupLatency()).isEqualTo(SOME_PROCESSING_TIME + 3);
+    assertThat(underTest.getPickupCount(CeQueueLane.BATCH)).isEqualTo(2);
+    assertThat(underTest.getPickupLatency(CeQueueLane.BATCH)).isEqualTo(SOME_PROCESSING_TIME + 1);
+    assertThat(underTest.getPickupCount(CeQueueLane.INTERACTIVE)).isEqualTo(1);
+    assertThat(underTest.getPickupLatency(CeQueueLane.INTERACTIVE)).isEqualTo(2);
+    assertThat(underTest.getPickupCount(CeQueueLane.NORMAL)).isEqualTo(0);
+    assertThat(underTest.getPickupLatency(CeQueueLane.NORMAL)).isEqualTo(0);
+  }
+
+  @Test
+  public void addPickupLatency_of_lane_throws_IAE_if_latency_is_less_than_0() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Pickup latency can not be < 0");
+
+    underTest.addPickupLatency(CeQueueLane.NORMAL, -1);
+  }
+
+  @Test
+  public void count_Pending_of_lane_from_database() {
+    when(dbClient.ceQueueDao().countByStatusAndPriority(any(DbSession.class), eq(CeQueueDto.Status.PENDING), eq(CeQueueLane.BATCH.getPriority()))).thenReturn(7);
+
+    assertThat(underTest.getPendingCount(CeQueueLane.BATCH)).isEqualTo(7);
+  }
 }
@@ -26,6 +26,7 @@ import javax.management.ObjectInstance;
 import javax.management.ObjectName;
 import org.junit.Test;
 import org.sonar.ce.monitoring.CEQueueStatus;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 import org.sonar.server.computation.configuration.CeConfiguration;
 
@@ -37,6 +38,8 @@ public class CeTasksMBeanImplTest {
   private static final long ERROR_COUNT = 10;
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
+  private static final long POLL_COUNT = 1234;
+  private static final long PICKUP_LATENCY = 456;
   private static final int WORKER_COUNT = 56;
 
   private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
@@ -59,6 +62,8 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getPollCount()).isEqualTo(POLL_COUNT);
+    assertThat(underTest.getPickupLatency()).isEqualTo(PICKUP_LATENCY);
   }
 
   @Test
@@ -70,7 +75,7 @@ public class CeTasksMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(6);
+    assertThat(section.getAttributesCount()).isEqualTo(8 + 3 * CeQueueLane.values().length);
   }
 
   /**
@@ -119,6 +124,46 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public long addPoll() {
+      return methodNotImplemented();
+    }
+
+    @Override
+    public long getPollCount() {
+      return POLL_COUNT;
+    }
+
+    @Override
+    public long addPickupLatency(long pickupLatency) {
+      return methodNotImplemented();
+    }
+
+    @Override
+    public long getPickupLatency() {
+      return PICKUP_LATENCY;
+    }
+
+    @Override
+    public long addPickupLatency(CeQueueLane lane, long pickupLatency) {
+      return methodNotImplemented();
+    }
+
+    @Override
+    public long getPendingCount(CeQueueLane lane) {
+      return PENDING_COUNT;
+    }
+
+    @Override
+    public long getPickupCount(CeQueueLane lane) {
+      return POLL_COUNT;
+    }
+
+    @Override
+    public long getPickupLatency(CeQueueLane lane) {
+      return PICKUP_LATENCY;
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
@@ -134,6 +179,21 @@ public class CeTasksMBeanImplTest {
     public long getQueuePollingDelay() {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
     }
+
+    @Override
+    public long getQueuePollingMaxDelay() {
+      throw new UnsupportedOperationException("getQueuePollingMaxDelay is not implemented");
+    }
+
+    @Override
+    public int getVisitorsParallelism() {
+      throw new UnsupportedOperationException("getVisitorsParallelism is not implemented");
+    }
+
+    @Override
+    public int getStepsParallelism() {
+      throw new UnsupportedOperationException("getStepsParallelism is not implemented");
+    }
   }
 
   @CheckForNull
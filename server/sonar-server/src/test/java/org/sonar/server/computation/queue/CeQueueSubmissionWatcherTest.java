@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CeQueueSubmissionWatcherTest {
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
+
+  @Rule
+  public DbTester dbTester = DbTester.create(system2);
+
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+
+  private CeQueueSignal queueSignal = mock(CeQueueSignal.class);
+  private CeQueueSubmissionWatcher underTest = new CeQueueSubmissionWatcher(dbTester.getDbClient(), queueSignal, ceConfiguration);
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void do_not_signal_if_queue_is_empty() {
+    underTest.watch();
+
+    verify(queueSignal, never()).signalSubmit();
+  }
+
+  @Test
+  public void signal_only_new_submissions() {
+    insertInQueue("TASK_1", CeQueueDto.Status.PENDING);
+    underTest.watch();
+    verify(queueSignal).signalSubmit();
+
+    // nothing new
+    underTest.watch();
+    verify(queueSignal).signalSubmit();
+
+    // tasks in progress are not submissions
+    system2.setNow(system2.now() + 1_000L);
+    insertInQueue("TASK_2", CeQueueDto.Status.IN_PROGRESS);
+    underTest.watch();
+    verify(queueSignal).signalSubmit();
+
+    system2.setNow(system2.now() + 1_000L);
+    insertInQueue("TASK_3", CeQueueDto.Status.PENDING);
+    underTest.watch();
+    verify(queueSignal, times(2)).signalSubmit();
+  }
+
+  @Test
+  public void delay_of_next_watch_doubles_up_to_max_polling_delay_until_a_task_is_submitted() {
+    assertThat(underTest.watch()).isEqualTo(400L);
+    assertThat(underTest.watch()).isEqualTo(800L);
+    assertThat(underTest.watch()).isEqualTo(1600L);
+    assertThat(underTest.watch()).isEqualTo(ceConfiguration.getQueuePollingMaxDelay());
+    assertThat(underTest.watch()).isEqualTo(ceConfiguration.getQueuePollingMaxDelay());
+
+    insertInQueue("TASK_1", CeQueueDto.Status.PENDING);
+    assertThat(underTest.watch()).isEqualTo(CeQueueSubmissionWatcher.WATCH_DELAY_IN_MS);
+    assertThat(underTest.watch()).isEqualTo(400L);
+  }
+
+  @Test
+  public void watch_periodically_once_started() {
+    underTest.start();
+
+    insertInQueue("TASK_1", CeQueueDto.Status.PENDING);
+
+    verify(queueSignal, timeout(10 * CeQueueSubmissionWatcher.WATCH_DELAY_IN_MS)).signalSubmit();
+  }
+
+  private void insertInQueue(String taskUuid, CeQueueDto.Status status) {
+    CeQueueDto dto = new CeQueueDto();
+    dto.setTaskType(CeTaskTypes.REPORT);
+    dto.setComponentUuid("PROJECT_1");
+    dto.setUuid(taskUuid);
+    dto.setStatus(status);
+    dbTester.getDbClient().ceQueueDao().insert(dbTester.getSession(), dto);
+    dbTester.getSession().commit();
+  }
+}
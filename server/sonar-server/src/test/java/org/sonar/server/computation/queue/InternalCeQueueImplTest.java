@@ -27,9 +27,9 @@ import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-import org.sonar.api.utils.System2;
 import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.ce.monitoring.CEQueueStatus;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.queue.CeTaskSubmit;
@@ -49,7 +49,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.verify;
 
 public class InternalCeQueueImplTest {
 
@@ -58,7 +58,7 @@ public class InternalCeQueueImplTest {
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
 
-  System2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
+  TestSystem2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
 
   @Rule
   public DbTester dbTester = DbTester.create(system2);
@@ -66,7 +66,8 @@ public class InternalCeQueueImplTest {
 
   UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   CEQueueStatus queueStatus = new CEQueueStatusImpl(dbTester.getDbClient());
-  InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus);
+  CeQueueSignal queueSignal = mock(CeQueueSignal.class);
+  InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, queueSignal);
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -96,6 +97,13 @@ public class InternalCeQueueImplTest {
     verifyCeTask(taskSubmit, task, null);
   }
 
+  @Test
+  public void submit_signals_submission() {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    verify(queueSignal).signalSubmit();
+  }
+
   @Test
   public void submit_fails_with_ISE_if_paused() {
     underTest.pauseSubmit();
@@ -192,6 +200,29 @@ public class InternalCeQueueImplTest {
     assertThat(history.get().getAnalysisUuid()).isEqualTo("U1");
   }
 
+  @Test
+  public void remove_saves_step_timings_of_CeTaskResult() {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    String stepTimings = "[{\"step\":\"Extract report\",\"start\":0,\"duration\":12}]";
+    CeTaskResult taskResult = new CeTaskResult() {
+      @Override
+      public java.util.Optional<String> getAnalysisUuid() {
+        return java.util.Optional.of(AN_ANALYSIS_UUID);
+      }
+
+      @Override
+      public java.util.Optional<String> getStepTimings() {
+        return java.util.Optional.of(stepTimings);
+      }
+    };
+
+    Optional<CeTask> peek = underTest.peek();
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, taskResult, null);
+
+    Optional<CeActivityDto> history = dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), task.getUuid());
+    assertThat(history.get().getStepTimings()).isEqualTo(stepTimings);
+  }
+
   @Test
   public void remove_saves_error_message_and_stacktrace_when_exception_is_provided() {
     Throwable error = new NullPointerException("Fake NPE to test persistence to DB");
@@ -238,6 +269,20 @@ public class InternalCeQueueImplTest {
     assertThat(peek.isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_counts_polls_and_pickup_latency() throws Exception {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    system2.setNow(1_450_000_000_300L);
+
+    underTest.peek();
+    underTest.peek();
+
+    assertThat(queueStatus.getPollCount()).isEqualTo(2);
+    assertThat(queueStatus.getPickupLatency()).isEqualTo(300L);
+    assertThat(queueStatus.getPickupCount(CeQueueLane.NORMAL)).isEqualTo(1);
+    assertThat(queueStatus.getPickupLatency(CeQueueLane.NORMAL)).isEqualTo(300L);
+  }
+
   @Test
   public void peek_nothing_if_paused() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -353,9 +398,7 @@ public class InternalCeQueueImplTest {
   }
 
   private CeTaskResult newTaskResult(@Nullable String analysisUuid) {
-    CeTaskResult taskResult = mock(CeTaskResult.class);
-    when(taskResult.getAnalysisUuid()).thenReturn(java.util.Optional.ofNullable(analysisUuid));
-    return taskResult;
+    return () -> java.util.Optional.ofNullable(analysisUuid);
   }
 
   private ComponentDto insertComponent(ComponentDto componentDto) {
@@ -29,6 +29,7 @@ import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.queue.CeQueue;
 import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.ce.queue.CeTaskSubmit;
 import org.sonar.core.permission.GlobalPermissions;
 import org.sonar.db.DbSession;
@@ -99,6 +100,28 @@ public class ReportSubmitterTest {
     }));
   }
 
+  @Test
+  public void submit_a_report_to_lane() {
+    userSession.setGlobalPermissions(SCAN_EXECUTION);
+
+    when(queue.prepareSubmit()).thenReturn(new CeTaskSubmit.Builder(TASK_UUID));
+    when(componentService.getNullableByKey(PROJECT_KEY)).thenReturn(new ComponentDto().setUuid(PROJECT_UUID));
+
+    underTest.submit(PROJECT_KEY, null, PROJECT_NAME, CeQueueLane.INTERACTIVE, IOUtils.toInputStream("{binary}"));
+
+    verify(queue).submit(argThat(new TypeSafeMatcher<CeTaskSubmit>() {
+      @Override
+      protected boolean matchesSafely(CeTaskSubmit submit) {
+        return submit.getUuid().equals(TASK_UUID) && submit.getLane() == CeQueueLane.INTERACTIVE;
+      }
+
+      @Override
+      public void describeTo(Description description) {
+
+      }
+    }));
+  }
+
   @Test
   public void provision_project_if_does_not_exist() throws Exception {
     userSession.setGlobalPermissions(SCAN_EXECUTION, PROVISIONING);
@@ -21,7 +21,10 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -315,4 +318,32 @@ public class BatchReportReaderImplTest {
     assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
     res.close();
   }
+
+  @Test
+  public void read_segmented_report() throws IOException {
+    BatchReportDirectoryHolder holder = new ImmutableBatchReportDirectoryHolder(tempFolder.newDir());
+    try (ScannerReportWriter segmentedWriter = new ScannerReportWriter(holder.getDirectory(), ScannerReport.Metadata.ReportFormat.SEGMENTED)) {
+      segmentedWriter.writeMetadata(ScannerReport.Metadata.newBuilder().build());
+      segmentedWriter.writeComponent(COMPONENT);
+      segmentedWriter.writeTests(COMPONENT_REF, of(TEST_1, TEST_2));
+      segmentedWriter.writeCoverageDetails(COMPONENT_REF, of(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2));
+      try (OutputStream output = segmentedWriter.openSourceOutput(COMPONENT_REF)) {
+        IOUtils.write("1\n2\n3", output, StandardCharsets.UTF_8);
+      }
+    }
+    underTest = new BatchReportReaderImpl(holder);
+
+    assertThat(underTest.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    try (CloseableIterator<String> res = underTest.readFileSource(COMPONENT_REF).get()) {
+      assertThat(res).containsExactly("1", "2", "3");
+    }
+    try (CloseableIterator<ScannerReport.Test> res = underTest.readTests(COMPONENT_REF)) {
+      assertThat(res).containsExactly(TEST_1, TEST_2);
+    }
+    try (CloseableIterator<ScannerReport.CoverageDetail> res = underTest.readCoverageDetails(COMPONENT_REF)) {
+      assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
+    }
+    assertThat(underTest.readFileSource(2)).isAbsent();
+    underTest.stop();
+  }
 }
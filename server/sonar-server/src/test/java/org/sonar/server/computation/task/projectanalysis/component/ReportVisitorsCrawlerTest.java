@@ -19,7 +19,16 @@
  */
 package org.sonar.server.computation.task.projectanalysis.component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -51,6 +60,12 @@ public class ReportVisitorsCrawlerTest {
   private final TypeAwareVisitor spyPreOrderTypeAwareVisitor = spy(new TestTypeAwareVisitor(CrawlerDepthLimit.FILE, PRE_ORDER));
   private final TypeAwareVisitor spyPostOrderTypeAwareVisitor = spy(new TestTypeAwareVisitor(CrawlerDepthLimit.FILE, POST_ORDER));
   private final TestPathAwareVisitor spyPathAwareVisitor = spy(new TestPathAwareVisitor(CrawlerDepthLimit.FILE, POST_ORDER));
+  private final ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+
+  @After
+  public void tearDown() {
+    forkJoinPool.shutdownNow();
+  }
 
   @Test
   public void execute_each_visitor_on_each_level() throws Exception {
@@ -119,6 +134,100 @@ public class ReportVisitorsCrawlerTest {
     assertThat(underTest.getCumulativeDurations()).hasSize(2);
   }
 
+  @Test
+  public void visit_files_of_a_directory_concurrently_when_visitors_of_files_are_thread_safe() {
+    Component file1 = component(FILE, 11);
+    Component file2 = component(FILE, 12);
+    Component directory = component(DIRECTORY, 10, file1, file2);
+    Component project = component(PROJECT, 1, directory);
+    CyclicBarrier bothFilesVisited = new CyclicBarrier(2);
+    List<Component> visited = new CopyOnWriteArrayList<>();
+    TypeAwareVisitor visitor = new ThreadSafeTypeAwareVisitor() {
+      @Override
+      public void visitFile(Component file) {
+        try {
+          // fails with a timeout unless the other file is visited at the same time
+          bothFilesVisited.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+        visited.add(file);
+      }
+
+      @Override
+      public void visitDirectory(Component directory) {
+        visited.add(directory);
+      }
+    };
+
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(visitor), true, forkJoinPool);
+    underTest.visit(project);
+
+    assertThat(underTest.isConcurrent()).isTrue();
+    assertThat(visited).hasSize(3);
+    assertThat(visited.subList(0, 2)).containsOnly(file1, file2);
+    assertThat(visited.get(2)).isSameAs(directory);
+    assertThat(underTest.getCumulativeDurations()).containsOnlyKeys(visitor);
+  }
+
+  @Test
+  public void visit_files_sequentially_when_a_visitor_of_files_is_not_thread_safe() {
+    List<Component> visited = new ArrayList<>();
+    TypeAwareVisitor visitor = new ThreadSafeTypeAwareVisitor() {
+      @Override
+      public void visitFile(Component file) {
+        visited.add(file);
+      }
+    };
+
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(visitor, spyPathAwareVisitor), false, forkJoinPool);
+    underTest.visit(COMPONENT_TREE);
+
+    assertThat(underTest.isConcurrent()).isFalse();
+    assertThat(visited).containsExactly(FILE_5);
+  }
+
+  @Test
+  public void visit_files_concurrently_when_not_thread_safe_visitors_do_not_visit_files() {
+    TypeAwareVisitor directoryVisitor = new TestTypeAwareVisitor(CrawlerDepthLimit.DIRECTORY, POST_ORDER);
+
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(new ThreadSafeTypeAwareVisitor(), directoryVisitor), false, forkJoinPool);
+
+    assertThat(underTest.isConcurrent()).isTrue();
+  }
+
+  @Test
+  public void failure_of_a_concurrent_visit_of_file_is_propagated() {
+    TypeAwareVisitor visitor = new ThreadSafeTypeAwareVisitor() {
+      @Override
+      public void visitFile(Component file) {
+        throw new IllegalArgumentException("failure");
+      }
+    };
+
+    thrown.expect(VisitException.class);
+    thrown.expectMessage("Visit of Component {key=key_5,type=FILE} failed");
+
+    new VisitorsCrawler(Arrays.asList(visitor), false, forkJoinPool).visit(COMPONENT_TREE);
+  }
+
+  @Test
+  public void concurrent_crawl_computes_same_results_as_sequential_crawl() {
+    Component tree = bigTree();
+    SummingVisitor sequentialVisitor = new SummingVisitor();
+    SummingVisitor concurrentVisitor = new SummingVisitor();
+
+    new VisitorsCrawler(Arrays.asList(sequentialVisitor), false).visit(tree);
+    VisitorsCrawler concurrentCrawler = new VisitorsCrawler(Arrays.asList(concurrentVisitor), false, forkJoinPool);
+    concurrentCrawler.visit(tree);
+
+    assertThat(concurrentCrawler.isConcurrent()).isTrue();
+    assertThat(concurrentVisitor.sums).isEqualTo(sequentialVisitor.sums);
+    assertThat(concurrentVisitor.visitedNonFiles).isEqualTo(sequentialVisitor.visitedNonFiles);
+    // 2 modules * 3 directories * 50 files
+    assertThat(concurrentVisitor.sums.get(1)).isEqualTo(sequentialVisitor.sums.get(1)).isEqualTo(fileRefsSum(tree));
+  }
+
   @Test
   public void fail_with_IAE_when_visitor_is_not_path_aware_or_type_aware() throws Exception {
     thrown.expect(IllegalArgumentException.class);
@@ -142,6 +251,74 @@ public class ReportVisitorsCrawlerTest {
     return ReportComponent.builder(type, ref).addChildren(children).build();
   }
 
+  private static Component bigTree() {
+    int ref = 2;
+    List<Component> modules = new ArrayList<>();
+    for (int m = 0; m < 2; m++) {
+      int moduleRef = ref++;
+      List<Component> directories = new ArrayList<>();
+      for (int d = 0; d < 3; d++) {
+        int directoryRef = ref++;
+        List<Component> files = new ArrayList<>();
+        for (int f = 0; f < 50; f++) {
+          files.add(component(FILE, ref++));
+        }
+        directories.add(component(DIRECTORY, directoryRef, files.toArray(new Component[files.size()])));
+      }
+      modules.add(component(MODULE, moduleRef, directories.toArray(new Component[directories.size()])));
+    }
+    return component(PROJECT, 1, modules.toArray(new Component[modules.size()]));
+  }
+
+  private static long fileRefsSum(Component component) {
+    if (component.getType() == FILE) {
+      return component.getReportAttributes().getRef();
+    }
+    long sum = 0;
+    for (Component child : component.getChildren()) {
+      sum += fileRefsSum(child);
+    }
+    return sum;
+  }
+
+  /**
+   * Aggregates the refs of files up to the project, the way formulas aggregate measures.
+   */
+  private static class SummingVisitor extends ThreadSafeTypeAwareVisitor {
+    private final Map<Integer, Long> sums = new ConcurrentHashMap<>();
+    private final List<Integer> visitedNonFiles = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void visitFile(Component file) {
+      sums.put(file.getReportAttributes().getRef(), (long) file.getReportAttributes().getRef());
+    }
+
+    @Override
+    public void visitDirectory(Component directory) {
+      sumChildren(directory);
+    }
+
+    @Override
+    public void visitModule(Component module) {
+      sumChildren(module);
+    }
+
+    @Override
+    public void visitProject(Component project) {
+      sumChildren(project);
+    }
+
+    private void sumChildren(Component component) {
+      long sum = 0;
+      for (Component child : component.getChildren()) {
+        // fails if a child has not been visited yet
+        sum += sums.get(child.getReportAttributes().getRef());
+      }
+      sums.put(component.getReportAttributes().getRef(), sum);
+      visitedNonFiles.add(component.getReportAttributes().getRef());
+    }
+  }
+
   private static class TestTypeAwareVisitor extends TypeAwareVisitorAdapter {
 
     public TestTypeAwareVisitor(CrawlerDepthLimit maxDepth, ComponentVisitor.Order order) {
@@ -149,6 +326,18 @@ public class ReportVisitorsCrawlerTest {
     }
   }
 
+  private static class ThreadSafeTypeAwareVisitor extends TypeAwareVisitorAdapter {
+
+    public ThreadSafeTypeAwareVisitor() {
+      super(CrawlerDepthLimit.FILE, POST_ORDER);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+      return true;
+    }
+  }
+
   private static class TestPathAwareVisitor extends PathAwareVisitorAdapter<Integer> {
 
     public TestPathAwareVisitor(CrawlerDepthLimit maxDepth, ComponentVisitor.Order order) {
@@ -0,0 +1,232 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class DefaultIssueCodecTest {
+
+  private static final Date DATE_1 = new Date(1_450_000_000_000L);
+  private static final Date DATE_2 = new Date(1_460_000_000_000L);
+
+  DefaultIssueCodec underTest = new DefaultIssueCodec();
+
+  @Test
+  public void encode_and_decode_all_fields() throws Exception {
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(1).setEndLine(3))
+      .build();
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_KEY")
+      .setType(RuleType.VULNERABILITY)
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setRuleKey(RuleKey.of("squid", "S001"))
+      .setLanguage("java")
+      .setSeverity(Severity.CRITICAL)
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(42)
+      .setGap(3.14)
+      .setEffort(Duration.create(10L))
+      .setStatus("RESOLVED")
+      .setResolution("FIXED")
+      .setAssignee("simon")
+      .setChecksum("abc")
+      .setAuthorLogin("julien")
+      .setCreationDate(DATE_1)
+      .setUpdateDate(DATE_2)
+      .setCloseDate(DATE_2)
+      .setSelectedAt(1_000L)
+      .setNew(true)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setAttributes(ImmutableMap.of("JIRA", "FOO-123", "foo", "bar"))
+      .setTags(Arrays.asList("security", "cwe"))
+      .setLocations(locations);
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded.key()).isEqualTo("ISSUE_KEY");
+    assertThat(decoded.type()).isEqualTo(RuleType.VULNERABILITY);
+    assertThat(decoded.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(decoded.componentKey()).isEqualTo("FILE_KEY");
+    assertThat(decoded.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(decoded.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(decoded.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(decoded.projectKey()).isEqualTo("PROJECT_KEY");
+    assertThat(decoded.ruleKey()).isEqualTo(RuleKey.of("squid", "S001"));
+    assertThat(decoded.language()).isEqualTo("java");
+    assertThat(decoded.severity()).isEqualTo(Severity.CRITICAL);
+    assertThat(decoded.manualSeverity()).isTrue();
+    assertThat(decoded.message()).isEqualTo("the message");
+    assertThat(decoded.line()).isEqualTo(42);
+    assertThat(decoded.gap()).isEqualTo(3.14);
+    assertThat(decoded.effort()).isEqualTo(Duration.create(10L));
+    assertThat(decoded.status()).isEqualTo("RESOLVED");
+    assertThat(decoded.resolution()).isEqualTo("FIXED");
+    assertThat(decoded.assignee()).isEqualTo("simon");
+    assertThat(decoded.checksum()).isEqualTo("abc");
+    assertThat(decoded.authorLogin()).isEqualTo("julien");
+    assertThat(decoded.creationDate()).isEqualTo(DATE_1);
+    assertThat(decoded.updateDate()).isEqualTo(DATE_2);
+    assertThat(decoded.closeDate()).isEqualTo(DATE_2);
+    assertThat(decoded.selectedAt()).isEqualTo(1_000L);
+    assertThat(decoded.isNew()).isTrue();
+    assertThat(decoded.isBeingClosed()).isTrue();
+    assertThat(decoded.isOnDisabledRule()).isTrue();
+    assertThat(decoded.isChanged()).isTrue();
+    assertThat(decoded.mustSendNotifications()).isTrue();
+    assertThat(decoded.attributes()).containsOnly(entry("JIRA", "FOO-123"), entry("foo", "bar"));
+    assertThat(decoded.tags()).containsExactly("security", "cwe");
+    assertThat((DbIssues.Locations) decoded.getLocations()).isEqualTo(locations);
+  }
+
+  @Test
+  public void encode_and_decode_issue_without_optional_fields() throws Exception {
+    DefaultIssue decoded = encodeAndDecode(new DefaultIssue());
+
+    assertThat(decoded.key()).isNull();
+    assertThat(decoded.type()).isNull();
+    assertThat(decoded.ruleKey()).isNull();
+    assertThat(decoded.severity()).isNull();
+    assertThat(decoded.message()).isNull();
+    assertThat(decoded.line()).isNull();
+    assertThat(decoded.gap()).isNull();
+    assertThat(decoded.effort()).isNull();
+    assertThat(decoded.creationDate()).isNull();
+    assertThat(decoded.selectedAt()).isNull();
+    assertThat(decoded.isNew()).isFalse();
+    assertThat(decoded.attributes()).isEmpty();
+    assertThat(decoded.tags()).isEmpty();
+    assertThat(decoded.comments()).isEmpty();
+    assertThat(decoded.changes()).isEmpty();
+    assertThat(decoded.currentChange()).isNull();
+    assertThat((Object) decoded.getLocations()).isNull();
+  }
+
+  @Test
+  public void encode_and_decode_long_strings() throws Exception {
+    String longString = StringUtils.repeat("abcdé", 20_000);
+    DefaultIssue decoded = encodeAndDecode(new DefaultIssue().setChecksum(longString));
+
+    assertThat(decoded.checksum()).isEqualTo(longString);
+  }
+
+  @Test
+  public void encode_and_decode_comments() throws Exception {
+    DefaultIssue issue = new DefaultIssue()
+      .addComment(new DefaultIssueComment().setKey("C1").setIssueKey("ISSUE_KEY").setUserLogin("simon").setMarkdownText("first")
+        .setCreatedAt(DATE_1).setUpdatedAt(DATE_2).setNew(false))
+      .addComment(DefaultIssueComment.create("ISSUE_KEY", null, "second").setCreatedAt(DATE_2));
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded.comments()).hasSize(2);
+    DefaultIssueComment first = (DefaultIssueComment) decoded.comments().get(0);
+    assertThat(first.key()).isEqualTo("C1");
+    assertThat(first.issueKey()).isEqualTo("ISSUE_KEY");
+    assertThat(first.userLogin()).isEqualTo("simon");
+    assertThat(first.markdownText()).isEqualTo("first");
+    assertThat(first.createdAt()).isEqualTo(DATE_1);
+    assertThat(first.updatedAt()).isEqualTo(DATE_2);
+    assertThat(first.isNew()).isFalse();
+    DefaultIssueComment second = (DefaultIssueComment) decoded.comments().get(1);
+    assertThat(second.userLogin()).isNull();
+    assertThat(second.markdownText()).isEqualTo("second");
+    assertThat(second.isNew()).isTrue();
+  }
+
+  @Test
+  public void current_change_is_shared_with_changes() throws Exception {
+    FieldDiffs previous = new FieldDiffs().setIssueKey("ISSUE_KEY").setUserLogin("simon").setCreationDate(DATE_1)
+      .setDiff("severity", "MAJOR", "BLOCKER")
+      .setDiff("effort", 10L, 20L)
+      .setDiff("line", 1, null);
+    FieldDiffs current = new FieldDiffs().setCreationDate(DATE_2)
+      .setDiff("status", "OPEN", "CLOSED")
+      .setDiff("gap", 1.0, 2.5);
+    DefaultIssue issue = new DefaultIssue().addChange(previous).setCurrentChange(current);
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded.changes()).hasSize(2);
+    assertThat(decoded.currentChange()).isSameAs(decoded.changes().get(1));
+    FieldDiffs decodedPrevious = decoded.changes().get(0);
+    assertThat(decodedPrevious.issueKey()).isEqualTo("ISSUE_KEY");
+    assertThat(decodedPrevious.userLogin()).isEqualTo("simon");
+    assertThat(decodedPrevious.creationDate()).isEqualTo(DATE_1);
+    assertThat(decodedPrevious.toString()).isEqualTo(previous.toString());
+    assertThat(decodedPrevious.get("effort").newValue()).isEqualTo(20L);
+    assertThat(decodedPrevious.get("line").oldValue()).isEqualTo(1);
+    assertThat(decoded.currentChange().toString()).isEqualTo(current.toString());
+    assertThat(decoded.currentChange().get("gap").newValue()).isEqualTo(2.5);
+  }
+
+  @Test
+  public void encode_and_decode_many_issues_in_same_stream() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    for (int i = 0; i < 10; i++) {
+      underTest.write(new DefaultIssue().setKey("ISSUE_" + i).setLine(i + 1), output);
+    }
+
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    for (int i = 0; i < 10; i++) {
+      DefaultIssue decoded = underTest.read(input);
+      assertThat(decoded.key()).isEqualTo("ISSUE_" + i);
+      assertThat(decoded.line()).isEqualTo(i + 1);
+    }
+    assertThat(input.available()).isEqualTo(0);
+  }
+
+  private DefaultIssue encodeAndDecode(DefaultIssue issue) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    underTest.write(issue, new DataOutputStream(bytes));
+    return underTest.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+}
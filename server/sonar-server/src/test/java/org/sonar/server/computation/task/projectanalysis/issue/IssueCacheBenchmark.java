@@ -0,0 +1,166 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.DiskCache;
+import org.sonar.server.util.cache.SerializableCodec;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Compares the encodings of {@link IssueCache}: Java serialization (the encoding before {@link DefaultIssueCodec})
+ * and {@link DefaultIssueCodec}, with or without LZ4 compression. Size of the file is logged after each iteration.
+ * <p>
+ * Run with {@code main()} from the IDE, or with
+ * {@code java -cp <test classpath> org.sonar.server.computation.task.projectanalysis.issue.IssueCacheBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IssueCacheBenchmark {
+
+  private static final int ISSUES = 20_000;
+
+  @Param({"serialization", "codec", "codec+lz4"})
+  public String encoding;
+
+  private File tempDir;
+  private DiskCache<DefaultIssue> cache;
+  private DefaultIssue[] issues;
+
+  @Setup(Level.Iteration)
+  public void setUp() throws Exception {
+    tempDir = Files.createTempDirectory("issue-cache-benchmark").toFile();
+    File file = new File(tempDir, "issues.dat");
+    switch (encoding) {
+      case "serialization":
+        cache = new DiskCache<>(file, System2.INSTANCE, new SerializableCodec<DefaultIssue>(), false);
+        break;
+      case "codec":
+        cache = new DiskCache<>(file, System2.INSTANCE, new DefaultIssueCodec(), false);
+        break;
+      default:
+        cache = new DiskCache<>(file, System2.INSTANCE, new DefaultIssueCodec(), true);
+    }
+    issues = new DefaultIssue[ISSUES];
+    for (int i = 0; i < ISSUES; i++) {
+      issues[i] = newIssue(i);
+    }
+    append();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    System.out.println(" " + encoding + " file size: " + new File(tempDir, "issues.dat").length() + " bytes");
+    deleteQuietly(tempDir);
+  }
+
+  @Benchmark
+  public void append() {
+    DiskCache<DefaultIssue>.DiskAppender appender = cache.newAppender();
+    for (DefaultIssue issue : issues) {
+      appender.append(issue);
+    }
+    appender.close();
+  }
+
+  @Benchmark
+  public void traverse(Blackhole blackhole) {
+    try (CloseableIterator<DefaultIssue> traverse = cache.traverse()) {
+      while (traverse.hasNext()) {
+        blackhole.consume(traverse.next());
+      }
+    }
+  }
+
+  private static DefaultIssue newIssue(int index) {
+    String fileIndex = String.valueOf(index / 50);
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("AVh" + index + "-Jq2TDEmVI1hNxk")
+      .setType(RuleType.CODE_SMELL)
+      .setComponentUuid("AVh4Jq2TDEmVI1hNxkF" + fileIndex)
+      .setComponentKey("org.sonarsource:project:src/main/java/org/sonar/File" + fileIndex + ".java")
+      .setModuleUuid("AVh4Jq2TDEmVI1hNxkFA")
+      .setModuleUuidPath(".AVh4Jq2TDEmVI1hNxkFA.")
+      .setProjectUuid("AVh4Jq2TDEmVI1hNxkFA")
+      .setProjectKey("org.sonarsource:project")
+      .setRuleKey(RuleKey.of("squid", "S" + (index % 300)))
+      .setLanguage("java")
+      .setSeverity(Severity.MAJOR)
+      .setMessage("Remove this unused private \"field" + index + "\" field.")
+      .setLine(1 + index % 500)
+      .setGap(1.0)
+      .setEffort(Duration.create(5L))
+      .setStatus("OPEN")
+      .setChecksum("2c6f6d4a4f7f4d1ee2e0c5f8ed3c5e8b")
+      .setAuthorLogin("developer" + (index % 20))
+      .setCreationDate(new Date(1_450_000_000_000L + index))
+      .setUpdateDate(new Date(1_460_000_000_000L + index))
+      .setNew(index % 10 == 0)
+      .setTags(Arrays.asList("unused", "pitfall"))
+      .setLocations(DbIssues.Locations.newBuilder()
+        .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(1 + index % 500).setEndLine(1 + index % 500).setStartOffset(2).setEndOffset(20))
+        .build());
+    if (index % 5 == 0) {
+      issue.setCurrentChange(new FieldDiffs().setCreationDate(new Date(1_460_000_000_000L)).setDiff("severity", Severity.MINOR, Severity.MAJOR));
+    }
+    return issue;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(IssueCacheBenchmark.class.getSimpleName()).build()).run();
+  }
+}
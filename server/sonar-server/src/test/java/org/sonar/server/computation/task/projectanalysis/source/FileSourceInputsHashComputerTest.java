@@ -0,0 +1,109 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
+import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
+import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
+import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileSourceInputsHashComputerTest {
+
+  private static final int FILE_REF = 3;
+  private static final Component FILE = ReportComponent.builder(Component.Type.FILE, FILE_REF).setUuid("FILE").setKey("MODULE_KEY:src/Foo.java").build();
+
+  @Rule
+  public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public SourceLinesRepositoryRule sourceLinesRepository = new SourceLinesRepositoryRule();
+  @Rule
+  public ScmInfoRepositoryRule scmInfoRepository = new ScmInfoRepositoryRule();
+  @Rule
+  public DuplicationRepositoryRule duplicationRepository = DuplicationRepositoryRule.create();
+
+  private FileSourceInputsHashComputer underTest = new FileSourceInputsHashComputer(reportReader, sourceLinesRepository, scmInfoRepository, duplicationRepository);
+
+  @Test
+  public void hash_is_stable_for_same_inputs() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+
+    String hash = underTest.compute(FILE, 2);
+
+    assertThat(hash).hasSize(32);
+    assertThat(underTest.compute(FILE, 2)).isEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_with_source() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    String hash = underTest.compute(FILE, 2);
+
+    sourceLinesRepository.addLine(FILE_REF, "line3");
+
+    assertThat(underTest.compute(FILE, 3)).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_with_coverage() {
+    sourceLinesRepository.addLines(FILE_REF, "line1");
+    String hash = underTest.compute(FILE, 1);
+
+    reportReader.putCoverage(FILE_REF, newArrayList(ScannerReport.LineCoverage.newBuilder()
+      .setLine(1)
+      .setHits(true)
+      .build()));
+
+    assertThat(underTest.compute(FILE, 1)).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_with_scm() {
+    sourceLinesRepository.addLines(FILE_REF, "line1");
+    scmInfoRepository.setScmInfo(FILE_REF, Changeset.newChangesetBuilder().setAuthor("john").setDate(123456789L).setRevision("rev-1").build());
+    String hash = underTest.compute(FILE, 1);
+
+    scmInfoRepository.setScmInfo(FILE_REF, Changeset.newChangesetBuilder().setAuthor("john").setDate(123456789L).setRevision("rev-2").build());
+
+    assertThat(underTest.compute(FILE, 1)).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_with_duplications() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2", "line3", "line4");
+    String hash = underTest.compute(FILE, 4);
+
+    duplicationRepository.add(FILE, new Duplication(new TextBlock(1, 2), Arrays.<Duplicate>asList(new InnerDuplicate(new TextBlock(3, 4)))));
+
+    assertThat(underTest.compute(FILE, 4)).isNotEqualTo(hash);
+  }
+}
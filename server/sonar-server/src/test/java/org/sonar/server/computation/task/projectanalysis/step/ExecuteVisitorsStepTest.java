@@ -20,11 +20,14 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
 import org.sonar.server.computation.task.ChangeLogLevel;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
@@ -69,6 +72,8 @@ public class ExecuteVisitorsStepTest {
   public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
   @Rule
   public LogTester logTester = new LogTester();
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
 
   @Before
   public void setUp() throws Exception {
@@ -88,7 +93,7 @@ public class ExecuteVisitorsStepTest {
 
   @Test
   public void execute_with_type_aware_visitor() throws Exception {
-    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestTypeAwareVisitor()));
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, ceConfiguration, singletonList(new TestTypeAwareVisitor()));
 
     measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
     measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(2));
@@ -107,7 +112,7 @@ public class ExecuteVisitorsStepTest {
 
   @Test
   public void execute_with_path_aware_visitor() throws Exception {
-    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestPathAwareVisitor()));
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, ceConfiguration, singletonList(new TestPathAwareVisitor()));
 
     measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
     measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(1));
@@ -129,6 +134,7 @@ public class ExecuteVisitorsStepTest {
       ChangeLogLevel step3 = new ChangeLogLevel(VisitorB.class, LoggerLevel.DEBUG)) {
       ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(
         treeRootHolder,
+        ceConfiguration,
         asList(new VisitorA(), new VisitorB(), new VisitorC()));
 
       underStep.execute();
@@ -143,6 +149,33 @@ public class ExecuteVisitorsStepTest {
     }
   }
 
+  @Test
+  public void execute_visits_files_concurrently_when_parallelism_is_greater_than_1() {
+    ceConfiguration.setVisitorsParallelism(2);
+    Set<String> visitedFiles = ConcurrentHashMap.newKeySet();
+    Set<String> visitedFilesWhenDirectoryVisited = ConcurrentHashMap.newKeySet();
+    TypeAwareVisitorAdapter visitor = new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, ComponentVisitor.Order.POST_ORDER) {
+      @Override
+      public boolean isThreadSafe() {
+        return true;
+      }
+
+      @Override
+      public void visitFile(Component file) {
+        visitedFiles.add(file.getKey());
+      }
+
+      @Override
+      public void visitDirectory(Component directory) {
+        visitedFilesWhenDirectoryVisited.addAll(visitedFiles);
+      }
+    };
+
+    new ExecuteVisitorsStep(treeRootHolder, ceConfiguration, singletonList(visitor)).execute();
+
+    assertThat(visitedFilesWhenDirectoryVisited).containsOnly("file1", "file2");
+  }
+
   private static class VisitorA extends TypeAwareVisitorAdapter {
     public VisitorA() {
       super(CrawlerDepthLimit.PROJECT, Order.PRE_ORDER);
@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +31,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -55,8 +58,10 @@ import org.sonar.server.computation.task.projectanalysis.analysis.Analysis;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -73,6 +78,7 @@ public class LoadCrossProjectDuplicationsRepositoryStepTest {
   static final int PROJECT_REF = 1;
   static final int FILE_REF = 2;
   static final String CURRENT_FILE_KEY = "FILE_KEY";
+  static final int OTHER_CURRENT_FILE_REF = 3;
 
   static final Component CURRENT_FILE = ReportComponent.builder(FILE, FILE_REF)
     .setKey(CURRENT_FILE_KEY)
@@ -101,10 +107,12 @@ public class LoadCrossProjectDuplicationsRepositoryStepTest {
 
   IntegrateCrossProjectDuplications integrateCrossProjectDuplications = mock(IntegrateCrossProjectDuplications.class);
 
+  Settings settings = new MapSettings();
+
   Analysis baseProjectAnalysis;
 
   ComputationStep underTest = new LoadCrossProjectDuplicationsRepositoryStep(treeRootHolder, batchReportReader, analysisMetadataHolder, crossProjectDuplicationStatusHolder,
-    integrateCrossProjectDuplications, dbClient);
+    integrateCrossProjectDuplications, dbClient, settings);
 
   @Before
   public void setUp() throws Exception {
@@ -325,6 +333,117 @@ public class LoadCrossProjectDuplicationsRepositoryStepTest {
     verifyZeroInteractions(integrateCrossProjectDuplications);
   }
 
+  @Test
+  public void call_compute_cpd_on_each_file_of_a_batch_with_its_own_duplications() throws Exception {
+    verify_compute_cpd_on_two_files(underTest);
+  }
+
+  @Test
+  public void call_compute_cpd_on_each_file_when_batches_are_limited_to_one_hash() throws Exception {
+    verify_compute_cpd_on_two_files(new LoadCrossProjectDuplicationsRepositoryStep(treeRootHolder, batchReportReader, analysisMetadataHolder,
+      crossProjectDuplicationStatusHolder, integrateCrossProjectDuplications, dbClient, settings, 1));
+  }
+
+  @Test
+  public void call_compute_cpd_only_on_files_with_possible_duplications_when_bloom_filter_is_enabled() throws Exception {
+    settings.setProperty(LoadCrossProjectDuplicationsRepositoryStep.BLOOM_FILTER_PROPERTY, true);
+    Component otherCurrentFile = addOtherCurrentFile();
+    when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(true);
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+
+    ComponentDto otherProject = createProject("OTHER_PROJECT_KEY");
+    SnapshotDto otherProjectSnapshot = createProjectSnapshot(otherProject);
+    ComponentDto otherFile = createFile("OTHER_FILE_KEY", otherProject);
+    dbClient.duplicationDao().insert(dbSession, newDuplicate("a8998353e96320ec", otherProjectSnapshot, otherFile));
+    dbSession.commit();
+
+    batchReportReader.putDuplicationBlocks(FILE_REF, asList(newCpdTextBlock("a8998353e96320ec")));
+    batchReportReader.putDuplicationBlocks(OTHER_CURRENT_FILE_REF, asList(newCpdTextBlock("b1234353e96320ff")));
+
+    underTest.execute();
+
+    verify(integrateCrossProjectDuplications).computeCpd(eq(CURRENT_FILE), any(Collection.class), any(Collection.class));
+    verify(integrateCrossProjectDuplications, never()).computeCpd(eq(otherCurrentFile), any(Collection.class), any(Collection.class));
+  }
+
+  private void verify_compute_cpd_on_two_files(ComputationStep step) {
+    Component otherCurrentFile = addOtherCurrentFile();
+    when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(true);
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+
+    ComponentDto otherProject = createProject("OTHER_PROJECT_KEY");
+    SnapshotDto otherProjectSnapshot = createProjectSnapshot(otherProject);
+    ComponentDto otherFile = createFile("OTHER_FILE_KEY", otherProject);
+    DuplicationUnitDto duplicate1 = newDuplicate("a8998353e96320ec", otherProjectSnapshot, otherFile);
+    DuplicationUnitDto duplicate2 = newDuplicate("b1234353e96320ff", otherProjectSnapshot, otherFile);
+    dbClient.duplicationDao().insert(dbSession, duplicate1);
+    dbClient.duplicationDao().insert(dbSession, duplicate2);
+    dbSession.commit();
+
+    ScannerReport.CpdTextBlock originBlock1 = newCpdTextBlock(duplicate1.getHash());
+    ScannerReport.CpdTextBlock originBlock2 = newCpdTextBlock(duplicate2.getHash());
+    batchReportReader.putDuplicationBlocks(FILE_REF, asList(originBlock1));
+    batchReportReader.putDuplicationBlocks(OTHER_CURRENT_FILE_REF, asList(originBlock2));
+
+    step.execute();
+
+    verify(integrateCrossProjectDuplications).computeCpd(CURRENT_FILE,
+      asList(toOriginBlock(CURRENT_FILE_KEY, originBlock1)),
+      asList(toDuplicatedBlock(otherFile, duplicate1)));
+    verify(integrateCrossProjectDuplications).computeCpd(otherCurrentFile,
+      asList(toOriginBlock(otherCurrentFile.getKey(), originBlock2)),
+      asList(toDuplicatedBlock(otherFile, duplicate2)));
+  }
+
+  private Component addOtherCurrentFile() {
+    Component otherCurrentFile = ReportComponent.builder(FILE, OTHER_CURRENT_FILE_REF)
+      .setKey("OTHER_CURRENT_FILE_KEY")
+      .setFileAttributes(new FileAttributes(false, XOO_LANGUAGE))
+      .build();
+    treeRootHolder.setRoot(ReportComponent.builder(PROJECT, PROJECT_REF)
+      .addChildren(CURRENT_FILE, otherCurrentFile).build());
+    return otherCurrentFile;
+  }
+
+  private static DuplicationUnitDto newDuplicate(String hash, SnapshotDto snapshot, ComponentDto file) {
+    return new DuplicationUnitDto()
+      .setHash(hash)
+      .setStartLine(40)
+      .setEndLine(55)
+      .setIndexInFile(0)
+      .setAnalysisUuid(snapshot.getUuid())
+      .setComponentUuid(file.uuid());
+  }
+
+  private static ScannerReport.CpdTextBlock newCpdTextBlock(String hash) {
+    return ScannerReport.CpdTextBlock.newBuilder()
+      .setHash(hash)
+      .setStartLine(30)
+      .setEndLine(45)
+      .setStartTokenIndex(0)
+      .setEndTokenIndex(10)
+      .build();
+  }
+
+  private static Block toOriginBlock(String fileKey, ScannerReport.CpdTextBlock cpdTextBlock) {
+    return new Block.Builder()
+      .setResourceId(fileKey)
+      .setBlockHash(new ByteArray(cpdTextBlock.getHash()))
+      .setIndexInFile(0)
+      .setLines(cpdTextBlock.getStartLine(), cpdTextBlock.getEndLine())
+      .setUnit(cpdTextBlock.getStartTokenIndex(), cpdTextBlock.getEndTokenIndex())
+      .build();
+  }
+
+  private static Block toDuplicatedBlock(ComponentDto file, DuplicationUnitDto duplicate) {
+    return new Block.Builder()
+      .setResourceId(file.getKey())
+      .setBlockHash(new ByteArray(duplicate.getHash()))
+      .setIndexInFile(duplicate.getIndexInFile())
+      .setLines(duplicate.getStartLine(), duplicate.getEndLine())
+      .build();
+  }
+
   private ComponentDto createProject(String projectKey) {
     ComponentDto project = ComponentTesting.newProjectDto().setKey(projectKey);
     dbClient.componentDao().insert(dbSession, project);
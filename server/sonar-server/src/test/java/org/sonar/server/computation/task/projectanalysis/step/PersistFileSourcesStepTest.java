@@ -45,6 +45,7 @@ import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplic
 import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.source.FileSourceInputsHashComputer;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
 import org.sonar.server.computation.task.step.ComputationStep;
 
@@ -310,6 +311,63 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+    // hash of inputs is stored for next analysis
+    assertThat(fileSourceDto.getInputsHash()).isNotEmpty();
+  }
+
+  @Test
+  public void persist_inputs_hash() {
+    initBasicReport(2);
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getInputsHash())
+      .isEqualTo(new FileSourceInputsHashComputer(reportReader, fileSourceRepository, scmInfoRepository, duplicationRepository).compute(file(), 0));
+  }
+
+  @Test
+  public void not_compute_sources_when_inputs_hash_has_not_changed() {
+    initBasicReport(1);
+    String inputsHash = new FileSourceInputsHashComputer(reportReader, fileSourceRepository, scmInfoRepository, duplicationRepository).compute(file(), 0);
+
+    // Existing sources, which data hash would differ from computed sources
+    long past = 150000L;
+    dbClient.fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(FILE_UUID)
+      .setDataType(Type.SOURCE)
+      .setSrcHash("SRC_HASH")
+      .setDataHash("DATA_HASH")
+      .setInputsHash(inputsHash)
+      .setSourceData(DbFileSources.Data.newBuilder().build())
+      .setCreatedAt(past)
+      .setUpdatedAt(past));
+    dbTester.getSession().commit();
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getSrcHash()).isEqualTo("SRC_HASH");
+    assertThat(fileSourceDto.getDataHash()).isEqualTo("DATA_HASH");
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+  }
+
+  @Test
+  public void persist_sources_of_many_files() {
+    int nbFiles = 300;
+    ReportComponent.Builder module = ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY");
+    for (int i = 0; i < nbFiles; i++) {
+      int ref = 10 + i;
+      module.addChildren(ReportComponent.builder(Component.Type.FILE, ref).setUuid("FILE_" + i).setKey("MODULE_KEY:src/Foo" + i + ".java").build());
+      reportReader.putComponent(ScannerReport.Component.newBuilder().setRef(ref).setType(ComponentType.FILE).setLines(1).build());
+      fileSourceRepository.addLine(ref, "line of file " + i);
+    }
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(module.build()).build());
+
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(nbFiles);
   }
 
   @Test
@@ -455,6 +513,10 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getRevision()).isNull();
   }
 
+  private static Component file() {
+    return ReportComponent.builder(Component.Type.FILE, FILE_REF).setUuid(FILE_UUID).setKey("MODULE_KEY:src/Foo.java").build();
+  }
+
   private void initBasicReport(int numberOfLines) {
     treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(
       ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY").addChildren(
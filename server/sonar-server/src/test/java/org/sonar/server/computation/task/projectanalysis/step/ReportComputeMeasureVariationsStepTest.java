@@ -243,6 +243,27 @@ public class ReportComputeMeasureVariationsStepTest {
     assertThat(measure.getVariations().getVariation5()).isEqualTo(-20d);
   }
 
+  @Test
+  public void set_variations_on_periods_of_same_analysis() {
+    SnapshotDto pastSnapshot = newAnalysis(PROJECT_DTO);
+    dbClient.snapshotDao().insert(session, pastSnapshot);
+    dbClient.measureDao().insert(session, newMeasureDto(ISSUES_METRIC.getId(), PROJECT_DTO.uuid(), pastSnapshot.getUuid(), 60d));
+    session.commit();
+
+    periodsHolder.setPeriods(newPeriod(1, pastSnapshot), newPeriod(3, pastSnapshot));
+
+    treeRootHolder.setRoot(PROJECT);
+
+    addRawMeasure(PROJECT, ISSUES_METRIC, newMeasureBuilder().create(80, null));
+
+    underTest.execute();
+
+    MeasureVariations variations = measureRepository.getRawMeasure(PROJECT, ISSUES_METRIC).get().getVariations();
+    assertThat(variations.getVariation1()).isEqualTo(20d);
+    assertThat(variations.hasVariation2()).isFalse();
+    assertThat(variations.getVariation3()).isEqualTo(20d);
+  }
+
   @Test
   public void set_variation_on_all_numeric_metrics() {
     SnapshotDto period1ProjectSnapshot = newAnalysis(PROJECT_DTO);
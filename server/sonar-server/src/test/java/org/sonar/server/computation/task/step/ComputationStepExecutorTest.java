@@ -19,14 +19,20 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
 import org.sonar.server.computation.task.ChangeLogLevel;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -44,6 +50,8 @@ public class ComputationStepExecutorTest {
   public LogTester logTester = new LogTester();
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
 
   private final ComputationStepExecutor.Listener listener = mock(ComputationStepExecutor.Listener.class);
   private final ComputationStep computationStep1 = mockComputationStep("step1");
@@ -152,6 +160,80 @@ public class ComputationStepExecutorTest {
     new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
   }
 
+  @Test
+  public void execute_runs_independent_concurrent_steps_in_parallel_when_steps_parallelism_is_greater_than_1() {
+    CountDownLatch latch = new CountDownLatch(2);
+    TestConcurrentStep step1 = new TestConcurrentStep("step1", ImmutableSet.of(String.class), ImmutableSet.of(), latch);
+    TestConcurrentStep step2 = new TestConcurrentStep("step2", ImmutableSet.of(String.class), ImmutableSet.of(), latch);
+    ceConfiguration.setStepsParallelism(2);
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2), ceConfiguration).execute();
+
+    // each step waits for the other one to be started
+    assertThat(step1.awaited).isTrue();
+    assertThat(step2.awaited).isTrue();
+  }
+
+  @Test
+  public void execute_runs_concurrent_steps_one_after_the_other_when_outputs_of_first_are_read_by_second() {
+    CountDownLatch latch = new CountDownLatch(2);
+    TestConcurrentStep step1 = new TestConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of(String.class), latch);
+    TestConcurrentStep step2 = new TestConcurrentStep("step2", ImmutableSet.of(String.class), ImmutableSet.of(), latch);
+    ceConfiguration.setStepsParallelism(2);
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2), ceConfiguration).execute();
+
+    assertThat(step1.awaited).isFalse();
+    assertThat(step2.awaited).isTrue();
+    assertThat(step2.startedAt).isGreaterThanOrEqualTo(step1.endedAt);
+  }
+
+  @Test
+  public void execute_runs_other_steps_alone_when_steps_parallelism_is_greater_than_1() {
+    TestConcurrentStep concurrentStep1 = new TestConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of(), null);
+    TestConcurrentStep concurrentStep3 = new TestConcurrentStep("step3", ImmutableSet.of(), ImmutableSet.of(), null);
+    ceConfiguration.setStepsParallelism(2);
+
+    new ComputationStepExecutor(mockComputationSteps(concurrentStep1, computationStep2, concurrentStep3), ceConfiguration).execute();
+
+    assertThat(concurrentStep1.endedAt).isGreaterThan(0L);
+    verify(computationStep2).execute();
+    assertThat(concurrentStep3.startedAt).isGreaterThan(0L);
+    assertThat(concurrentStep3.startedAt).isGreaterThanOrEqualTo(concurrentStep1.endedAt);
+  }
+
+  @Test
+  public void execute_let_exception_thrown_by_concurrent_step_go_up_as_is() {
+    RuntimeException toBeThrown = new RuntimeException("simulating failing execute Step method");
+    TestConcurrentStep step = new TestConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of(), null) {
+      @Override
+      public void execute() {
+        throw toBeThrown;
+      }
+    };
+    ceConfiguration.setStepsParallelism(2);
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(step, computationStep2), ceConfiguration, listener).execute();
+      fail("exception toBeThrown should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(toBeThrown);
+      verify(listener).finished(false);
+      verifyNoMoreInteractions(computationStep2);
+    }
+  }
+
+  @Test
+  public void getStepTimingsAsJson_returns_timings_of_executed_steps() {
+    ComputationStepExecutor underTest = new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2));
+    assertThat(underTest.getStepTimingsAsJson()).isEqualTo("[]");
+
+    underTest.execute();
+
+    assertThat(underTest.getStepTimingsAsJson())
+      .matches("\\[\\{\"step\":\"step1\",\"start\":\\d+,\"duration\":\\d+\\},\\{\"step\":\"step2\",\"start\":\\d+,\"duration\":\\d+\\}\\]");
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
@@ -163,4 +245,49 @@ public class ComputationStepExecutorTest {
     when(mock.getDescription()).thenReturn(desc);
     return mock;
   }
+  private static class TestConcurrentStep implements ConcurrentComputationStep {
+    private final String description;
+    private final Set<Class<?>> inputs;
+    private final Set<Class<?>> outputs;
+    private final CountDownLatch latch;
+    private volatile boolean awaited = false;
+    private volatile long startedAt = 0L;
+    private volatile long endedAt = 0L;
+
+    private TestConcurrentStep(String description, Set<Class<?>> inputs, Set<Class<?>> outputs, @Nullable CountDownLatch latch) {
+      this.description = description;
+      this.inputs = inputs;
+      this.outputs = outputs;
+      this.latch = latch;
+    }
+
+    @Override
+    public void execute() {
+      startedAt = System.nanoTime();
+      if (latch != null) {
+        latch.countDown();
+        try {
+          awaited = latch.await(500, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      endedAt = System.nanoTime();
+    }
+
+    @Override
+    public Set<Class<?>> getInputs() {
+      return inputs;
+    }
+
+    @Override
+    public Set<Class<?>> getOutputs() {
+      return outputs;
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
 }
@@ -0,0 +1,79 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ComputationStepGraphTest {
+
+  @Test
+  public void non_concurrent_steps_depend_on_all_previous_steps() {
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(
+      mock(ComputationStep.class),
+      concurrentStep(ImmutableSet.of(), ImmutableSet.of()),
+      concurrentStep(ImmutableSet.of(), ImmutableSet.of()),
+      mock(ComputationStep.class)));
+
+    assertThat(underTest.isConcurrent(0)).isFalse();
+    assertThat(underTest.isConcurrent(1)).isTrue();
+    assertThat(underTest.getPredecessorCount(0)).isEqualTo(0);
+    assertThat(underTest.getPredecessorCount(1)).isEqualTo(1);
+    assertThat(underTest.getPredecessorCount(2)).isEqualTo(1);
+    assertThat(underTest.getPredecessorCount(3)).isEqualTo(3);
+    assertThat(underTest.getSuccessors(0)).containsOnly(1, 2, 3);
+    assertThat(underTest.getSuccessors(1)).containsOnly(3);
+    assertThat(underTest.getSuccessors(2)).containsOnly(3);
+  }
+
+  @Test
+  public void concurrent_steps_depend_on_previous_concurrent_steps_with_conflicting_inputs_or_outputs() {
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(
+      concurrentStep(ImmutableSet.of(String.class), ImmutableSet.of(Integer.class)),
+      concurrentStep(ImmutableSet.of(String.class), ImmutableSet.of()),
+      concurrentStep(ImmutableSet.of(Integer.class), ImmutableSet.of()),
+      concurrentStep(ImmutableSet.of(), ImmutableSet.of(String.class)),
+      concurrentStep(ImmutableSet.of(), ImmutableSet.of(Integer.class))));
+
+    assertThat(underTest.getPredecessorCount(0)).isEqualTo(0);
+    // both only read String
+    assertThat(underTest.getPredecessorCount(1)).isEqualTo(0);
+    // reads Integer written by step 0
+    assertThat(underTest.getPredecessorCount(2)).isEqualTo(1);
+    // writes String read by steps 0 and 1
+    assertThat(underTest.getPredecessorCount(3)).isEqualTo(2);
+    // writes Integer written by step 0 and read by step 2
+    assertThat(underTest.getPredecessorCount(4)).isEqualTo(2);
+    assertThat(underTest.getSuccessors(0)).containsOnly(2, 3, 4);
+  }
+
+  private static ConcurrentComputationStep concurrentStep(Set<Class<?>> inputs, Set<Class<?>> outputs) {
+    ConcurrentComputationStep step = mock(ConcurrentComputationStep.class);
+    when(step.getInputs()).thenReturn(inputs);
+    when(step.getOutputs()).thenReturn(outputs);
+    return step;
+  }
+}
@@ -43,7 +43,9 @@ import javax.annotation.concurrent.Immutable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
+import org.mockito.ArgumentCaptor;
 import org.sonar.server.computation.configuration.CeConfigurationRule;
+import org.sonar.server.computation.queue.CeQueueSignal;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -65,10 +67,13 @@ public class CeProcessingSchedulerImplTest {
 
   private CeWorkerCallable ceWorkerRunnable = mock(CeWorkerCallable.class);
   private StubCeProcessingSchedulerExecutorService processingExecutorService = new StubCeProcessingSchedulerExecutorService();
-  private SchedulerCall regularDelayedPoll = new SchedulerCall(ceWorkerRunnable, 2000L, TimeUnit.MILLISECONDS);
+  private CeQueueSignal queueSignal = new CeQueueSignal();
+  private SchedulerCall regularDelayedPoll = new SchedulerCall(ceWorkerRunnable, 500L, TimeUnit.MILLISECONDS);
+  private SchedulerCall doubleDelayedPoll = new SchedulerCall(ceWorkerRunnable, 1000L, TimeUnit.MILLISECONDS);
+  private SchedulerCall maxDelayedPoll = new SchedulerCall(ceWorkerRunnable, 2000L, TimeUnit.MILLISECONDS);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorkerRunnable);
 
-  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
+  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable, queueSignal);
 
   @Test
   public void polls_without_delay_when_CeWorkerCallable_returns_true() throws Exception {
@@ -112,6 +117,101 @@ public class CeProcessingSchedulerImplTest {
       );
   }
 
+  @Test
+  public void polls_with_delay_doubling_up_to_max_delay_when_CeWorkerCallable_keeps_returning_false() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      doubleDelayedPoll,
+      maxDelayedPoll,
+      maxDelayedPoll
+      );
+  }
+
+  @Test
+  public void submission_signal_replaces_delayed_poll_by_a_poll_without_delay_and_resets_delay() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    processingExecutorService.runNextFuture();
+    processingExecutorService.runNextFuture();
+    queueSignal.signalSubmit();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      doubleDelayedPoll,
+      notDelayedPoll,
+      regularDelayedPoll
+      );
+  }
+
+  @Test
+  public void submission_signal_does_not_chain_another_poll_when_delayed_poll_is_running() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenAnswer(invocation -> {
+        // the delayed poll has started, it can't be replaced anymore
+        queueSignal.signalSubmit();
+        return false;
+      })
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll
+      );
+    verify(ceWorkerRunnable, times(2)).call();
+  }
+
+  @Test
+  public void delayed_poll_replaced_by_submission_signal_does_not_call_worker_if_it_starts_anyway() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    Callable<?> delayedPoll = processingExecutorService.getScheduledCallables().get(0);
+    queueSignal.signalSubmit();
+
+    // cancellation does not prevent a call which is about to start
+    assertThat(delayedPoll.call()).isEqualTo(false);
+    verify(ceWorkerRunnable, times(0)).call();
+  }
+
+  @Test
+  public void submission_signal_is_ignored_once_stopped() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    processingExecutorService.runNextFuture();
+    underTest.stop();
+    queueSignal.signalSubmit();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll
+      );
+  }
+
   @Test
   public void startScheduling_schedules_CeWorkerCallable_at_fixed_rate_run_head_of_queue() throws Exception {
     when(ceWorkerRunnable.call())
@@ -137,8 +237,8 @@ public class CeProcessingSchedulerImplTest {
       regularDelayedPoll,
       notDelayedPoll,
       regularDelayedPoll,
-      regularDelayedPoll,
-      regularDelayedPoll
+      doubleDelayedPoll,
+      maxDelayedPoll
       );
   }
 
@@ -189,13 +289,17 @@ public class CeProcessingSchedulerImplTest {
 
     ListenableScheduledFuture listenableScheduledFuture = mock(ListenableScheduledFuture.class);
     CeProcessingSchedulerExecutorService processingExecutorService = mock(CeProcessingSchedulerExecutorService.class);
-    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
-    when(processingExecutorService.schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable, queueSignal);
+    when(processingExecutorService.schedule(any(Callable.class), eq(ceConfiguration.getQueuePollingDelay()), eq(MILLISECONDS)))
         .thenReturn(listenableScheduledFuture);
 
     underTest.startScheduling();
 
-    verify(processingExecutorService, times(workerCount)).schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS);
+    ArgumentCaptor<Callable> scheduledCalls = ArgumentCaptor.forClass(Callable.class);
+    verify(processingExecutorService, times(workerCount)).schedule(scheduledCalls.capture(), eq(ceConfiguration.getQueuePollingDelay()), eq(MILLISECONDS));
+    for (Callable scheduledCall : scheduledCalls.getAllValues()) {
+      assertThat(((CeProcessingSchedulerImpl.DelayedCall) scheduledCall).getWorker()).isSameAs(ceWorkerRunnable);
+    }
     verify(listenableScheduledFuture, times(workerCount)).addListener(any(Runnable.class), eq(processingExecutorService));
   }
 
@@ -223,6 +327,21 @@ public class CeProcessingSchedulerImplTest {
       return schedulerCalls;
     }
 
+    public List<Callable<?>> getScheduledCallables() {
+      List<Callable<?>> callables = new ArrayList<>();
+      for (SchedulerCall schedulerCall : schedulerCalls) {
+        callables.add(schedulerCall.callable);
+      }
+      return callables;
+    }
+
+    public void runNextFuture() throws ExecutionException, InterruptedException {
+      Future<?> future = futures.poll();
+      if (future != null && !future.isCancelled()) {
+        future.get();
+      }
+    }
+
     public void runFutures() throws ExecutionException, InterruptedException {
       while (futures.peek() != null) {
         Future<?> future = futures.poll();
@@ -521,12 +640,22 @@ public class CeProcessingSchedulerImplTest {
         return false;
       }
       SchedulerCall that = (SchedulerCall) o;
-      return delay == that.delay && callable == that.callable && unit.equals(that.unit);
+      return delay == that.delay && worker(callable) == worker(that.callable) && unit.equals(that.unit);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(callable, delay, unit);
+      return Objects.hash(worker(callable), delay, unit);
+    }
+
+    /**
+     * Delayed calls are wrapped by {@link CeProcessingSchedulerImpl.DelayedCall}
+     */
+    private static Callable<?> worker(Callable<?> callable) {
+      if (callable instanceof CeProcessingSchedulerImpl.DelayedCall) {
+        return ((CeProcessingSchedulerImpl.DelayedCall) callable).getWorker();
+      }
+      return callable;
     }
 
     @Override
@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.MessageException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkIndexerSettingsTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private MapSettings settings = new MapSettings();
+  private BulkIndexerSettings underTest = new BulkIndexerSettings(settings);
+
+  @Test
+  public void default_values() {
+    assertThat(underTest.concurrentRequests("issues")).isEqualTo(BulkIndexerSettings.DEFAULT_CONCURRENT_REQUESTS).isGreaterThan(0);
+    assertThat(underTest.flushByteSize("issues")).isEqualTo(1024L * 1024L);
+    assertThat(underTest.indexingThreads("issues")).isEqualTo(BulkIndexerSettings.DEFAULT_INDEXING_THREADS).isBetween(1, 4);
+  }
+
+  @Test
+  public void global_values() {
+    settings.setProperty("sonar.search.bulk.concurrentRequests", "4");
+    settings.setProperty("sonar.search.bulk.flushByteSize", "5000000");
+
+    assertThat(underTest.concurrentRequests("issues")).isEqualTo(4);
+    assertThat(underTest.flushByteSize("issues")).isEqualTo(5_000_000L);
+  }
+
+  @Test
+  public void values_of_index_override_global_values() {
+    settings.setProperty("sonar.search.bulk.concurrentRequests", "4");
+    settings.setProperty("sonar.search.bulk.issues.concurrentRequests", "8");
+    settings.setProperty("sonar.search.bulk.issues.flushByteSize", "2000000");
+    settings.setProperty("sonar.search.bulk.issues.indexingThreads", "6");
+
+    assertThat(underTest.concurrentRequests("issues")).isEqualTo(8);
+    assertThat(underTest.flushByteSize("issues")).isEqualTo(2_000_000L);
+    assertThat(underTest.indexingThreads("issues")).isEqualTo(6);
+    assertThat(underTest.concurrentRequests("rules")).isEqualTo(4);
+    assertThat(underTest.flushByteSize("rules")).isEqualTo(1024L * 1024L);
+  }
+
+  @Test
+  public void fail_if_value_is_not_a_number() {
+    settings.setProperty("sonar.search.bulk.concurrentRequests", "foo");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Value 'foo' of property sonar.search.bulk.concurrentRequests is invalid. It must be a number strictly greater than 0.");
+
+    underTest.concurrentRequests("issues");
+  }
+
+  @Test
+  public void fail_if_value_is_not_positive() {
+    settings.setProperty("sonar.search.bulk.issues.flushByteSize", "0");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Value '0' of property sonar.search.bulk.issues.flushByteSize is invalid. It must be a number strictly greater than 0.");
+
+    underTest.flushByteSize("issues");
+  }
+}
@@ -27,6 +27,7 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -35,6 +36,9 @@ public class BulkIndexerTest {
   @Rule
   public EsTester esTester = new EsTester(new FakeIndexDefinition().setReplicas(1));
 
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
   @Test
   public void index_nothing() {
     BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX);
@@ -102,6 +106,65 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(removeFrom);
   }
 
+  @Test
+  public void bulk_delete_of_several_pages() throws Exception {
+    int max = 1_200;
+    FakeDoc[] docs = new FakeDoc[max];
+    for (int i = 0; i < max; i++) {
+      docs[i] = FakeIndexDefinition.newDoc(i);
+    }
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, docs);
+
+    SearchRequestBuilder req = esTester.client().prepareSearch(FakeIndexDefinition.INDEX)
+      .setTypes(FakeIndexDefinition.TYPE)
+      .setQuery(QueryBuilders.rangeQuery(FakeIndexDefinition.INT_FIELD).gte(100));
+    BulkIndexer.delete(esTester.client(), FakeIndexDefinition.INDEX, req);
+
+    assertThat(count()).isEqualTo(100);
+  }
+
+  @Test
+  public void index_with_single_concurrent_request() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setFlushByteSize(100)
+      .setConcurrentRequests(1);
+    indexer.start();
+    for (int i = 0; i < 20; i++) {
+      indexer.add(newIndexRequest(i));
+    }
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(20);
+  }
+
+  @Test
+  public void fail_if_concurrent_requests_is_not_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Number of concurrent requests must be strictly positive: 0");
+
+    new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX).setConcurrentRequests(0);
+  }
+
+  @Test
+  public void record_statistics() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setFlushByteSize(500);
+    indexer.start();
+    for (int i = 0; i < 10; i++) {
+      indexer.add(newIndexRequest(i));
+    }
+    indexer.stop();
+
+    BulkIndexerStatistics.IndexStatistics statistics = esTester.client().getBulkStatistics().forIndex(FakeIndexDefinition.INDEX);
+    assertThat(statistics.getDocuments()).isEqualTo(10);
+    assertThat(statistics.getBulkRequests()).isGreaterThan(1);
+    assertThat(statistics.getBytes()).isGreaterThan(0);
+    assertThat(statistics.getQueueDepth()).isEqualTo(0);
+    assertThat(statistics.getRejections()).isEqualTo(0);
+    assertThat(statistics.getFailures()).isEqualTo(0);
+    assertThat(esTester.client().getBulkStatistics().all()).containsOnlyKeys(FakeIndexDefinition.INDEX);
+  }
+
   private long count() {
     return esTester.countDocuments("fakes", "fake");
   }
@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.InOrder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.server.component.es.ProjectMeasuresIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.test.index.TestIndexer;
+import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.view.index.ViewIndexer;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class IndexerStartupTaskTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private TestIndexer testIndexer = mock(TestIndexer.class);
+  private PermissionIndexer permissionIndexer = mock(PermissionIndexer.class);
+  private IssueIndexer issueIndexer = mock(IssueIndexer.class);
+  private UserIndexer userIndexer = mock(UserIndexer.class);
+  private ViewIndexer viewIndexer = mock(ViewIndexer.class);
+  private ProjectMeasuresIndexer projectMeasuresIndexer = mock(ProjectMeasuresIndexer.class);
+  private MapSettings settings = new MapSettings();
+  private IndexerStartupTask underTest = new IndexerStartupTask(testIndexer, permissionIndexer, issueIndexer, userIndexer, viewIndexer,
+    projectMeasuresIndexer, settings);
+
+  @Test
+  public void index_authorization_before_other_indices() {
+    underTest.execute();
+
+    InOrder inOrder = inOrder(permissionIndexer, issueIndexer);
+    inOrder.verify(permissionIndexer).indexAllIfEmpty();
+    inOrder.verify(issueIndexer).index();
+    verify(testIndexer).index();
+    verify(userIndexer).index();
+    verify(viewIndexer).index();
+    verify(projectMeasuresIndexer).index();
+  }
+
+  @Test
+  public void fail_if_an_indexer_fails() {
+    doThrow(new IllegalStateException("BOOM")).when(viewIndexer).index();
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("BOOM");
+
+    underTest.execute();
+  }
+
+  @Test
+  public void do_nothing_if_indices_are_disabled() {
+    settings.setProperty("sonar.internal.es.disableIndexes", true);
+
+    underTest.execute();
+
+    verifyZeroInteractions(testIndexer, permissionIndexer, issueIndexer, userIndexer, viewIndexer, projectMeasuresIndexer);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectUuidRangeTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void split_in_ranges_of_same_size() {
+    List<ProjectUuidRange> ranges = ProjectUuidRange.split(asList("A", "B", "C", "D", "E", "F"), 3);
+
+    assertThat(ranges).extracting(ProjectUuidRange::toString).containsExactly("[, C)", "[C, E)", "[E, )");
+  }
+
+  @Test
+  public void number_of_ranges_is_limited_by_number_of_uuids() {
+    List<ProjectUuidRange> ranges = ProjectUuidRange.split(asList("A", "B"), 4);
+
+    assertThat(ranges).extracting(ProjectUuidRange::toString).containsExactly("[, B)", "[B, )");
+  }
+
+  @Test
+  public void single_unbounded_range() {
+    assertThat(ProjectUuidRange.split(asList("A", "B"), 1)).extracting(ProjectUuidRange::toString).containsExactly("[, )");
+    assertThat(ProjectUuidRange.split(asList("A"), 3)).extracting(ProjectUuidRange::toString).containsExactly("[, )");
+    assertThat(ProjectUuidRange.split(Collections.emptyList(), 3)).extracting(ProjectUuidRange::toString).containsExactly("[, )");
+  }
+
+  @Test
+  public void sql_where_clause() {
+    assertThat(new ProjectUuidRange(null, null).toSqlWhereClause("i.project_uuid")).isEmpty();
+    assertThat(new ProjectUuidRange("A", null).toSqlWhereClause("i.project_uuid")).isEqualTo(" where i.project_uuid>=?");
+    assertThat(new ProjectUuidRange(null, "B").toSqlWhereClause("i.project_uuid")).isEqualTo(" where i.project_uuid<?");
+    assertThat(new ProjectUuidRange("A", "B").toSqlWhereClause("i.project_uuid")).isEqualTo(" where i.project_uuid>=? and i.project_uuid<?");
+  }
+
+  @Test
+  public void fail_if_count_is_not_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Number of ranges must be strictly positive: 0");
+
+    ProjectUuidRange.split(asList("A", "B"), 0);
+  }
+}
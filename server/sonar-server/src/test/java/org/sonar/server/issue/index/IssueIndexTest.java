@@ -57,6 +57,7 @@ import org.sonar.server.view.index.ViewIndexDefinition;
 import org.sonar.server.view.index.ViewIndexer;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
@@ -1246,6 +1247,24 @@ public class IssueIndexTest {
     assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(ComponentTesting.newProjectDto()))).isEmpty();
   }
 
+  @Test
+  public void search_issues_for_batch_restricted_to_files() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto module = ComponentTesting.newModuleDto(project);
+    ComponentDto file1 = ComponentTesting.newFileDto(module, null);
+    ComponentDto file2 = ComponentTesting.newFileDto(module, null);
+
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", module),
+      IssueTesting.newDoc("ISSUE2", file1),
+      IssueTesting.newDoc("ISSUE3", file2));
+
+    assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(project, singletonList(file1.uuid()), null)))
+      .extracting(IssueDoc::key).containsOnly("ISSUE1", "ISSUE2");
+    assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(project, emptyList(), null)))
+      .extracting(IssueDoc::key).containsOnly("ISSUE1");
+  }
+
   @Test
   public void fail_to_search_issues_for_batch_on_not_allowed_scope() {
     try {
@@ -34,6 +34,8 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbTester;
+import org.sonar.server.es.BulkIndexerSettings;
+import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsTester;
 
 import static java.util.Arrays.asList;
@@ -108,6 +110,18 @@ public class IssueIndexerTest {
     verifyIssueKeys("ABCDE");
   }
 
+  @Test
+  public void index_all_issues_with_several_threads() {
+    dbTester.prepareDbUnit(getClass(), "index_project.xml");
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.search.bulk.issues.indexingThreads", "2");
+    EsClient esClient = new EsClient(esTester.client().nativeClient(), new BulkIndexerSettings(settings));
+
+    new IssueIndexer(new DbClient(dbTester.database(), dbTester.myBatis()), esClient).indexAll();
+
+    verifyIssueKeys("ABCDE", "EDCBA");
+  }
+
   @Test
   public void delete_issues_by_keys() throws Exception {
     addIssue("P1", "Issue1");
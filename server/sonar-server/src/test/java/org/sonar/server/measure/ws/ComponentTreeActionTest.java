@@ -350,6 +350,100 @@ public class ComponentTreeActionTest {
     assertThat(response.getPaging().getTotal()).isEqualTo(3);
   }
 
+  @Test
+  public void sort_by_metric_value_with_best_value_and_paginated() {
+    ComponentDto projectDto = newProjectDto("project-uuid");
+    SnapshotDto projectSnapshot = componentDb.insertProjectAndSnapshot(projectDto);
+    ComponentDto directory = componentDb.insertComponent(newDirectory(projectDto, "directory-uuid", "path/to/directory").setName("directory-1"));
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(directory, null, "file-uuid-1").setName("file-1"));
+    ComponentDto file2 = componentDb.insertComponent(newFileDto(directory, null, "file-uuid-2").setName("file-2"));
+    componentDb.insertComponent(newFileDto(directory, null, "file-uuid-3").setName("file-3"));
+    componentDb.insertComponent(newFileDto(directory, null, "file-uuid-4").setName("file-4"));
+    MetricDto violations = dbClient.metricDao().insert(dbSession, newMetricDtoWithoutOptimization()
+      .setKey("violations")
+      .setValueType(ValueType.INT.name())
+      .setOptimizedBestValue(true)
+      .setBestValue(0d));
+    dbClient.measureDao().insert(dbSession,
+      newMeasureDto(violations, file1, projectSnapshot).setValue(3d),
+      newMeasureDto(violations, file2, projectSnapshot).setValue(1d));
+    db.commit();
+
+    TestRequest request = ws.newRequest()
+      .setParam(PARAM_BASE_COMPONENT_ID, "project-uuid")
+      .setParam(Param.SORT, METRIC_SORT)
+      .setParam(PARAM_METRIC_SORT, "violations")
+      .setParam(PARAM_METRIC_KEYS, "violations")
+      .setParam(Param.PAGE_SIZE, "3");
+
+    ComponentTreeWsResponse response = call(request.setParam(Param.PAGE, "1"));
+    assertThat(response.getComponentsList()).extracting("id").containsExactly("file-uuid-3", "file-uuid-4", "file-uuid-2");
+    assertThat(response.getComponentsList().get(0).getMeasuresList()).extracting("value").containsExactly("0");
+    assertThat(response.getPaging().getTotal()).isEqualTo(5);
+    response = call(request.setParam(Param.PAGE, "2"));
+    assertThat(response.getComponentsList()).extracting("id").containsExactly("file-uuid-1", "directory-uuid");
+
+    response = call(ws.newRequest()
+      .setParam(PARAM_BASE_COMPONENT_ID, "project-uuid")
+      .setParam(Param.SORT, METRIC_SORT)
+      .setParam(Param.ASCENDING, "false")
+      .setParam(PARAM_METRIC_SORT, "violations")
+      .setParam(PARAM_METRIC_KEYS, "violations")
+      .setParam(PARAM_METRIC_SORT_FILTER, WITH_MEASURES_ONLY_METRIC_SORT_FILTER));
+    assertThat(response.getComponentsList()).extracting("id").containsExactly("file-uuid-1", "file-uuid-2", "file-uuid-4", "file-uuid-3");
+    assertThat(response.getPaging().getTotal()).isEqualTo(4);
+  }
+
+  @Test
+  public void sort_by_level_metric_value() {
+    ComponentDto projectDto = newProjectDto("project-uuid");
+    SnapshotDto projectSnapshot = componentDb.insertProjectAndSnapshot(projectDto);
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(projectDto, null, "file-uuid-1"));
+    ComponentDto file2 = componentDb.insertComponent(newFileDto(projectDto, null, "file-uuid-2"));
+    ComponentDto file3 = componentDb.insertComponent(newFileDto(projectDto, null, "file-uuid-3"));
+    componentDb.insertComponent(newFileDto(projectDto, null, "file-uuid-4"));
+    MetricDto alertStatus = dbClient.metricDao().insert(dbSession, newMetricDtoWithoutOptimization().setKey("alert_status").setValueType(ValueType.LEVEL.name()));
+    dbClient.measureDao().insert(dbSession,
+      newMeasureDto(alertStatus, file1, projectSnapshot).setData("OK"),
+      newMeasureDto(alertStatus, file2, projectSnapshot).setData("ERROR"),
+      newMeasureDto(alertStatus, file3, projectSnapshot).setData("WARN"));
+    db.commit();
+
+    ComponentTreeWsResponse response = call(ws.newRequest()
+      .setParam(PARAM_BASE_COMPONENT_ID, "project-uuid")
+      .setParam(Param.SORT, METRIC_SORT)
+      .setParam(PARAM_METRIC_SORT, "alert_status")
+      .setParam(PARAM_METRIC_KEYS, "alert_status"));
+
+    assertThat(response.getComponentsList()).extracting("id").containsExactly("file-uuid-2", "file-uuid-3", "file-uuid-1", "file-uuid-4");
+  }
+
+  @Test
+  public void sort_by_textual_metric_value_and_paginated() {
+    ComponentDto projectDto = newProjectDto("project-uuid");
+    SnapshotDto projectSnapshot = componentDb.insertProjectAndSnapshot(projectDto);
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(projectDto, null, "file-uuid-1"));
+    ComponentDto file2 = componentDb.insertComponent(newFileDto(projectDto, null, "file-uuid-2"));
+    ComponentDto file3 = componentDb.insertComponent(newFileDto(projectDto, null, "file-uuid-3"));
+    componentDb.insertComponent(newFileDto(projectDto, null, "file-uuid-4"));
+    MetricDto version = dbClient.metricDao().insert(dbSession, newMetricDtoWithoutOptimization().setKey("version").setValueType(ValueType.STRING.name()));
+    dbClient.measureDao().insert(dbSession,
+      newMeasureDto(version, file1, projectSnapshot).setData("c"),
+      newMeasureDto(version, file2, projectSnapshot).setData("A"),
+      newMeasureDto(version, file3, projectSnapshot).setData("b"));
+    db.commit();
+
+    ComponentTreeWsResponse response = call(ws.newRequest()
+      .setParam(PARAM_BASE_COMPONENT_ID, "project-uuid")
+      .setParam(Param.SORT, METRIC_SORT)
+      .setParam(PARAM_METRIC_SORT, "version")
+      .setParam(PARAM_METRIC_KEYS, "version")
+      .setParam(Param.PAGE_SIZE, "2"));
+
+    assertThat(response.getComponentsList()).extracting("id").containsExactly("file-uuid-2", "file-uuid-3");
+    assertThat(response.getPaging().getTotal()).isEqualTo(4);
+  }
+
   @Test
   public void sort_by_metric_period() {
     ComponentDto projectDto = newProjectDto("project-uuid");
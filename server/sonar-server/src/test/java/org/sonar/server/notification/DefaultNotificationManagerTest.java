@@ -24,6 +24,7 @@ import com.google.common.collect.Multimap;
 import java.io.InvalidClassException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.junit.Before;
@@ -39,8 +40,10 @@ import org.sonar.db.property.PropertiesDao;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -121,6 +124,39 @@ public class DefaultNotificationManagerTest {
     verify(manager, times(1)).logDeserializationIssue();
   }
 
+  @Test
+  public void getFromQueue_returns_batch_of_notifications_without_removing_them() {
+    Notification notification1 = new Notification("test1");
+    Notification notification2 = new Notification("test2");
+    List<NotificationQueueDto> dtos = Arrays.asList(NotificationQueueDto.toNotificationQueueDto(notification1), NotificationQueueDto.toNotificationQueueDto(notification2));
+    when(notificationQueueDao.selectOldest(10)).thenReturn(dtos);
+
+    DefaultNotificationManager.Batch batch = manager.getFromQueue(10);
+
+    assertThat(batch.getNotifications()).extracting(Notification::getType).containsExactly("test1", "test2");
+    verify(notificationQueueDao, never()).delete(anyList());
+
+    manager.removeFromQueue(batch);
+
+    verify(notificationQueueDao).delete(dtos);
+  }
+
+  @Test
+  public void getFromQueue_skips_batches_which_can_not_be_deserialized() throws Exception {
+    NotificationQueueDto dto1 = mock(NotificationQueueDto.class);
+    when(dto1.toNotification()).thenThrow(new InvalidClassException("Pouet"));
+    Notification notification = new Notification("test");
+    NotificationQueueDto dto2 = NotificationQueueDto.toNotificationQueueDto(notification);
+    when(notificationQueueDao.selectOldest(1))
+      .thenReturn(Arrays.asList(dto1))
+      .thenReturn(Arrays.asList(dto2))
+      .thenReturn(Collections.emptyList());
+
+    assertThat(manager.getFromQueue(1).getNotifications()).extracting(Notification::getType).containsExactly("test");
+    verify(notificationQueueDao).delete(Arrays.asList(dto1));
+    assertThat(manager.getFromQueue(1).isEmpty()).isTrue();
+  }
+
   @Test
   public void shouldFindNoRecipient() {
     assertThat(manager.findSubscribedRecipientsForDispatcher(dispatcher, "uuid_45").asMap().entrySet()).hasSize(0);
@@ -20,8 +20,14 @@
 package org.sonar.server.notification;
 
 import com.google.common.collect.Sets;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import javax.management.InstanceNotFoundException;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.sonar.api.config.Settings;
@@ -31,10 +37,16 @@ import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.db.DbClient;
 import org.sonar.db.property.PropertiesDao;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyMap;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.same;
@@ -68,7 +80,9 @@ public class NotificationDaemonTest {
     when(commentOnIssueCreatedByMe.getType()).thenReturn("issue-changes");
     when(qualityGateChange.getKey()).thenReturn("QGateChange");
     when(qualityGateChange.getType()).thenReturn("qgate-changes");
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(null);
+    doCallRealMethod().when(emailChannel).deliverAll(anyMap());
+    doCallRealMethod().when(gtalkChannel).deliverAll(anyMap());
+    when(manager.getFromQueue(anyInt())).thenReturn(batchOf(notification)).thenReturn(batchOf());
 
     Settings settings = new MapSettings().setProperty("sonar.notifications.delay", 1L);
 
@@ -174,7 +188,7 @@ public class NotificationDaemonTest {
   @Test
   public void shouldNotStopWhenException() {
     setUpMocks();
-    when(manager.getFromQueue()).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(batchOf(notification)).thenReturn(batchOf());
     doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
     doAnswer(addUser(CREATOR_SIMON, emailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
 
@@ -216,7 +230,7 @@ public class NotificationDaemonTest {
   public void shouldLogEvery10Minutes() {
     setUpMocks();
     // Emulate 2 notifications in DB
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(batchOf(notification)).thenReturn(batchOf(notification)).thenReturn(batchOf());
     when(manager.count()).thenReturn(1L).thenReturn(0L);
     underTest = spy(underTest);
     // Emulate processing of each notification take 10 min to have a log each time
@@ -227,6 +241,64 @@ public class NotificationDaemonTest {
     underTest.stop();
   }
 
+  @Test
+  public void deliver_notifications_of_different_recipients_in_parallel() {
+    setUpMocks();
+    Notification otherNotification = mock(Notification.class);
+    when(manager.getFromQueue(anyInt())).thenReturn(batchOf(notification, otherNotification)).thenReturn(batchOf());
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+    doAnswer(addUser(CREATOR_EVGENY, emailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+    doAnswer(addUser(ASSIGNEE_SIMON, gtalkChannel)).when(commentOnIssueAssignedToMe).dispatch(same(otherNotification), any(NotificationDispatcher.Context.class));
+    Settings settings = new MapSettings()
+      .setProperty("sonar.notifications.delay", 1L)
+      .setProperty("sonar.notifications.workerCount", 2);
+    underTest = new NotificationDaemon(settings, manager, service);
+
+    underTest.start();
+    verify(emailChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel, timeout(2000)).deliver(notification, CREATOR_EVGENY);
+    verify(gtalkChannel, timeout(2000)).deliver(otherNotification, ASSIGNEE_SIMON);
+    underTest.stop();
+
+    verify(gtalkChannel, never()).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel, never()).deliver(otherNotification, ASSIGNEE_SIMON);
+  }
+
+  @Test
+  public void notifications_are_removed_from_queue_once_delivered() {
+    setUpMocks();
+    DefaultNotificationManager.Batch batch = batchOf(notification);
+    when(manager.getFromQueue(anyInt())).thenReturn(batch).thenReturn(batchOf());
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+
+    underTest.start();
+    verify(manager, timeout(2000)).removeFromQueue(batch);
+    underTest.stop();
+
+    InOrder inOrder = inOrder(emailChannel, manager);
+    inOrder.verify(emailChannel).deliver(notification, ASSIGNEE_SIMON);
+    inOrder.verify(manager).removeFromQueue(batch);
+  }
+
+  @Test
+  public void export_metrics_of_delivery() throws Exception {
+    setUpMocks();
+    when(manager.count()).thenReturn(3L);
+    assertThat(underTest.getWorkerCount()).isEqualTo(1);
+    assertThat(underTest.getQueueSize()).isEqualTo(3L);
+    assertThat(underTest.getDeliveredCount()).isEqualTo(0L);
+    assertThat(getMBean()).isNull();
+
+    underTest.start();
+    verify(manager, timeout(2000).times(2)).getFromQueue(anyInt());
+    assertThat(getMBean()).isNotNull();
+    underTest.stop();
+
+    assertThat(underTest.getDeliveredCount()).isEqualTo(1L);
+    assertThat(underTest.getDeliveryTime()).isGreaterThanOrEqualTo(0L);
+    assertThat(getMBean()).isNull();
+  }
+
   @Test
   public void hasProjectSubscribersForType() {
     setUpMocks();
@@ -243,6 +315,19 @@ public class NotificationDaemonTest {
     assertThat(service.hasProjectSubscribersForTypes("PROJECT_UUID", Sets.newHashSet("issue-changes"))).isTrue();
   }
 
+  private static DefaultNotificationManager.Batch batchOf(Notification... notifications) {
+    return new DefaultNotificationManager.Batch(asList(notifications), emptyList());
+  }
+
+  @CheckForNull
+  private static ObjectInstance getMBean() throws Exception {
+    try {
+      return ManagementFactory.getPlatformMBeanServer().getObjectInstance(new ObjectName(NotificationDaemonMBean.OBJECT_NAME));
+    } catch (InstanceNotFoundException e) {
+      return null;
+    }
+  }
+
   private static Answer<Object> addUser(final String user, final NotificationChannel channel) {
     return addUser(user, new NotificationChannel[]{channel});
   }
@@ -19,6 +19,8 @@
  */
 package org.sonar.server.notification.email;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import java.util.List;
 import javax.mail.internet.MimeMessage;
 import org.apache.commons.mail.EmailException;
@@ -28,13 +30,21 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.config.EmailSettings;
+import org.sonar.api.notifications.Notification;
+import org.sonar.api.user.UserFinder;
+import org.sonar.core.user.DefaultUser;
 import org.sonar.plugins.emailnotifications.api.EmailMessage;
+import org.sonar.plugins.emailnotifications.api.EmailTemplate;
 import org.subethamail.wiser.Wiser;
 import org.subethamail.wiser.WiserMessage;
 
+import static java.util.Arrays.asList;
 import static junit.framework.Assert.fail;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class EmailNotificationChannelTest {
@@ -185,6 +195,63 @@ public class EmailNotificationChannelTest {
     }
   }
 
+  @Test
+  public void deliverAll_sends_emails_of_all_recipients_through_the_same_connection() throws Exception {
+    configure();
+    Notification notification1 = new Notification("test1");
+    Notification notification2 = new Notification("test2");
+    EmailTemplate template = mock(EmailTemplate.class);
+    when(template.format(notification1)).thenReturn(new EmailMessage().setSubject("Foo").setMessage("Bar"));
+    when(template.format(notification2)).thenReturn(new EmailMessage().setSubject("Baz").setMessage("Qux"));
+    UserFinder userFinder = mock(UserFinder.class);
+    when(userFinder.findByLogin("simon")).thenReturn(new DefaultUser().setLogin("simon").setEmail("simon@nowhere"));
+    when(userFinder.findByLogin("evgeny")).thenReturn(new DefaultUser().setLogin("evgeny").setEmail("evgeny@nowhere"));
+    when(userFinder.findByLogin("freddy")).thenReturn(new DefaultUser().setLogin("freddy"));
+    underTest = new EmailNotificationChannel(configuration, new EmailTemplate[] {template}, userFinder);
+
+    ListMultimap<String, Notification> notifications = ArrayListMultimap.create();
+    notifications.putAll("simon", asList(notification1, notification2));
+    notifications.put("evgeny", notification1);
+    notifications.put("freddy", notification2);
+    underTest.deliverAll(notifications.asMap());
+
+    List<WiserMessage> messages = smtpServer.getMessages();
+    assertThat(messages).extracting(WiserMessage::getEnvelopeReceiver).containsExactly("simon@nowhere", "simon@nowhere", "evgeny@nowhere");
+    assertThat(messages.get(0).getMimeMessage().getHeader("Subject", null)).isEqualTo("[SONARQUBE] Foo");
+    assertThat(messages.get(1).getMimeMessage().getHeader("Subject", null)).isEqualTo("[SONARQUBE] Baz");
+    assertThat((String) messages.get(2).getMimeMessage().getContent()).startsWith("Bar");
+    verify(userFinder, times(1)).findByLogin("simon");
+  }
+
+  @Test
+  public void deliverAll_does_not_send_emails_when_hostname_is_not_configured() {
+    UserFinder userFinder = mock(UserFinder.class);
+    underTest = new EmailNotificationChannel(configuration, new EmailTemplate[0], userFinder);
+
+    ListMultimap<String, Notification> notifications = ArrayListMultimap.create();
+    notifications.put("simon", new Notification("test"));
+    underTest.deliverAll(notifications.asMap());
+
+    assertThat(smtpServer.getMessages()).isEmpty();
+    verifyZeroInteractions(userFinder);
+  }
+
+  @Test
+  public void deliverAll_does_not_fail_when_unable_to_send_emails() {
+    configure();
+    smtpServer.stop();
+    Notification notification = new Notification("test");
+    EmailTemplate template = mock(EmailTemplate.class);
+    when(template.format(notification)).thenReturn(new EmailMessage().setSubject("Foo").setMessage("Bar"));
+    UserFinder userFinder = mock(UserFinder.class);
+    when(userFinder.findByLogin("simon")).thenReturn(new DefaultUser().setLogin("simon").setEmail("simon@nowhere"));
+    underTest = new EmailNotificationChannel(configuration, new EmailTemplate[] {template}, userFinder);
+
+    ListMultimap<String, Notification> notifications = ArrayListMultimap.create();
+    notifications.putAll("simon", asList(notification, notification));
+    underTest.deliverAll(notifications.asMap());
+  }
+
   private void configure() {
     when(configuration.getSmtpHost()).thenReturn("localhost");
     when(configuration.getSmtpPort()).thenReturn(smtpServer.getServer().getPort());
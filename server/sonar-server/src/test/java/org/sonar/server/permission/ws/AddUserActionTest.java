@@ -33,6 +33,8 @@ import org.sonar.server.exceptions.ServerException;
 import org.sonar.server.ws.WsTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.sonar.api.web.UserRole.ISSUE_ADMIN;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
@@ -69,6 +71,8 @@ public class AddUserActionTest extends BasePermissionWsTest<AddUserAction> {
       .execute();
 
     assertThat(db.users().selectGlobalPermissionsOfUser(user, db.getDefaultOrganization())).containsOnly(SYSTEM_ADMIN);
+    verify(authorizationCache).invalidate(user.getId());
+    verify(authorizationCache, never()).invalidateAll();
   }
 
   @Test
@@ -24,6 +24,7 @@ import org.elasticsearch.cluster.health.ClusterHealthStatus;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.config.MapSettings;
+import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 
@@ -73,4 +74,19 @@ public class EsMonitorTest {
     assertThat((int) indexAttributes.get("Shards")).isGreaterThan(0);
     assertThat(indexAttributes.get("Store Size")).isNotNull();
   }
+
+  @Test
+  public void bulk_attributes_of_indices_indexed_by_current_process() {
+    BulkIndexer bulk = new BulkIndexer(esTester.client(), IssueIndexDefinition.INDEX);
+    bulk.start();
+    bulk.stop();
+
+    Map<String, Object> attributes = underTest.attributes();
+    Map indicesAttributes = (Map) attributes.get("Indices");
+    Map indexAttributes = (Map) indicesAttributes.get(IssueIndexDefinition.INDEX);
+    assertThat(indexAttributes.get("Bulk Requests")).isEqualTo(0L);
+    assertThat(indexAttributes.get("Bulk Documents")).isEqualTo(0L);
+    assertThat(indexAttributes.get("Bulk Queue Depth")).isEqualTo(0L);
+    assertThat(indexAttributes.get("Bulk Rejections")).isEqualTo(0L);
+  }
 }
@@ -37,6 +37,7 @@ import org.sonar.server.authentication.TestIdentityProvider;
 import org.sonar.server.platform.ServerId;
 import org.sonar.server.platform.ServerIdLoader;
 import org.sonar.server.platform.ServerLogging;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.SecurityRealmFactory;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,9 +62,10 @@ public class SonarQubeMonitorTest {
   ServerIdLoader serverIdLoader = mock(ServerIdLoader.class, RETURNS_DEEP_STUBS);
   ServerLogging serverLogging = mock(ServerLogging.class);
   SecurityRealmFactory securityRealmFactory = mock(SecurityRealmFactory.class);
+  AuthorizationCache authorizationCache = mock(AuthorizationCache.class);
 
   SonarQubeMonitor underTest = new SonarQubeMonitor(settings, securityRealmFactory, identityProviderRepository, server,
-    serverLogging, serverIdLoader);
+    serverLogging, serverIdLoader, authorizationCache);
 
   @Before
   public void setUp() throws Exception {
@@ -135,6 +137,19 @@ public class SonarQubeMonitorTest {
     assertThat(attributes).containsEntry("Logs Level", "DEBUG");
   }
 
+  @Test
+  public void attributes_contain_statistics_of_authorization_cache() {
+    when(authorizationCache.getSize()).thenReturn(12L);
+    when(authorizationCache.getHitRatio()).thenReturn(0.75);
+    when(authorizationCache.getInvalidationCount()).thenReturn(3L);
+
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat(attributes)
+      .containsEntry("Authorization Cache Size", 12L)
+      .containsEntry("Authorization Cache Hit Ratio", 0.75)
+      .containsEntry("Authorization Cache Invalidations", 3L);
+  }
+
   @Test
   public void get_realm() throws Exception {
     SecurityRealm realm = mock(SecurityRealm.class);
@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.base.Ticker;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.user.UserDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.user.UserTesting.newUserDto;
+
+public class AuthorizationCacheTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private FakeTicker ticker = new FakeTicker();
+  private AuthorizationCache underTest = new AuthorizationCache(db.getDbClient(), ticker);
+
+  @Test
+  public void authorizations_of_a_user_are_shared() {
+    UserDto user = db.users().insertUser();
+
+    UserAuthorizations authorizations = underTest.get(user);
+
+    assertThat(underTest.get(user)).isSameAs(authorizations);
+    assertThat(underTest.getSize()).isEqualTo(1);
+    assertThat(underTest.getMissCount()).isEqualTo(1);
+    assertThat(underTest.getHitCount()).isEqualTo(1);
+    assertThat(underTest.getHitRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  public void authorizations_of_anonymous_are_shared() {
+    UserDto user = db.users().insertUser();
+
+    UserAuthorizations authorizations = underTest.get(null);
+
+    assertThat(underTest.get(null)).isSameAs(authorizations);
+    assertThat(underTest.get(user)).isNotSameAs(authorizations);
+  }
+
+  @Test
+  public void authorizations_of_a_user_without_id_are_not_cached() {
+    UserDto user = newUserDto();
+
+    assertThat(underTest.get(user)).isNotSameAs(underTest.get(user));
+    assertThat(underTest.getSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void invalidate_user() {
+    UserDto user1 = db.users().insertUser();
+    UserDto user2 = db.users().insertUser();
+    UserAuthorizations authorizations1 = underTest.get(user1);
+    UserAuthorizations authorizations2 = underTest.get(user2);
+
+    underTest.invalidate(user1.getId());
+
+    assertThat(underTest.get(user1)).isNotSameAs(authorizations1);
+    assertThat(underTest.get(user2)).isSameAs(authorizations2);
+    assertThat(underTest.getInvalidationCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidate_all() {
+    UserDto user = db.users().insertUser();
+    UserAuthorizations authorizations = underTest.get(user);
+    UserAuthorizations anonymousAuthorizations = underTest.get(null);
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.getSize()).isEqualTo(0);
+    assertThat(underTest.get(user)).isNotSameAs(authorizations);
+    assertThat(underTest.get(null)).isNotSameAs(anonymousAuthorizations);
+    assertThat(underTest.getInvalidationCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void authorizations_expire() {
+    UserDto user = db.users().insertUser();
+    UserAuthorizations authorizations = underTest.get(user);
+
+    ticker.advance(AuthorizationCache.EXPIRATION_SECONDS - 1, TimeUnit.SECONDS);
+    assertThat(underTest.get(user)).isSameAs(authorizations);
+
+    ticker.advance(1, TimeUnit.SECONDS);
+    assertThat(underTest.get(user)).isNotSameAs(authorizations);
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos = 0;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long duration, TimeUnit unit) {
+      nanos += unit.toNanos(duration);
+    }
+  }
+}
@@ -355,6 +355,29 @@ public class ServerUserSessionTest {
     assertThat(session.hasOrganizationPermission("another-org", GlobalPermissions.PROVISIONING)).isFalse();
   }
 
+  @Test
+  public void sessions_created_with_cache_share_permissions_until_invalidation() {
+    AuthorizationCache authorizationCache = new AuthorizationCache(dbClient);
+    addGlobalPermissions(QUALITY_PROFILE_ADMIN);
+    assertThat(createForUser(dbClient, authorizationCache, userDto).hasPermission(QUALITY_PROFILE_ADMIN)).isTrue();
+
+    addGlobalPermissions(QUALITY_GATE_ADMIN);
+    assertThat(createForUser(dbClient, authorizationCache, userDto).hasPermission(QUALITY_GATE_ADMIN)).isFalse();
+
+    authorizationCache.invalidate(userDto.getId());
+    assertThat(createForUser(dbClient, authorizationCache, userDto).hasPermission(QUALITY_GATE_ADMIN)).isTrue();
+  }
+
+  @Test
+  public void anonymous_sessions_created_with_cache_share_permissions() {
+    AuthorizationCache authorizationCache = new AuthorizationCache(dbClient);
+    addAnyonePermissions(null, QUALITY_PROFILE_ADMIN);
+
+    assertThat(createForAnonymous(dbClient, authorizationCache).hasPermission(QUALITY_PROFILE_ADMIN)).isTrue();
+    assertThat(createForAnonymous(dbClient, authorizationCache).getUserGroups()).containsOnly("Anyone");
+    assertThat(authorizationCache.getHitCount()).isEqualTo(1);
+  }
+
   private ServerUserSession newUserSession(UserDto userDto) {
     return createForUser(dbClient, userDto);
   }
@@ -84,6 +84,7 @@ public class UserUpdaterTest {
   private GroupDao groupDao = dbClient.groupDao();
   private DbSession session = db.getSession();
   private UserIndexer userIndexer;
+  private AuthorizationCache authorizationCache = mock(AuthorizationCache.class);
   private UserUpdater underTest;
 
   @Before
@@ -91,7 +92,7 @@ public class UserUpdaterTest {
     userIndexer = new UserIndexer(dbClient, es.client());
     DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
     underTest = new UserUpdater(newUserNotifier, settings, dbClient,
-      userIndexer, system2, defaultOrganizationProvider);
+      userIndexer, system2, defaultOrganizationProvider, authorizationCache);
 
     when(system2.now()).thenReturn(NOW);
   }
@@ -442,6 +443,7 @@ public class UserUpdaterTest {
 
     Multimap<String, String> groups = dbClient.groupMembershipDao().selectGroupsByLogins(session, asList("user"));
     assertThat(groups.get("user")).containsOnly("sonar-users");
+    verify(authorizationCache).invalidate(dbClient.userDao().selectByLogin(session, "user").getId());
   }
 
   @Test
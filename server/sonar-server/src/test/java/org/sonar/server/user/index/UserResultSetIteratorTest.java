@@ -85,4 +85,11 @@ public class UserResultSetIteratorTest {
     assertThat(it.hasNext()).isFalse();
     it.close();
   }
+
+  @Test
+  public void count_all_users() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    assertThat(UserResultSetIterator.countAll(dbTester.getDbClient(), dbTester.getSession())).isEqualTo(3L);
+  }
 }
@@ -43,6 +43,7 @@ import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.user.ExternalIdentity;
 import org.sonar.server.user.NewUser;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.NewUserNotifier;
 import org.sonar.server.user.SecurityRealmFactory;
 import org.sonar.server.user.UserUpdater;
@@ -87,7 +88,8 @@ public class ChangePasswordActionTest {
     session.commit();
 
     UserIndexer userIndexer = new UserIndexer(dbClient, esTester.client());
-    userUpdater = new UserUpdater(mock(NewUserNotifier.class), settings, dbClient, userIndexer, system2, defaultOrganizationProvider);
+    userUpdater = new UserUpdater(mock(NewUserNotifier.class), settings, dbClient, userIndexer, system2, defaultOrganizationProvider,
+      mock(AuthorizationCache.class));
     tester = new WsTester(new UsersWs(new ChangePasswordAction(userUpdater, userSessionRule)));
   }
 
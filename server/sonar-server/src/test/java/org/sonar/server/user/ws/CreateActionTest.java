@@ -41,6 +41,7 @@ import org.sonar.server.exceptions.ServerException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.NewUserNotifier;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserDoc;
@@ -82,7 +83,8 @@ public class CreateActionTest {
     index = new UserIndex(esTester.client());
     DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
     tester = new WsTester(new UsersWs(new CreateAction(db.getDbClient(),
-      new UserUpdater(mock(NewUserNotifier.class), settings, db.getDbClient(), userIndexer, system2, defaultOrganizationProvider),
+      new UserUpdater(mock(NewUserNotifier.class), settings, db.getDbClient(), userIndexer, system2, defaultOrganizationProvider,
+        mock(AuthorizationCache.class)),
       i18n, userSessionRule, new UserJsonWriter(userSessionRule))));
   }
 
@@ -25,8 +25,19 @@ import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -77,4 +88,97 @@ public class DiskCacheTest {
       assertThat(e).hasMessage("expected error");
     }
   }
+
+  @Test
+  public void write_and_read_many_objects_in_compressed_blocks() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new StringCodec(), true);
+    List<String> expected = new ArrayList<>();
+    DiskCache<String>.DiskAppender appender = cache.newAppender();
+    // enough data to fill many blocks
+    for (int i = 0; i < 20_000; i++) {
+      String s = "string number " + i;
+      expected.add(s);
+      appender.append(s);
+    }
+    appender.close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  public void compressed_blocks_are_smaller_than_raw_blocks() throws Exception {
+    File rawFile = temp.newFile();
+    File compressedFile = temp.newFile();
+    DiskCache<String> raw = new DiskCache<>(rawFile, System2.INSTANCE, new StringCodec(), false);
+    DiskCache<String> compressed = new DiskCache<>(compressedFile, System2.INSTANCE, new StringCodec(), true);
+    DiskCache<String>.DiskAppender rawAppender = raw.newAppender();
+    DiskCache<String>.DiskAppender compressedAppender = compressed.newAppender();
+    for (int i = 0; i < 10_000; i++) {
+      rawAppender.append("a very repetitive string");
+      compressedAppender.append("a very repetitive string");
+    }
+    rawAppender.close();
+    compressedAppender.close();
+
+    assertThat(compressedFile.length()).isLessThan(rawFile.length() / 10);
+  }
+
+  @Test
+  public void append_to_existing_data() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new StringCodec(), true);
+    cache.newAppender().append("foo").close();
+    cache.newAppender().append("bar").close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("foo", "bar");
+    }
+  }
+
+  @Test
+  public void append_concurrently() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new StringCodec(), true);
+    DiskCache<String>.DiskAppender sharedAppender = cache.newAppender();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      String prefix = "thread " + t + " string ";
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          sharedAppender.append(prefix + i);
+        }
+      }));
+      futures.add(executor.submit(() -> {
+        try (DiskCache<String>.DiskAppender appender = cache.newAppender()) {
+          for (int i = 0; i < 10_000; i++) {
+            appender.append("other " + prefix + i);
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    sharedAppender.close();
+
+    Set<String> read = new HashSet<>();
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      traverse.forEachRemaining(read::add);
+    }
+    assertThat(read).hasSize(8 * 10_000);
+  }
+
+  private static class StringCodec implements DiskCacheCodec<String> {
+    @Override
+    public void write(String object, DataOutputStream output) throws IOException {
+      output.writeUTF(object);
+    }
+
+    @Override
+    public String read(DataInputStream input) throws IOException {
+      return input.readUTF();
+    }
+  }
 }
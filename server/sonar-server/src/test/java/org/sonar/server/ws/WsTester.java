@@ -19,6 +19,8 @@
  */
 package org.sonar.server.ws;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
@@ -60,6 +62,7 @@ public class WsTester {
     private String mediaType = MediaTypes.JSON;
 
     private Map<String, String> params = Maps.newHashMap();
+    private final ListMultimap<String, String> multiParams = ArrayListMultimap.create();
     private final Map<String, Part> parts = Maps.newHashMap();
 
     private TestRequest(String method) {
@@ -83,7 +86,7 @@ public class WsTester {
 
     @Override
     public boolean hasParam(String key) {
-      return params.keySet().contains(key);
+      return params.keySet().contains(key) || multiParams.containsKey(key);
     }
 
     @Override
@@ -108,6 +111,11 @@ public class WsTester {
       return this;
     }
 
+    public TestRequest setMultiParam(String key, List<String> values) {
+      multiParams.putAll(key, values);
+      return this;
+    }
+
     @Override
     protected String readParam(String key) {
       return params.get(key);
@@ -115,6 +123,9 @@ public class WsTester {
 
     @Override
     protected List<String> readMultiParam(String key) {
+      if (multiParams.containsKey(key)) {
+        return multiParams.get(key);
+      }
       String value = params.get(key);
       return value == null ? emptyList() : singletonList(value);
     }
@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.Arrays;
+
+/**
+ * Multimap of 64-bit fingerprints to indexes of elements, based on open addressing with linear probing. Elements
+ * of a same fingerprint are chained in the order of insertion.
+ * <p>
+ * Arrays are allocated once for a given maximum number of elements, then the index can be cleared and filled
+ * again without allocation.
+ * </p>
+ */
+final class FingerprintIndex {
+
+  static final int NONE = -1;
+
+  private final int mask;
+  private final long[] keys;
+  private final boolean[] usedSlots;
+  // first element of the chain of each slot, NONE if chain is empty
+  private final int[] heads;
+  // last element of the chain of each slot
+  private final int[] tails;
+  // next element in the same chain, by element
+  private final int[] next;
+
+  FingerprintIndex(int maxElements) {
+    // load factor is at most 0.5
+    int capacity = Integer.highestOneBit(Math.max(1, maxElements)) << 2;
+    this.mask = capacity - 1;
+    this.keys = new long[capacity];
+    this.usedSlots = new boolean[capacity];
+    this.heads = new int[capacity];
+    this.tails = new int[capacity];
+    this.next = new int[maxElements];
+  }
+
+  void clear() {
+    Arrays.fill(usedSlots, false);
+  }
+
+  void put(long fingerprint, int element) {
+    int slot = slot(fingerprint);
+    next[element] = NONE;
+    if (!usedSlots[slot]) {
+      usedSlots[slot] = true;
+      keys[slot] = fingerprint;
+      heads[slot] = element;
+    } else if (heads[slot] == NONE) {
+      heads[slot] = element;
+    } else {
+      next[tails[slot]] = element;
+    }
+    tails[slot] = element;
+  }
+
+  /**
+   * Slot of the fingerprint, to be used with {@link #first(int)} and {@link #remove(int, int)}. If the fingerprint
+   * is not indexed, then the chain of the slot is empty.
+   */
+  int slot(long fingerprint) {
+    int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    while (usedSlots[slot] && keys[slot] != fingerprint) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * First element of the chain, or {@link #NONE}
+   */
+  int first(int slot) {
+    return usedSlots[slot] ? heads[slot] : NONE;
+  }
+
+  /**
+   * Next element in the chain, or {@link #NONE}
+   */
+  int next(int element) {
+    return next[element];
+  }
+
+  /**
+   * Removes element from the chain of the slot. Slot is kept, even if chain becomes empty, so that probing of
+   * other fingerprints is not affected.
+   */
+  void remove(int slot, int element) {
+    int previous = NONE;
+    int current = heads[slot];
+    while (current != element) {
+      previous = current;
+      current = next[current];
+    }
+    if (previous == NONE) {
+      heads[slot] = next[element];
+    } else {
+      next[previous] = next[element];
+    }
+    if (tails[slot] == element) {
+      tails[slot] = previous;
+    }
+  }
+}
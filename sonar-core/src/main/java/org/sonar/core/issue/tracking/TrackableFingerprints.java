@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * 64-bit hashes of the fields of a list of {@link Trackable} which are compared by {@link Tracker}. They are
+ * computed once and combined by each step of tracking. As different values can have the same hash, candidates
+ * found through hashes must still be compared field by field.
+ */
+final class TrackableFingerprints {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final long NULL_HASH = 0x9e3779b97f4a7c15L;
+
+  private final long[] ruleKeys;
+  private final long[] messages;
+  private final long[] lineHashes;
+  private final long[] lines;
+
+  TrackableFingerprints(List<? extends Trackable> trackables) {
+    int size = trackables.size();
+    this.ruleKeys = new long[size];
+    this.messages = new long[size];
+    this.lineHashes = new long[size];
+    this.lines = new long[size];
+    for (int i = 0; i < size; i++) {
+      Trackable trackable = trackables.get(i);
+      RuleKey ruleKey = trackable.getRuleKey();
+      ruleKeys[i] = combine(hash(ruleKey.repository()), hash(ruleKey.rule()));
+      messages[i] = hash(trackable.getMessage());
+      // null line hash is equivalent to empty line hash
+      String lineHash = trackable.getLineHash();
+      lineHashes[i] = hash(lineHash == null ? "" : lineHash);
+      Integer line = trackable.getLine();
+      lines[i] = line == null ? NULL_HASH : mix(line);
+    }
+  }
+
+  int size() {
+    return ruleKeys.length;
+  }
+
+  long lineAndLineHash(int index) {
+    return combine(combine(ruleKeys[index], lines[index]), lineHashes[index]);
+  }
+
+  long lineHashAndMessage(int index) {
+    return combine(combine(ruleKeys[index], messages[index]), lineHashes[index]);
+  }
+
+  long lineAndMessage(int index) {
+    return combine(combine(ruleKeys[index], messages[index]), lines[index]);
+  }
+
+  long lineHash(int index) {
+    return combine(ruleKeys[index], lineHashes[index]);
+  }
+
+  /**
+   * FNV-1a on the UTF-16 chars of the string
+   */
+  static long hash(@Nullable String s) {
+    if (s == null) {
+      return NULL_HASH;
+    }
+    long h = FNV_OFFSET_BASIS;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= FNV_PRIME;
+    }
+    return h;
+  }
+
+  static long combine(long h1, long h2) {
+    return mix(h1 * 31 + h2);
+  }
+
+  /**
+   * Finalization step of MurmurHash3, so that all bits of input affect all bits of output
+   */
+  static long mix(long value) {
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -19,38 +19,43 @@
  */
 package org.sonar.core.issue.tracking;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import javax.annotation.Nonnull;
 import org.apache.commons.lang.StringUtils;
-import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.InstantiationStrategy;
-import org.sonar.api.rule.RuleKey;
+import org.sonar.api.batch.ScannerSide;
+
+import static org.sonar.core.issue.tracking.FingerprintIndex.NONE;
 
+/**
+ * Issues are matched in several passes, each pass comparing a different set of fields. Fingerprints of
+ * fields are computed once by {@link TrackableFingerprints}, then each pass indexes the unmatched base issues
+ * by the fingerprint of its fields in a {@link FingerprintIndex}.
+ */
 @InstantiationStrategy(InstantiationStrategy.PER_BATCH)
 @ScannerSide
 public class Tracker<RAW extends Trackable, BASE extends Trackable> {
 
   public Tracking<RAW, BASE> track(Input<RAW> rawInput, Input<BASE> baseInput) {
     Tracking<RAW, BASE> tracking = new Tracking<>(rawInput, baseInput);
+    Matcher<RAW, BASE> matcher = new Matcher<>(tracking);
 
     // 1. match issues with same rule, same line and same line hash, but not necessarily with same message
-    match(tracking, LineAndLineHashKeyFactory.INSTANCE);
+    matcher.match(SearchKey.LINE_AND_LINE_HASH);
 
     // 2. detect code moves by comparing blocks of codes
     detectCodeMoves(rawInput, baseInput, tracking);
 
     // 3. match issues with same rule, same message and same line hash
-    match(tracking, LineHashAndMessageKeyFactory.INSTANCE);
+    matcher.match(SearchKey.LINE_HASH_AND_MESSAGE);
 
     // 4. match issues with same rule, same line and same message
-    match(tracking, LineAndMessageKeyFactory.INSTANCE);
+    matcher.match(SearchKey.LINE_AND_MESSAGE);
 
     // 5. match issues with same rule and same line hash but different line and different message.
     // See SONAR-2812
-    match(tracking, LineHashKeyFactory.INSTANCE);
+    matcher.match(SearchKey.LINE_HASH);
 
     return tracking;
   }
@@ -61,189 +66,127 @@ public class Tracker<RAW extends Trackable, BASE extends Trackable> {
     }
   }
 
-  private void match(Tracking<RAW, BASE> tracking, SearchKeyFactory factory) {
-    if (tracking.isComplete()) {
-      return;
-    }
+  private static class Matcher<RAW extends Trackable, BASE extends Trackable> {
+    private final Tracking<RAW, BASE> tracking;
+    private List<RAW> raws;
+    private List<BASE> bases;
+    private TrackableFingerprints rawFingerprints;
+    private TrackableFingerprints baseFingerprints;
+    private FingerprintIndex baseIndex;
 
-    Multimap<SearchKey, BASE> baseSearch = ArrayListMultimap.create();
-    for (BASE base : tracking.getUnmatchedBases()) {
-      baseSearch.put(factory.create(base), base);
+    Matcher(Tracking<RAW, BASE> tracking) {
+      this.tracking = tracking;
     }
 
-    for (RAW raw : tracking.getUnmatchedRaws()) {
-      SearchKey rawKey = factory.create(raw);
-      Collection<BASE> bases = baseSearch.get(rawKey);
-      if (!bases.isEmpty()) {
-        // TODO taking the first one. Could be improved if there are more than 2 issues on the same line.
-        // Message could be checked to take the best one.
-        BASE match = bases.iterator().next();
-        tracking.match(raw, match);
-        baseSearch.remove(rawKey, match);
+    void match(SearchKey searchKey) {
+      if (tracking.isComplete()) {
+        return;
       }
-    }
-  }
-
-  private interface SearchKey {
-  }
-
-  private interface SearchKeyFactory {
-    SearchKey create(Trackable trackable);
-  }
-
-  private static class LineAndLineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
-    private final Integer line;
+      init();
 
-    LineAndLineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.line = trackable.getLine();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+      baseIndex.clear();
+      for (int b = 0; b < bases.size(); b++) {
+        if (tracking.containsUnmatchedBase(bases.get(b))) {
+          baseIndex.put(searchKey.fingerprint(baseFingerprints, b), b);
+        }
       }
-      LineAndLineHashKey that = (LineAndLineHashKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
-    }
-  }
 
-  private enum LineAndLineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineAndLineHashKey(t);
-    }
-  }
-
-  private static class LineHashAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final String lineHash;
-
-    LineHashAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+      for (int r = 0; r < raws.size(); r++) {
+        RAW raw = raws.get(r);
+        if (tracking.baseFor(raw) == null) {
+          int slot = baseIndex.slot(searchKey.fingerprint(rawFingerprints, r));
+          // TODO taking the first one. Could be improved if there are more than 2 issues on the same line.
+          // Message could be checked to take the best one.
+          for (int b = baseIndex.first(slot); b != NONE; b = baseIndex.next(b)) {
+            BASE base = bases.get(b);
+            // fingerprints may collide
+            if (searchKey.matches(raw, base)) {
+              tracking.match(raw, base);
+              baseIndex.remove(slot, b);
+              break;
+            }
+          }
+        }
       }
-      LineHashAndMessageKey that = (LineHashAndMessageKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      return result;
     }
-  }
 
-  private enum LineHashAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineHashAndMessageKey(t);
+    /**
+     * Fingerprints are computed on the first pass which has something to match
+     */
+    private void init() {
+      if (baseIndex == null) {
+        raws = new ArrayList<>(tracking.getRaws());
+        bases = new ArrayList<>(tracking.getBases());
+        rawFingerprints = new TrackableFingerprints(raws);
+        baseFingerprints = new TrackableFingerprints(bases);
+        baseIndex = new FingerprintIndex(bases.size());
+      }
     }
   }
 
-  private static class LineAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final Integer line;
+  private enum SearchKey {
+    LINE_AND_LINE_HASH {
+      @Override
+      long fingerprint(TrackableFingerprints fingerprints, int index) {
+        return fingerprints.lineAndLineHash(index);
+      }
 
-    LineAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.line = trackable.getLine();
-    }
+      @Override
+      boolean matches(Trackable t1, Trackable t2) {
+        // start with most discriminant field
+        return Objects.equals(t1.getLine(), t2.getLine())
+          && lineHash(t1).equals(lineHash(t2))
+          && t1.getRuleKey().equals(t2.getRuleKey());
+      }
+    },
 
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+    LINE_HASH_AND_MESSAGE {
+      @Override
+      long fingerprint(TrackableFingerprints fingerprints, int index) {
+        return fingerprints.lineHashAndMessage(index);
       }
-      LineAndMessageKey that = (LineAndMessageKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
-    }
-  }
+      @Override
+      boolean matches(Trackable t1, Trackable t2) {
+        return lineHash(t1).equals(lineHash(t2))
+          && Objects.equals(t1.getMessage(), t2.getMessage())
+          && t1.getRuleKey().equals(t2.getRuleKey());
+      }
+    },
 
-  private enum LineAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineAndMessageKey(t);
-    }
-  }
+    LINE_AND_MESSAGE {
+      @Override
+      long fingerprint(TrackableFingerprints fingerprints, int index) {
+        return fingerprints.lineAndMessage(index);
+      }
 
-  private static class LineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
+      @Override
+      boolean matches(Trackable t1, Trackable t2) {
+        return Objects.equals(t1.getLine(), t2.getLine())
+          && Objects.equals(t1.getMessage(), t2.getMessage())
+          && t1.getRuleKey().equals(t2.getRuleKey());
+      }
+    },
 
-    LineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
+    LINE_HASH {
+      @Override
+      long fingerprint(TrackableFingerprints fingerprints, int index) {
+        return fingerprints.lineHash(index);
+      }
 
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+      @Override
+      boolean matches(Trackable t1, Trackable t2) {
+        return lineHash(t1).equals(lineHash(t2))
+          && t1.getRuleKey().equals(t2.getRuleKey());
       }
-      LineHashKey that = (LineHashKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
+    };
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      return result;
-    }
-  }
+    abstract long fingerprint(TrackableFingerprints fingerprints, int index);
+
+    abstract boolean matches(Trackable t1, Trackable t2);
 
-  private enum LineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineHashKey(t);
+    private static String lineHash(Trackable t) {
+      return StringUtils.defaultString(t.getLineHash(), "");
     }
   }
 }
@@ -84,6 +84,19 @@ public class ProgressLogger {
     return task.pluralLabel;
   }
 
+  /**
+   * Expected final value of the counter, if known. Logs then include the percentage of completion and the
+   * estimated remaining time. Default is 0, which means that total is unknown.
+   */
+  public ProgressLogger setTotal(long l) {
+    task.total = l;
+    return this;
+  }
+
+  public long getTotal() {
+    return task.total;
+  }
+
   public void log() {
     task.log();
   }
@@ -92,6 +105,7 @@ public class ProgressLogger {
     private final AtomicLong counter;
     private final Logger logger;
     private String pluralLabel = "rows";
+    private volatile long total = 0L;
     private long previousCounter = 0L;
 
     private LoggerTimerTask(AtomicLong counter, Logger logger) {
@@ -104,10 +118,32 @@ public class ProgressLogger {
       log();
     }
 
-    private void log() {
+    private synchronized void log() {
       long current = counter.get();
-      logger.info(String.format("%d %s processed (%d items/sec)", current, pluralLabel, 1000 * (current - previousCounter) / periodMs));
+      long itemsPerSec = 1000 * (current - previousCounter) / periodMs;
+      String message = String.format("%d %s processed (%d items/sec)", current, pluralLabel, itemsPerSec);
+      if (total > 0L) {
+        message += String.format(" - %d%% done, %s", 100 * Math.min(current, total) / total, remaining(current, itemsPerSec));
+      }
+      logger.info(message);
       previousCounter = current;
     }
+
+    private String remaining(long current, long itemsPerSec) {
+      if (current >= total) {
+        return "nothing remaining";
+      }
+      if (itemsPerSec <= 0L) {
+        return "remaining time unknown";
+      }
+      long seconds = (total - current) / itemsPerSec;
+      if (seconds >= 3600L) {
+        return String.format("about %dh %02dmin remaining", seconds / 3600L, (seconds % 3600L) / 60L);
+      }
+      if (seconds >= 60L) {
+        return String.format("about %dmin %02ds remaining", seconds / 60L, seconds % 60L);
+      }
+      return String.format("about %ds remaining", seconds);
+    }
   }
 }
@@ -0,0 +1,128 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.core.issue.tracking.FingerprintIndex.NONE;
+
+public class FingerprintIndexTest {
+
+  FingerprintIndex underTest = new FingerprintIndex(10);
+
+  @Test
+  public void chain_elements_of_same_fingerprint_in_order_of_insertion() {
+    underTest.put(42L, 3);
+    underTest.put(7L, 1);
+    underTest.put(42L, 0);
+    underTest.put(42L, 5);
+
+    assertThat(elements(42L)).containsExactly(3, 0, 5);
+    assertThat(elements(7L)).containsExactly(1);
+    assertThat(elements(8L)).isEmpty();
+  }
+
+  @Test
+  public void remove_elements() {
+    underTest.put(42L, 3);
+    underTest.put(42L, 0);
+    underTest.put(42L, 5);
+
+    underTest.remove(underTest.slot(42L), 0);
+    assertThat(elements(42L)).containsExactly(3, 5);
+
+    underTest.remove(underTest.slot(42L), 3);
+    assertThat(elements(42L)).containsExactly(5);
+
+    underTest.remove(underTest.slot(42L), 5);
+    assertThat(elements(42L)).isEmpty();
+
+    // chain is still usable after being emptied
+    underTest.put(42L, 1);
+    underTest.put(42L, 2);
+    assertThat(elements(42L)).containsExactly(1, 2);
+  }
+
+  @Test
+  public void remove_last_element_then_put() {
+    underTest.put(42L, 3);
+    underTest.put(42L, 0);
+
+    underTest.remove(underTest.slot(42L), 0);
+    underTest.put(42L, 5);
+
+    assertThat(elements(42L)).containsExactly(3, 5);
+  }
+
+  @Test
+  public void fingerprints_of_same_slot_do_not_conflict() {
+    // same low bits
+    long fingerprint1 = 1L;
+    long fingerprint2 = 1L + (1L << 40);
+    long fingerprint3 = 1L + (1L << 50);
+    underTest.put(fingerprint1, 0);
+    underTest.put(fingerprint2, 1);
+    underTest.put(fingerprint3, 2);
+
+    underTest.remove(underTest.slot(fingerprint1), 0);
+
+    assertThat(elements(fingerprint1)).isEmpty();
+    assertThat(elements(fingerprint2)).containsExactly(1);
+    assertThat(elements(fingerprint3)).containsExactly(2);
+  }
+
+  @Test
+  public void clear() {
+    underTest.put(42L, 3);
+    underTest.put(7L, 1);
+
+    underTest.clear();
+    assertThat(elements(42L)).isEmpty();
+    assertThat(elements(7L)).isEmpty();
+
+    underTest.put(7L, 2);
+    assertThat(elements(7L)).containsExactly(2);
+  }
+
+  @Test
+  public void index_max_number_of_elements() {
+    FingerprintIndex index = new FingerprintIndex(1_000);
+    for (int i = 0; i < 1_000; i++) {
+      index.put(i % 300, i);
+    }
+
+    assertThat(elements(index, 299L)).containsExactly(299, 599, 899);
+  }
+
+  private List<Integer> elements(long fingerprint) {
+    return elements(underTest, fingerprint);
+  }
+
+  private static List<Integer> elements(FingerprintIndex index, long fingerprint) {
+    List<Integer> elements = new ArrayList<>();
+    for (int e = index.first(index.slot(fingerprint)); e != NONE; e = index.next(e)) {
+      elements.add(e);
+    }
+    return elements;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Tracking of a large file: lines are inserted between two analyses, some issues are fixed, some messages change
+ * and some issues are new, so that all the steps of {@link Tracker} are involved.
+ * <p>
+ * Run with {@code main()} from the IDE, or with {@code java -cp <test classpath> org.sonar.core.issue.tracking.TrackerBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackerBenchmark {
+
+  private static final int RULES = 50;
+
+  @Param({"1000", "10000"})
+  public int issues;
+
+  private Tracker<Issue, Issue> tracker = new Tracker<>();
+  private SimpleInput rawInput;
+  private SimpleInput baseInput;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    int lines = issues * 2;
+    List<String> baseHashes = new ArrayList<>(lines);
+    for (int i = 0; i < lines; i++) {
+      baseHashes.add("hash" + i);
+    }
+    // 10 new lines at the beginning of file
+    List<String> rawHashes = new ArrayList<>(lines + 10);
+    for (int i = 0; i < 10; i++) {
+      rawHashes.add("new" + i);
+    }
+    rawHashes.addAll(baseHashes);
+
+    baseInput = new SimpleInput(baseHashes);
+    rawInput = new SimpleInput(rawHashes);
+    for (int i = 0; i < issues; i++) {
+      int line = 1 + random.nextInt(lines);
+      RuleKey ruleKey = RuleKey.of("java", "S" + random.nextInt(RULES));
+      String message = "Message of issue " + i;
+      baseInput.issues.add(new Issue(line, baseHashes.get(line - 1), ruleKey, message));
+      int fate = random.nextInt(10);
+      if (fate == 0) {
+        // fixed
+        continue;
+      }
+      String rawMessage = fate == 1 ? "Changed message of issue " + i : message;
+      rawInput.issues.add(new Issue(line + 10, rawHashes.get(line + 9), ruleKey, rawMessage));
+    }
+    for (int i = 0; i < issues / 10; i++) {
+      int line = 1 + random.nextInt(lines);
+      rawInput.issues.add(new Issue(line, rawHashes.get(line - 1), RuleKey.of("java", "S" + random.nextInt(RULES)), "New issue " + i));
+    }
+  }
+
+  @Benchmark
+  public Tracking<Issue, Issue> track() {
+    return tracker.track(rawInput, baseInput);
+  }
+
+  private static class Issue implements Trackable {
+    private final Integer line;
+    private final String lineHash;
+    private final RuleKey ruleKey;
+    private final String message;
+
+    Issue(Integer line, String lineHash, RuleKey ruleKey, String message) {
+      this.line = line;
+      this.lineHash = lineHash;
+      this.ruleKey = ruleKey;
+      this.message = message;
+    }
+
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return ruleKey;
+    }
+  }
+
+  private static class SimpleInput implements Input<Issue> {
+    private final List<String> lineHashes;
+    private final List<Issue> issues = new ArrayList<>();
+
+    SimpleInput(List<String> lineHashes) {
+      this.lineHashes = lineHashes;
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return new LineHashSequence(lineHashes);
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return BlockHashSequence.create(getLineHashSequence());
+    }
+
+    @Override
+    public Collection<Issue> getIssues() {
+      return issues;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(TrackerBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -193,6 +193,43 @@ public class TrackerTest {
     assertThat(tracking.getUnmatchedRaws()).hasSize(1);
   }
 
+  @Test
+  public void identical_issues_are_matched_in_order() {
+    FakeInput baseInput = new FakeInput("H1", "H2");
+    Issue base1 = baseInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue base2 = baseInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue base3 = baseInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    FakeInput rawInput = new FakeInput("H1", "H2");
+    Issue raw1 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue raw2 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+    assertThat(tracking.baseFor(raw1)).isSameAs(base1);
+    assertThat(tracking.baseFor(raw2)).isSameAs(base2);
+    assertThat(tracking.getUnmatchedBases()).containsOnly(base3);
+  }
+
+  @Test
+  public void match_many_issues() {
+    FakeInput baseInput = new FakeInput("H1", "H2", "H3");
+    FakeInput rawInput = new FakeInput("H3", "H1", "H2");
+    List<Issue> bases = new ArrayList<>();
+    List<Issue> raws = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      bases.add(baseInput.createIssueOnLine(1 + i % 3, RuleKey.of("java", "R" + (i % 10)), "msg" + i));
+    }
+    for (int i = 0; i < 1_000; i++) {
+      // same line hashes but on other lines
+      raws.add(rawInput.createIssueOnLine(1 + (i + 1) % 3, RuleKey.of("java", "R" + (i % 10)), "msg" + i));
+    }
+
+    Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+    for (int i = 0; i < 1_000; i++) {
+      assertThat(tracking.baseFor(raws.get(i))).isSameAs(bases.get(i));
+    }
+  }
+
   /**
    * SONAR-3072
    */
@@ -53,6 +53,27 @@ public class ProgressLoggerTest {
     assertThat(hasInfoLog("43 rows processed")).isTrue();
   }
 
+  @Test
+  public void log_completion_and_remaining_time_when_total_is_known() {
+    AtomicLong counter = new AtomicLong(250L);
+    ProgressLogger progress = new ProgressLogger("ProgressLoggerTest", counter, Loggers.get(getClass()));
+    progress.setPeriodMs(1_000L).setPluralLabel("issues").setTotal(1_000L);
+
+    progress.log();
+    assertThat(hasInfoLog("250 issues processed (250 items/sec) - 25% done, about 3s remaining")).isTrue();
+
+    counter.set(400L);
+    progress.log();
+    assertThat(hasInfoLog("400 issues processed (150 items/sec) - 40% done, about 4s remaining")).isTrue();
+
+    progress.log();
+    assertThat(hasInfoLog("400 issues processed (0 items/sec) - 40% done, remaining time unknown")).isTrue();
+
+    counter.set(1_000L);
+    progress.log();
+    assertThat(hasInfoLog("1000 issues processed (600 items/sec) - 100% done, nothing remaining")).isTrue();
+  }
+
   @Test
   public void create() {
     ProgressLogger progress = ProgressLogger.create(getClass(), new AtomicLong());
@@ -60,6 +81,7 @@ public class ProgressLoggerTest {
     // default values
     assertThat(progress.getPeriodMs()).isEqualTo(60000L);
     assertThat(progress.getPluralLabel()).isEqualTo("rows");
+    assertThat(progress.getTotal()).isZero();
 
     // override values
     progress.setPeriodMs(10L);
@@ -0,0 +1,133 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Buffers rows and inserts them with multi-row statements, for example mapped statements
+ * {@code insertRows} which iterate over the parameter {@code rows}. Number of rows per statement is bounded
+ * by {@link #MAX_PARAMETERS_PER_STATEMENT}, so that statements are accepted by all the supported databases.
+ * <p>
+ * Used with a {@link BatchSession}, the multi-row statements are also sent to database by JDBC batches.
+ * </p>
+ * <p>
+ * Remaining rows are inserted by {@link #close()}. Session must still be committed by caller.
+ * </p>
+ */
+public class BulkInserter<T> implements AutoCloseable {
+
+  /**
+   * Oracle does not accept more than 999 columns in a multi-table insert, MS SQL Server more than 2100 parameters
+   */
+  public static final int MAX_PARAMETERS_PER_STATEMENT = 999;
+  public static final int DEFAULT_MAX_ROWS_PER_STATEMENT = 100;
+
+  private final Consumer<List<T>> insertRows;
+  private final int rowsPerStatement;
+  private List<T> buffer;
+  private long rows = 0L;
+  private long statements = 0L;
+  private long startedAt = 0L;
+  private long duration = 0L;
+
+  /**
+   * @param insertRows      executes a single statement inserting the given rows
+   * @param columnsPerRow   number of parameters bound for each row
+   */
+  public BulkInserter(Consumer<List<T>> insertRows, int columnsPerRow) {
+    this(insertRows, columnsPerRow, DEFAULT_MAX_ROWS_PER_STATEMENT);
+  }
+
+  public BulkInserter(Consumer<List<T>> insertRows, int columnsPerRow, int maxRowsPerStatement) {
+    checkArgument(columnsPerRow > 0 && columnsPerRow <= MAX_PARAMETERS_PER_STATEMENT, "Number of columns must be between 1 and %s", MAX_PARAMETERS_PER_STATEMENT);
+    checkArgument(maxRowsPerStatement > 0, "Number of rows per statement must be positive");
+    this.insertRows = insertRows;
+    this.rowsPerStatement = Math.min(maxRowsPerStatement, MAX_PARAMETERS_PER_STATEMENT / columnsPerRow);
+    this.buffer = new ArrayList<>(rowsPerStatement);
+  }
+
+  public BulkInserter<T> add(T row) {
+    if (startedAt == 0L) {
+      startedAt = System.currentTimeMillis();
+    }
+    buffer.add(row);
+    if (buffer.size() >= rowsPerStatement) {
+      flush();
+    }
+    return this;
+  }
+
+  public BulkInserter<T> addAll(Iterable<T> rows) {
+    for (T row : rows) {
+      add(row);
+    }
+    return this;
+  }
+
+  /**
+   * Inserts the buffered rows, if any
+   */
+  public void flush() {
+    if (!buffer.isEmpty()) {
+      insertRows.accept(buffer);
+      rows += buffer.size();
+      statements++;
+      buffer = new ArrayList<>(rowsPerStatement);
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+    if (startedAt > 0L) {
+      duration = System.currentTimeMillis() - startedAt;
+    }
+  }
+
+  public int getRowsPerStatement() {
+    return rowsPerStatement;
+  }
+
+  /**
+   * Number of rows inserted so far
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * Number of statements executed so far
+   */
+  public long getStatements() {
+    return statements;
+  }
+
+  /**
+   * Average number of rows inserted per second between the first added row and {@link #close()}
+   */
+  public long getThroughput() {
+    return rows * 1000L / Math.max(1L, duration);
+  }
+}
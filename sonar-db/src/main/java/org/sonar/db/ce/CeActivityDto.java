@@ -68,6 +68,10 @@ public class CeActivityDto {
    * @see CeActivityDao#selectByUuid(DbSession, String)
    */
   private String errorStacktrace;
+  /**
+   * Start and duration of the steps of the task, as JSON. Loaded only when activity is selected by uuid.
+   */
+  private String stepTimings;
   /**
    * Flag indicating whether the analysis of the current activity has a scanner context or not.
    * <p>
@@ -247,6 +251,16 @@ public class CeActivityDto {
     return this;
   }
 
+  @CheckForNull
+  public String getStepTimings() {
+    return stepTimings;
+  }
+
+  public CeActivityDto setStepTimings(@Nullable String stepTimings) {
+    this.stepTimings = stepTimings;
+    return this;
+  }
+
   public boolean isHasScannerContext() {
     return hasScannerContext;
   }
@@ -274,6 +288,7 @@ public class CeActivityDto {
       .add("executionTimeMs", executionTimeMs)
       .add("errorMessage", errorMessage)
       .add("errorStacktrace", errorStacktrace)
+      .add("stepTimings", stepTimings)
       .add("hasScannerContext", hasScannerContext)
       .toString();
   }
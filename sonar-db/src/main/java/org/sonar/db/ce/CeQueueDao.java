@@ -20,7 +20,10 @@
 package org.sonar.db.ce;
 
 import com.google.common.base.Optional;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.ibatis.session.RowBounds;
 import org.sonar.api.utils.System2;
@@ -33,7 +36,10 @@ import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
 
 public class CeQueueDao implements Dao {
 
-  private static final RowBounds ONE_ROW_LIMIT = new RowBounds(0, 1);
+  /**
+   * Maximum number of pending tasks considered by {@link #peek(DbSession)}
+   */
+  private static final RowBounds PEEK_CANDIDATES_LIMIT = new RowBounds(0, 10);
 
   private final System2 system2;
 
@@ -104,29 +110,76 @@ public class CeQueueDao implements Dao {
     return mapper(dbSession).countByStatusAndComponentUuid(status, null);
   }
 
+  public int countByStatusAndPriority(DbSession dbSession, CeQueueDto.Status status, int priority) {
+    return mapper(dbSession).countByStatusAndPriority(status, priority);
+  }
+
+  /**
+   * Submission date of the most recent pending task, if any. Cheap way to detect submissions made by another process.
+   */
+  public Optional<Long> selectMaxCreatedAtOfPending(DbSession dbSession) {
+    return Optional.fromNullable(mapper(dbSession).selectMaxCreatedAtOfPending());
+  }
+
   public int countByStatusAndComponentUuid(DbSession dbSession, CeQueueDto.Status status, @Nullable String componentUuid) {
     return mapper(dbSession).countByStatusAndComponentUuid(status, componentUuid);
   }
 
+  /**
+   * Sets to {@link CeQueueDto.Status#IN_PROGRESS} the pending task of greatest priority, then oldest, among the oldest
+   * pending task of each component which has no task in progress. Tasks of a component are processed in order of
+   * submission, and at most one task per component is in progress, even if concurrent workers peek.
+   */
   public Optional<CeQueueDto> peek(DbSession session) {
-    List<String> taskUuids = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
-    if (taskUuids.isEmpty()) {
-      return Optional.absent();
+    List<CeQueueDto> candidates = mapper(session).selectEligibleForPeek(PEEK_CANDIDATES_LIMIT);
+    // components of the candidates peeked concurrently by other workers
+    Set<String> busyComponentUuids = new HashSet<>();
+    for (CeQueueDto candidate : candidates) {
+      String componentUuid = candidate.getComponentUuid();
+      if (componentUuid == null || !busyComponentUuids.contains(componentUuid)) {
+        Optional<CeQueueDto> peeked = tryToPeek(session, candidate);
+        if (peeked.isPresent()) {
+          return peeked;
+        }
+        if (componentUuid != null) {
+          busyComponentUuids.add(componentUuid);
+        }
+      }
     }
-
-    String taskUuid = taskUuids.get(0);
-    return tryToPeek(session, taskUuid);
+    return Optional.absent();
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
+  private Optional<CeQueueDto> tryToPeek(DbSession session, CeQueueDto candidate) {
+    String taskUuid = candidate.getUuid();
     int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
+    session.commit();
     if (touchedRows != 1) {
       return Optional.absent();
     }
 
-    CeQueueDto result = mapper(session).selectByUuid(taskUuid);
-    session.commit();
-    return Optional.of(result);
+    // Another worker may have concurrently peeked a task of the same component, which was not yet
+    // in progress when candidates were selected. Whatever the order of commits, both workers see the
+    // same tasks in progress and only the oldest one is kept, so that exactly one of them gives up.
+    String componentUuid = candidate.getComponentUuid();
+    if (componentUuid != null && mapper(session).countByStatusAndComponentUuid(IN_PROGRESS, componentUuid) > 1
+      && !taskUuid.equals(selectOldestInProgressUuid(session, componentUuid))) {
+      mapper(session).updateIfStatus(taskUuid, PENDING, candidate.getStartedAt(), system2.now(), IN_PROGRESS);
+      session.commit();
+      return Optional.absent();
+    }
+
+    return Optional.of(mapper(session).selectByUuid(taskUuid));
+  }
+
+  @CheckForNull
+  private static String selectOldestInProgressUuid(DbSession session, String componentUuid) {
+    // ordered by ascending date and id
+    for (CeQueueDto dto : mapper(session).selectByComponentUuid(componentUuid)) {
+      if (dto.getStatus() == IN_PROGRESS) {
+        return dto.getUuid();
+      }
+    }
+    return null;
   }
 
   private static CeQueueMapper mapper(DbSession session) {
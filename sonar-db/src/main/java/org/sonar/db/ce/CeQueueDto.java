@@ -37,6 +37,7 @@ public class CeQueueDto {
   private Status status;
   private String submitterLogin;
   private Long startedAt;
+  private int priority = 0;
   private long createdAt;
   private long updatedAt;
 
@@ -101,6 +102,18 @@ public class CeQueueDto {
     return this;
   }
 
+  /**
+   * Pending tasks of greater priority are processed first
+   */
+  public int getPriority() {
+    return priority;
+  }
+
+  public CeQueueDto setPriority(int i) {
+    this.priority = i;
+    return this;
+  }
+
   public long getCreatedAt() {
     return createdAt;
   }
@@ -128,6 +141,7 @@ public class CeQueueDto {
       .add("status", status)
       .add("submitterLogin", submitterLogin)
       .add("startedAt", startedAt)
+      .add("priority", priority)
       .add("createdAt", createdAt)
       .add("updatedAt", updatedAt)
       .toString();
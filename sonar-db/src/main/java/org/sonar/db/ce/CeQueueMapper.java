@@ -35,13 +35,18 @@ public interface CeQueueMapper {
 
   int countByQuery(@Param("query") CeTaskQuery query);
 
-  List<String> selectEligibleForPeek(RowBounds rowBounds);
+  List<CeQueueDto> selectEligibleForPeek(RowBounds rowBounds);
 
   @CheckForNull
   CeQueueDto selectByUuid(@Param("uuid") String uuid);
 
   int countByStatusAndComponentUuid(@Param("status") CeQueueDto.Status status, @Nullable @Param("componentUuid") String componentUuid);
 
+  @CheckForNull
+  Long selectMaxCreatedAtOfPending();
+
+  int countByStatusAndPriority(@Param("status") CeQueueDto.Status status, @Param("priority") int priority);
+
   void insert(CeQueueDto dto);
 
   void resetAllToPendingStatus(@Param("updatedAt") long updatedAt);
@@ -30,6 +30,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
@@ -109,6 +110,22 @@ public class ComponentDao implements Dao {
     return mapper(session).selectEnabledFilesFromProject(rootComponentUuid);
   }
 
+  /**
+   * Same as {@link #selectEnabledDescendantFiles(DbSession, String)}, except that rows are not loaded in memory but
+   * given to {@code handler} as they are read.
+   */
+  public void scrollEnabledDescendantFiles(DbSession session, String rootComponentUuid, ResultHandler handler) {
+    mapper(session).scrollDescendantFiles(rootComponentUuid, Scopes.FILE, true, handler);
+  }
+
+  /**
+   * Same as {@link #selectEnabledFilesFromProject(DbSession, String)}, except that rows are not loaded in memory but
+   * given to {@code handler} as they are read.
+   */
+  public void scrollEnabledFilesFromProject(DbSession session, String rootComponentUuid, ResultHandler handler) {
+    mapper(session).scrollEnabledFilesFromProject(rootComponentUuid, handler);
+  }
+
   public List<ComponentDto> selectByIds(DbSession session, Collection<Long> ids) {
     return executeLargeInputs(ids, mapper(session)::selectByIds);
   }
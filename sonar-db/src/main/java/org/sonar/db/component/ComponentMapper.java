@@ -25,6 +25,7 @@ import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
 /**
@@ -105,6 +106,11 @@ public interface ComponentMapper {
   List<FilePathWithHashDto> selectDescendantFiles(@Param("moduleUuid") String moduleUuid, @Param(value = "scope") String scope,
     @Param(value = "excludeDisabled") boolean excludeDisabled);
 
+  void scrollEnabledFilesFromProject(@Param("projectUuid") String projectUuid, ResultHandler handler);
+
+  void scrollDescendantFiles(@Param("moduleUuid") String moduleUuid, @Param(value = "scope") String scope,
+    @Param(value = "excludeDisabled") boolean excludeDisabled, ResultHandler handler);
+
   /**
    * Return uuids and project uuids from list of qualifiers
    * <p/>
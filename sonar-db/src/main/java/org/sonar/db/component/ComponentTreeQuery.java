@@ -32,11 +32,18 @@ import javax.annotation.Nullable;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
 import static org.sonar.db.DatabaseUtils.buildLikeValue;
 import static org.sonar.db.WildcardPosition.AFTER;
 
 public class ComponentTreeQuery {
+  /**
+   * Sort field to be used with {@link Builder#setMeasureSort(MeasureSort)}
+   */
+  public static final String MEASURE_SORT_FIELD = "measure";
+
   @CheckForNull
   private final String nameOrKeyQuery;
   // SONAR-7681 a public implementation of List must be used in MyBatis - potential concurrency exceptions otherwise
@@ -47,8 +54,11 @@ public class ComponentTreeQuery {
   @CheckForNull
   private final Integer pageSize;
   private final String baseUuid;
+  private final ArrayList<String> sortFields;
   private final String sqlSort;
   private final String direction;
+  @CheckForNull
+  private final MeasureSort measureSort;
 
   private ComponentTreeQuery(Builder builder) {
     this.nameOrKeyQuery = builder.nameOrKeyQuery;
@@ -57,7 +67,9 @@ public class ComponentTreeQuery {
     this.pageSize = builder.pageSize;
     this.baseUuid = builder.baseUuid;
     this.direction = builder.asc ? "ASC" : "DESC";
+    this.sortFields = newArrayList(builder.sortFields);
     this.sqlSort = sortFieldsToSqlSort(builder.sortFields, direction);
+    this.measureSort = builder.measureSort;
   }
 
   public Collection<String> getQualifiers() {
@@ -86,6 +98,13 @@ public class ComponentTreeQuery {
     return baseUuid;
   }
 
+  public List<String> getSortFields() {
+    return sortFields;
+  }
+
+  /**
+   * Sort on the fields other than {@link #MEASURE_SORT_FIELD}, or on name if there are none
+   */
   public String getSqlSort() {
     return sqlSort;
   }
@@ -94,12 +113,35 @@ public class ComponentTreeQuery {
     return direction;
   }
 
+  @CheckForNull
+  public MeasureSort getMeasureSort() {
+    return measureSort;
+  }
+
+  /**
+   * Levels are sorted from the worst to the best one in ascending order, that is the reverse of their index
+   */
+  @CheckForNull
+  public String getMeasureSortDirection() {
+    if (measureSort == null) {
+      return null;
+    }
+    if (measureSort.isLevel()) {
+      return "ASC".equals(direction) ? "DESC" : "ASC";
+    }
+    return direction;
+  }
+
   public static Builder builder() {
     return new Builder();
   }
 
   private static String sortFieldsToSqlSort(List<String> sortFields, String direction) {
-    return sortFields
+    List<String> componentSortFields = sortFields
+      .stream()
+      .filter(field -> !MEASURE_SORT_FIELD.equals(field))
+      .collect(Collectors.toList());
+    return (componentSortFields.isEmpty() ? singletonList("name") : componentSortFields)
       .stream()
       .map(new SortFieldToSqlSortFieldFunction(direction)::apply)
       .collect(Collectors.joining(", "));
@@ -117,6 +159,8 @@ public class ComponentTreeQuery {
     private String baseUuid;
     private List<String> sortFields;
     private boolean asc = true;
+    @CheckForNull
+    private MeasureSort measureSort;
 
     private Builder() {
       // private constructor
@@ -125,6 +169,8 @@ public class ComponentTreeQuery {
     public ComponentTreeQuery build() {
       requireNonNull(baseUuid);
       requireNonNull(sortFields);
+      checkArgument(sortFields.contains(MEASURE_SORT_FIELD) == (measureSort != null),
+        "Sort field '%s' must be used if and only if measure sort is set", MEASURE_SORT_FIELD);
       return new ComponentTreeQuery(this);
     }
 
@@ -163,6 +209,148 @@ public class ComponentTreeQuery {
       this.asc = asc;
       return this;
     }
+
+    public Builder setMeasureSort(@Nullable MeasureSort measureSort) {
+      this.measureSort = measureSort;
+      return this;
+    }
+  }
+
+  /**
+   * Sort of the components by the value of a measure of the last analysis. Components without value are returned last,
+   * whatever the direction.
+   */
+  public static class MeasureSort {
+    private final int metricId;
+    @CheckForNull
+    private final Integer periodIndex;
+    private final boolean level;
+    @CheckForNull
+    private final Long personId;
+    @CheckForNull
+    private final Double bestValue;
+    // SONAR-7681 a public implementation of List must be used in MyBatis - potential concurrency exceptions otherwise
+    private final ArrayList<String> bestValueQualifiers;
+    private final boolean withMeasuresOnly;
+
+    private MeasureSort(MeasureSortBuilder builder) {
+      this.metricId = builder.metricId;
+      this.periodIndex = builder.periodIndex;
+      this.level = builder.level;
+      this.personId = builder.personId;
+      this.bestValue = builder.bestValue;
+      this.bestValueQualifiers = newArrayList(builder.bestValueQualifiers);
+      this.withMeasuresOnly = builder.withMeasuresOnly;
+    }
+
+    public int getMetricId() {
+      return metricId;
+    }
+
+    @CheckForNull
+    public Integer getPeriodIndex() {
+      return periodIndex;
+    }
+
+    /**
+     * Column of table project_measures holding the value to sort on
+     */
+    public String getValueColumn() {
+      return periodIndex == null ? "value" : ("variation_value_" + periodIndex);
+    }
+
+    public boolean isLevel() {
+      return level;
+    }
+
+    @CheckForNull
+    public Long getPersonId() {
+      return personId;
+    }
+
+    @CheckForNull
+    public Double getBestValue() {
+      return bestValue;
+    }
+
+    public List<String> getBestValueQualifiers() {
+      return bestValueQualifiers;
+    }
+
+    public boolean isWithMeasuresOnly() {
+      return withMeasuresOnly;
+    }
+
+    public static MeasureSortBuilder builder() {
+      return new MeasureSortBuilder();
+    }
+  }
+
+  public static class MeasureSortBuilder {
+    private Integer metricId;
+    @CheckForNull
+    private Integer periodIndex;
+    private boolean level = false;
+    @CheckForNull
+    private Long personId;
+    @CheckForNull
+    private Double bestValue;
+    private Collection<String> bestValueQualifiers = emptyList();
+    private boolean withMeasuresOnly = false;
+
+    private MeasureSortBuilder() {
+      // private constructor
+    }
+
+    public MeasureSortBuilder setMetricId(int metricId) {
+      this.metricId = metricId;
+      return this;
+    }
+
+    /**
+     * Sort on the variation of the given period instead of the value
+     */
+    public MeasureSortBuilder setPeriodIndex(@Nullable Integer periodIndex) {
+      checkArgument(periodIndex == null || (periodIndex >= 1 && periodIndex <= 5), "Period index must be between 1 and 5");
+      this.periodIndex = periodIndex;
+      return this;
+    }
+
+    /**
+     * Sort on the index of the {@link org.sonar.api.measures.Metric.Level} stored as text value
+     */
+    public MeasureSortBuilder setLevel(boolean level) {
+      this.level = level;
+      return this;
+    }
+
+    public MeasureSortBuilder setPersonId(@Nullable Long personId) {
+      this.personId = personId;
+      return this;
+    }
+
+    /**
+     * Value of the components which have one of the given qualifiers and no measure
+     */
+    public MeasureSortBuilder setBestValue(@Nullable Double bestValue, Collection<String> qualifiers) {
+      this.bestValue = bestValue;
+      this.bestValueQualifiers = qualifiers;
+      return this;
+    }
+
+    /**
+     * Exclude the components which have no value
+     */
+    public MeasureSortBuilder setWithMeasuresOnly(boolean withMeasuresOnly) {
+      this.withMeasuresOnly = withMeasuresOnly;
+      return this;
+    }
+
+    public MeasureSort build() {
+      requireNonNull(metricId);
+      checkArgument(bestValue == null || !bestValueQualifiers.isEmpty(), "Qualifiers of components with best value must be set");
+      return new MeasureSort(this);
+    }
   }
 
   private static class SortFieldToSqlSortFieldFunction implements Function<String, String> {
@@ -22,6 +22,7 @@ package org.sonar.db.duplication;
 import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
@@ -38,6 +39,27 @@ public class DuplicationDao implements Dao {
       partition -> session.getMapper(DuplicationMapper.class).selectCandidates(analysisUuid, language, partition));
   }
 
+  /**
+   * Number of blocks which can be returned by {@link #selectCandidates(DbSession, String, String, Collection)} for
+   * the specified language, whatever their hash. It is an upper bound of the number of hashes streamed by
+   * {@link #selectHashes(DbSession, String, String, ResultHandler)}.
+   *
+   * @param analysisUuid snapshot id of the project from the previous analysis (islast=true)
+   */
+  public long countHashes(DbSession session, @Nullable String analysisUuid, String language) {
+    return session.getMapper(DuplicationMapper.class).countHashes(analysisUuid, language);
+  }
+
+  /**
+   * Streams the distinct hashes of the blocks which can be returned by
+   * {@link #selectCandidates(DbSession, String, String, Collection)} for the specified language.
+   *
+   * @param analysisUuid snapshot id of the project from the previous analysis (islast=true)
+   */
+  public void selectHashes(DbSession session, @Nullable String analysisUuid, String language, ResultHandler resultHandler) {
+    session.getMapper(DuplicationMapper.class).selectHashes(analysisUuid, language, resultHandler);
+  }
+
   /**
    * Insert rows in the table DUPLICATIONS_INDEX.
    * Note that generated ids are not returned.
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface DuplicationMapper {
 
@@ -31,6 +32,10 @@ public interface DuplicationMapper {
     @Param("language") String language,
     @Param("hashes") Collection<String> hashes);
 
+  long countHashes(@Nullable @Param("analysisUuid") String analysisUuid, @Param("language") String language);
+
+  void selectHashes(@Nullable @Param("analysisUuid") String analysisUuid, @Param("language") String language, ResultHandler resultHandler);
+
   void batchInsert(DuplicationUnitDto unit);
 
 }
@@ -20,11 +20,14 @@
 package org.sonar.db.event;
 
 import java.util.List;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
 public class EventDao implements Dao {
 
+  private static final int INSERTED_COLUMNS = 8;
+
   public List<EventDto> selectByComponentUuid(DbSession session, String componentUuid) {
     return session.getMapper(EventMapper.class).selectByComponentUuid(componentUuid);
   }
@@ -33,6 +36,14 @@ public class EventDao implements Dao {
     session.getMapper(EventMapper.class).insert(dto);
   }
 
+  /**
+   * Inserts events with multi-row statements. Ids of the inserted events are not loaded. See {@link BulkInserter}.
+   */
+  public BulkInserter<EventDto> newBulkInserter(DbSession session) {
+    EventMapper mapper = session.getMapper(EventMapper.class);
+    return new BulkInserter<>(mapper::insertRows, INSERTED_COLUMNS);
+  }
+
   public void delete(DbSession session, Long id) {
     session.getMapper(EventMapper.class).delete(id);
   }
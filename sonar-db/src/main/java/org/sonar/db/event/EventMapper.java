@@ -20,6 +20,7 @@
 package org.sonar.db.event;
 
 import java.util.List;
+import org.apache.ibatis.annotations.Param;
 
 public interface EventMapper {
 
@@ -27,6 +28,8 @@ public interface EventMapper {
 
   void insert(EventDto dto);
 
+  void insertRows(@Param("rows") List<EventDto> rows);
+
   void delete(long id);
 
 }
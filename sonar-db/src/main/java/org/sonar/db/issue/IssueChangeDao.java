@@ -25,6 +25,7 @@ import java.util.List;
 import javax.annotation.CheckForNull;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
@@ -34,6 +35,8 @@ import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class IssueChangeDao implements Dao {
 
+  private static final int INSERTED_COLUMNS = 8;
+
   private final MyBatis mybatis;
 
   public IssueChangeDao(MyBatis mybatis) {
@@ -93,6 +96,14 @@ public class IssueChangeDao implements Dao {
     mapper(session).insert(change);
   }
 
+  /**
+   * Inserts changes with multi-row statements. See {@link BulkInserter}.
+   */
+  public BulkInserter<IssueChangeDto> newBulkInserter(DbSession session) {
+    IssueChangeMapper mapper = mapper(session);
+    return new BulkInserter<>(mapper::insertRows, INSERTED_COLUMNS);
+  }
+
   public boolean delete(String key) {
     DbSession session = mybatis.openSession(false);
     try {
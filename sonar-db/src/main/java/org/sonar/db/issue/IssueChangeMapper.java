@@ -27,6 +27,8 @@ public interface IssueChangeMapper {
 
   void insert(IssueChangeDto dto);
 
+  void insertRows(@Param("rows") List<IssueChangeDto> rows);
+
   int delete(String key);
 
   int update(IssueChangeDto change);
@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.RowNotFoundException;
@@ -38,6 +39,8 @@ import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class IssueDao implements Dao {
 
+  private static final int INSERTED_COLUMNS = 24;
+
   public Optional<IssueDto> selectByKey(DbSession session, String key) {
     return Optional.fromNullable(mapper(session).selectByKey(key));
   }
@@ -103,6 +106,14 @@ public class IssueDao implements Dao {
     }
   }
 
+  /**
+   * Inserts issues with multi-row statements. See {@link BulkInserter}.
+   */
+  public BulkInserter<IssueDto> newBulkInserter(DbSession session) {
+    IssueMapper mapper = mapper(session);
+    return new BulkInserter<>(mapper::insertRows, INSERTED_COLUMNS);
+  }
+
   public void update(DbSession session, IssueDto dto) {
     mapper(session).update(dto);
   }
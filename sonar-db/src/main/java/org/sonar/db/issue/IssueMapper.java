@@ -36,6 +36,8 @@ public interface IssueMapper {
 
   void insert(IssueDto issue);
 
+  void insertRows(@Param("rows") List<IssueDto> rows);
+
   int update(IssueDto issue);
 
   int updateIfBeforeSelectedDate(IssueDto issue);
@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import org.apache.ibatis.session.ResultHandler;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
@@ -34,6 +35,8 @@ import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 
 public class MeasureDao implements Dao {
 
+  private static final int INSERTED_COLUMNS = 15;
+
   public Optional<MeasureDto> selectSingle(DbSession dbSession, MeasureQuery query) {
     List<MeasureDto> measures = selectByQuery(dbSession, query);
     return Optional.ofNullable(Iterables.getOnlyElement(measures, null));
@@ -82,13 +85,21 @@ public class MeasureDao implements Dao {
     }
   }
 
-  public List<PastMeasureDto> selectPastMeasures(DbSession dbSession,
-    String componentUuid,
-    String analysisUuid,
-    Collection<Integer> metricIds) {
-    return executeLargeInputs(
-      metricIds,
-      ids -> mapper(dbSession).selectPastMeasures(componentUuid, analysisUuid, ids));
+  /**
+   * Streams the measures of the last analysis of the specified root component (a project or a view) for all the
+   * components of its tree, in a single query. Measures are sorted by component UUID, so that those of a component are
+   * streamed one after the other. Measures associated to developers are excluded.
+   */
+  public void selectLastMeasuresOfTree(DbSession dbSession, String rootComponentUuid, ResultHandler resultHandler) {
+    mapper(dbSession).selectLastMeasuresOfTree(rootComponentUuid, resultHandler);
+  }
+
+  /**
+   * Streams the {@link PastMeasureDto} with a value of all the components of the specified analysis, including their
+   * component UUID. Measures associated to developers are excluded.
+   */
+  public void selectPastMeasuresOfAnalysis(DbSession dbSession, String analysisUuid, ResultHandler resultHandler) {
+    mapper(dbSession).selectPastMeasuresOfAnalysis(analysisUuid, resultHandler);
   }
 
   /**
@@ -114,6 +125,14 @@ public class MeasureDao implements Dao {
     insert(session, Lists.asList(item, others));
   }
 
+  /**
+   * Inserts measures with multi-row statements. See {@link BulkInserter}.
+   */
+  public BulkInserter<MeasureDto> newBulkInserter(DbSession session) {
+    MeasureMapper mapper = mapper(session);
+    return new BulkInserter<>(mapper::insertRows, INSERTED_COLUMNS);
+  }
+
   private static MeasureMapper mapper(DbSession session) {
     return session.getMapper(MeasureMapper.class);
   }
@@ -30,9 +30,13 @@ public interface MeasureMapper {
 
   void selectByQuery(@Param("query") MeasureQuery query, ResultHandler resultHandler);
 
-  List<PastMeasureDto> selectPastMeasures(@Param("componentUuid") String componentUuid, @Param("analysisUuid") String analysisUuid, @Param("metricIds") List<Integer> metricIds);
+  void selectLastMeasuresOfTree(@Param("rootComponentUuid") String rootComponentUuid, ResultHandler resultHandler);
+
+  void selectPastMeasuresOfAnalysis(@Param("analysisUuid") String analysisUuid, ResultHandler resultHandler);
 
   List<MeasureDto> selectProjectMeasuresOfDeveloper(@Param("developerId") long developerId, @Param("metricIds") Collection<Integer> metricIds);
 
   void insert(MeasureDto measureDto);
+
+  void insertRows(@Param("rows") List<MeasureDto> rows);
 }
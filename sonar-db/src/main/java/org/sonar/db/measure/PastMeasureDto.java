@@ -28,6 +28,9 @@ public class PastMeasureDto {
 
   private int metricId;
 
+  @CheckForNull
+  private String componentUuid;
+
   @CheckForNull
   private Double value;
 
@@ -57,6 +60,16 @@ public class PastMeasureDto {
     return this;
   }
 
+  @CheckForNull
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  PastMeasureDto setComponentUuid(@Nullable String componentUuid) {
+    this.componentUuid = componentUuid;
+    return this;
+  }
+
   @CheckForNull
   public Long getPersonId() {
     return personId;
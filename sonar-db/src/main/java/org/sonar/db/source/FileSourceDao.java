@@ -137,6 +137,13 @@ public class FileSourceDao implements Dao {
     mapper(session).update(dto);
   }
 
+  /**
+   * Only updates the hash of inputs. Sources and date of update are left unchanged.
+   */
+  public void updateInputsHash(DbSession session, long id, String inputsHash) {
+    mapper(session).updateInputsHash(id, inputsHash);
+  }
+
   public void updateDateWhenUpdatedDateIsZero(DbSession session, String projectUuid, long updateDate) {
     mapper(session).updateDateWhenUpdatedDateIsZero(projectUuid, updateDate);
   }
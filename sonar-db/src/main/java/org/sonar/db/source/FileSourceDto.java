@@ -48,6 +48,7 @@ public class FileSourceDto {
   private long updatedAt;
   private String lineHashes;
   private String srcHash;
+  private String inputsHash;
   private byte[] binaryData;
   private String dataType;
   private String dataHash;
@@ -93,16 +94,45 @@ public class FileSourceDto {
     return this;
   }
 
+  /**
+   * Decodes data encoded by {@link #encodeSourceData(DbFileSources.Data)} or by previous versions,
+   * which did not split lines into blocks.
+   */
   public DbFileSources.Data decodeSourceData(byte[] binaryData) {
     try {
+      if (SourceLineBlocks.isBlockEncoded(binaryData)) {
+        return SourceLineBlocks.decode(binaryData);
+      }
       return decodeRegularSourceData(binaryData);
-    } catch (IOException e) {
-      throw new IllegalStateException(
-        format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
-        e);
+    } catch (IOException | RuntimeException e) {
+      throw failToDecode(e);
+    }
+  }
+
+  /**
+   * Lines of the range [from, toInclusive], both starting from 1. Only the blocks of lines containing
+   * the range are decompressed and deserialized, except for data written by previous versions.
+   */
+  public List<DbFileSources.Line> getSourceLines(int from, int toInclusive) {
+    try {
+      DbFileSources.Data data;
+      if (SourceLineBlocks.isBlockEncoded(binaryData)) {
+        data = SourceLineBlocks.decode(binaryData, from, toInclusive);
+      } else {
+        data = decodeRegularSourceData(binaryData);
+      }
+      return SourceLineBlocks.filter(data, from, toInclusive);
+    } catch (IOException | RuntimeException e) {
+      throw failToDecode(e);
     }
   }
 
+  private IllegalStateException failToDecode(Exception e) {
+    return new IllegalStateException(
+      format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+      e);
+  }
+
   private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData) throws IOException {
     try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
       return DbFileSources.Data.parseFrom(lz4Input);
@@ -124,20 +154,10 @@ public class FileSourceDto {
 
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
-   * in the column BINARY_DATA.
+   * in the column BINARY_DATA, by blocks of lines.
    */
   public static byte[] encodeSourceData(DbFileSources.Data data) {
-    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
-    LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
-    try {
-      data.writeTo(compressedOutput);
-      compressedOutput.close();
-      return byteOutput.toByteArray();
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to serialize and compress source data", e);
-    } finally {
-      IOUtils.closeQuietly(compressedOutput);
-    }
+    return SourceLineBlocks.encode(data);
   }
 
   public static List<DbFileSources.Test> decodeTestData(byte[] binaryData) {
@@ -254,6 +274,20 @@ public class FileSourceDto {
     return this;
   }
 
+  @CheckForNull
+  public String getInputsHash() {
+    return inputsHash;
+  }
+
+  /**
+   * Hash of all the data used to compute {@link #getBinaryData()}: source, SCM, coverage, highlighting,
+   * symbols and duplications. Value is computed by Compute Engine.
+   */
+  public FileSourceDto setInputsHash(@Nullable String inputsHash) {
+    this.inputsHash = inputsHash;
+    return this;
+  }
+
   public long getCreatedAt() {
     return createdAt;
   }
@@ -34,5 +34,7 @@ public interface FileSourceMapper {
 
   void update(FileSourceDto dto);
 
+  void updateInputsHash(@Param("id") long id, @Param("inputsHash") String inputsHash);
+
   void updateDateWhenUpdatedDateIsZero(@Param("projectUuid") String projectUuid, @Param("date") Long updateDate);
 }
@@ -0,0 +1,126 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.sonar.db.protobuf.DbFileSources;
+
+/**
+ * Encoding of {@link DbFileSources.Data} by blocks of {@value #LINES_PER_BLOCK} lines, so that a range of lines
+ * can be read without decompressing and parsing the whole file:
+ * <pre>
+ *   magic (4 bytes)
+ *   number of blocks (int)
+ *   for each block: first line (int), offset of block after the table (int), size of uncompressed block (int)
+ *   blocks, each one being a LZ4-compressed {@link DbFileSources.Data} with the lines of the block
+ * </pre>
+ * Data written by previous versions is a LZ4 stream of the whole message, which starts with a different magic.
+ */
+final class SourceLineBlocks {
+
+  static final int LINES_PER_BLOCK = 256;
+  private static final byte[] MAGIC = {'S', 'Q', 'L', 'B'};
+  private static final int TABLE_ENTRY_SIZE = 3 * Integer.BYTES;
+
+  private SourceLineBlocks() {
+    // only static stuff
+  }
+
+  static boolean isBlockEncoded(byte[] binaryData) {
+    if (binaryData.length < MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (binaryData[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static byte[] encode(DbFileSources.Data data) {
+    List<DbFileSources.Line> lines = data.getLinesList();
+    int blockCount = (lines.size() + LINES_PER_BLOCK - 1) / LINES_PER_BLOCK;
+    LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    ByteBuffer table = ByteBuffer.allocate(blockCount * TABLE_ENTRY_SIZE);
+    ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+    for (int start = 0; start < lines.size(); start += LINES_PER_BLOCK) {
+      List<DbFileSources.Line> blockLines = lines.subList(start, Math.min(start + LINES_PER_BLOCK, lines.size()));
+      byte[] raw = DbFileSources.Data.newBuilder().addAllLines(blockLines).build().toByteArray();
+      byte[] compressed = compressor.compress(raw);
+      table.putInt(blockLines.get(0).getLine()).putInt(blocks.size()).putInt(raw.length);
+      blocks.write(compressed, 0, compressed.length);
+    }
+    return ByteBuffer.allocate(MAGIC.length + Integer.BYTES + table.capacity() + blocks.size())
+      .put(MAGIC)
+      .putInt(blockCount)
+      .put(table.array())
+      .put(blocks.toByteArray())
+      .array();
+  }
+
+  static DbFileSources.Data decode(byte[] binaryData) throws InvalidProtocolBufferException {
+    return decode(binaryData, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Decodes only the blocks containing the lines of the range [from, toInclusive]. Returned data
+   * can contain some lines before and after the range.
+   */
+  static DbFileSources.Data decode(byte[] binaryData, int from, int toInclusive) throws InvalidProtocolBufferException {
+    ByteBuffer buffer = ByteBuffer.wrap(binaryData);
+    buffer.position(MAGIC.length);
+    int blockCount = buffer.getInt();
+    int blocksStart = buffer.position() + blockCount * TABLE_ENTRY_SIZE;
+    LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+    DbFileSources.Data.Builder result = DbFileSources.Data.newBuilder();
+    for (int block = 0; block < blockCount; block++) {
+      int firstLine = buffer.getInt();
+      int offset = buffer.getInt();
+      int rawSize = buffer.getInt();
+      if (firstLine > toInclusive) {
+        break;
+      }
+      boolean lastBlock = block == blockCount - 1;
+      if (lastBlock || buffer.getInt(buffer.position()) > from) {
+        byte[] raw = decompressor.decompress(binaryData, blocksStart + offset, rawSize);
+        result.mergeFrom(raw);
+      }
+    }
+    return result.build();
+  }
+
+  static List<DbFileSources.Line> filter(DbFileSources.Data data, int from, int toInclusive) {
+    List<DbFileSources.Line> lines = new ArrayList<>();
+    for (DbFileSources.Line line : data.getLinesList()) {
+      if (line.hasLine() && line.getLine() >= from && line.getLine() <= toInclusive) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+}
@@ -159,11 +159,14 @@ import org.sonar.db.version.v61.DropIsGlobalFromDashboards;
 import org.sonar.db.version.v61.PopulateTableProperties2;
 import org.sonar.db.version.v61.RemoveViewsDefinitionFromProperties;
 import org.sonar.db.version.v61.ShrinkModuleUuidPathOfProjects;
+import org.sonar.db.version.v62.AddInputsHashToFileSources;
 import org.sonar.db.version.v62.AddIsRootColumnOnTableUsers;
 import org.sonar.db.version.v62.AddOrganizationUuidToGroupRoles;
 import org.sonar.db.version.v62.AddOrganizationUuidToGroups;
 import org.sonar.db.version.v62.AddOrganizationUuidToPermissionTemplates;
 import org.sonar.db.version.v62.AddOrganizationUuidToUserRoles;
+import org.sonar.db.version.v62.AddPriorityToCeQueue;
+import org.sonar.db.version.v62.AddStepTimingsToCeActivity;
 import org.sonar.db.version.v62.CreateDefaultOrganization;
 import org.sonar.db.version.v62.CreateTableOrganizations;
 import org.sonar.db.version.v62.DeletePermissionShareDashboard;
@@ -171,12 +174,14 @@ import org.sonar.db.version.v62.MakeOrganizationUuidNotNullOnGroupRoles;
 import org.sonar.db.version.v62.MakeOrganizationUuidNotNullOnGroups;
 import org.sonar.db.version.v62.MakeOrganizationUuidNotNullOnPermissionTemplates;
 import org.sonar.db.version.v62.MakeOrganizationUuidNotNullOnUserRoles;
+import org.sonar.db.version.v62.MakePriorityNotNullOnCeQueue;
 import org.sonar.db.version.v62.MakeRootColumnNotNullOnTableUsers;
 import org.sonar.db.version.v62.PopulateIsRootColumnOnTableUsers;
 import org.sonar.db.version.v62.PopulateOrganizationUuidOfGroupRoles;
 import org.sonar.db.version.v62.PopulateOrganizationUuidOfGroups;
 import org.sonar.db.version.v62.PopulateOrganizationUuidOfPermissionTemplates;
 import org.sonar.db.version.v62.PopulateOrganizationUuidOfUserRoles;
+import org.sonar.db.version.v62.PopulatePriorityOfCeQueue;
 
 public class MigrationStepModule extends Module {
   @Override
@@ -374,7 +379,12 @@ public class MigrationStepModule extends Module {
       MakeOrganizationUuidNotNullOnPermissionTemplates.class,
       AddOrganizationUuidToGroupRoles.class,
       PopulateOrganizationUuidOfGroupRoles.class,
-      MakeOrganizationUuidNotNullOnGroupRoles.class
+      MakeOrganizationUuidNotNullOnGroupRoles.class,
+      AddInputsHashToFileSources.class,
+      AddPriorityToCeQueue.class,
+      PopulatePriorityOfCeQueue.class,
+      MakePriorityNotNullOnCeQueue.class,
+      AddStepTimingsToCeActivity.class
     );
   }
 }
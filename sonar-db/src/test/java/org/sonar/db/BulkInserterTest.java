@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkInserterTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private List<List<String>> statements = new ArrayList<>();
+
+  @Test
+  public void insert_rows_by_statements_of_max_size() {
+    BulkInserter<String> underTest = new BulkInserter<>(statements::add, 2, 3);
+    underTest.addAll(asList("a", "b", "c", "d", "e", "f", "g"));
+
+    assertThat(statements).containsExactly(asList("a", "b", "c"), asList("d", "e", "f"));
+    assertThat(underTest.getRows()).isEqualTo(6);
+    assertThat(underTest.getStatements()).isEqualTo(2);
+
+    underTest.close();
+    assertThat(statements).containsExactly(asList("a", "b", "c"), asList("d", "e", "f"), asList("g"));
+    assertThat(underTest.getRows()).isEqualTo(7);
+    assertThat(underTest.getStatements()).isEqualTo(3);
+    assertThat(underTest.getThroughput()).isGreaterThan(0);
+  }
+
+  @Test
+  public void number_of_rows_per_statement_is_bounded_by_number_of_parameters() {
+    assertThat(new BulkInserter<String>(statements::add, 10).getRowsPerStatement()).isEqualTo(BulkInserter.DEFAULT_MAX_ROWS_PER_STATEMENT);
+    assertThat(new BulkInserter<String>(statements::add, 24).getRowsPerStatement()).isEqualTo(41);
+    assertThat(new BulkInserter<String>(statements::add, 24, 10).getRowsPerStatement()).isEqualTo(10);
+    assertThat(new BulkInserter<String>(statements::add, BulkInserter.MAX_PARAMETERS_PER_STATEMENT).getRowsPerStatement()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_nothing_when_no_rows() {
+    BulkInserter<String> underTest = new BulkInserter<>(statements::add, 2);
+    underTest.flush();
+    underTest.close();
+
+    assertThat(statements).isEmpty();
+    assertThat(underTest.getRows()).isZero();
+    assertThat(underTest.getThroughput()).isZero();
+  }
+
+  @Test
+  public void fail_if_too_many_columns() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Number of columns must be between 1 and 999");
+
+    new BulkInserter<String>(statements::add, 1000);
+  }
+
+  @Test
+  public void fail_if_max_rows_is_not_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Number of rows per statement must be positive");
+
+    new BulkInserter<String>(statements::add, 5, 0);
+  }
+}
@@ -73,9 +73,21 @@ public class CeActivityDaoTest {
     assertThat(dto.toString()).isNotEmpty();
     assertThat(dto.getErrorMessage()).isNull();
     assertThat(dto.getErrorStacktrace()).isNull();
+    assertThat(dto.getStepTimings()).isNull();
     assertThat(dto.isHasScannerContext()).isFalse();
   }
 
+  @Test
+  public void test_insert_of_step_timings() {
+    String stepTimings = "[{\"step\":\"Extract report\",\"start\":0,\"duration\":12}]";
+    CeActivityDto dto = createActivityDto("TASK_1", REPORT, "PROJECT_1", CeActivityDto.Status.SUCCESS)
+      .setStepTimings(stepTimings);
+    underTest.insert(db.getSession(), dto);
+
+    Optional<CeActivityDto> saved = underTest.selectByUuid(db.getSession(), "TASK_1");
+    assertThat(saved.get().getStepTimings()).isEqualTo(stepTimings);
+  }
+
   @Test
   public void test_insert_of_errorMessage_of_1_000_chars() {
     CeActivityDto dto = createActivityDto("TASK_1", REPORT, "PROJECT_1", CeActivityDto.Status.FAILED)
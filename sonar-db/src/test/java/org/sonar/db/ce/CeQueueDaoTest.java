@@ -30,6 +30,7 @@ import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
 import static com.google.common.collect.FluentIterable.from;
@@ -182,6 +183,118 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
+  @Test
+  public void peek_greatest_priority_then_oldest() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(newCeQueueDto(TASK_UUID_2).setComponentUuid(COMPONENT_UUID_2).setStatus(PENDING).setPriority(10)
+      .setCreatedAt(INIT_TIME + 3_000_000).setUpdatedAt(INIT_TIME + 3_000_000));
+    insert(newCeQueueDto(TASK_UUID_3).setComponentUuid("PROJECT_3").setStatus(PENDING).setPriority(10)
+      .setCreatedAt(INIT_TIME + 6_000_000).setUpdatedAt(INIT_TIME + 6_000_000));
+
+    assertThat(underTest.peek(db.getSession()).get().getUuid()).isEqualTo(TASK_UUID_2);
+    assertThat(underTest.peek(db.getSession()).get().getUuid()).isEqualTo(TASK_UUID_3);
+    assertThat(underTest.peek(db.getSession()).get().getUuid()).isEqualTo(TASK_UUID_1);
+  }
+
+  @Test
+  public void peek_task_of_other_component_if_a_task_of_same_component_has_been_peeked_concurrently() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    // another worker peeks a task of COMPONENT_UUID_1 after candidates are selected
+    TestSystem2 concurrentSystem2 = new TestSystem2() {
+      private boolean peekedConcurrently = false;
+
+      @Override
+      public long now() {
+        if (!peekedConcurrently) {
+          peekedConcurrently = true;
+          try (DbSession otherSession = db.getDbClient().openSession(false)) {
+            underTest.insert(otherSession, newCeQueueDto(TASK_UUID_3).setComponentUuid(COMPONENT_UUID_1).setStatus(IN_PROGRESS)
+              .setCreatedAt(INIT_TIME - 1_000).setUpdatedAt(INIT_TIME - 1_000));
+            otherSession.commit();
+          }
+        }
+        return INIT_TIME + 6_000_000;
+      }
+    };
+
+    Optional<CeQueueDto> peek = new CeQueueDao(concurrentSystem2).peek(db.getSession());
+
+    assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
+    verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, IN_PROGRESS, TASK_UUID_3, IN_PROGRESS);
+  }
+
+  @Test
+  public void keep_peeked_task_if_older_than_task_of_same_component_peeked_concurrently() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    // another worker peeks a newer task of COMPONENT_UUID_1 after candidates are selected. It gives up when it sees
+    // TASK_UUID_1 in progress, as TASK_UUID_1 is older.
+    TestSystem2 concurrentSystem2 = new TestSystem2() {
+      private boolean peekedConcurrently = false;
+
+      @Override
+      public long now() {
+        if (!peekedConcurrently) {
+          peekedConcurrently = true;
+          try (DbSession otherSession = db.getDbClient().openSession(false)) {
+            underTest.insert(otherSession, newCeQueueDto(TASK_UUID_3).setComponentUuid(COMPONENT_UUID_1).setStatus(IN_PROGRESS)
+              .setCreatedAt(INIT_TIME + 1_000).setUpdatedAt(INIT_TIME + 1_000));
+            otherSession.commit();
+          }
+        }
+        return INIT_TIME + 6_000_000;
+      }
+    };
+
+    Optional<CeQueueDto> peek = new CeQueueDao(concurrentSystem2).peek(db.getSession());
+
+    assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_1);
+    verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_3, IN_PROGRESS);
+  }
+
+  @Test
+  public void peek_oldest_task_of_component_even_if_a_newer_one_has_greater_priority() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(newCeQueueDto(TASK_UUID_2).setComponentUuid(COMPONENT_UUID_1).setStatus(PENDING).setPriority(10)
+      .setCreatedAt(INIT_TIME + 3_000_000).setUpdatedAt(INIT_TIME + 3_000_000));
+    insert(newCeQueueDto(TASK_UUID_3).setComponentUuid(COMPONENT_UUID_2).setStatus(PENDING).setPriority(5)
+      .setCreatedAt(INIT_TIME + 6_000_000).setUpdatedAt(INIT_TIME + 6_000_000));
+
+    // TASK_UUID_2 is not a candidate as long as TASK_UUID_1 is pending
+    assertThat(underTest.peek(db.getSession()).get().getUuid()).isEqualTo(TASK_UUID_3);
+    assertThat(underTest.peek(db.getSession()).get().getUuid()).isEqualTo(TASK_UUID_1);
+    assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
+
+    underTest.deleteByUuid(db.getSession(), TASK_UUID_1);
+    assertThat(underTest.peek(db.getSession()).get().getUuid()).isEqualTo(TASK_UUID_2);
+  }
+
+  @Test
+  public void select_max_created_at_of_pending() {
+    assertThat(underTest.selectMaxCreatedAtOfPending(db.getSession()).isPresent()).isFalse();
+
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 6_000_000);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, IN_PROGRESS);
+
+    assertThat(underTest.selectMaxCreatedAtOfPending(db.getSession()).get()).isEqualTo(INIT_TIME + 3_000_000);
+  }
+
+  @Test
+  public void count_by_status_and_priority() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(newCeQueueDto(TASK_UUID_2).setComponentUuid(COMPONENT_UUID_2).setStatus(PENDING).setPriority(10));
+    insert(newCeQueueDto(TASK_UUID_3).setComponentUuid(COMPONENT_UUID_2).setStatus(IN_PROGRESS).setPriority(10));
+
+    assertThat(underTest.countByStatusAndPriority(db.getSession(), PENDING, 0)).isEqualTo(1);
+    assertThat(underTest.countByStatusAndPriority(db.getSession(), PENDING, 10)).isEqualTo(1);
+    assertThat(underTest.countByStatusAndPriority(db.getSession(), IN_PROGRESS, 10)).isEqualTo(1);
+    assertThat(underTest.countByStatusAndPriority(db.getSession(), PENDING, -10)).isEqualTo(0);
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
@@ -20,6 +20,7 @@
 package org.sonar.db.component;
 
 import com.google.common.base.Optional;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -32,10 +33,12 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.RowNotFoundException;
+import org.sonar.db.metric.MetricDto;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -47,6 +50,8 @@ import static org.sonar.db.component.ComponentTesting.newProjectCopy;
 import static org.sonar.db.component.ComponentTesting.newProjectDto;
 import static org.sonar.db.component.ComponentTesting.newSubView;
 import static org.sonar.db.component.ComponentTesting.newView;
+import static org.sonar.db.measure.MeasureTesting.newMeasureDto;
+import static org.sonar.db.metric.MetricTesting.newMetricDto;
 
 public class ComponentDaoTest {
 
@@ -471,6 +476,26 @@ public class ComponentDaoTest {
     assertThat(underTest.selectEnabledFilesFromProject(dbSession, "unknown")).isEmpty();
   }
 
+  @Test
+  public void scroll_enabled_module_files_tree() {
+    db.prepareDbUnit(getClass(), "select_module_files_tree.xml");
+
+    List<FilePathWithHashDto> files = new ArrayList<>();
+    underTest.scrollEnabledDescendantFiles(dbSession, "FGHI", context -> files.add((FilePathWithHashDto) context.getResultObject()));
+    assertThat(files).extracting("uuid").containsOnly("HIJK");
+    assertThat(files).extracting("srcHash").containsOnly("srcHIJK");
+    assertThat(files).extracting("revision").containsOnly("123456789");
+
+    files.clear();
+    underTest.scrollEnabledFilesFromProject(dbSession, "ABCD", context -> files.add((FilePathWithHashDto) context.getResultObject()));
+    assertThat(files).extracting("uuid").containsOnly("EFGHI", "HIJK");
+    assertThat(files).extracting("path").containsOnly("src/org/struts/pom.xml", "src/org/struts/RequestContext.java");
+
+    files.clear();
+    underTest.scrollEnabledFilesFromProject(dbSession, "EFGH", context -> files.add((FilePathWithHashDto) context.getResultObject()));
+    assertThat(files).isEmpty();
+  }
+
   @Test
   public void select_all_components_from_project() {
     db.prepareDbUnit(getClass(), "multi-modules.xml");
@@ -1095,6 +1120,77 @@ public class ComponentDaoTest {
     assertThat(result).extracting("uuid").containsExactly("file-uuid-6", "file-uuid-5", "file-uuid-4");
   }
 
+  @Test
+  public void selectDescendants_sorted_by_measure() {
+    ComponentDto project = newProjectDto(PROJECT_UUID);
+    SnapshotDto analysis = componentDb.insertProjectAndSnapshot(project);
+    ComponentDto module = componentDb.insertComponent(newModuleDto(MODULE_UUID, project).setName("module"));
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(module, null, "file-uuid-1").setName("file-1"));
+    ComponentDto file2 = componentDb.insertComponent(newFileDto(module, null, "file-uuid-2").setName("file-2"));
+    ComponentDto file3 = componentDb.insertComponent(newFileDto(module, null, "file-uuid-3").setName("file-3"));
+    ComponentDto file4 = componentDb.insertComponent(newFileDto(module, null, "file-uuid-4").setName("file-4"));
+    MetricDto metric = db.getDbClient().metricDao().insert(dbSession, newMetricDto().setKey("ncloc"));
+    db.getDbClient().measureDao().insert(dbSession,
+      newMeasureDto(metric, module, analysis).setValue(20d),
+      newMeasureDto(metric, file1, analysis).setValue(3d),
+      newMeasureDto(metric, file2, analysis).setValue(1d),
+      // only a variation
+      newMeasureDto(metric, file3, analysis).setVariation(1, 2d));
+    db.commit();
+
+    ComponentTreeQuery.MeasureSortBuilder measureSort = ComponentTreeQuery.MeasureSort.builder().setMetricId(metric.getId());
+    ComponentTreeQuery.Builder query = newTreeQuery(PROJECT_UUID).setSortFields(singletonList(ComponentTreeQuery.MEASURE_SORT_FIELD));
+
+    // components without measure are last, ordered by name
+    assertThat(underTest.selectDescendants(dbSession, query.setMeasureSort(measureSort.build()).build())).extracting("uuid")
+      .containsExactly("file-uuid-2", "file-uuid-1", MODULE_UUID, "file-uuid-3", "file-uuid-4");
+    assertThat(underTest.selectDescendants(dbSession, query.setAsc(false).build())).extracting("uuid")
+      .containsExactly(MODULE_UUID, "file-uuid-1", "file-uuid-2", "file-uuid-4", "file-uuid-3");
+
+    // best value of files without measure
+    measureSort.setBestValue(2d, singletonList(Qualifiers.FILE));
+    assertThat(underTest.selectDescendants(dbSession, query.setAsc(true).setMeasureSort(measureSort.build()).build())).extracting("uuid")
+      .containsExactly("file-uuid-2", "file-uuid-4", "file-uuid-1", MODULE_UUID, "file-uuid-3");
+
+    // variation
+    measureSort.setBestValue(null, emptyList()).setPeriodIndex(1);
+    assertThat(underTest.selectDescendants(dbSession, query.setMeasureSort(measureSort.build()).build())).extracting("uuid")
+      .containsExactly("file-uuid-3", "file-uuid-1", "file-uuid-2", "file-uuid-4", MODULE_UUID);
+
+    // components without measure are excluded
+    measureSort.setPeriodIndex(null).setWithMeasuresOnly(true);
+    query.setMeasureSort(measureSort.build()).setPage(2).setPageSize(2);
+    assertThat(underTest.selectDescendants(dbSession, query.build())).extracting("uuid").containsExactly(MODULE_UUID);
+    assertThat(underTest.countDescendants(dbSession, query.build())).isEqualTo(3);
+    assertThat(underTest.selectChildren(dbSession, newTreeQuery(MODULE_UUID).setSortFields(singletonList(ComponentTreeQuery.MEASURE_SORT_FIELD))
+      .setMeasureSort(measureSort.build()).build())).extracting("uuid").containsExactly("file-uuid-2", "file-uuid-1");
+  }
+
+  @Test
+  public void selectDescendants_sorted_by_level_measure() {
+    ComponentDto project = newProjectDto(PROJECT_UUID);
+    SnapshotDto analysis = componentDb.insertProjectAndSnapshot(project);
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-1").setName("file-1"));
+    ComponentDto file2 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-2").setName("file-2"));
+    ComponentDto file3 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-3").setName("file-3"));
+    componentDb.insertComponent(newFileDto(project, null, "file-uuid-4").setName("file-4"));
+    MetricDto metric = db.getDbClient().metricDao().insert(dbSession, newMetricDto().setKey("alert_status").setValueType("LEVEL"));
+    db.getDbClient().measureDao().insert(dbSession,
+      newMeasureDto(metric, file1, analysis).setData("OK"),
+      newMeasureDto(metric, file2, analysis).setData("ERROR"),
+      newMeasureDto(metric, file3, analysis).setData("WARN"));
+    db.commit();
+
+    ComponentTreeQuery.Builder query = newTreeQuery(PROJECT_UUID)
+      .setSortFields(singletonList(ComponentTreeQuery.MEASURE_SORT_FIELD))
+      .setMeasureSort(ComponentTreeQuery.MeasureSort.builder().setMetricId(metric.getId()).setLevel(true).build());
+
+    assertThat(underTest.selectDescendants(dbSession, query.build())).extracting("uuid")
+      .containsExactly("file-uuid-2", "file-uuid-3", "file-uuid-1", "file-uuid-4");
+    assertThat(underTest.selectDescendants(dbSession, query.setAsc(false).build())).extracting("uuid")
+      .containsExactly("file-uuid-1", "file-uuid-3", "file-uuid-2", "file-uuid-4");
+  }
+
   private static ComponentTreeQuery.Builder newTreeQuery(String baseUuid) {
     return ComponentTreeQuery.builder()
       .setPage(1)
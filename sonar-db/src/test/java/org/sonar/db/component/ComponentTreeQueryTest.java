@@ -44,6 +44,62 @@ public class ComponentTreeQueryTest {
     assertThat(result.getSqlSort()).isEqualTo("LOWER(p.name) ASC, p.name ASC, LOWER(p.path) ASC, p.path ASC, LOWER(p.qualifier) ASC, p.qualifier ASC");
   }
 
+  @Test
+  public void sort_on_name_when_only_sorted_by_measure() {
+    ComponentTreeQuery result = ComponentTreeQuery.builder()
+      .setBaseUuid(AN_UUID)
+      .setSortFields(singletonList(ComponentTreeQuery.MEASURE_SORT_FIELD))
+      .setMeasureSort(ComponentTreeQuery.MeasureSort.builder().setMetricId(10).build())
+      .setAsc(false)
+      .build();
+
+    assertThat(result.getSqlSort()).isEqualTo("LOWER(p.name) DESC, p.name DESC");
+    assertThat(result.getSortFields()).containsExactly(ComponentTreeQuery.MEASURE_SORT_FIELD);
+    assertThat(result.getMeasureSortDirection()).isEqualTo("DESC");
+    assertThat(result.getMeasureSort().getValueColumn()).isEqualTo("value");
+  }
+
+  @Test
+  public void sort_levels_in_reverse_order() {
+    ComponentTreeQuery result = ComponentTreeQuery.builder()
+      .setBaseUuid(AN_UUID)
+      .setSortFields(newArrayList("qualifier", ComponentTreeQuery.MEASURE_SORT_FIELD))
+      .setMeasureSort(ComponentTreeQuery.MeasureSort.builder().setMetricId(10).setLevel(true).build())
+      .build();
+
+    assertThat(result.getSqlSort()).isEqualTo("LOWER(p.qualifier) ASC, p.qualifier ASC");
+    assertThat(result.getMeasureSortDirection()).isEqualTo("DESC");
+  }
+
+  @Test
+  public void sort_on_variation_of_period() {
+    ComponentTreeQuery.MeasureSort result = ComponentTreeQuery.MeasureSort.builder()
+      .setMetricId(10)
+      .setPeriodIndex(3)
+      .build();
+
+    assertThat(result.getValueColumn()).isEqualTo("variation_value_3");
+  }
+
+  @Test
+  public void fail_if_measure_sort_field_without_measure_sort() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Sort field 'measure' must be used if and only if measure sort is set");
+
+    ComponentTreeQuery.builder()
+      .setBaseUuid(AN_UUID)
+      .setSortFields(singletonList(ComponentTreeQuery.MEASURE_SORT_FIELD))
+      .build();
+  }
+
+  @Test
+  public void fail_if_period_index_is_invalid() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Period index must be between 1 and 5");
+
+    ComponentTreeQuery.MeasureSort.builder().setPeriodIndex(6);
+  }
+
   @Test
   public void fail_if_no_base_uuid() {
     expectedException.expect(NullPointerException.class);
@@ -25,6 +25,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.Collections.singletonList;
@@ -61,6 +62,22 @@ public class DuplicationDaoTest {
     assertThat(blocks).hasSize(2);
   }
 
+  @Test
+  public void count_and_select_hashes() {
+    db.prepareDbUnit(getClass(), "select_candidates.xml");
+    dbSession.commit();
+
+    assertThat(dao.countHashes(dbSession, "u7", "java")).isEqualTo(1);
+    assertThat(selectHashes("u7", "java")).containsOnly("aa");
+
+    // blocks of bar-last and foo-last
+    assertThat(dao.countHashes(dbSession, null, "java")).isEqualTo(2);
+    assertThat(selectHashes(null, "java")).containsOnly("aa");
+
+    assertThat(dao.countHashes(dbSession, null, "cobol")).isEqualTo(0);
+    assertThat(selectHashes(null, "cobol")).isEmpty();
+  }
+
   @Test
   public void insert() {
     db.prepareDbUnit(getClass(), "insert.xml");
@@ -78,4 +95,10 @@ public class DuplicationDaoTest {
     db.assertDbUnit(getClass(), "insert-result.xml", "duplications_index");
   }
 
+  private List<String> selectHashes(String analysisUuid, String language) {
+    List<String> hashes = new ArrayList<>();
+    dao.selectHashes(dbSession, analysisUuid, language, context -> hashes.add((String) context.getResultObject()));
+    return hashes;
+  }
+
 }
@@ -23,6 +23,7 @@ import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.System2;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.DbTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -82,6 +83,26 @@ public class EventDaoTest {
     dbTester.assertDbUnit(getClass(), "insert-result.xml", new String[] {"id"}, "events");
   }
 
+  @Test
+  public void insert_with_bulk_inserter() {
+    dbTester.prepareDbUnit(getClass(), "empty.xml");
+
+    try (BulkInserter<EventDto> inserter = dao.newBulkInserter(dbTester.getSession())) {
+      inserter.add(new EventDto()
+        .setAnalysisUuid("uuid_1")
+        .setComponentUuid("ABCD")
+        .setName("1.0")
+        .setCategory(EventDto.CATEGORY_VERSION)
+        .setDescription("Version 1.0")
+        .setData("some data")
+        .setDate(1413407091086L)
+        .setCreatedAt(1225630680000L));
+    }
+    dbTester.getSession().commit();
+
+    dbTester.assertDbUnit(getClass(), "insert-result.xml", new String[] {"id"}, "events");
+  }
+
   @Test
   public void delete() {
     dbTester.prepareDbUnit(getClass(), "delete.xml");
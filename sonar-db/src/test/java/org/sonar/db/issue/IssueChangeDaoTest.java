@@ -28,6 +28,7 @@ import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
@@ -150,6 +151,24 @@ public class IssueChangeDaoTest {
     dbTester.assertDbUnit(getClass(), "insert-result.xml", new String[]{"id"}, "issue_changes");
   }
 
+  @Test
+  public void insert_with_bulk_inserter() {
+    try (BulkInserter<IssueChangeDto> inserter = dao.newBulkInserter(dbTester.getSession())) {
+      inserter.add(new IssueChangeDto()
+        .setKey("EFGH")
+        .setUserLogin("emmerik")
+        .setChangeData("Some text")
+        .setChangeType("comment")
+        .setIssueKey("ABCDE")
+        .setCreatedAt(1_500_000_000_000L)
+        .setUpdatedAt(1_501_000_000_000L)
+        .setIssueChangeCreationDate(1_502_000_000_000L));
+    }
+    dbTester.getSession().commit();
+
+    dbTester.assertDbUnit(getClass(), "insert-result.xml", new String[]{"id"}, "issue_changes");
+  }
+
   @Test
   public void update() {
     dbTester.prepareDbUnit(getClass(), "update.xml");
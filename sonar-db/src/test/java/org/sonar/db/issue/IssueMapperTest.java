@@ -19,6 +19,7 @@
  */
 package org.sonar.db.issue;
 
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -88,6 +89,38 @@ public class IssueMapperTest {
     assertThat(result.getUpdatedAt()).isEqualTo(1_500_000_000_000L);
   }
 
+  @Test
+  public void insert_rows() {
+    underTest.insertRows(Arrays.asList(newIssue(), newIssue().setKee("FGHIJ").setComponentUuid(file2.uuid()).setTags(Arrays.asList("foo", "bar"))));
+    dbTester.getSession().commit();
+
+    IssueDto result = underTest.selectByKey("ABCDE");
+    assertThat(result.getComponentUuid()).isEqualTo(file.uuid());
+    assertThat(result.getProjectUuid()).isEqualTo(project.uuid());
+    assertThat(result.getRuleId()).isEqualTo(rule.getId());
+    assertThat(result.getType()).isEqualTo(2);
+    assertThat(result.getLine()).isEqualTo(500);
+    assertThat(result.getGap()).isEqualTo(3.14d);
+    assertThat(result.getEffort()).isEqualTo(10L);
+    assertThat(result.getResolution()).isEqualTo("FIXED");
+    assertThat(result.getStatus()).isEqualTo("RESOLVED");
+    assertThat(result.getSeverity()).isEqualTo("BLOCKER");
+    assertThat(result.getAuthorLogin()).isEqualTo("morgan");
+    assertThat(result.getAssignee()).isEqualTo("karadoc");
+    assertThat(result.getIssueAttributes()).isEqualTo("JIRA=FOO-1234");
+    assertThat(result.getChecksum()).isEqualTo("123456789");
+    assertThat(result.getMessage()).isEqualTo("the message");
+    assertThat(result.getIssueCreationTime()).isEqualTo(1_401_000_000_000L);
+    assertThat(result.getIssueUpdateTime()).isEqualTo(1_402_000_000_000L);
+    assertThat(result.getIssueCloseTime()).isEqualTo(1_403_000_000_000L);
+    assertThat(result.getCreatedAt()).isEqualTo(1_400_000_000_000L);
+    assertThat(result.getUpdatedAt()).isEqualTo(1_500_000_000_000L);
+
+    result = underTest.selectByKey("FGHIJ");
+    assertThat(result.getComponentUuid()).isEqualTo(file2.uuid());
+    assertThat(result.getTags()).containsOnly("foo", "bar");
+  }
+
   @Test
   public void update() {
     underTest.insert(newIssue());
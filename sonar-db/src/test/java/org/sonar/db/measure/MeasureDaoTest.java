@@ -31,6 +31,7 @@ import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.UuidFactoryImpl;
+import org.sonar.db.BulkInserter;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.SnapshotTesting;
@@ -39,6 +40,7 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class MeasureDaoTest {
 
@@ -98,6 +100,38 @@ public class MeasureDaoTest {
     assertThat(selected.getAlertText()).isEqualTo(inserted.getAlertText());
   }
 
+  @Test
+  public void insert_with_bulk_inserter() {
+    insertAnalysis(LAST_ANALYSIS_UUID, true);
+
+    BulkInserter<MeasureDto> inserter = underTest.newBulkInserter(db.getSession());
+    for (int i = 0; i < 150; i++) {
+      inserter.add(new MeasureDto()
+        .setAnalysisUuid(LAST_ANALYSIS_UUID)
+        .setMetricId(i)
+        .setComponentUuid("C" + (i % 3))
+        .setValue((double) i)
+        .setData("data" + i)
+        .setVariation(1, 1.0d)
+        .setAlertStatus("alert"));
+    }
+    inserter.close();
+    db.commit();
+
+    assertThat(inserter.getRows()).isEqualTo(150);
+    assertThat(inserter.getStatements()).isEqualTo(3);
+    assertThat(db.countRowsOfTable("project_measures")).isEqualTo(150);
+    MeasureDto selected = underTest.selectSingle(db.getSession(), MeasureQuery.builder()
+      .setComponentUuid("C2")
+      .setMetricId(149)
+      .build()).get();
+    assertThat(selected.getAnalysisUuid()).isEqualTo(LAST_ANALYSIS_UUID);
+    assertThat(selected.getValue()).isEqualTo(149d);
+    assertThat(selected.getData()).isEqualTo("data149");
+    assertThat(selected.getVariation(1)).isEqualTo(1.0d);
+    assertThat(selected.getAlertStatus()).isEqualTo("alert");
+  }
+
   @Test
   public void selectByQuery() {
     insertAnalysis(LAST_ANALYSIS_UUID, true);
@@ -233,6 +267,55 @@ public class MeasureDaoTest {
     verifyMeasuresWithHandler(MeasureQuery.builder().setComponentUuid("C1").setAnalysisUuid(LAST_ANALYSIS_UUID).setPersonId(A_PERSON_ID), "M4");
   }
 
+  @Test
+  public void selectLastMeasuresOfTree() {
+    insertAnalysis(LAST_ANALYSIS_UUID, "P1", true);
+    insertAnalysis(OTHER_ANALYSIS_UUID, "P1", false);
+    insertAnalysis(PREVIOUS_ANALYSIS_UUID, "P2", true);
+    insertMeasure("M1", OTHER_ANALYSIS_UUID, "P1", NCLOC_METRIC_ID);
+    insertMeasure("M2", LAST_ANALYSIS_UUID, "P1", NCLOC_METRIC_ID);
+    insertMeasure("M3", LAST_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID);
+    insertMeasure("M4", LAST_ANALYSIS_UUID, "C1", COVERAGE_METRIC_ID);
+    insertMeasureOnPerson("M5", LAST_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID, A_PERSON_ID);
+    insertMeasure("M6", PREVIOUS_ANALYSIS_UUID, "P2", NCLOC_METRIC_ID);
+    db.commit();
+
+    List<MeasureDto> measures = new ArrayList<>();
+    underTest.selectLastMeasuresOfTree(db.getSession(), "P1", resultContext -> measures.add((MeasureDto) resultContext.getResultObject()));
+    assertThat(measures).extracting(MeasureDto::getData).containsOnly("M2", "M3", "M4");
+    assertThat(measures).extracting(MeasureDto::getComponentUuid).containsExactly("C1", "C1", "P1");
+
+    measures.clear();
+    underTest.selectLastMeasuresOfTree(db.getSession(), "MISSING_COMPONENT", resultContext -> measures.add((MeasureDto) resultContext.getResultObject()));
+    assertThat(measures).isEmpty();
+  }
+
+  @Test
+  public void selectPastMeasuresOfAnalysis() {
+    insertAnalysis(LAST_ANALYSIS_UUID, true);
+    insertAnalysis(OTHER_ANALYSIS_UUID, false);
+    insertMeasure("M1", OTHER_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID);
+    insertMeasure("M2", LAST_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID);
+    insertMeasure("M3", LAST_ANALYSIS_UUID, "C2", COVERAGE_METRIC_ID);
+    insertMeasureOnPerson("M4", LAST_ANALYSIS_UUID, "C1", COVERAGE_METRIC_ID, A_PERSON_ID);
+    db.getDbClient().measureDao().insert(db.getSession(), MeasureTesting.newMeasure()
+      .setAnalysisUuid(LAST_ANALYSIS_UUID)
+      .setComponentUuid("C2")
+      .setMetricId(COMPLEXITY_METRIC_ID)
+      .setValue(null));
+    db.commit();
+
+    List<PastMeasureDto> measures = new ArrayList<>();
+    underTest.selectPastMeasuresOfAnalysis(db.getSession(), OTHER_ANALYSIS_UUID, resultContext -> measures.add((PastMeasureDto) resultContext.getResultObject()));
+    assertThat(measures).extracting(PastMeasureDto::getComponentUuid, PastMeasureDto::getMetricId).containsOnly(tuple("C1", NCLOC_METRIC_ID));
+
+    measures.clear();
+    underTest.selectPastMeasuresOfAnalysis(db.getSession(), LAST_ANALYSIS_UUID, resultContext -> measures.add((PastMeasureDto) resultContext.getResultObject()));
+    assertThat(measures).extracting(PastMeasureDto::getComponentUuid, PastMeasureDto::getMetricId)
+      .containsOnly(tuple("C1", NCLOC_METRIC_ID), tuple("C2", COVERAGE_METRIC_ID));
+    assertThat(measures).extracting(PastMeasureDto::hasValue).containsOnly(true);
+  }
+
   @Test
   public void selectSingle() {
     insertAnalysis(LAST_ANALYSIS_UUID, true);
@@ -368,6 +451,11 @@ public class MeasureDaoTest {
       .setLast(isLast));
   }
 
-  // TODO test selectPastMeasures
+  private void insertAnalysis(String uuid, String componentUuid, boolean isLast) {
+    db.getDbClient().snapshotDao().insert(db.getSession(), SnapshotTesting.newSnapshot()
+      .setUuid(uuid)
+      .setComponentUuid(componentUuid)
+      .setLast(isLast));
+  }
 
 }
@@ -113,6 +113,42 @@ public class FileSourceDaoTest {
       "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
   }
 
+  @Test
+  public void insert_and_update_inputs_hash() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    underTest.insert(new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setBinaryData("FILE2_BINARY_DATA".getBytes())
+      .setDataHash("FILE2_DATA_HASH")
+      .setSrcHash("FILE2_HASH")
+      .setInputsHash("FILE2_INPUTS_HASH")
+      .setDataType(Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L));
+
+    FileSourceDto dto = underTest.selectSourceByFileUuid(dbTester.getSession(), "FILE2_UUID");
+    assertThat(dto.getInputsHash()).isEqualTo("FILE2_INPUTS_HASH");
+
+    underTest.update(dto.setInputsHash("NEW_INPUTS_HASH").setUpdatedAt(1500000000002L));
+
+    assertThat(underTest.selectSourceByFileUuid(dbTester.getSession(), "FILE2_UUID").getInputsHash()).isEqualTo("NEW_INPUTS_HASH");
+  }
+
+  @Test
+  public void update_only_inputs_hash() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    underTest.updateInputsHash(dbTester.getSession(), 101L, "NEW_INPUTS_HASH");
+    dbTester.getSession().commit();
+
+    FileSourceDto dto = underTest.selectSourceByFileUuid(dbTester.getSession(), "FILE1_UUID");
+    assertThat(dto.getInputsHash()).isEqualTo("NEW_INPUTS_HASH");
+    assertThat(dto.getDataHash()).isEqualTo("hash");
+    assertThat(dto.getUpdatedAt()).isEqualTo(1500000000000L);
+  }
+
   @Test
   public void selectLineHashes_does_not_fail_when_lineshashes_is_null() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -19,8 +19,10 @@
  */
 package org.sonar.db.source;
 
+import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 import java.util.List;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -80,6 +82,77 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void encode_and_decode_source_data_by_blocks_of_lines() {
+    DbFileSources.Data data = createData(1000);
+
+    byte[] bytes = FileSourceDto.encodeSourceData(data);
+
+    assertThat(SourceLineBlocks.isBlockEncoded(bytes)).isTrue();
+    assertThat(new FileSourceDto().decodeSourceData(bytes)).isEqualTo(data);
+    assertThat(FileSourceDto.encodeSourceData(DbFileSources.Data.getDefaultInstance())).isNotEmpty();
+    assertThat(new FileSourceDto().decodeSourceData(FileSourceDto.encodeSourceData(DbFileSources.Data.getDefaultInstance())).getLinesCount()).isZero();
+  }
+
+  @Test
+  public void getSourceLines_returns_range_of_lines() {
+    DbFileSources.Data data = createData(1000);
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+
+    assertThat(underTest.getSourceLines(1, 3)).extracting(DbFileSources.Line::getLine).containsExactly(1, 2, 3);
+    assertThat(underTest.getSourceLines(250, 260)).extracting(DbFileSources.Line::getLine).containsExactly(250, 251, 252, 253, 254, 255, 256, 257, 258, 259, 260);
+    assertThat(underTest.getSourceLines(999, 2000)).extracting(DbFileSources.Line::getLine).containsExactly(999, 1000);
+    assertThat(underTest.getSourceLines(1001, 2000)).isEmpty();
+    assertThat(underTest.getSourceLines(1, 2000)).hasSize(1000);
+  }
+
+  @Test
+  public void decode_only_blocks_containing_range_of_lines() throws Exception {
+    // blocks of lines [1, 256], [257, 512], [513, 768], [769, 1000]
+    byte[] bytes = SourceLineBlocks.encode(createData(1000));
+
+    DbFileSources.Data data = SourceLineBlocks.decode(bytes, 257, 260);
+    assertThat(data.getLinesCount()).isEqualTo(256);
+    assertThat(data.getLines(0).getLine()).isEqualTo(257);
+    assertThat(data.getLines(255).getLine()).isEqualTo(512);
+
+    data = SourceLineBlocks.decode(bytes, 256, 257);
+    assertThat(data.getLinesCount()).isEqualTo(512);
+    assertThat(data.getLines(0).getLine()).isEqualTo(1);
+
+    data = SourceLineBlocks.decode(bytes, 512, 513);
+    assertThat(data.getLines(0).getLine()).isEqualTo(257);
+    assertThat(data.getLines(data.getLinesCount() - 1).getLine()).isEqualTo(768);
+
+    data = SourceLineBlocks.decode(bytes, 900, 2000);
+    assertThat(data.getLinesCount()).isEqualTo(232);
+    assertThat(data.getLines(0).getLine()).isEqualTo(769);
+  }
+
+  @Test
+  public void getSourceLines_reads_data_of_previous_versions() throws Exception {
+    DbFileSources.Data data = createData(300);
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput)) {
+      data.writeTo(compressedOutput);
+    }
+    FileSourceDto underTest = new FileSourceDto().setBinaryData(byteOutput.toByteArray());
+
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+    assertThat(underTest.getSourceLines(256, 258)).extracting(DbFileSources.Line::getLine).containsExactly(256, 257, 258);
+  }
+
+  private static DbFileSources.Data createData(int lines) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= lines; i++) {
+      dataBuilder.addLinesBuilder()
+        .setLine(i)
+        .setSource("line " + i)
+        .setScmAuthor("author");
+    }
+    return dataBuilder.build();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
@@ -0,0 +1,72 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.version.v62;
+
+import java.sql.SQLException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PopulatePriorityOfCeQueueTest {
+
+  private static final String TABLE_CE_QUEUE = "ce_queue";
+
+  @Rule
+  public DbTester dbTester = DbTester.createForSchema(System2.INSTANCE, PopulatePriorityOfCeQueueTest.class, "ce_queue.sql");
+
+  private PopulatePriorityOfCeQueue underTest = new PopulatePriorityOfCeQueue(dbTester.database());
+
+  @Test
+  public void migration_has_no_effect_on_empty_table() throws SQLException {
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable(TABLE_CE_QUEUE)).isEqualTo(0);
+  }
+
+  @Test
+  public void migration_populates_missing_priorities() throws SQLException {
+    insertTask("u1", null);
+    insertTask("u2", null);
+    insertTask("u3", 10);
+
+    underTest.execute();
+
+    assertThat(dbTester.countSql("select count(1) from ce_queue where priority=0")).isEqualTo(2);
+    assertThat(dbTester.countSql("select count(1) from ce_queue where priority=10")).isEqualTo(1);
+  }
+
+  @Test
+  public void migration_is_reentrant() throws SQLException {
+    insertTask("u1", null);
+
+    underTest.execute();
+    underTest.execute();
+
+    assertThat(dbTester.countSql("select count(1) from ce_queue where priority=0")).isEqualTo(1);
+  }
+
+  private void insertTask(String uuid, Integer priority) {
+    dbTester.executeInsert(TABLE_CE_QUEUE, "uuid", uuid, "task_type", "REPORT", "status", "PENDING", "priority", priority,
+      "created_at", 1_500_000_000L, "updated_at", 1_500_000_000L);
+  }
+}
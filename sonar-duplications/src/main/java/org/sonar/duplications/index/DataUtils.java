@@ -62,6 +62,15 @@ public final class DataUtils {
     quickSort(data, 0, data.size() - 1);
   }
 
+  /**
+   * Sorts elements from position {@code from} (inclusive) to position {@code to} (exclusive).
+   */
+  public static void sort(Sortable data, int from, int to) {
+    if (to - from > 1) {
+      quickSort(data, from, to - 1);
+    }
+  }
+
   private static void bubbleSort(Sortable data, int left, int right) {
     for (int i = right; i > left; i--) {
       for (int j = left; j < i; j++) {
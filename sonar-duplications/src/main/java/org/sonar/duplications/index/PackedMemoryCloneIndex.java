@@ -44,6 +44,10 @@ import javax.annotation.Nullable;
  * <p>
  * Note that this implementation currently does not support deletion, however it's possible to implement.
  * </p>
+ * <p>
+ * Once sorted (see {@link #iterator()} and {@link #noResources()}), concurrent invocations of {@link #getBySequenceHash(ByteArray)}
+ * are safe as long as no block is inserted anymore.
+ * </p>
  */
 public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
@@ -70,8 +74,6 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
   private int[] resourceIdsIndex;
 
-  private final Block.Builder blockBuilder = Block.builder();
-
   public PackedMemoryCloneIndex() {
     this(8, DEFAULT_INITIAL_CAPACITY);
   }
@@ -138,7 +140,7 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     int startUnit = blockData[offset++];
     int endUnit = blockData[offset];
 
-    return blockBuilder
+    return Block.builder()
       .setResourceId(resourceId)
       .setBlockHash(blockHash)
       .setIndexInFile(indexInFile)
@@ -217,20 +219,26 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
     ensureSorted();
 
-    // prepare hash for binary search
     int[] hash = sequenceHash.toIntArray();
     if (hash.length != hashInts) {
       throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
     }
-    int offset = size * blockInts;
-    for (int i = 0; i < hashInts; i++) {
-      blockData[offset++] = hash[i];
-    }
 
-    int index = DataUtils.binarySearch(byBlockHash);
+    // binary search does not use the extra slot at position "size", so that concurrent queries do not interfere
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >> 1;
+      if (compareToHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
 
     List<Block> result = new ArrayList<>();
-    while (index < size && !isLessByHash(size, index)) {
+    int index = lower;
+    while (index < size && compareToHash(index, hash) == 0) {
       // extract block (note that there is no need to extract hash)
       String resourceId = resourceIds[index];
       result.add(createBlock(index, resourceId, sequenceHash));
@@ -239,6 +247,19 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     return result;
   }
 
+  private int compareToHash(int index, int[] hash) {
+    int offset = index * blockInts;
+    for (int k = 0; k < hashInts; k++, offset++) {
+      if (blockData[offset] < hash[k]) {
+        return -1;
+      }
+      if (blockData[offset] > hash[k]) {
+        return 1;
+      }
+    }
+    return 0;
+  }
+
   /**
    * {@inheritDoc}
    * <p>
@@ -0,0 +1,426 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+
+/**
+ * Provides an index optimized for projects with millions of blocks.
+ * <p>
+ * As in {@link PackedMemoryCloneIndex}, blocks are stored in flat arrays. Once all blocks are inserted, the index is frozen
+ * (see {@link #freeze()}, implicitly called by the first query):
+ * <ul>
+ * <li>blocks are partitioned by the first bits of their hash and sorted by hash within each partition, so that
+ * {@link #getBySequenceHash(ByteArray)} is a binary search in a single small partition</li>
+ * <li>a directory of the range of blocks of each resource is built, so that {@link #getByResourceId(String)} does not
+ * search for blocks</li>
+ * </ul>
+ * Partitioning and the directory are computed in linear time. Only partitions need to be sorted.
+ * </p>
+ * <p>
+ * Once frozen, the index is immutable: queries can be executed concurrently, but blocks can not be inserted anymore.
+ * Insertions are not thread-safe.
+ * </p>
+ */
+public class PartitionedMemoryCloneIndex extends AbstractCloneIndex {
+
+  private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+  private static final int BLOCK_INTS = 5;
+
+  /**
+   * Targeted average number of blocks per partition.
+   */
+  private static final int BLOCKS_PER_PARTITION = 64;
+
+  private static final int MAX_PARTITION_BITS = 20;
+
+  private final int hashInts;
+
+  private final int blockInts;
+
+  private final Map<String, Integer> resourceIndexes = new HashMap<>();
+
+  private final List<String> resourceIds = new ArrayList<>();
+
+  /**
+   * Current number of blocks in index.
+   */
+  private int size;
+
+  /**
+   * Hash, index in file, first line, last line, start unit and end unit of each block. Blocks are sorted by
+   * partition and by hash once the index is frozen.
+   */
+  private int[] blockData;
+
+  /**
+   * Index in {@link #resourceIds} of the resource of each block.
+   */
+  private int[] blockResources;
+
+  private volatile boolean frozen;
+
+  private int partitionBits;
+
+  /**
+   * Blocks of partition p are at positions {@code partitionStarts[p]} (inclusive) to {@code partitionStarts[p + 1]} (exclusive).
+   */
+  private int[] partitionStarts;
+
+  /**
+   * Positions of the blocks of resource r are {@code blocksByResource[resourceStarts[r]]} to
+   * {@code blocksByResource[resourceStarts[r + 1] - 1]}.
+   */
+  private int[] resourceStarts;
+
+  private int[] blocksByResource;
+
+  public PartitionedMemoryCloneIndex() {
+    this(8, DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param hashBytes size of hash in bytes
+   * @param initialCapacity the initial capacity
+   */
+  public PartitionedMemoryCloneIndex(int hashBytes, int initialCapacity) {
+    this.hashInts = hashBytes / 4;
+    this.blockInts = hashInts + BLOCK_INTS;
+    this.blockData = new int[initialCapacity * blockInts];
+    this.blockResources = new int[initialCapacity];
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException if index is frozen
+   */
+  @Override
+  public void insert(Block block) {
+    if (frozen) {
+      throw new IllegalStateException("Index is frozen, blocks can not be inserted anymore");
+    }
+    int[] hash = block.getBlockHash().toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+    ensureCapacity();
+
+    Integer resourceIndex = resourceIndexes.get(block.getResourceId());
+    if (resourceIndex == null) {
+      resourceIndex = resourceIds.size();
+      resourceIndexes.put(block.getResourceId(), resourceIndex);
+      resourceIds.add(block.getResourceId());
+    }
+    blockResources[size] = resourceIndex;
+
+    int offset = size * blockInts;
+    for (int i = 0; i < hashInts; i++) {
+      blockData[offset++] = hash[i];
+    }
+    blockData[offset++] = block.getIndexInFile();
+    blockData[offset++] = block.getStartLine();
+    blockData[offset++] = block.getEndLine();
+    blockData[offset++] = block.getStartUnit();
+    blockData[offset] = block.getEndUnit();
+
+    size++;
+  }
+
+  private void ensureCapacity() {
+    if (size < blockResources.length) {
+      return;
+    }
+    int newCapacity = (blockResources.length * 3) / 2 + 1;
+    blockResources = Arrays.copyOf(blockResources, newCapacity);
+    blockData = Arrays.copyOf(blockData, newCapacity * blockInts);
+  }
+
+  /**
+   * Partitions and sorts blocks, and builds the directory of resources. Has no effect if index is already frozen.
+   */
+  public synchronized void freeze() {
+    if (frozen) {
+      return;
+    }
+    partitionBlocks();
+    for (int p = 0; p < partitionStarts.length - 1; p++) {
+      DataUtils.sort(byBlockHash, partitionStarts[p], partitionStarts[p + 1]);
+    }
+    buildResourceDirectory();
+    frozen = true;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  private void ensureFrozen() {
+    if (!frozen) {
+      freeze();
+    }
+  }
+
+  /**
+   * Counting sort of blocks by partition
+   */
+  private void partitionBlocks() {
+    partitionBits = 0;
+    while (partitionBits < MAX_PARTITION_BITS && (size >> partitionBits) > BLOCKS_PER_PARTITION) {
+      partitionBits++;
+    }
+    int partitions = 1 << partitionBits;
+    partitionStarts = new int[partitions + 1];
+    for (int i = 0; i < size; i++) {
+      partitionStarts[partitionOf(blockData[i * blockInts]) + 1]++;
+    }
+    for (int p = 0; p < partitions; p++) {
+      partitionStarts[p + 1] += partitionStarts[p];
+    }
+
+    int[] nextPositions = Arrays.copyOf(partitionStarts, partitions);
+    int[] partitionedData = new int[size * blockInts];
+    int[] partitionedResources = new int[size];
+    for (int i = 0; i < size; i++) {
+      int position = nextPositions[partitionOf(blockData[i * blockInts])]++;
+      System.arraycopy(blockData, i * blockInts, partitionedData, position * blockInts, blockInts);
+      partitionedResources[position] = blockResources[i];
+    }
+    blockData = partitionedData;
+    blockResources = partitionedResources;
+  }
+
+  /**
+   * Counting sort of block positions by resource
+   */
+  private void buildResourceDirectory() {
+    int resources = resourceIds.size();
+    resourceStarts = new int[resources + 1];
+    for (int i = 0; i < size; i++) {
+      resourceStarts[blockResources[i] + 1]++;
+    }
+    for (int r = 0; r < resources; r++) {
+      resourceStarts[r + 1] += resourceStarts[r];
+    }
+    int[] nextPositions = Arrays.copyOf(resourceStarts, resources);
+    blocksByResource = new int[size];
+    for (int i = 0; i < size; i++) {
+      blocksByResource[nextPositions[blockResources[i]]++] = i;
+    }
+  }
+
+  private int partitionOf(int firstHashInt) {
+    return partitionBits == 0 ? 0 : (firstHashInt >>> (Integer.SIZE - partitionBits));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation does not guarantee that blocks would be sorted by index.</strong>
+   * </p>
+   */
+  @Override
+  public Collection<Block> getByResourceId(String resourceId) {
+    ensureFrozen();
+    Integer resourceIndex = resourceIndexes.get(resourceId);
+    if (resourceIndex == null) {
+      return Collections.emptyList();
+    }
+    return getBlocksOfResource(resourceIndex);
+  }
+
+  private List<Block> getBlocksOfResource(int resourceIndex) {
+    String resourceId = resourceIds.get(resourceIndex);
+    List<Block> result = new ArrayList<>(resourceStarts[resourceIndex + 1] - resourceStarts[resourceIndex]);
+    for (int i = resourceStarts[resourceIndex]; i < resourceStarts[resourceIndex + 1]; i++) {
+      result.add(createBlock(blocksByResource[i], resourceId, null));
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    ensureFrozen();
+
+    int[] hash = sequenceHash.toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+
+    int partition = partitionOf(hash[0]);
+    int lower = partitionStarts[partition];
+    int upper = partitionStarts[partition + 1];
+    int end = upper;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (compareToHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+
+    List<Block> result = new ArrayList<>();
+    for (int index = lower; index < end && compareToHash(index, hash) == 0; index++) {
+      result.add(createBlock(index, resourceIds.get(blockResources[index]), sequenceHash));
+    }
+    return result;
+  }
+
+  private int compareToHash(int index, int[] hash) {
+    int offset = index * blockInts;
+    for (int k = 0; k < hashInts; k++, offset++) {
+      if (blockData[offset] < hash[k]) {
+        return -1;
+      }
+      if (blockData[offset] > hash[k]) {
+        return 1;
+      }
+    }
+    return 0;
+  }
+
+  private Block createBlock(int index, String resourceId, @Nullable ByteArray byteHash) {
+    int offset = index * blockInts;
+    ByteArray blockHash;
+
+    if (byteHash == null) {
+      int[] hash = new int[hashInts];
+      for (int j = 0; j < hashInts; j++) {
+        hash[j] = blockData[offset++];
+      }
+      blockHash = new ByteArray(hash);
+    } else {
+      blockHash = byteHash;
+      offset += hashInts;
+    }
+
+    int indexInFile = blockData[offset++];
+    int firstLineNumber = blockData[offset++];
+    int lastLineNumber = blockData[offset++];
+    int startUnit = blockData[offset++];
+    int endUnit = blockData[offset];
+
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(blockHash)
+      .setIndexInFile(indexInFile)
+      .setLines(firstLineNumber, lastLineNumber)
+      .setUnit(startUnit, endUnit)
+      .build();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Resources are iterated in the order of their first insertion.
+   * </p>
+   */
+  @Override
+  public Iterator<ResourceBlocks> iterator() {
+    ensureFrozen();
+    return new ResourceIterator();
+  }
+
+  private class ResourceIterator implements Iterator<ResourceBlocks> {
+    private int resourceIndex = 0;
+
+    @Override
+    public boolean hasNext() {
+      return resourceIndex < resourceIds.size();
+    }
+
+    @Override
+    public ResourceBlocks next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ResourceBlocks resourceBlocks = new ResourceBlocks(resourceIds.get(resourceIndex), getBlocksOfResource(resourceIndex));
+      resourceIndex++;
+      return resourceBlocks;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Computation is O(1)
+   */
+  @Override
+  public int noResources() {
+    return resourceIds.size();
+  }
+
+  private final DataUtils.Sortable byBlockHash = new DataUtils.Sortable() {
+    @Override
+    public void swap(int i, int j) {
+      int tmp = blockResources[i];
+      blockResources[i] = blockResources[j];
+      blockResources[j] = tmp;
+
+      int i2 = i * blockInts;
+      int j2 = j * blockInts;
+      for (int k = 0; k < blockInts; k++, i2++, j2++) {
+        int x = blockData[i2];
+        blockData[i2] = blockData[j2];
+        blockData[j2] = x;
+      }
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      int i2 = i * blockInts;
+      int j2 = j * blockInts;
+      for (int k = 0; k < hashInts; k++, i2++, j2++) {
+        if (blockData[i2] < blockData[j2]) {
+          return true;
+        }
+        if (blockData[i2] > blockData[j2]) {
+          return false;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  };
+}
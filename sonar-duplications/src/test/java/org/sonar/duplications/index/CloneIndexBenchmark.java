@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+
+/**
+ * Compares implementations of {@link CloneIndex} on the queries of the detection of duplications: blocks of a file,
+ * then blocks with the same hash as each of them. Blocks are inserted file by file, as done by the scanner.
+ * <p>
+ * Run with {@code main()} from the IDE, or with {@code java -cp <test classpath> org.sonar.duplications.index.CloneIndexBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CloneIndexBenchmark {
+
+  private static final int BLOCKS_PER_FILE = 200;
+  private static final int QUERIED_FILES = 100;
+
+  @Param({"memory", "packed", "partitioned"})
+  public String implementation;
+
+  @Param({"100000", "1000000"})
+  public int blocks;
+
+  private CloneIndex index;
+  private Block[] blockArray;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    blockArray = new Block[blocks];
+    for (int i = 0; i < blocks; i++) {
+      // one block out of ten is duplicated in another file
+      long hash = random.nextInt(10) == 0 ? random.nextInt(blocks / 10) : random.nextLong();
+      blockArray[i] = Block.builder()
+        .setResourceId("file" + (i / BLOCKS_PER_FILE))
+        .setBlockHash(new ByteArray(hash))
+        .setIndexInFile(i % BLOCKS_PER_FILE)
+        .setLines(i % BLOCKS_PER_FILE, i % BLOCKS_PER_FILE + 10)
+        .build();
+    }
+    index = createAndFill();
+  }
+
+  private CloneIndex createAndFill() {
+    CloneIndex result;
+    switch (implementation) {
+      case "memory":
+        result = new MemoryCloneIndex();
+        break;
+      case "packed":
+        result = new PackedMemoryCloneIndex();
+        break;
+      default:
+        result = new PartitionedMemoryCloneIndex();
+    }
+    for (Block block : blockArray) {
+      result.insert(block);
+    }
+    return result;
+  }
+
+  /**
+   * Insertion of all blocks, followed by the first query which sorts the index, if needed
+   */
+  @Benchmark
+  public int insert() {
+    return createAndFill().getByResourceId("file0").size();
+  }
+
+  @Benchmark
+  public int detect() {
+    int found = 0;
+    int files = blocks / BLOCKS_PER_FILE;
+    for (int f = 0; f < QUERIED_FILES; f++) {
+      for (Block block : index.getByResourceId("file" + (f * files / QUERIED_FILES))) {
+        found += index.getBySequenceHash(block.getBlockHash()).size();
+      }
+    }
+    return found;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CloneIndexBenchmark.class.getSimpleName()).build()).run();
+  }
+}
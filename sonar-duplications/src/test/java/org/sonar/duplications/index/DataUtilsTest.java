@@ -42,6 +42,17 @@ public class DataUtilsTest {
     assertThat(actual, equalTo(expected));
   }
 
+  @Test
+  public void testSortRange() {
+    int[] actual = new int[] {9, 8, 7, 6, 5, 4, 3, 2, 1, 0};
+    DataUtils.sort(new SimpleSortable(actual, actual.length), 2, 9);
+    assertThat(actual, equalTo(new int[] {9, 8, 1, 2, 3, 4, 5, 6, 7, 0}));
+
+    DataUtils.sort(new SimpleSortable(actual, actual.length), 0, 1);
+    DataUtils.sort(new SimpleSortable(actual, actual.length), 5, 5);
+    assertThat(actual, equalTo(new int[] {9, 8, 1, 2, 3, 4, 5, 6, 7, 0}));
+  }
+
   @Test
   public void testSearch() {
     int[] a = new int[] { 1, 2, 4, 4, 4, 5, 0 };
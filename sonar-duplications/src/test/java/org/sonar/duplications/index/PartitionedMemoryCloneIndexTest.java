@@ -0,0 +1,214 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionedMemoryCloneIndexTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private PartitionedMemoryCloneIndex underTest = new PartitionedMemoryCloneIndex();
+
+  @Test
+  public void query_by_hash_and_by_resource() {
+    underTest.insert(newBlock("a", 1));
+    underTest.insert(newBlock("a", 2));
+    underTest.insert(newBlock("b", 1));
+    underTest.insert(newBlock("c", 1));
+    underTest.insert(newBlock("d", 1));
+    underTest.insert(newBlock("e", 1));
+    underTest.insert(newBlock("e", 2));
+    underTest.insert(newBlock("e", 3));
+
+    assertThat(underTest.noResources()).isEqualTo(5);
+    assertThat(underTest.getBySequenceHash(new ByteArray(1L))).hasSize(5);
+    assertThat(underTest.getBySequenceHash(new ByteArray(2L))).hasSize(2);
+    assertThat(underTest.getBySequenceHash(new ByteArray(3L))).hasSize(1);
+    assertThat(underTest.getBySequenceHash(new ByteArray(4L))).isEmpty();
+    assertThat(underTest.getByResourceId("a")).hasSize(2);
+    assertThat(underTest.getByResourceId("b")).hasSize(1);
+    assertThat(underTest.getByResourceId("e")).hasSize(3);
+    assertThat(underTest.getByResourceId("does not exist")).isEmpty();
+  }
+
+  @Test
+  public void construct_blocks_with_normalized_hash() {
+    underTest.insert(newBlock("a", 1));
+    underTest.insert(newBlock("b", 1));
+    underTest.insert(newBlock("c", 1));
+    ByteArray requestedHash = new ByteArray(1L);
+
+    Collection<Block> blocks = underTest.getBySequenceHash(requestedHash);
+
+    assertThat(blocks).hasSize(3);
+    for (Block block : blocks) {
+      assertThat(block.getBlockHash()).isSameAs(requestedHash);
+    }
+  }
+
+  @Test
+  public void iterate_resources_in_order_of_insertion() {
+    underTest.insert(newBlock("a", 1));
+    underTest.insert(newBlock("c", 1));
+    underTest.insert(newBlock("b", 1));
+    underTest.insert(newBlock("c", 2));
+    underTest.insert(newBlock("a", 2));
+
+    List<ResourceBlocks> resourcesBlocks = new ArrayList<>();
+    Iterator<ResourceBlocks> it = underTest.iterator();
+    while (it.hasNext()) {
+      resourcesBlocks.add(it.next());
+    }
+
+    assertThat(resourcesBlocks).extracting(ResourceBlocks::resourceId).containsExactly("a", "c", "b");
+    assertThat(resourcesBlocks.get(0).blocks()).hasSize(2);
+    assertThat(resourcesBlocks.get(1).blocks()).hasSize(2);
+    assertThat(resourcesBlocks.get(2).blocks()).hasSize(1);
+  }
+
+  @Test
+  public void return_same_blocks_as_MemoryCloneIndex() {
+    CloneIndex reference = new MemoryCloneIndex();
+    underTest = new PartitionedMemoryCloneIndex(8, 1);
+    Random random = new Random(42);
+    for (int i = 0; i < 50_000; i++) {
+      // many distinct hashes, so that blocks are spread over several partitions, and a few hashes shared by many blocks
+      long hash = random.nextInt(10) == 0 ? random.nextInt(5) : random.nextLong();
+      Block block = newBlock("resource" + random.nextInt(500), hash, i);
+      reference.insert(block);
+      underTest.insert(block);
+    }
+
+    assertThat(underTest.noResources()).isEqualTo(reference.noResources());
+    Set<ByteArray> hashes = new HashSet<>();
+    for (int r = 0; r < 500; r++) {
+      String resourceId = "resource" + r;
+      assertSameBlocks(underTest.getByResourceId(resourceId), reference.getByResourceId(resourceId));
+      for (Block block : reference.getByResourceId(resourceId)) {
+        hashes.add(block.getBlockHash());
+      }
+    }
+    for (ByteArray hash : hashes) {
+      assertSameBlocks(underTest.getBySequenceHash(hash), reference.getBySequenceHash(hash));
+    }
+  }
+
+  private static void assertSameBlocks(Collection<Block> blocks, Collection<Block> expected) {
+    assertThat(blocks).hasSameSizeAs(expected);
+    assertThat(new HashSet<>(blocks)).isEqualTo(new HashSet<>(expected));
+  }
+
+  @Test
+  public void concurrent_queries_once_frozen() throws Exception {
+    for (int i = 0; i < 10_000; i++) {
+      underTest.insert(newBlock("resource" + (i % 100), i % 1_000, i));
+    }
+    underTest.freeze();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          int found = 0;
+          for (int hash = 0; hash < 1_000; hash++) {
+            found += underTest.getBySequenceHash(new ByteArray((long) hash)).size();
+          }
+          return found;
+        }));
+      }
+      for (Future<Integer> future : futures) {
+        assertThat(future.get()).isEqualTo(10_000);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void fail_to_insert_once_frozen() {
+    underTest.insert(newBlock("a", 1));
+    underTest.getByResourceId("a");
+    assertThat(underTest.isFrozen()).isTrue();
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Index is frozen, blocks can not be inserted anymore");
+
+    underTest.insert(newBlock("a", 2));
+  }
+
+  @Test
+  public void query_empty_index() {
+    assertThat(underTest.getBySequenceHash(new ByteArray(1L))).isEmpty();
+    assertThat(underTest.getByResourceId("a")).isEmpty();
+    assertThat(underTest.iterator().hasNext()).isFalse();
+    assertThat(underTest.noResources()).isZero();
+  }
+
+  @Test
+  public void fail_to_insert_hash_of_incorrect_size() {
+    underTest = new PartitionedMemoryCloneIndex(4, 1);
+
+    expectedException.expect(IllegalArgumentException.class);
+
+    underTest.insert(newBlock("a", 1));
+  }
+
+  @Test
+  public void fail_to_find_hash_of_incorrect_size() {
+    underTest = new PartitionedMemoryCloneIndex(4, 1);
+
+    expectedException.expect(IllegalArgumentException.class);
+
+    underTest.getBySequenceHash(new ByteArray(1L));
+  }
+
+  private static Block newBlock(String resourceId, long hash) {
+    return newBlock(resourceId, hash, 1);
+  }
+
+  private static Block newBlock(String resourceId, long hash, int indexInFile) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(indexInFile)
+      .setLines(indexInFile, indexInFile + 1)
+      .build();
+  }
+}
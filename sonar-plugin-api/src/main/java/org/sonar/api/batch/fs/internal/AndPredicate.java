@@ -27,9 +27,14 @@ import org.sonar.api.batch.fs.InputFile;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
 
 /**
+ * Predicates are applied by priority. When the first ones are indexed by {@link DefaultFileSystem.Cache},
+ * files are read from the intersection of indexes, then filtered by the other predicates.
  * @since 4.2
  */
 class AndPredicate extends AbstractFilePredicate {
@@ -83,6 +88,12 @@ class AndPredicate extends AbstractFilePredicate {
     if (predicates.isEmpty()) {
       return index.inputFiles();
     }
+    if (index instanceof DefaultFileSystem.Cache) {
+      List<InputFile> result = getFromIndexes((DefaultFileSystem.Cache) index);
+      if (result != null) {
+        return result;
+      }
+    }
     // Optimization, use get on first predicate then filter with next predicates
     Iterable<InputFile> result = predicates.get(0).get(index);
     for (int i = 1; i < predicates.size(); i++) {
@@ -91,6 +102,63 @@ class AndPredicate extends AbstractFilePredicate {
     return result;
   }
 
+  /**
+   * Intersection of the indexes of the first predicates, starting from the smallest one, filtered by the
+   * other predicates. Files are sorted by relative path, like the indexes. Returns {@code null} if the first predicate
+   * is not indexed.
+   */
+  @CheckForNull
+  private List<InputFile> getFromIndexes(DefaultFileSystem.Cache cache) {
+    List<Set<InputFile>> indexes = new ArrayList<>();
+    List<OptimizedFilePredicate> filters = new ArrayList<>();
+    for (OptimizedFilePredicate predicate : predicates) {
+      Set<InputFile> files = predicate instanceof IndexedFilePredicate ? ((IndexedFilePredicate) predicate).indexedFiles(cache) : null;
+      if (files != null) {
+        indexes.add(files);
+      } else if (indexes.isEmpty()) {
+        // the predicate with the highest priority is not indexed, its own get() is used
+        return null;
+      } else {
+        filters.add(predicate);
+      }
+    }
+    Collections.sort(indexes, SetSizeComparator.INSTANCE);
+    List<InputFile> result = new ArrayList<>();
+    for (InputFile file : indexes.get(0)) {
+      if (isInAll(file, indexes) && applyAll(file, filters)) {
+        result.add(file);
+      }
+    }
+    return result;
+  }
+
+  private static boolean isInAll(InputFile file, List<Set<InputFile>> indexes) {
+    for (int i = 1; i < indexes.size(); i++) {
+      if (!indexes.get(i).contains(file)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean applyAll(InputFile file, List<OptimizedFilePredicate> filters) {
+    for (OptimizedFilePredicate filter : filters) {
+      if (!filter.apply(file)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private enum SetSizeComparator implements Comparator<Set<InputFile>> {
+    INSTANCE;
+
+    @Override
+    public int compare(Set<InputFile> o1, Set<InputFile> o2) {
+      return Integer.compare(o1.size(), o2.size());
+    }
+  }
+
   @VisibleForTesting
   Collection<OptimizedFilePredicate> predicates() {
     return predicates;
@@ -145,6 +145,15 @@ public class DefaultFilePredicates implements FilePredicates {
     return or(list);
   }
 
+  /**
+   * Predicate that gets the files which file name has the given extension. The parameter is case-insensitive and may
+   * start with a dot, so <code>java</code>, <code>.java</code> and <code>JAVA</code> all match Foo.java.
+   * Not part of {@link FilePredicates}.
+   */
+  public FilePredicate hasExtension(String s) {
+    return new FileExtensionPredicate(s);
+  }
+
   @Override
   public FilePredicate hasStatus(InputFile.Status status) {
     return new StatusPredicate(status);
@@ -28,9 +28,12 @@ import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import javax.annotation.CheckForNull;
@@ -248,7 +251,20 @@ public class DefaultFileSystem implements FileSystem {
     // nothing to do by default
   }
 
+  /**
+   * In addition to the indexes of implementations, files are indexed by language, type, status and extension
+   * when they are added, so that predicates on these attributes do not need to evaluate all files. Language, type
+   * and status of a {@link DefaultInputFile} changed after it is added are indexed again by the last cache it was
+   * added to. Indexed files are sorted by relative path, whatever the order in which they are added.
+   */
   public abstract static class Cache implements Index {
+    static final Comparator<InputFile> RELATIVE_PATH_ORDER = Comparator.comparing(InputFile::relativePath);
+
+    private final Map<String, Set<InputFile>> filesByLanguage = new HashMap<>();
+    private final Map<InputFile.Type, Set<InputFile>> filesByType = new EnumMap<>(InputFile.Type.class);
+    private final Map<InputFile.Status, Set<InputFile>> filesByStatus = new EnumMap<>(InputFile.Status.class);
+    private final Map<String, Set<InputFile>> filesByExtension = new HashMap<>();
+
     @Override
     public abstract Iterable<InputFile> inputFiles();
 
@@ -264,14 +280,97 @@ public class DefaultFileSystem implements FileSystem {
 
     protected abstract void doAdd(InputDir inputDir);
 
-    final void add(InputFile inputFile) {
+    final synchronized void add(InputFile inputFile) {
+      InputFile previous = inputFile(inputFile.relativePath());
+      if (previous != null) {
+        unindex(previous);
+        if (previous instanceof DefaultInputFile && ((DefaultInputFile) previous).cache() == this) {
+          ((DefaultInputFile) previous).setCache(null);
+        }
+      }
       doAdd(inputFile);
+      index(inputFile);
+      if (inputFile instanceof DefaultInputFile) {
+        ((DefaultInputFile) inputFile).setCache(this);
+      }
+    }
+
+    /**
+     * Indexes again a file whose language, type or status is changed by {@code update}
+     */
+    synchronized void reindex(InputFile inputFile, Runnable update) {
+      unindex(inputFile);
+      update.run();
+      index(inputFile);
     }
 
     public void add(InputDir inputDir) {
       doAdd(inputDir);
     }
 
+    /**
+     * Files of the given language, sorted by relative path. The returned set must not be modified.
+     */
+    Set<InputFile> inputFilesByLanguage(String language) {
+      return indexed(filesByLanguage, language);
+    }
+
+    Set<InputFile> inputFilesByType(InputFile.Type type) {
+      return indexed(filesByType, type);
+    }
+
+    Set<InputFile> inputFilesByStatus(InputFile.Status status) {
+      return indexed(filesByStatus, status);
+    }
+
+    /**
+     * @param extension lower-case extension, without dot
+     */
+    Set<InputFile> inputFilesByExtension(String extension) {
+      return indexed(filesByExtension, extension);
+    }
+
+    private void index(InputFile inputFile) {
+      index(filesByLanguage, inputFile.language(), inputFile);
+      index(filesByType, inputFile.type(), inputFile);
+      index(filesByStatus, inputFile.status(), inputFile);
+      index(filesByExtension, FileExtensionPredicate.getExtension(inputFile), inputFile);
+    }
+
+    private void unindex(InputFile inputFile) {
+      unindex(filesByLanguage, inputFile.language(), inputFile);
+      unindex(filesByType, inputFile.type(), inputFile);
+      unindex(filesByStatus, inputFile.status(), inputFile);
+      unindex(filesByExtension, FileExtensionPredicate.getExtension(inputFile), inputFile);
+    }
+
+    private static <K> void index(Map<K, Set<InputFile>> index, @Nullable K key, InputFile inputFile) {
+      if (key == null) {
+        return;
+      }
+      Set<InputFile> files = index.get(key);
+      if (files == null) {
+        files = new TreeSet<>(RELATIVE_PATH_ORDER);
+        index.put(key, files);
+      }
+      files.add(inputFile);
+    }
+
+    private static <K> void unindex(Map<K, Set<InputFile>> index, @Nullable K key, InputFile inputFile) {
+      if (key == null) {
+        return;
+      }
+      Set<InputFile> files = index.get(key);
+      if (files != null) {
+        files.remove(inputFile);
+      }
+    }
+
+    private static <K> Set<InputFile> indexed(Map<K, Set<InputFile>> index, K key) {
+      Set<InputFile> files = index.get(key);
+      return files == null ? Collections.<InputFile>emptySet() : files;
+    }
+
   }
 
   /**
@@ -50,6 +50,9 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private String hash;
   private int nonBlankLines;
   private int[] originalLineOffsets;
+  // cache which indexes this file by language, type and status
+  @CheckForNull
+  private DefaultFileSystem.Cache cache;
 
   public DefaultInputFile(String moduleKey, String relativePath) {
     this.moduleKey = moduleKey;
@@ -134,20 +137,37 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   }
 
   public DefaultInputFile setLanguage(@Nullable String language) {
-    this.language = language;
+    updateIndexedAttribute(() -> this.language = language);
     return this;
   }
 
   public DefaultInputFile setType(Type type) {
-    this.type = type;
+    updateIndexedAttribute(() -> this.type = type);
     return this;
   }
 
   public DefaultInputFile setStatus(Status status) {
-    this.status = status;
+    updateIndexedAttribute(() -> this.status = status);
     return this;
   }
 
+  private void updateIndexedAttribute(Runnable update) {
+    if (cache == null) {
+      update.run();
+    } else {
+      cache.reindex(this, update);
+    }
+  }
+
+  void setCache(@Nullable DefaultFileSystem.Cache cache) {
+    this.cache = cache;
+  }
+
+  @CheckForNull
+  DefaultFileSystem.Cache cache() {
+    return cache;
+  }
+
   public DefaultInputFile setLines(int lines) {
     this.lines = lines;
     return this;
@@ -0,0 +1,58 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * @since 6.2
+ */
+class FileExtensionPredicate extends IndexedFilePredicate {
+
+  private final String extension;
+
+  FileExtensionPredicate(String extension) {
+    this.extension = PathPattern.sanitizeExtension(extension);
+  }
+
+  @Override
+  public boolean apply(InputFile f) {
+    return extension.equals(getExtension(f));
+  }
+
+  @Override
+  Set<InputFile> indexedFiles(DefaultFileSystem.Cache cache) {
+    return cache.inputFilesByExtension(extension);
+  }
+
+  /**
+   * Lower-case extension of the file, without dot, or {@code null} if the file has no extension.
+   */
+  @CheckForNull
+  static String getExtension(InputFile f) {
+    String extension = PathPattern.sanitizeExtension(FilenameUtils.getExtension(f.relativePath()));
+    return StringUtils.isEmpty(extension) ? null : extension;
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.util.ArrayList;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.fs.FileSystem.Index;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Predicate on an attribute indexed by {@link DefaultFileSystem.Cache}. Files are read from the index
+ * when available, else all files are filtered.
+ * @since 6.2
+ */
+abstract class IndexedFilePredicate extends AbstractFilePredicate {
+
+  /**
+   * Files of the cache that match this predicate, sorted by relative path, or {@code null} if the indexes of the
+   * cache can't be used.
+   * The returned set must not be modified.
+   */
+  @CheckForNull
+  abstract Set<InputFile> indexedFiles(DefaultFileSystem.Cache cache);
+
+  @Override
+  public Iterable<InputFile> get(Index index) {
+    if (index instanceof DefaultFileSystem.Cache) {
+      Set<InputFile> files = indexedFiles((DefaultFileSystem.Cache) index);
+      if (files != null) {
+        // copy, so that files can be added to the file system while iterating the result
+        return new ArrayList<>(files);
+      }
+    }
+    return super.get(index);
+  }
+
+  @Override
+  public int priority() {
+    return USE_ATTRIBUTE_INDEX;
+  }
+
+}
@@ -19,12 +19,13 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import java.util.Set;
 import org.sonar.api.batch.fs.InputFile;
 
 /**
  * @since 4.2
  */
-class LanguagePredicate extends AbstractFilePredicate {
+class LanguagePredicate extends IndexedFilePredicate {
   private final String language;
 
   LanguagePredicate(String language) {
@@ -35,4 +36,9 @@ class LanguagePredicate extends AbstractFilePredicate {
   public boolean apply(InputFile f) {
     return language.equals(f.language());
   }
+
+  @Override
+  Set<InputFile> indexedFiles(DefaultFileSystem.Cache cache) {
+    return cache.inputFilesByLanguage(language);
+  }
 }
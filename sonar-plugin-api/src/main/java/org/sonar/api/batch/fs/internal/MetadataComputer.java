@@ -0,0 +1,486 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.input.BOMInputStream;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Computes {@link FileMetadata.Metadata} in a single pass over the content of a file, which is read by chunks.
+ * <p>
+ * The hash is the MD5 of the UTF-8 encoding of the content, ends of lines being replaced by line feeds. Chunks
+ * which are made of valid UTF-8 sequences, when the charset is UTF-8, or chunks of single-byte charsets compatible
+ * with ASCII, are processed without decoding them: the hash is updated with ranges of the original bytes.
+ * Other chunks are decoded and their characters are encoded back to UTF-8 by batches.
+ * </p>
+ * Results are the same as computing the metadata character by character, including replacement of malformed input.
+ */
+final class MetadataComputer {
+
+  private static final Logger LOG = Loggers.get(FileMetadata.class);
+
+  static final int CHUNK_SIZE = 64 * 1024;
+  private static final byte LINE_FEED = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+  // replacement of malformed input by the UTF-8 encoder
+  private static final byte REPLACEMENT = '?';
+  private static final char NO_SURROGATE = 0;
+
+  /**
+   * Decoding tables of the single-byte charsets which are compatible with ASCII. Other charsets are associated to
+   * an empty value.
+   */
+  private static final ConcurrentMap<Charset, Optional<char[]>> SINGLE_BYTE_TABLES = new ConcurrentHashMap<>();
+
+  private final File file;
+  private final Charset encoding;
+  private final MessageDigest md5 = DigestUtils.getMd5Digest();
+  private final IntArrayList originalLineOffsets = new IntArrayList();
+  private byte[] encoded = new byte[16];
+  private int lines = 1;
+  private int nonBlankLines = 0;
+  private boolean blankLine = true;
+  private boolean afterCR = false;
+  private long offset = 0;
+  // high surrogate waiting for the next character to be encoded
+  private char highSurrogate = NO_SURROGATE;
+  private boolean alreadyLoggedInvalidCharacter = false;
+
+  private MetadataComputer(File file, Charset encoding) {
+    this.file = file;
+    this.encoding = encoding;
+    originalLineOffsets.add(0);
+  }
+
+  static FileMetadata.Metadata read(File file, Charset encoding) {
+    MetadataComputer computer = new MetadataComputer(file, encoding);
+    try (InputStream input = new BOMInputStream(Files.newInputStream(file.toPath()),
+      ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE)) {
+      computer.readBytes(input);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
+    }
+    return computer.toMetadata();
+  }
+
+  static FileMetadata.Metadata read(Reader reader, File file, Charset encoding) throws IOException {
+    MetadataComputer computer = new MetadataComputer(file, encoding);
+    char[] buffer = new char[CHUNK_SIZE];
+    int length;
+    while ((length = reader.read(buffer)) != -1) {
+      computer.processChars(buffer, 0, length);
+    }
+    computer.eof();
+    return computer.toMetadata();
+  }
+
+  private void readBytes(InputStream input) throws IOException {
+    boolean utf8 = StandardCharsets.UTF_8.equals(encoding);
+    char[] singleByteTable = utf8 ? null : singleByteTable(encoding);
+    CharsetDecoder decoder = encoding.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+    byte[] buffer = new byte[CHUNK_SIZE];
+    // bytes of the end of previous chunk which could not be processed yet are moved to the beginning of buffer
+    int length = 0;
+    int read;
+    while ((read = input.read(buffer, length, buffer.length - length)) != -1) {
+      length += read;
+      int processed = processChunk(buffer, length, utf8, singleByteTable, decoder, chars, false);
+      length -= processed;
+      System.arraycopy(buffer, processed, buffer, 0, length);
+    }
+    processChunk(buffer, length, utf8, singleByteTable, decoder, chars, true);
+    eof();
+  }
+
+  /**
+   * @return number of bytes processed, the remaining ones being the beginning of an incomplete sequence
+   */
+  private int processChunk(byte[] buffer, int length, boolean utf8, @CheckForNull char[] singleByteTable, CharsetDecoder decoder,
+    CharBuffer chars, boolean endOfInput) {
+    if (singleByteTable != null) {
+      processBytes(buffer, 0, length, singleByteTable);
+      return length;
+    }
+    int end = 0;
+    if (utf8) {
+      end = validUtf8Prefix(buffer, 0, length);
+      processBytes(buffer, 0, end, null);
+      if (end == length || (!endOfInput && isIncompleteUtf8(buffer, end, length))) {
+        return end;
+      }
+    }
+    ByteBuffer bytes = ByteBuffer.wrap(buffer, end, length - end);
+    CoderResult result;
+    do {
+      result = decoder.decode(bytes, chars, endOfInput);
+      flushChars(chars);
+    } while (result.isOverflow());
+    if (endOfInput) {
+      while (decoder.flush(chars).isOverflow()) {
+        flushChars(chars);
+      }
+      flushChars(chars);
+    }
+    return bytes.position();
+  }
+
+  private void flushChars(CharBuffer chars) {
+    processChars(chars.array(), 0, chars.position());
+    chars.clear();
+  }
+
+  /**
+   * Bytes are either valid UTF-8 sequences ({@code singleByteTable} is null), or characters of a single-byte charset
+   */
+  private void processBytes(byte[] bytes, int from, int to, @CheckForNull char[] singleByteTable) {
+    if (from == to) {
+      return;
+    }
+    if (highSurrogate != NO_SURROGATE) {
+      highSurrogate = NO_SURROGATE;
+      md5.update(REPLACEMENT);
+    }
+    // bytes of the range [hashed, i[ are part of the hash but have not been given to digest yet
+    int hashed = from;
+    int i = from;
+    while (i < to) {
+      byte b = bytes[i];
+      if (afterCR) {
+        afterCR = false;
+        if (b == LINE_FEED) {
+          offset++;
+          newLine();
+          i++;
+          continue;
+        }
+        md5.update(LINE_FEED);
+        newLine();
+      }
+      if (b >= 0) {
+        offset++;
+        if (b == LINE_FEED) {
+          newLine();
+        } else if (b == CARRIAGE_RETURN) {
+          md5.update(bytes, hashed, i - hashed);
+          hashed = i + 1;
+          afterCR = true;
+        } else if (blankLine && !Character.isWhitespace(b)) {
+          blankLine = false;
+        }
+        i++;
+      } else if (singleByteTable != null) {
+        char c = singleByteTable[b & 0xFF];
+        md5.update(bytes, hashed, i - hashed);
+        int length = encode(c, 0);
+        md5.update(encoded, 0, length);
+        offset++;
+        handleContent(c);
+        i++;
+        hashed = i;
+      } else {
+        int length = utf8Length(b);
+        if (length == 4) {
+          // supplementary character, encoded as a surrogate pair
+          offset += 2;
+          blankLine = false;
+        } else {
+          offset++;
+          handleContent(length == 2 ? decodeUtf8(b, bytes[i + 1]) : decodeUtf8(b, bytes[i + 1], bytes[i + 2]));
+        }
+        i += length;
+      }
+    }
+    md5.update(bytes, hashed, to - hashed);
+  }
+
+  private void processChars(char[] chars, int from, int to) {
+    int maxLength = 3 * (to - from) + 1;
+    if (encoded.length < maxLength) {
+      encoded = new byte[maxLength];
+    }
+    int length = 0;
+    for (int i = from; i < to; i++) {
+      char c = chars[i];
+      if (afterCR) {
+        afterCR = false;
+        if (c == LINE_FEED) {
+          offset++;
+          length = encodeLineFeed(length);
+          newLine();
+          continue;
+        }
+        length = encodeLineFeed(length);
+        newLine();
+      }
+      offset++;
+      if (c == LINE_FEED) {
+        length = encodeLineFeed(length);
+        newLine();
+      } else if (c == CARRIAGE_RETURN) {
+        afterCR = true;
+      } else {
+        handleContent(c);
+        length = encode(c, length);
+      }
+    }
+    md5.update(encoded, 0, length);
+  }
+
+  private void handleContent(char c) {
+    if (!alreadyLoggedInvalidCharacter && c == '�') {
+      LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", file,
+        lines, encoding, CoreProperties.ENCODING_PROPERTY);
+      alreadyLoggedInvalidCharacter = true;
+    }
+    if (blankLine && !Character.isWhitespace(c)) {
+      blankLine = false;
+    }
+  }
+
+  private void newLine() {
+    lines++;
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    blankLine = true;
+    originalLineOffsets.add(checkOffset(offset));
+  }
+
+  private void eof() {
+    if (afterCR) {
+      afterCR = false;
+      md5.update(encoded, 0, encodeLineFeed(0));
+      newLine();
+    } else if (highSurrogate != NO_SURROGATE) {
+      highSurrogate = NO_SURROGATE;
+      md5.update(REPLACEMENT);
+    }
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+  }
+
+  private FileMetadata.Metadata toMetadata() {
+    return new FileMetadata.Metadata(lines, nonBlankLines, Hex.encodeHexString(md5.digest()), originalLineOffsets.trimAndGet(), checkOffset(offset));
+  }
+
+  private static int checkOffset(long offset) {
+    if (offset > Integer.MAX_VALUE) {
+      throw new IllegalStateException("File is too big: " + offset);
+    }
+    return (int) offset;
+  }
+
+  private int encodeLineFeed(int length) {
+    int i = length;
+    if (highSurrogate != NO_SURROGATE) {
+      highSurrogate = NO_SURROGATE;
+      encoded[i++] = REPLACEMENT;
+    }
+    encoded[i++] = LINE_FEED;
+    return i;
+  }
+
+  /**
+   * Appends the UTF-8 encoding of {@code c} to {@link #encoded}. Unpaired surrogates are replaced, like
+   * {@link CharsetEncoder} does with {@link CodingErrorAction#REPLACE}.
+   *
+   * @return the new length of encoded bytes
+   */
+  private int encode(char c, int length) {
+    if (encoded.length < length + 4) {
+      byte[] larger = new byte[Math.max(16, 2 * encoded.length)];
+      System.arraycopy(encoded, 0, larger, 0, length);
+      encoded = larger;
+    }
+    int i = length;
+    if (highSurrogate != NO_SURROGATE) {
+      char high = highSurrogate;
+      highSurrogate = NO_SURROGATE;
+      if (Character.isLowSurrogate(c)) {
+        int codePoint = Character.toCodePoint(high, c);
+        encoded[i++] = (byte) (0xF0 | (codePoint >> 18));
+        encoded[i++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        encoded[i++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        encoded[i++] = (byte) (0x80 | (codePoint & 0x3F));
+        return i;
+      }
+      encoded[i++] = REPLACEMENT;
+    }
+    if (c < 0x80) {
+      encoded[i++] = (byte) c;
+    } else if (c < 0x800) {
+      encoded[i++] = (byte) (0xC0 | (c >> 6));
+      encoded[i++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      encoded[i++] = REPLACEMENT;
+    } else {
+      encoded[i++] = (byte) (0xE0 | (c >> 12));
+      encoded[i++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      encoded[i++] = (byte) (0x80 | (c & 0x3F));
+    }
+    return i;
+  }
+
+  /**
+   * Length of the longest prefix of {@code bytes[from, to[} which is made of well-formed UTF-8 sequences
+   */
+  static int validUtf8Prefix(byte[] bytes, int from, int to) {
+    int i = from;
+    while (i < to) {
+      if (bytes[i] >= 0) {
+        i++;
+      } else {
+        int length = utf8Length(bytes[i]);
+        if (length == 0 || i + length > to || !isValidUtf8Sequence(bytes, i, length)) {
+          return i;
+        }
+        i += length;
+      }
+    }
+    return i;
+  }
+
+  /**
+   * Whether {@code bytes[from, to[} is the beginning of a well-formed UTF-8 sequence
+   */
+  static boolean isIncompleteUtf8(byte[] bytes, int from, int to) {
+    int length = utf8Length(bytes[from]);
+    return length > to - from && isValidUtf8Sequence(bytes, from, to - from);
+  }
+
+  /**
+   * Number of bytes of the UTF-8 sequence starting with {@code lead}, or 0 if it is not a valid leading byte
+   */
+  private static int utf8Length(byte lead) {
+    int b = lead & 0xFF;
+    if (b < 0x80) {
+      return 1;
+    }
+    if (b < 0xC2) {
+      return 0;
+    }
+    if (b < 0xE0) {
+      return 2;
+    }
+    if (b < 0xF0) {
+      return 3;
+    }
+    return b < 0xF5 ? 4 : 0;
+  }
+
+  /**
+   * Checks the continuation bytes of the {@code length} first bytes of the sequence starting at {@code from}, as
+   * defined by table 3-7 of the Unicode standard.
+   */
+  private static boolean isValidUtf8Sequence(byte[] bytes, int from, int length) {
+    if (length < 2) {
+      return true;
+    }
+    int lead = bytes[from] & 0xFF;
+    int second = bytes[from + 1] & 0xFF;
+    int min = 0x80;
+    int max = 0xBF;
+    if (lead == 0xE0) {
+      min = 0xA0;
+    } else if (lead == 0xED) {
+      // surrogates
+      max = 0x9F;
+    } else if (lead == 0xF0) {
+      min = 0x90;
+    } else if (lead == 0xF4) {
+      max = 0x8F;
+    }
+    if (second < min || second > max) {
+      return false;
+    }
+    for (int i = from + 2; i < from + length; i++) {
+      if ((bytes[i] & 0xC0) != 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static char decodeUtf8(byte b1, byte b2) {
+    return (char) (((b1 & 0x1F) << 6) | (b2 & 0x3F));
+  }
+
+  private static char decodeUtf8(byte b1, byte b2, byte b3) {
+    return (char) (((b1 & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+  }
+
+  /**
+   * Characters of the 256 bytes, if the charset is single-byte and compatible with ASCII, else null
+   */
+  @CheckForNull
+  static char[] singleByteTable(Charset charset) {
+    return SINGLE_BYTE_TABLES.computeIfAbsent(charset, MetadataComputer::createSingleByteTable).orElse(null);
+  }
+
+  private static Optional<char[]> createSingleByteTable(Charset charset) {
+    if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0F || charset.newDecoder().maxCharsPerByte() != 1.0F) {
+      return Optional.empty();
+    }
+    CharsetDecoder decoder = charset.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    char[] table = new char[256];
+    for (int b = 0; b < 256; b++) {
+      CharBuffer decoded = CharBuffer.allocate(2);
+      decoder.reset();
+      decoder.decode(ByteBuffer.wrap(new byte[] {(byte) b}), decoded, true);
+      decoder.flush(decoded);
+      if (decoded.position() != 1 || (b < 0x80 && decoded.get(0) != b)) {
+        return Optional.empty();
+      }
+      table[b] = decoded.get(0);
+    }
+    return Optional.of(table);
+  }
+}
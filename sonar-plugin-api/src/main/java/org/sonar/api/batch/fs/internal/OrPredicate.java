@@ -25,11 +25,15 @@ import org.sonar.api.batch.fs.InputFile;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
+ * When all the predicates are indexed, for example with {@link DefaultFilePredicates#hasLanguages(String...)},
+ * files are read from the union of indexes.
  * @since 4.2
  */
-class OrPredicate extends AbstractFilePredicate {
+class OrPredicate extends IndexedFilePredicate {
 
   private final Collection<FilePredicate> predicates = new ArrayList<>();
 
@@ -65,6 +69,36 @@ class OrPredicate extends AbstractFilePredicate {
     return false;
   }
 
+  @Override
+  Set<InputFile> indexedFiles(DefaultFileSystem.Cache cache) {
+    if (!isIndexed()) {
+      return null;
+    }
+    Set<InputFile> result = new TreeSet<>(DefaultFileSystem.Cache.RELATIVE_PATH_ORDER);
+    for (FilePredicate predicate : predicates) {
+      Set<InputFile> files = ((IndexedFilePredicate) predicate).indexedFiles(cache);
+      if (files == null) {
+        return null;
+      }
+      result.addAll(files);
+    }
+    return result;
+  }
+
+  @Override
+  public int priority() {
+    return isIndexed() ? USE_ATTRIBUTE_INDEX : DEFAULT_PRIORITY;
+  }
+
+  private boolean isIndexed() {
+    for (FilePredicate predicate : predicates) {
+      if (!(predicate instanceof IndexedFilePredicate)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @VisibleForTesting
   Collection<FilePredicate> predicates() {
     return predicates;
@@ -19,12 +19,13 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import java.util.Set;
 import org.sonar.api.batch.fs.InputFile;
 
 /**
  * @since 4.2
  */
-class StatusPredicate extends AbstractFilePredicate {
+class StatusPredicate extends IndexedFilePredicate {
 
   private final InputFile.Status status;
 
@@ -37,4 +38,9 @@ class StatusPredicate extends AbstractFilePredicate {
     return status == f.status();
   }
 
+  @Override
+  Set<InputFile> indexedFiles(DefaultFileSystem.Cache cache) {
+    return cache.inputFilesByStatus(status);
+  }
+
 }
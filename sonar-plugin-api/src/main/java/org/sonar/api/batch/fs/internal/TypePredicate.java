@@ -19,12 +19,13 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import java.util.Set;
 import org.sonar.api.batch.fs.InputFile;
 
 /**
  * @since 4.2
  */
-class TypePredicate extends AbstractFilePredicate {
+class TypePredicate extends IndexedFilePredicate {
 
   private final InputFile.Type type;
 
@@ -37,4 +38,9 @@ class TypePredicate extends AbstractFilePredicate {
     return type == f.type();
   }
 
+  @Override
+  Set<InputFile> indexedFiles(DefaultFileSystem.Cache cache) {
+    return cache.inputFilesByType(type);
+  }
+
 }
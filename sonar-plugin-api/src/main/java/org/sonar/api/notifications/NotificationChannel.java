@@ -19,9 +19,13 @@
  */
 package org.sonar.api.notifications;
 
+import java.util.Collection;
+import java.util.Map;
 import org.sonar.api.ExtensionPoint;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 
 /**
  * <p>
@@ -41,6 +45,8 @@ import org.sonar.api.server.ServerSide;
 @ExtensionPoint
 public abstract class NotificationChannel {
 
+  private static final Logger LOG = Loggers.get(NotificationChannel.class);
+
   /**
    * Returns the unique key of this channel. 
    * 
@@ -58,6 +64,27 @@ public abstract class NotificationChannel {
    */
   public abstract void deliver(Notification notification, String userlogin);
 
+  /**
+   * Implements the delivery of several notifications to several users. By default, notifications are delivered one
+   * by one with {@link #deliver(Notification, String)}. Channels can override this method to share resources, like a
+   * connection, between the deliveries. The failure of a delivery must not prevent the next ones.
+   *
+   * @param notificationsByUserLogin the notifications to deliver, by login of the user who should receive them
+   * @since 6.2
+   */
+  public void deliverAll(Map<String, Collection<Notification>> notificationsByUserLogin) {
+    for (Map.Entry<String, Collection<Notification>> entry : notificationsByUserLogin.entrySet()) {
+      for (Notification notification : entry.getValue()) {
+        try {
+          deliver(notification, entry.getKey());
+        } catch (Exception e) {
+          // catch all exceptions in order to deliver the next notifications
+          LOG.warn("Unable to deliver notification " + notification + " for user " + entry.getKey() + " via " + this, e);
+        }
+      }
+    }
+  }
+
   @Override
   public String toString() {
     return getKey();
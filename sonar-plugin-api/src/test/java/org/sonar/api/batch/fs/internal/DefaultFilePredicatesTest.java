@@ -40,7 +40,7 @@ public class DefaultFilePredicatesTest {
   public TemporaryFolder temp = new TemporaryFolder();
 
   DefaultInputFile javaFile;
-  FilePredicates predicates;
+  DefaultFilePredicates predicates;
 
   @Before
   public void before() throws IOException {
@@ -150,6 +150,14 @@ public class DefaultFilePredicatesTest {
     assertThat(predicates.hasLanguages(Collections.<String>emptyList()).apply(javaFile)).isTrue();
   }
 
+  @Test
+  public void has_extension() {
+    assertThat(predicates.hasExtension("java").apply(javaFile)).isTrue();
+    assertThat(predicates.hasExtension(".JAVA").apply(javaFile)).isTrue();
+    assertThat(predicates.hasExtension("jav").apply(javaFile)).isFalse();
+    assertThat(predicates.hasExtension("php").apply(javaFile)).isFalse();
+  }
+
   @Test
   public void has_status() {
     assertThat(predicates.hasStatus(InputFile.Status.ADDED).apply(javaFile)).isTrue();
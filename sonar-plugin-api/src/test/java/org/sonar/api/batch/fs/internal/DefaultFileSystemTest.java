@@ -24,9 +24,14 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.InputFile;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -107,6 +112,96 @@ public class DefaultFileSystemTest {
     assertThat(fs.languages()).containsOnly("java", "php");
   }
 
+  @Test
+  public void files_by_indexed_attributes() {
+    fs.add(new DefaultInputFile("foo", "src/Foo.php").setLanguage("php").setStatus(InputFile.Status.SAME));
+    fs.add(new DefaultInputFile("foo", "src/Bar.java").setLanguage("java").setStatus(InputFile.Status.CHANGED));
+    fs.add(new DefaultInputFile("foo", "test/BarTest.JAVA").setLanguage("java").setType(InputFile.Type.TEST).setStatus(InputFile.Status.ADDED));
+    fs.add(new DefaultInputFile("foo", "src/readme"));
+
+    DefaultFilePredicates p = (DefaultFilePredicates) fs.predicates();
+    assertThat(relativePaths(p.hasType(InputFile.Type.TEST))).containsExactly("test/BarTest.JAVA");
+    assertThat(relativePaths(p.hasStatus(InputFile.Status.SAME))).containsExactly("src/Foo.php");
+    assertThat(relativePaths(p.hasExtension("java"))).containsOnly("src/Bar.java", "test/BarTest.JAVA");
+    assertThat(relativePaths(p.hasExtension("txt"))).isEmpty();
+
+    // intersection of indexes
+    assertThat(relativePaths(p.and(p.hasLanguage("java"), p.hasType(InputFile.Type.MAIN)))).containsExactly("src/Bar.java");
+    assertThat(relativePaths(p.and(p.hasLanguage("java"), p.hasStatus(InputFile.Status.SAME)))).isEmpty();
+    // intersection of indexes filtered by non-indexed predicate
+    assertThat(relativePaths(p.and(p.hasLanguage("java"), p.matchesPathPattern("test/**")))).containsExactly("test/BarTest.JAVA");
+    // relative path is looked up first
+    assertThat(relativePaths(p.and(p.hasLanguage("java"), p.hasRelativePath("src/Bar.java")))).containsExactly("src/Bar.java");
+
+    // union of indexes
+    assertThat(relativePaths(p.hasLanguages("php", "java"))).containsOnly("src/Foo.php", "src/Bar.java", "test/BarTest.JAVA");
+    assertThat(relativePaths(p.and(p.hasLanguages("php", "java"), p.hasType(InputFile.Type.MAIN)))).containsOnly("src/Foo.php", "src/Bar.java");
+    // not indexed
+    assertThat(relativePaths(p.or(p.hasLanguage("php"), p.matchesPathPattern("test/**")))).containsOnly("src/Foo.php", "test/BarTest.JAVA");
+  }
+
+  @Test
+  public void reindex_file_added_twice() {
+    fs.add(new DefaultInputFile("foo", "src/Bar.java").setLanguage("java").setStatus(InputFile.Status.ADDED));
+    fs.add(new DefaultInputFile("foo", "src/Bar.java").setLanguage("java").setType(InputFile.Type.TEST).setStatus(InputFile.Status.ADDED));
+
+    assertThat(relativePaths(fs.predicates().hasLanguage("java"))).containsExactly("src/Bar.java");
+    assertThat(relativePaths(fs.predicates().hasType(InputFile.Type.MAIN))).isEmpty();
+    assertThat(fs.inputFile(fs.predicates().hasType(InputFile.Type.TEST)).type()).isEqualTo(InputFile.Type.TEST);
+  }
+
+  @Test
+  public void files_of_indexes_are_sorted_by_relative_path() {
+    fs.add(new DefaultInputFile("foo", "src/c/Foo.java").setLanguage("java"));
+    fs.add(new DefaultInputFile("foo", "src/a/Foo.php").setLanguage("php"));
+    fs.add(new DefaultInputFile("foo", "src/b/Foo.java").setLanguage("java"));
+    fs.add(new DefaultInputFile("foo", "src/a/Foo.java").setLanguage("java"));
+    DefaultInputFile changed = new DefaultInputFile("foo", "src/0/Foo.java");
+    fs.add(changed);
+    changed.setLanguage("java");
+
+    DefaultFilePredicates p = (DefaultFilePredicates) fs.predicates();
+    assertThat(relativePaths(p.hasLanguage("java"))).containsExactly("src/0/Foo.java", "src/a/Foo.java", "src/b/Foo.java", "src/c/Foo.java");
+    assertThat(relativePaths(p.hasType(InputFile.Type.MAIN)))
+      .containsExactly("src/0/Foo.java", "src/a/Foo.java", "src/a/Foo.php", "src/b/Foo.java", "src/c/Foo.java");
+    assertThat(relativePaths(p.hasExtension("java"))).containsExactly("src/0/Foo.java", "src/a/Foo.java", "src/b/Foo.java", "src/c/Foo.java");
+    assertThat(relativePaths(p.hasLanguages("php", "java")))
+      .containsExactly("src/0/Foo.java", "src/a/Foo.java", "src/a/Foo.php", "src/b/Foo.java", "src/c/Foo.java");
+    assertThat(relativePaths(p.and(p.hasType(InputFile.Type.MAIN), p.hasLanguages("php", "java"))))
+      .containsExactly("src/0/Foo.java", "src/a/Foo.java", "src/a/Foo.php", "src/b/Foo.java", "src/c/Foo.java");
+  }
+
+  @Test
+  public void reindex_file_when_indexed_attributes_are_changed_after_add() {
+    DefaultInputFile file = new DefaultInputFile("foo", "src/Bar.java").setLanguage("java").setStatus(InputFile.Status.ADDED);
+    fs.add(file);
+
+    file.setLanguage("php").setType(InputFile.Type.TEST).setStatus(InputFile.Status.SAME);
+
+    FilePredicates p = fs.predicates();
+    assertThat(relativePaths(p.hasLanguage("java"))).isEmpty();
+    assertThat(relativePaths(p.hasLanguage("php"))).containsExactly("src/Bar.java");
+    assertThat(relativePaths(p.hasType(InputFile.Type.MAIN))).isEmpty();
+    assertThat(relativePaths(p.hasType(InputFile.Type.TEST))).containsExactly("src/Bar.java");
+    assertThat(relativePaths(p.hasStatus(InputFile.Status.ADDED))).isEmpty();
+    assertThat(relativePaths(p.and(p.hasLanguage("php"), p.hasStatus(InputFile.Status.SAME)))).containsExactly("src/Bar.java");
+
+    file.setLanguage(null);
+    assertThat(relativePaths(p.hasLanguage("php"))).isEmpty();
+  }
+
+  @Test
+  public void do_not_reindex_replaced_file_when_its_attributes_are_changed() {
+    DefaultInputFile replaced = new DefaultInputFile("foo", "src/Bar.java").setLanguage("java");
+    fs.add(replaced);
+    fs.add(new DefaultInputFile("foo", "src/Bar.java").setLanguage("java"));
+
+    replaced.setLanguage("php");
+
+    assertThat(relativePaths(fs.predicates().hasLanguage("java"))).containsExactly("src/Bar.java");
+    assertThat(relativePaths(fs.predicates().hasLanguage("php"))).isEmpty();
+  }
+
   @Test
   public void input_file_returns_null_if_file_not_found() {
     assertThat(fs.inputFile(fs.predicates().hasRelativePath("src/Bar.java"))).isNull();
@@ -131,4 +226,12 @@ public class DefaultFileSystemTest {
     // it would fail if more than one java file
     assertThat(fs.inputFile(fs.predicates().hasLanguage("java"))).isNotNull();
   }
+
+  private List<String> relativePaths(FilePredicate predicate) {
+    List<String> result = new ArrayList<>();
+    for (InputFile inputFile : fs.inputFiles(predicate)) {
+      result.add(inputFile.relativePath());
+    }
+    return result;
+  }
 }
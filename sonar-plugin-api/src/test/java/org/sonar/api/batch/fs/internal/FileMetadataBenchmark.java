@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Computation of {@link FileMetadata.Metadata} of a large source file, compared to decoding of the same file
+ * character by character, as done for the line hashes of issue tracking. The file is the one of the "huge-file"
+ * performance project, unless another one is set with the system property {@value #FILE_PROPERTY}.
+ * <p>
+ * Run with {@code main()} from the IDE, or with {@code java -cp <test classpath> org.sonar.api.batch.fs.internal.FileMetadataBenchmark}
+ * from the directory of the module.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileMetadataBenchmark {
+
+  static final String FILE_PROPERTY = "sonar.benchmark.file";
+  private static final String DEFAULT_FILE = "../tests/perf/projects/huge-file/src/main/java/huge/HugeFile.java";
+
+  @Param({"UTF-8", "ISO-8859-1"})
+  public String encoding;
+
+  private File file;
+  private Charset charset;
+
+  @Setup
+  public void setUp() {
+    file = new File(System.getProperty(FILE_PROPERTY, DEFAULT_FILE));
+    if (!file.isFile()) {
+      throw new IllegalStateException("File does not exist: " + file.getAbsolutePath());
+    }
+    charset = Charset.forName(encoding);
+  }
+
+  @Benchmark
+  public FileMetadata.Metadata readMetadata() {
+    return new FileMetadata().readMetadata(file, charset);
+  }
+
+  @Benchmark
+  public int readChars() {
+    CharCounter counter = new CharCounter();
+    FileMetadata.readFile(file, charset, counter);
+    return counter.count;
+  }
+
+  private static class CharCounter extends FileMetadata.CharHandler {
+    private int count = 0;
+
+    @Override
+    protected void handleAll(char c) {
+      count++;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FileMetadataBenchmark.class.getSimpleName()).build()).run();
+  }
+}
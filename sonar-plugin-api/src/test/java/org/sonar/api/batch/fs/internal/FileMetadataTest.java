@@ -19,12 +19,21 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -33,6 +42,8 @@ import org.sonar.api.batch.fs.internal.FileMetadata.LineHashConsumer;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
@@ -108,6 +119,34 @@ public class FileMetadataTest {
     assertThat(metadata.originalLineOffsets).containsOnly(0, 5, 10, 18);
   }
 
+  @Test
+  public void non_ascii_iso_8859_1() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "föo\r\nbàr\r\n\u00A0\r\nbaßz", StandardCharsets.ISO_8859_1, true);
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.ISO_8859_1);
+    assertThat(metadata.lines).isEqualTo(4);
+    assertThat(metadata.nonBlankLines).isEqualTo(4);
+    assertThat(metadata.hash).isEqualTo(md5Hex("föo\nbàr\n\u00A0\nbaßz".getBytes(StandardCharsets.UTF_8)));
+    assertThat(metadata.originalLineOffsets).containsOnly(0, 5, 10, 13);
+    assertThat(metadata.lastValidOffset).isEqualTo(17);
+  }
+
+  @Test
+  public void characters_and_eol_across_read_chunks() throws Exception {
+    File tempFile = temp.newFile();
+    // "é" and "\r\n" are encoded on both sides of the 64KB and 128KB boundaries
+    String line1 = StringUtils.repeat("x", 65535) + "é";
+    String line2 = StringUtils.repeat("y", 65532);
+    FileUtils.write(tempFile, line1 + "\r\n" + line2 + "\r\n\uD83D\uDE00z", StandardCharsets.UTF_8, true);
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8);
+    assertThat(metadata.lines).isEqualTo(3);
+    assertThat(metadata.nonBlankLines).isEqualTo(3);
+    assertThat(metadata.hash).isEqualTo(md5Hex((line1 + "\n" + line2 + "\n\uD83D\uDE00z").getBytes(StandardCharsets.UTF_8)));
+    assertThat(metadata.originalLineOffsets).containsOnly(0, 65538, 131072);
+    assertThat(metadata.lastValidOffset).isEqualTo(131075);
+  }
+
   @Test
   public void unix_without_latest_eol() throws Exception {
     File tempFile = temp.newFile();
@@ -316,4 +355,177 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void same_metadata_as_char_by_char_decoding_with_eol_across_read_chunks() throws Exception {
+    for (Charset charset : asList(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE)) {
+      int charsPerChunk = MetadataComputer.CHUNK_SIZE / (charset.name().startsWith("UTF-16") ? 2 : 1);
+      for (String eol : asList("\n", "\r", "\r\n", "\r\r\n", "\n\r")) {
+        for (int delta = -2; delta <= 1; delta++) {
+          String line1 = StringUtils.repeat("a", charsPerChunk + delta);
+          String line2 = StringUtils.repeat("b", charsPerChunk - eol.length());
+          assertSameMetadataAsCharByChar((line1 + eol + line2 + eol + "c").getBytes(charset), charset);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void same_metadata_as_char_by_char_decoding_with_bom() throws Exception {
+    byte[] utf8Bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    byte[] utf16LeBom = {(byte) 0xFF, (byte) 0xFE};
+    byte[] utf16BeBom = {(byte) 0xFE, (byte) 0xFF};
+    for (String content : asList("", "\r\nfoo\r\n", "\uFEFFbar\n", " é\n\r")) {
+      assertSameMetadataAsCharByChar(concat(utf8Bom, content.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+      assertSameMetadataAsCharByChar(concat(utf8Bom, content.getBytes(StandardCharsets.ISO_8859_1)), StandardCharsets.ISO_8859_1);
+      assertSameMetadataAsCharByChar(concat(utf16LeBom, content.getBytes(StandardCharsets.UTF_16LE)), StandardCharsets.UTF_16LE);
+      assertSameMetadataAsCharByChar(concat(utf16BeBom, content.getBytes(StandardCharsets.UTF_16BE)), StandardCharsets.UTF_16BE);
+      assertSameMetadataAsCharByChar(concat(utf16BeBom, content.getBytes(StandardCharsets.UTF_16BE)), StandardCharsets.UTF_16);
+    }
+  }
+
+  @Test
+  public void same_metadata_as_char_by_char_decoding_in_other_charsets() throws Exception {
+    String content = "café € ü\r\n  \t\nかな ж\r \nend";
+    for (String charsetName : asList("US-ASCII", "ISO-8859-1", "windows-1252", "KOI8-R", "Shift_JIS", "UTF-16", "UTF-16LE", "UTF-32")) {
+      Charset charset = Charset.forName(charsetName);
+      assertSameMetadataAsCharByChar(content.getBytes(charset), charset);
+      assertSameMetadataAsCharByChar(StringUtils.repeat(content, 10_000).getBytes(charset), charset);
+    }
+  }
+
+  @Test
+  public void same_metadata_as_char_by_char_decoding_with_empty_last_line() throws Exception {
+    for (String content : asList("", "\n", "\r", "\r\n", "foo\n", "foo\r", "foo\r\n", "foo\n\n", "foo\r\r", "foo\n  \n", "foo\n \t")) {
+      assertSameMetadataAsCharByChar(content.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+      assertSameMetadataAsCharByChar(content.getBytes(StandardCharsets.UTF_16LE), StandardCharsets.UTF_16LE);
+    }
+  }
+
+  @Test
+  public void same_metadata_as_char_by_char_decoding_of_malformed_input() throws Exception {
+    byte[] chunk = StringUtils.repeat("a", MetadataComputer.CHUNK_SIZE - 1).getBytes(StandardCharsets.US_ASCII);
+    List<byte[]> contents = asList(
+      new byte[] {(byte) 0xC3},
+      new byte[] {'a', (byte) 0xFF, '\n', (byte) 0x80, 'b'},
+      // surrogate encoded in UTF-8, overlong encoding, truncated 4 bytes sequence
+      new byte[] {(byte) 0xED, (byte) 0xA0, (byte) 0x80, '\r', (byte) 0xE0, (byte) 0x80, '\r', '\n', (byte) 0xF0, (byte) 0x9F},
+      // valid and invalid sequences split by the boundary of read chunks
+      concat(chunk, "é€\uD83D\uDE00\n".getBytes(StandardCharsets.UTF_8)),
+      concat(chunk, new byte[] {(byte) 0xE2, (byte) 0x82, '\r', '\n', 'x'}),
+      concat(chunk, new byte[] {(byte) 0xF0, (byte) 0x9F, (byte) 0x98, '\n'}));
+    for (byte[] content : contents) {
+      assertSameMetadataAsCharByChar(content, StandardCharsets.UTF_8);
+      assertSameMetadataAsCharByChar(content, StandardCharsets.US_ASCII);
+      assertSameMetadataAsCharByChar(content, StandardCharsets.UTF_16LE);
+    }
+    // lone surrogates and odd number of bytes
+    assertSameMetadataAsCharByChar(new byte[] {0x3D, (byte) 0xD8, '\n', 0, 0x00, (byte) 0xDC, 'a'}, StandardCharsets.UTF_16LE);
+  }
+
+  @Test
+  public void same_metadata_as_char_by_char_decoding_of_random_content() throws Exception {
+    byte[][] pieces = {
+      {'a'}, {' '}, {'\t'}, {'\r'}, {'\n'}, {'\r', '\n'}, {0},
+      "é".getBytes(StandardCharsets.UTF_8), "€".getBytes(StandardCharsets.UTF_8), "\uD83D\uDE00".getBytes(StandardCharsets.UTF_8),
+      "\uFFFD".getBytes(StandardCharsets.UTF_8), {(byte) 0xED, (byte) 0xA0, (byte) 0x80}, {(byte) 0xE0, (byte) 0x80}, {(byte) 0xFF}, {(byte) 0xC3},
+      {(byte) 0xF0, (byte) 0x9F}, {(byte) 0x80}};
+    List<Charset> charsets = asList(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII, StandardCharsets.UTF_16LE,
+      Charset.forName("windows-1252"), Charset.forName("Shift_JIS"));
+    Random random = new Random(1_234L);
+    for (int i = 0; i < 300; i++) {
+      int size = i % 20 == 0 ? random.nextInt(3 * MetadataComputer.CHUNK_SIZE) : random.nextInt(300);
+      // mostly ASCII, or any kind of pieces
+      int piecesRange = random.nextBoolean() ? 7 : pieces.length;
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      while (content.size() < size) {
+        content.write(pieces[random.nextInt(piecesRange)]);
+      }
+      assertSameMetadataAsCharByChar(content.toByteArray(), charsets.get(random.nextInt(charsets.size())));
+    }
+  }
+
+  private void assertSameMetadataAsCharByChar(byte[] content, Charset charset) throws IOException {
+    File file = temp.newFile();
+    FileUtils.writeByteArrayToFile(file, content);
+    CharByCharMetadata expected = new CharByCharMetadata();
+    FileMetadata.readFile(file, charset, expected);
+    logTester.clear();
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(file, charset);
+
+    String description = content.length + " bytes in " + charset;
+    assertThat(metadata.lines).as(description).isEqualTo(expected.lines);
+    assertThat(metadata.nonBlankLines).as(description).isEqualTo(expected.nonBlankLines);
+    assertThat(metadata.hash).as(description).isEqualTo(Hex.encodeHexString(expected.globalMd5Digest.digest()));
+    assertThat(metadata.originalLineOffsets).as(description).containsExactly(expected.originalLineOffsets.stream().mapToInt(Integer::intValue).toArray());
+    assertThat(metadata.lastValidOffset).as(description).isEqualTo(expected.offset);
+    if (expected.lineOfInvalidCharacter == 0) {
+      assertThat(logTester.logs(LoggerLevel.WARN)).as(description).isEmpty();
+    } else {
+      assertThat(logTester.logs(LoggerLevel.WARN)).as(description).hasSize(1);
+      assertThat(logTester.logs(LoggerLevel.WARN).get(0)).as(description).contains("at line " + expected.lineOfInvalidCharacter + " for encoding " + charset);
+    }
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    byte[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  /**
+   * Metadata computed character by character, as done before {@link MetadataComputer}
+   */
+  private static class CharByCharMetadata extends FileMetadata.CharHandler {
+    private final MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
+    private final StringBuilder line = new StringBuilder();
+    private final List<Integer> originalLineOffsets = new ArrayList<>(singletonList(0));
+    private int lines = 1;
+    private int nonBlankLines = 0;
+    private boolean blankLine = true;
+    private int offset = 0;
+    private int lineOfInvalidCharacter = 0;
+
+    @Override
+    protected void handleAll(char c) {
+      offset++;
+      if (c == '\uFFFD' && lineOfInvalidCharacter == 0) {
+        lineOfInvalidCharacter = lines;
+      }
+    }
+
+    @Override
+    protected void handleIgnoreEoL(char c) {
+      line.append(c);
+      if (!Character.isWhitespace(c)) {
+        blankLine = false;
+      }
+    }
+
+    @Override
+    protected void newLine() {
+      line.append('\n');
+      updateHash();
+      lines++;
+      if (!blankLine) {
+        nonBlankLines++;
+      }
+      blankLine = true;
+      originalLineOffsets.add(offset);
+    }
+
+    @Override
+    protected void eof() {
+      updateHash();
+      if (!blankLine) {
+        nonBlankLines++;
+      }
+    }
+
+    private void updateHash() {
+      // unpaired surrogates are replaced, as by the encoder of the previous implementation
+      globalMd5Digest.update(line.toString().getBytes(StandardCharsets.UTF_8));
+      line.setLength(0);
+    }
+  }
 }
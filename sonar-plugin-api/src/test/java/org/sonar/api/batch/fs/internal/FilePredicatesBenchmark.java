@@ -0,0 +1,119 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import com.google.common.collect.Iterables;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Evaluation of the predicates commonly used by sensors on a large file system, read from the indexes of
+ * {@link DefaultFileSystem.Cache}, compared to the evaluation of the same predicates on all files.
+ * <p>
+ * Run with {@code main()} from the IDE, or with {@code java -cp <test classpath> org.sonar.api.batch.fs.internal.FilePredicatesBenchmark}
+ * from the directory of the module.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FilePredicatesBenchmark {
+
+  private static final String[] LANGUAGES = {"java", "js", "xoo", "php", "cs", "py", "web", "xml", "css", "flex"};
+
+  @Param({"10000", "100000"})
+  public int files;
+
+  private DefaultFileSystem fs;
+  private FilePredicate mainJavaFiles;
+  private FilePredicate changedWebFiles;
+  private FilePredicate scriptFiles;
+
+  @Setup
+  public void setUp() throws IOException {
+    fs = new DefaultFileSystem(Files.createTempDirectory("benchmark"));
+    for (int i = 0; i < files; i++) {
+      String language = LANGUAGES[i % LANGUAGES.length];
+      fs.add(new DefaultInputFile("foo", "src/dir" + (i / 100) + "/File" + i + "." + language)
+        .setLanguage(language)
+        .setType(i % 3 == 0 ? InputFile.Type.TEST : InputFile.Type.MAIN)
+        .setStatus(i % 20 == 0 ? InputFile.Status.CHANGED : InputFile.Status.SAME));
+    }
+    DefaultFilePredicates p = (DefaultFilePredicates) fs.predicates();
+    mainJavaFiles = p.and(p.hasLanguage("java"), p.hasType(InputFile.Type.MAIN));
+    changedWebFiles = p.and(p.hasExtension("web"), p.hasStatus(InputFile.Status.CHANGED));
+    scriptFiles = p.and(p.hasLanguages("js", "py"), p.hasType(InputFile.Type.MAIN));
+  }
+
+  @Benchmark
+  public int mainJavaFiles() {
+    return Iterables.size(fs.inputFiles(mainJavaFiles));
+  }
+
+  @Benchmark
+  public int mainJavaFilesWithoutIndex() {
+    return Iterables.size(Iterables.filter(fs.inputFiles(), mainJavaFiles::apply));
+  }
+
+  @Benchmark
+  public int changedWebFiles() {
+    return Iterables.size(fs.inputFiles(changedWebFiles));
+  }
+
+  @Benchmark
+  public int changedWebFilesWithoutIndex() {
+    return Iterables.size(Iterables.filter(fs.inputFiles(), changedWebFiles::apply));
+  }
+
+  @Benchmark
+  public int scriptFiles() {
+    return Iterables.size(fs.inputFiles(scriptFiles));
+  }
+
+  @Benchmark
+  public int scriptFilesWithoutIndex() {
+    return Iterables.size(Iterables.filter(fs.inputFiles(), scriptFiles::apply));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FilePredicatesBenchmark.class.getSimpleName()).build()).run();
+  }
+}
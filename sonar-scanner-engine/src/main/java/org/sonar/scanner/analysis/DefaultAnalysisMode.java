@@ -35,9 +35,11 @@ public class DefaultAnalysisMode extends AbstractAnalysisMode {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultAnalysisMode.class);
   private static final String KEY_SCAN_ALL = "sonar.scanAllFiles";
+  private static final String KEY_CHANGED_FILES_ISSUES_ONLY = "sonar.issuesMode.changedFilesIssuesOnly";
 
   private boolean mediumTestMode;
   private boolean scanAllFiles;
+  private boolean changedFilesIssuesOnly;
 
   public DefaultAnalysisMode(GlobalProperties globalProps, AnalysisProperties props) {
     init(globalProps.properties(), props.properties());
@@ -51,6 +53,14 @@ public class DefaultAnalysisMode extends AbstractAnalysisMode {
     return scanAllFiles;
   }
 
+  /**
+   * When only changed files are scanned, server issues can be loaded for changed files only. Issues of unchanged files
+   * are then not reported.
+   */
+  public boolean changedFilesIssuesOnly() {
+    return changedFilesIssuesOnly;
+  }
+
   private void init(Map<String, String> globalProps, Map<String, String> analysisProps) {
     // make sure analysis is consistent with global properties
     boolean globalPreview = isIssues(globalProps);
@@ -70,6 +80,7 @@ public class DefaultAnalysisMode extends AbstractAnalysisMode {
     mediumTestMode = "true".equals(getPropertyWithFallback(analysisProps, globalProps, FakePluginInstaller.MEDIUM_TEST_ENABLED));
     String scanAllStr = getPropertyWithFallback(analysisProps, globalProps, KEY_SCAN_ALL);
     scanAllFiles = !issues || "true".equals(scanAllStr);
+    changedFilesIssuesOnly = !scanAllFiles && "true".equals(getPropertyWithFallback(analysisProps, globalProps, KEY_CHANGED_FILES_ISSUES_ONLY));
   }
 
   public void printMode() {
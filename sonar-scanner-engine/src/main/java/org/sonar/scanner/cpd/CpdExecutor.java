@@ -22,7 +22,10 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -30,6 +33,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
@@ -54,6 +58,9 @@ import static com.google.common.collect.FluentIterable.from;
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module
  * by {@link CpdSensor). The sensor is responsible for handling exclusions and block sizes.
+ * <p>
+ * Detection of duplications is executed concurrently on several files (see {@link #THREADS_PROPERTY}), against the shared
+ * index which is read-only at this stage. Results are saved in the order of the index, as if files were processed sequentially.
  */
 public class CpdExecutor {
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
@@ -61,12 +68,16 @@ public class CpdExecutor {
   private static final int TIMEOUT = 5 * 60;
   static final int MAX_CLONE_GROUP_PER_FILE = 100;
   static final int MAX_CLONE_PART_PER_GROUP = 100;
+  /**
+   * Number of threads used to detect duplications. Defaults to the number of available processors. Value 1 disables
+   * concurrent detection.
+   */
+  static final String THREADS_PROPERTY = "sonar.cpd.threads";
 
   private final SonarCpdBlockIndex index;
   private final ReportPublisher publisher;
   private final BatchComponentCache batchComponentCache;
   private final Settings settings;
-  private final ExecutorService executorService;
   private final ProgressReport progressReport;
   private int count;
   private int total;
@@ -76,51 +87,86 @@ public class CpdExecutor {
     this.index = index;
     this.publisher = publisher;
     this.batchComponentCache = batchComponentCache;
-    this.executorService = Executors.newSingleThreadExecutor();
     this.progressReport = new ProgressReport("CPD computation", TimeUnit.SECONDS.toMillis(10));
   }
 
   public void execute() {
+    execute(TIMEOUT);
+  }
+
+  @VisibleForTesting
+  void execute(long timeout) {
     total = index.noResources();
+    int threads = getThreads();
     progressReport.start(String.format("Calculating CPD for %d files", total));
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("CpdExecutor-%d").setDaemon(true).build());
     try {
       Iterator<ResourceBlocks> it = index.iterator();
+      // files are submitted ahead of time, but results are consumed in the order of the index
+      Deque<FileDetection> pending = new ArrayDeque<>(threads);
 
-      while (it.hasNext()) {
-        ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(resourceBlocks.resourceId(), resourceBlocks.blocks());
-        count++;
+      while (it.hasNext() || !pending.isEmpty()) {
+        while (it.hasNext() && pending.size() < threads) {
+          ResourceBlocks resourceBlocks = it.next();
+          FileDetection detection = submitCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks());
+          if (detection == null) {
+            count++;
+          } else {
+            pending.add(detection);
+          }
+        }
+        FileDetection next = pending.poll();
+        if (next != null) {
+          saveCpdAnalysis(next, timeout);
+          count++;
+        }
       }
       progressReport.stop("CPD calculation finished");
     } catch (Exception e) {
       progressReport.stop("");
       throw e;
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @VisibleForTesting
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    if (threads <= 0) {
+      threads = Runtime.getRuntime().availableProcessors();
     }
+    return threads;
   }
 
-  private void runCpdAnalysis(String resource, final Collection<Block> fileBlocks) {
+  @CheckForNull
+  private FileDetection submitCpdAnalysis(ExecutorService executorService, String resource, final Collection<Block> fileBlocks) {
     LOG.debug("Detection of duplications for {}", resource);
 
     BatchComponent component = batchComponentCache.get(resource);
     if (component == null) {
       LOG.error("Resource not found in component cache: {}. Skipping CPD computation for it", resource);
-      return;
+      return null;
     }
 
-    InputFile inputFile = (InputFile) component.inputComponent();
+    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
+    return new FileDetection(component, futureResult);
+  }
+
+  private void saveCpdAnalysis(FileDetection detection, long timeout) {
+    InputFile inputFile = (InputFile) detection.component.inputComponent();
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
 
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = null;
     try {
-      futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
-      duplications = futureResult.get(TIMEOUT, TimeUnit.SECONDS);
+      duplications = detection.futureResult.get(timeout, TimeUnit.SECONDS);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      if (futureResult != null) {
-        futureResult.cancel(true);
-      }
+      detection.futureResult.cancel(true);
       return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during detection of duplication for " + inputFile.absolutePath(), e);
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
@@ -133,7 +179,17 @@ public class CpdExecutor {
       filtered = duplications;
     }
 
-    saveDuplications(component, filtered);
+    saveDuplications(detection.component, filtered);
+  }
+
+  private static class FileDetection {
+    private final BatchComponent component;
+    private final Future<List<CloneGroup>> futureResult;
+
+    private FileDetection(BatchComponent component, Future<List<CloneGroup>> futureResult) {
+      this.component = component;
+      this.futureResult = futureResult;
+    }
   }
 
   @VisibleForTesting
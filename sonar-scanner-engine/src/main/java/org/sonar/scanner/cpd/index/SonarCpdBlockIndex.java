@@ -33,8 +33,8 @@ import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.AbstractCloneIndex;
 import org.sonar.duplications.index.CloneIndex;
-import org.sonar.duplications.index.PackedMemoryCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.index.PartitionedMemoryCloneIndex;
 import org.sonar.scanner.index.BatchComponentCache;
 import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -42,7 +42,7 @@ import org.sonar.scanner.report.ReportPublisher;
 
 public class SonarCpdBlockIndex extends AbstractCloneIndex {
 
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final CloneIndex mem = new PartitionedMemoryCloneIndex();
   private final ReportPublisher publisher;
   private final BatchComponentCache batchComponentCache;
   private final Settings settings;
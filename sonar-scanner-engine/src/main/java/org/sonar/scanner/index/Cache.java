@@ -19,68 +19,52 @@
  */
 package org.sonar.scanner.index;
 
-import com.google.common.collect.Sets;
-import com.persistit.Exchange;
-import com.persistit.Key;
-import com.persistit.KeyFilter;
-import com.persistit.exception.PersistitException;
 import java.util.Iterator;
-import java.util.NoSuchElementException;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.builder.ToStringBuilder;
 
 /**
  * <p>
- * This cache is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * Thread-safety depends on the underlying {@link CacheStorage}. The default Persistit storage is not thread-safe,
+ * due to direct usage of {@link com.persistit.Exchange}.
  * </p>
  */
 public class Cache<V> {
 
-  private final String name;
-  private final Exchange exchange;
+  private static final Object[] NO_KEY = new Object[0];
 
-  Cache(String name, Exchange exchange) {
-    this.name = name;
-    this.exchange = exchange;
+  private final CacheStorage<V> storage;
+
+  Cache(CacheStorage<V> storage) {
+    this.storage = storage;
   }
 
   public Cache<V> put(Object key, V value) {
-    resetKey(key);
-    return doPut(value);
+    storage.put(new Object[] {key}, value);
+    return this;
   }
 
   public Cache<V> put(Object firstKey, Object secondKey, V value) {
-    resetKey(firstKey, secondKey);
-    return doPut(value);
+    storage.put(new Object[] {firstKey, secondKey}, value);
+    return this;
   }
 
   public Cache<V> put(Object firstKey, Object secondKey, Object thirdKey, V value) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doPut(value);
+    storage.put(new Object[] {firstKey, secondKey, thirdKey}, value);
+    return this;
   }
 
   public Cache<V> put(Object[] key, V value) {
-    resetKey(key);
-    return doPut(value);
-  }
-
-  private Cache<V> doPut(V value) {
-    try {
-      exchange.getValue().put(value);
-      exchange.store();
-      return this;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
-    }
+    storage.put(key, value);
+    return this;
   }
 
   /**
    * Returns the value object associated with keys, or null if not found.
    */
   public V get(Object key) {
-    resetKey(key);
-    return doGet();
+    return storage.get(new Object[] {key});
   }
 
   /**
@@ -88,8 +72,7 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doGet();
+    return storage.get(new Object[] {firstKey, secondKey});
   }
 
   /**
@@ -97,8 +80,7 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doGet();
+    return storage.get(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   /**
@@ -106,82 +88,39 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object[] key) {
-    resetKey(key);
-    return doGet();
-  }
-
-  @SuppressWarnings("unchecked")
-  @CheckForNull
-  private V doGet() {
-    try {
-      exchange.fetch();
-      if (!exchange.getValue().isDefined()) {
-        return null;
-      }
-      return (V) exchange.getValue().get();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to get element from cache " + name, e);
-    }
+    return storage.get(key);
   }
 
   public boolean containsKey(Object key) {
-    resetKey(key);
-    return doContainsKey();
+    return storage.containsKey(new Object[] {key});
   }
 
   public boolean containsKey(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doContainsKey();
+    return storage.containsKey(new Object[] {firstKey, secondKey});
   }
 
   public boolean containsKey(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doContainsKey();
+    return storage.containsKey(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   public boolean containsKey(Object[] key) {
-    resetKey(key);
-    return doContainsKey();
-  }
-
-  private boolean doContainsKey() {
-    try {
-      exchange.fetch();
-      return exchange.isValueDefined();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to check if element is in cache " + name, e);
-    }
+    return storage.containsKey(key);
   }
 
   public boolean remove(Object key) {
-    resetKey(key);
-    return doRemove();
+    return storage.remove(new Object[] {key});
   }
 
   public boolean remove(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doRemove();
+    return storage.remove(new Object[] {firstKey, secondKey});
   }
 
   public boolean remove(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doRemove();
+    return storage.remove(new Object[] {firstKey, secondKey, thirdKey});
   }
 
   public boolean remove(Object[] key) {
-    resetKey(key);
-    return doRemove();
-  }
-
-  private boolean doRemove() {
-    try {
-      return exchange.remove();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to get element from cache " + name, e);
-    }
+    return storage.remove(key);
   }
 
   /**
@@ -190,46 +129,30 @@ public class Cache<V> {
    * @param group The group name.
    */
   public Cache<V> clear(Object key) {
-    resetKey(key);
-    return doClear();
+    storage.clear(new Object[] {key});
+    return this;
   }
 
   public Cache<V> clear(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doClear();
+    storage.clear(new Object[] {firstKey, secondKey});
+    return this;
   }
 
   public Cache<V> clear(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doClear();
+    storage.clear(new Object[] {firstKey, secondKey, thirdKey});
+    return this;
   }
 
   public Cache<V> clear(Object[] key) {
-    resetKey(key);
-    return doClear();
-  }
-
-  private Cache<V> doClear() {
-    try {
-      Key to = new Key(exchange.getKey());
-      to.append(Key.AFTER);
-      exchange.removeKeyRange(exchange.getKey(), to);
-      return this;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear values from cache " + name, e);
-    }
+    storage.clear(key);
+    return this;
   }
 
   /**
    * Clears the default as well as all group caches.
    */
   public void clear() {
-    try {
-      exchange.clear();
-      exchange.removeAll();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear cache", e);
-    }
+    storage.clear();
   }
 
   /**
@@ -241,37 +164,12 @@ public class Cache<V> {
    */
   @SuppressWarnings("rawtypes")
   public Set keySet(Object key) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(key);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return storage.keySet(new Object[] {key});
   }
 
   @SuppressWarnings("rawtypes")
   public Set keySet(Object firstKey, Object secondKey) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(firstKey);
-      iteratorExchange.append(secondKey);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return storage.keySet(new Object[] {firstKey, secondKey});
   }
 
   /**
@@ -280,200 +178,69 @@ public class Cache<V> {
    * @return The set containing the keys for this cache.
    */
   public Set<Object> keySet() {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return storage.keySet(NO_KEY);
   }
 
   /**
    * Lazy-loading values for given keys
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
-    return new ValueIterable<>(exchange, firstKey, secondKey);
+    return new ValueIterable<>(storage, firstKey, secondKey);
   }
 
   /**
    * Lazy-loading values for a given key
    */
   public Iterable<V> values(Object firstKey) {
-    return new ValueIterable<>(exchange, firstKey);
+    return new ValueIterable<>(storage, firstKey);
   }
 
   /**
    * Lazy-loading values
    */
   public Iterable<V> values() {
-    return new ValueIterable<>(exchange);
+    return new ValueIterable<>(storage);
   }
 
   public Iterable<Entry<V>> entries() {
-    return new EntryIterable<>(exchange);
+    return new EntryIterable<>(storage);
   }
 
   public Iterable<Entry<V>> entries(Object firstKey) {
-    return new EntryIterable<>(exchange, firstKey);
-  }
-
-  private void resetKey(Object key) {
-    exchange.clear();
-    exchange.append(key);
-  }
-
-  private void resetKey(Object first, Object second) {
-    exchange.clear();
-    exchange.append(first).append(second);
-  }
-
-  private void resetKey(Object first, Object second, Object third) {
-    exchange.clear();
-    exchange.append(first).append(second).append(third);
-  }
-
-  private void resetKey(Object[] keys) {
-    exchange.clear();
-    for (Object o : keys) {
-      exchange.append(o);
-    }
+    return new EntryIterable<>(storage, firstKey);
   }
 
   //
-  // LAZY ITERATORS AND ITERABLES
+  // LAZY ITERABLES
   //
 
   private static class ValueIterable<T> implements Iterable<T> {
-    private final Exchange originExchange;
+    private final CacheStorage<T> storage;
     private final Object[] keys;
 
-    private ValueIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
+    private ValueIterable(CacheStorage<T> storage, Object... keys) {
+      this.storage = storage;
       this.keys = keys;
     }
 
     @Override
     public Iterator<T> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new ValueIterator<>(iteratorExchange, filter);
-    }
-  }
-
-  private static class ValueIterator<T> implements Iterator<T> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private ValueIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
-
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public T next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        return (T) exchange.getValue().get();
-      }
-      throw new NoSuchElementException();
-    }
-
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
+      return storage.values(keys);
     }
   }
 
   private static class EntryIterable<T> implements Iterable<Entry<T>> {
-    private final Exchange originExchange;
+    private final CacheStorage<T> storage;
     private final Object[] keys;
 
-    private EntryIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
+    private EntryIterable(CacheStorage<T> storage, Object... keys) {
+      this.storage = storage;
       this.keys = keys;
     }
 
     @Override
     public Iterator<Entry<T>> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new EntryIterator<>(iteratorExchange, filter);
-    }
-  }
-
-  private static class EntryIterator<T> implements Iterator<Entry<T>> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private EntryIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
-
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public Entry<T> next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        T value = (T) exchange.getValue().get();
-        Key key = exchange.getKey();
-        Object[] array = new Object[key.getDepth()];
-        for (int i = 0; i < key.getDepth(); i++) {
-          array[i] = key.indexTo(i - key.getDepth()).decode();
-        }
-        return new Entry<>(array, value);
-      }
-      throw new NoSuchElementException();
-    }
-
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
+      return storage.entries(keys);
     }
   }
 
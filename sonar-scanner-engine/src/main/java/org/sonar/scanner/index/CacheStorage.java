@@ -0,0 +1,73 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import java.util.Iterator;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+
+/**
+ * Backend of a {@link Cache}. Keys are arrays of key parts, ordered part by part, so that
+ * all the keys starting with a given prefix are contiguous.
+ *
+ * @since 6.2
+ */
+public interface CacheStorage<V> {
+
+  void put(Object[] key, V value);
+
+  /**
+   * Returns the value associated with the exact key, or null if not found.
+   */
+  @CheckForNull
+  V get(Object[] key);
+
+  boolean containsKey(Object[] key);
+
+  boolean remove(Object[] key);
+
+  /**
+   * Removes the value associated with the key, as well as all the values which keys start with it.
+   */
+  void clear(Object[] keyPrefix);
+
+  void clear();
+
+  /**
+   * Distinct key parts following the given prefix, in key order.
+   */
+  Set<Object> keySet(Object[] keyPrefix);
+
+  /**
+   * Lazy-loading of the values which keys start with the given prefix, in key order. Value associated with
+   * the exact prefix is excluded.
+   */
+  Iterator<V> values(Object[] keyPrefix);
+
+  /**
+   * Same as {@link #values(Object[])}, but values are returned along with their complete key.
+   */
+  Iterator<Cache.Entry<V>> entries(Object[] keyPrefix);
+
+  /**
+   * Releases resources. Storage can't be used anymore.
+   */
+  void close();
+}
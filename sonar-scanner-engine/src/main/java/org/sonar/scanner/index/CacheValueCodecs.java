@@ -0,0 +1,221 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Registry of {@link CacheValueCodec}. Values of types without codec are encoded with a compact representation
+ * for strings and primitive wrappers, and fallback to Java serialization for other {@link Serializable} types.
+ */
+public class CacheValueCodecs {
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte LONG = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte BOOLEAN = 5;
+  private static final byte CODEC = 6;
+  private static final byte SERIALIZED = 7;
+
+  private final Map<Class<?>, Integer> codecIndexByClass = new ConcurrentHashMap<>();
+  // copy-on-write so that concurrent reads of values never lock, codecs being registered only at startup
+  private final List<CacheValueCodec<?>> codecs = new CopyOnWriteArrayList<>();
+
+  public synchronized void register(Class<?> clazz, CacheValueCodec<?> codec) {
+    Integer index = codecIndexByClass.get(clazz);
+    if (index == null) {
+      // the codec is added before its index is published, so that writers never get the index of a missing codec
+      codecs.add(codec);
+      codecIndexByClass.put(clazz, codecs.size() - 1);
+    } else {
+      codecs.set(index, codec);
+    }
+  }
+
+  public byte[] encode(@Nullable Object value) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(bytes);
+      write(output, value);
+      output.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to encode value of type " + value.getClass().getName(), e);
+    }
+  }
+
+  @CheckForNull
+  public Object decode(byte[] bytes) {
+    try {
+      return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to decode value", e);
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void write(DataOutput output, @Nullable Object value) throws IOException {
+    Integer codecIndex = value == null ? null : codecIndexByClass.get(value.getClass());
+    if (codecIndex == null) {
+      writeValue(output, value);
+    } else {
+      output.writeByte(CODEC);
+      writeVarInt(output, codecIndex);
+      ((CacheValueCodec) codec(codecIndex)).write(output, value);
+    }
+  }
+
+  @CheckForNull
+  public Object read(DataInput input) throws IOException {
+    byte type = input.readByte();
+    if (type == CODEC) {
+      return codec(readVarInt(input)).read(input);
+    }
+    return readValue(input, type);
+  }
+
+  /**
+   * Writes a string, a primitive wrapper or a {@link Serializable} object, without using registered codecs.
+   */
+  public static void writeValue(DataOutput output, @Nullable Object value) throws IOException {
+    if (value == null) {
+      output.writeByte(NULL);
+    } else if (value instanceof String) {
+      output.writeByte(STRING);
+      writeString(output, (String) value);
+    } else if (value instanceof Integer) {
+      output.writeByte(INTEGER);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      output.writeByte(LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      output.writeByte(DOUBLE);
+      output.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      output.writeByte(BOOLEAN);
+      output.writeBoolean((Boolean) value);
+    } else if (value instanceof Serializable) {
+      output.writeByte(SERIALIZED);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+        objectOutput.writeObject(value);
+      }
+      writeVarInt(output, bytes.size());
+      output.write(bytes.toByteArray());
+    } else {
+      throw new IllegalArgumentException("No codec registered for type " + value.getClass().getName());
+    }
+  }
+
+  /**
+   * Reads a value written by {@link #writeValue(DataOutput, Object)}
+   */
+  @CheckForNull
+  public static Object readValue(DataInput input) throws IOException {
+    return readValue(input, input.readByte());
+  }
+
+  @CheckForNull
+  private static Object readValue(DataInput input, byte type) throws IOException {
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(input);
+      case INTEGER:
+        return input.readInt();
+      case LONG:
+        return input.readLong();
+      case DOUBLE:
+        return input.readDouble();
+      case BOOLEAN:
+        return input.readBoolean();
+      case SERIALIZED:
+        byte[] bytes = new byte[readVarInt(input)];
+        input.readFully(bytes);
+        try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+          return objectInput.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException("Fail to deserialize value", e);
+        }
+      default:
+        throw new IllegalStateException("Unknown type of value: " + type);
+    }
+  }
+
+  private CacheValueCodec<?> codec(int index) {
+    return codecs.get(index);
+  }
+
+  public static void writeString(DataOutput output, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(output, bytes.length);
+    output.write(bytes);
+  }
+
+  public static String readString(DataInput input) throws IOException {
+    byte[] bytes = new byte[readVarInt(input)];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Unsigned variable-length encoding of an int, 7 bits per byte.
+   */
+  public static void writeVarInt(DataOutput output, int i) throws IOException {
+    int value = i;
+    while ((value & ~0x7F) != 0) {
+      output.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.writeByte(value);
+  }
+
+  public static int readVarInt(DataInput input) throws IOException {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = input.readByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+}
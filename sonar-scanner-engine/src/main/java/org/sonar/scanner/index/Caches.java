@@ -19,30 +19,34 @@
  */
 package org.sonar.scanner.index;
 
-import com.google.common.collect.Maps;
-
-import java.util.Map;
-import java.util.Map.Entry;
-
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 import com.persistit.Exchange;
-import com.persistit.Value;
-import com.persistit.encoding.CoderManager;
 import com.persistit.Persistit;
-import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
+import com.persistit.Value;
 import com.persistit.Volume;
+import com.persistit.exception.PersistitException;
+import java.io.File;
+import java.util.Map;
+import javax.annotation.CheckForNull;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
 
 @ScannerSide
 public class Caches implements Startable {
-  private final Map<String, Exchange> cacheMap = Maps.newHashMap();
+  private final Map<String, CacheStorage<?>> cacheMap = Maps.newHashMap();
+  private final CacheValueCodecs codecs = new CacheValueCodecs();
+  private final CachesManager.Backend backend;
+  private final File tempDir;
+  @CheckForNull
   private Persistit persistit;
   private Volume volume;
+  private boolean started = false;
 
   public Caches(CachesManager caches) {
     persistit = caches.persistit();
+    backend = caches.backend();
+    tempDir = caches.tempDir();
     doStart();
   }
 
@@ -52,28 +56,38 @@ public class Caches implements Startable {
   }
 
   private void doStart() {
-    try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create a cache volume", e);
+    if (persistit != null) {
+      try {
+        persistit.flush();
+        volume = persistit.createTemporaryVolume();
+      } catch (Exception e) {
+        throw new IllegalStateException("Fail to create a cache volume", e);
+      }
     }
+    started = true;
   }
 
-  public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+  public void registerValueCoder(Class<?> clazz, CacheValueCodec<?> codec) {
+    codecs.register(clazz, codec);
+    if (persistit != null) {
+      persistit.getCoderManager().registerValueCoder(clazz, new PersistitValueCoder(codecs));
+    }
   }
 
   public <V> Cache<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
+    Preconditions.checkState(started && (persistit == null || volume.isOpened()), "Caches are not initialized");
     Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: " + cacheName);
     try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Cache<V> cache = new Cache<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
+      CacheStorage<V> storage;
+      if (backend == CachesManager.Backend.MMAP) {
+        storage = new MemoryMappedCacheStorage<>(cacheName, new File(tempDir, cacheName + ".mmap"), codecs);
+      } else {
+        Exchange exchange = persistit.getExchange(volume, cacheName, true);
+        exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
+        storage = new PersistitCacheStorage<>(cacheName, persistit, exchange);
+      }
+      cacheMap.put(cacheName, storage);
+      return new Cache<>(storage);
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create cache: " + cacheName, e);
     }
@@ -81,11 +95,12 @@ public class Caches implements Startable {
 
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
+    for (CacheStorage<?> storage : cacheMap.values()) {
+      storage.close();
     }
 
     cacheMap.clear();
+    started = false;
 
     if (volume != null) {
       try {
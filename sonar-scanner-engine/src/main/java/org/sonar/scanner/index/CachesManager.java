@@ -23,11 +23,16 @@ import com.persistit.Persistit;
 import com.persistit.exception.PersistitException;
 import com.persistit.logging.Slf4jAdapter;
 import java.io.File;
+import java.util.Locale;
 import java.util.Properties;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.scanner.bootstrap.GlobalProperties;
 
 import static org.sonar.core.util.FileUtils.deleteQuietly;
 
@@ -38,18 +43,43 @@ import static org.sonar.core.util.FileUtils.deleteQuietly;
  */
 @ScannerSide
 public class CachesManager implements Startable {
+
+  /**
+   * Storage of the caches created by {@link Caches}, either {@code persistit} (default) or {@code mmap}
+   */
+  public static final String BACKEND_PROPERTY = "sonar.batch.cacheBackend";
+
+  public enum Backend {
+    PERSISTIT, MMAP
+  }
+
   private File tempDir;
   private Persistit persistit;
   private final TempFolder tempFolder;
+  private final Backend backend;
 
-  public CachesManager(TempFolder tempFolder) {
+  public CachesManager(TempFolder tempFolder, GlobalProperties properties) {
     this.tempFolder = tempFolder;
-    initPersistit();
+    this.backend = parseBackend(properties.property(BACKEND_PROPERTY));
+    this.tempDir = tempFolder.newDir("caches");
+    if (backend == Backend.PERSISTIT) {
+      initPersistit();
+    }
+  }
+
+  private static Backend parseBackend(@Nullable String value) {
+    if (StringUtils.isBlank(value)) {
+      return Backend.PERSISTIT;
+    }
+    try {
+      return Backend.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unsupported value of property " + BACKEND_PROPERTY + ": " + value, e);
+    }
   }
 
   private void initPersistit() {
     try {
-      tempDir = tempFolder.newDir("caches");
       persistit = new Persistit();
       persistit.setPersistitLogger(new Slf4jAdapter(LoggerFactory.getLogger("PERSISTIT")));
       Properties props = new Properties();
@@ -92,7 +122,15 @@ public class CachesManager implements Startable {
     return tempDir;
   }
 
+  /**
+   * @return null if caches are not stored by Persistit
+   */
+  @CheckForNull
   Persistit persistit() {
     return persistit;
   }
+
+  Backend backend() {
+    return backend;
+  }
 }
@@ -0,0 +1,292 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Sets;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.annotation.CheckForNull;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Storage of values in a memory-mapped file, encoded with {@link CacheValueCodecs}. Only the keys and the addresses
+ * of values are kept on heap.
+ * <p>
+ * File is append-only: removed or replaced values are not reclaimed until the storage is closed.
+ * </p>
+ * <p>
+ * Writes are serialized, whereas reads and iterations can be executed concurrently, including while values are written.
+ * Iterators are weakly consistent.
+ * </p>
+ */
+class MemoryMappedCacheStorage<V> implements CacheStorage<V> {
+
+  static final int DEFAULT_REGION_SIZE = 8 * 1024 * 1024;
+  private static final int LENGTH_BYTES = 4;
+
+  private final String name;
+  private final File file;
+  private final CacheValueCodecs codecs;
+  private final int regionSize;
+  private final ConcurrentNavigableMap<Object[], Long> addressByKey = new ConcurrentSkipListMap<>(KeyComparator.INSTANCE);
+
+  private final RandomAccessFile randomAccessFile;
+  private final FileChannel channel;
+  private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+  private long fileLength = 0L;
+  private int writePosition = 0;
+
+  MemoryMappedCacheStorage(String name, File file, CacheValueCodecs codecs) {
+    this(name, file, codecs, DEFAULT_REGION_SIZE);
+  }
+
+  MemoryMappedCacheStorage(String name, File file, CacheValueCodecs codecs, int regionSize) {
+    this.name = name;
+    this.file = file;
+    this.codecs = codecs;
+    this.regionSize = regionSize;
+    try {
+      this.randomAccessFile = new RandomAccessFile(file, "rw");
+      this.channel = randomAccessFile.getChannel();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create storage of cache " + name + " in " + file.getAbsolutePath(), e);
+    }
+  }
+
+  @Override
+  public void put(Object[] key, V value) {
+    long address = append(codecs.encode(value));
+    addressByKey.put(key.clone(), address);
+  }
+
+  @CheckForNull
+  @Override
+  public V get(Object[] key) {
+    Long address = addressByKey.get(key);
+    return address == null ? null : read(address);
+  }
+
+  @Override
+  public boolean containsKey(Object[] key) {
+    return addressByKey.containsKey(key);
+  }
+
+  @Override
+  public boolean remove(Object[] key) {
+    return addressByKey.remove(key) != null;
+  }
+
+  @Override
+  public void clear(Object[] keyPrefix) {
+    Iterator<Object[]> keys = addressByKey.tailMap(keyPrefix, true).keySet().iterator();
+    while (keys.hasNext()) {
+      if (!startsWith(keys.next(), keyPrefix)) {
+        break;
+      }
+      keys.remove();
+    }
+  }
+
+  @Override
+  public void clear() {
+    addressByKey.clear();
+  }
+
+  @Override
+  public Set<Object> keySet(Object[] keyPrefix) {
+    Set<Object> keys = Sets.newLinkedHashSet();
+    for (Object[] key : addressByKey.tailMap(keyPrefix, false).keySet()) {
+      if (!startsWith(key, keyPrefix)) {
+        break;
+      }
+      keys.add(key[keyPrefix.length]);
+    }
+    return keys;
+  }
+
+  @Override
+  public Iterator<V> values(Object[] keyPrefix) {
+    Iterator<Map.Entry<Object[], Long>> addresses = entriesStartingWith(keyPrefix);
+    return new AbstractIterator<V>() {
+      @Override
+      protected V computeNext() {
+        return addresses.hasNext() ? read(addresses.next().getValue()) : endOfData();
+      }
+    };
+  }
+
+  @Override
+  public Iterator<Cache.Entry<V>> entries(Object[] keyPrefix) {
+    Iterator<Map.Entry<Object[], Long>> addresses = entriesStartingWith(keyPrefix);
+    return new AbstractIterator<Cache.Entry<V>>() {
+      @Override
+      protected Cache.Entry<V> computeNext() {
+        if (!addresses.hasNext()) {
+          return endOfData();
+        }
+        Map.Entry<Object[], Long> next = addresses.next();
+        return new Cache.Entry<>(next.getKey().clone(), read(next.getValue()));
+      }
+    };
+  }
+
+  @Override
+  public synchronized void close() {
+    addressByKey.clear();
+    regions = new MappedByteBuffer[0];
+    try {
+      channel.close();
+      randomAccessFile.close();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to close cache " + name, e);
+    }
+    deleteQuietly(file);
+  }
+
+  private Iterator<Map.Entry<Object[], Long>> entriesStartingWith(Object[] keyPrefix) {
+    Iterator<Map.Entry<Object[], Long>> entries = addressByKey.tailMap(keyPrefix, false).entrySet().iterator();
+    return new AbstractIterator<Map.Entry<Object[], Long>>() {
+      @Override
+      protected Map.Entry<Object[], Long> computeNext() {
+        if (entries.hasNext()) {
+          Map.Entry<Object[], Long> next = entries.next();
+          if (startsWith(next.getKey(), keyPrefix)) {
+            return next;
+          }
+        }
+        return endOfData();
+      }
+    };
+  }
+
+  /**
+   * @return the address of the value, made of the index of the region (high 32 bits) and the offset in region (low 32 bits)
+   */
+  private synchronized long append(byte[] bytes) {
+    int required = LENGTH_BYTES + bytes.length;
+    MappedByteBuffer[] current = regions;
+    if (current.length == 0 || writePosition + required > current[current.length - 1].capacity()) {
+      current = mapNewRegion(Math.max(regionSize, required));
+    }
+    int regionIndex = current.length - 1;
+    ByteBuffer region = current[regionIndex].duplicate();
+    region.position(writePosition);
+    region.putInt(bytes.length);
+    region.put(bytes);
+    long address = ((long) regionIndex << 32) | writePosition;
+    writePosition += required;
+    return address;
+  }
+
+  private MappedByteBuffer[] mapNewRegion(int size) {
+    try {
+      MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, fileLength, size);
+      fileLength += size;
+      MappedByteBuffer[] newRegions = Arrays.copyOf(regions, regions.length + 1);
+      newRegions[newRegions.length - 1] = region;
+      regions = newRegions;
+      writePosition = 0;
+      return newRegions;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to extend storage of cache " + name, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private V read(long address) {
+    ByteBuffer region = regions[(int) (address >>> 32)].duplicate();
+    int offset = (int) address;
+    byte[] bytes = new byte[region.getInt(offset)];
+    region.position(offset + LENGTH_BYTES);
+    region.get(bytes);
+    try {
+      return (V) codecs.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to get element from cache " + name, e);
+    }
+  }
+
+  private static boolean startsWith(Object[] key, Object[] prefix) {
+    if (key.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (KeyComparator.comparePart(key[i], prefix[i]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Orders keys part by part, a key being before all the keys it's a prefix of. Parts of different types
+   * are ordered by class name.
+   */
+  static class KeyComparator implements Comparator<Object[]> {
+    static final KeyComparator INSTANCE = new KeyComparator();
+
+    @Override
+    public int compare(Object[] k1, Object[] k2) {
+      int length = Math.min(k1.length, k2.length);
+      for (int i = 0; i < length; i++) {
+        int cmp = comparePart(k1[i], k2[i]);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return Integer.compare(k1.length, k2.length);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int comparePart(Object o1, Object o2) {
+      if (o1 == o2) {
+        return 0;
+      }
+      if (o1 == null) {
+        return -1;
+      }
+      if (o2 == null) {
+        return 1;
+      }
+      if (o1.getClass() != o2.getClass()) {
+        return o1.getClass().getName().compareTo(o2.getClass().getName());
+      }
+      if (o1 instanceof Comparable) {
+        return ((Comparable) o1).compareTo(o2);
+      }
+      throw new IllegalArgumentException("Key part is not comparable: " + o1.getClass().getName());
+    }
+  }
+}
@@ -17,38 +17,30 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.server.util;
+package org.sonar.scanner.index;
 
-import com.google.common.base.Throwables;
-import org.apache.commons.io.IOUtils;
+import com.persistit.Value;
+import com.persistit.encoding.CoderContext;
+import com.persistit.encoding.ValueCoder;
 
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import org.sonar.core.util.CloseableIterator;
-
-public class ObjectInputStreamIterator<E> extends CloseableIterator<E> {
+/**
+ * Adapts a {@link CacheValueCodec} to the Persistit {@link ValueCoder} API.
+ */
+class PersistitValueCoder implements ValueCoder {
 
-  private ObjectInputStream stream;
+  private final CacheValueCodecs codecs;
 
-  public ObjectInputStreamIterator(InputStream stream) throws IOException {
-    this.stream = new ObjectInputStream(stream);
+  PersistitValueCoder(CacheValueCodecs codecs) {
+    this.codecs = codecs;
   }
 
   @Override
-  protected E doNext() {
-    try {
-      return (E) stream.readObject();
-    } catch (EOFException e) {
-      return null;
-    } catch (Exception e) {
-      throw Throwables.propagate(e);
-    }
+  public void put(Value value, Object object, CoderContext context) {
+    value.putByteArray(codecs.encode(object));
   }
 
   @Override
-  protected void doClose() {
-    IOUtils.closeQuietly(stream);
+  public Object get(Value value, Class<?> clazz, CoderContext context) {
+    return codecs.decode(value.getByteArray());
   }
 }
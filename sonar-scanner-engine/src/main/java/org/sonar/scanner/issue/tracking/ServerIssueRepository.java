@@ -20,18 +20,28 @@
 package org.sonar.scanner.issue.tracking;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Table;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.core.component.ComponentKeys;
+import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.index.BatchComponent;
 import org.sonar.scanner.index.BatchComponentCache;
 import org.sonar.scanner.index.Cache;
 import org.sonar.scanner.index.Caches;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
+import org.sonar.scanner.repository.DefaultServerIssuesLoader;
+import org.sonar.scanner.repository.FileData;
+import org.sonar.scanner.repository.ProjectRepositories;
 import org.sonar.scanner.repository.ServerIssuesLoader;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
 
@@ -41,28 +51,69 @@ public class ServerIssueRepository {
 
   private static final Logger LOG = Loggers.get(ServerIssueRepository.class);
   private static final String LOG_MSG = "Load server issues";
+  // keys of files are URL-encoded in the request line, which must fit in the 48KB of maxHttpHeaderSize of Tomcat
+  // along with the other parameters and HTTP headers
+  static final int MAX_FILE_KEYS_LENGTH = 32 * 1024;
 
   private final Caches caches;
   private Cache<ServerIssue> issuesCache;
   private final ServerIssuesLoader previousIssuesLoader;
   private final ImmutableProjectReactor reactor;
   private final BatchComponentCache resourceCache;
+  private final ProjectRepositories projectRepositories;
+  private final DefaultAnalysisMode mode;
 
-  public ServerIssueRepository(Caches caches, ServerIssuesLoader previousIssuesLoader, ImmutableProjectReactor reactor, BatchComponentCache resourceCache) {
+  public ServerIssueRepository(Caches caches, ServerIssuesLoader previousIssuesLoader, ImmutableProjectReactor reactor, BatchComponentCache resourceCache,
+    ProjectRepositories projectRepositories, DefaultAnalysisMode mode) {
     this.caches = caches;
     this.previousIssuesLoader = previousIssuesLoader;
     this.reactor = reactor;
     this.resourceCache = resourceCache;
+    this.projectRepositories = projectRepositories;
+    this.mode = mode;
   }
 
   public void load() {
     Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
     this.issuesCache = caches.createCache("previousIssues");
     caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
-    previousIssuesLoader.load(reactor.getRoot().getKeyWithBranch(), new SaveIssueConsumer());
+    List<String> changedFileKeys = mode.changedFilesIssuesOnly() ? changedFileKeys() : null;
+    if (changedFileKeys == null) {
+      previousIssuesLoader.load(reactor.getRoot().getKeyWithBranch(), new SaveIssueConsumer());
+    } else {
+      LOG.debug("Load server issues of {} changed files", changedFileKeys.size());
+      previousIssuesLoader.load(reactor.getRoot().getKeyWithBranch(), changedFileKeys, new SaveIssueConsumer());
+    }
     profiler.stopInfo();
   }
 
+  /**
+   * Keys of the files which are added, changed or deleted since the last analysis. Issues of deleted files are
+   * needed in order to close them.
+   *
+   * @return null if there are too many keys to be sent in a request
+   */
+  @CheckForNull
+  private List<String> changedFileKeys() {
+    List<String> keys = new ArrayList<>();
+    for (BatchComponent component : resourceCache.all()) {
+      if (component.isFile() && ((DefaultInputFile) component.inputComponent()).status() != InputFile.Status.SAME) {
+        keys.add(component.key());
+      }
+    }
+    for (Table.Cell<String, String, FileData> serverFile : projectRepositories.fileDataByModuleAndPath().cellSet()) {
+      String key = ComponentKeys.createEffectiveKey(serverFile.getRowKey(), serverFile.getColumnKey());
+      if (resourceCache.get(key) == null) {
+        keys.add(key);
+      }
+    }
+    return fitInUrl(keys) ? keys : null;
+  }
+
+  static boolean fitInUrl(List<String> fileKeys) {
+    return DefaultServerIssuesLoader.encodeFileKeys(fileKeys).length() <= MAX_FILE_KEYS_LENGTH;
+  }
+
   public Iterable<ServerIssue> byComponent(BatchComponent component) {
     return issuesCache.values(component.batchId());
   }
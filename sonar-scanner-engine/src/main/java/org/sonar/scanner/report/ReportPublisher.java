@@ -45,6 +45,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.protocol.output.ScannerReport.Metadata.ReportFormat;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
 import org.sonarqube.ws.MediaTypes;
@@ -62,6 +63,11 @@ public class ReportPublisher implements Startable {
   public static final String KEEP_REPORT_PROP_KEY = "sonar.batch.keepReport";
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
+  /**
+   * Format of the report: "files" (default) writes one file per component and per kind of data, "segmented" writes
+   * data of all components in a single file.
+   */
+  public static final String REPORT_FORMAT_PROP_KEY = "sonar.batch.reportFormat";
 
   private final Settings settings;
   private final BatchWsClient wsClient;
@@ -90,7 +96,7 @@ public class ReportPublisher implements Startable {
   @Override
   public void start() {
     reportDir = new File(projectReactor.getRoot().getWorkDir(), "batch-report");
-    writer = new ScannerReportWriter(reportDir);
+    writer = new ScannerReportWriter(reportDir, reportFormat());
     contextPublisher.init(writer);
 
     if (!analysisMode.isIssues() && !analysisMode.isMediumTest()) {
@@ -101,8 +107,22 @@ public class ReportPublisher implements Startable {
     }
   }
 
+  private ReportFormat reportFormat() {
+    String format = settings.getString(REPORT_FORMAT_PROP_KEY);
+    if (format == null || format.isEmpty()) {
+      return ReportFormat.FILES;
+    }
+    for (ReportFormat reportFormat : ReportFormat.values()) {
+      if (reportFormat != ReportFormat.UNRECOGNIZED && reportFormat.name().equalsIgnoreCase(format)) {
+        return reportFormat;
+      }
+    }
+    throw MessageException.of(String.format("Invalid value of property %s: '%s'. Supported values are 'files' and 'segmented'.", REPORT_FORMAT_PROP_KEY, format));
+  }
+
   @Override
   public void stop() {
+    writer.close();
     if (!shouldKeepReport()) {
       deleteQuietly(reportDir);
     }
@@ -141,6 +161,7 @@ public class ReportPublisher implements Startable {
       for (ReportPublisherStep publisher : publishers) {
         publisher.publish(writer);
       }
+      writer.close();
       long stopTime = System.currentTimeMillis();
       LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir)));
 
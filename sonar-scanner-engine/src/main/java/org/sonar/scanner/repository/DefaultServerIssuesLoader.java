@@ -22,6 +22,7 @@ package org.sonar.scanner.repository;
 import com.google.common.base.Function;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
 import org.apache.commons.io.IOUtils;
 import org.sonar.scanner.bootstrap.BatchWsClient;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
@@ -30,6 +31,8 @@ import org.sonarqube.ws.client.GetRequest;
 
 public class DefaultServerIssuesLoader implements ServerIssuesLoader {
 
+  private static final String FILES_PARAM = "&files=";
+
   private final BatchWsClient wsClient;
 
   public DefaultServerIssuesLoader(BatchWsClient wsClient) {
@@ -43,6 +46,29 @@ public class DefaultServerIssuesLoader implements ServerIssuesLoader {
     parseIssues(is, consumer);
   }
 
+  @Override
+  public void load(String componentKey, Collection<String> fileKeys, Function<ServerIssue, Void> consumer) {
+    GetRequest getRequest = new GetRequest("/batch/issues.protobuf?key=" + BatchUtils.encodeForUrl(componentKey) + encodeFileKeys(fileKeys));
+    InputStream is = wsClient.call(getRequest).contentStream();
+    parseIssues(is, consumer);
+  }
+
+  /**
+   * Query string of the keys of files, as sent by {@link #load(String, Collection, Function)}. Keys can contain commas,
+   * so the parameter is repeated for each key. An empty parameter is sent when there are no keys, so that only
+   * the issues which are not on a file are returned.
+   */
+  public static String encodeFileKeys(Collection<String> fileKeys) {
+    if (fileKeys.isEmpty()) {
+      return FILES_PARAM;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (String fileKey : fileKeys) {
+      sb.append(FILES_PARAM).append(BatchUtils.encodeForUrl(fileKey));
+    }
+    return sb.toString();
+  }
+
   private static void parseIssues(InputStream is, Function<ServerIssue, Void> consumer) {
     try {
       ServerIssue previousIssue = ServerIssue.parseDelimitedFrom(is);
@@ -20,10 +20,16 @@
 package org.sonar.scanner.repository;
 
 import com.google.common.base.Function;
+import java.util.Collection;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 
 public interface ServerIssuesLoader {
 
   void load(String componentKey, Function<ServerIssue, Void> consumer);
 
+  /**
+   * Loads the issues of the given files and the issues which are not on a file
+   */
+  void load(String componentKey, Collection<String> fileKeys, Function<ServerIssue, Void> consumer);
+
 }
@@ -22,25 +22,25 @@ package org.sonar.scanner.scan.filesystem;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileSystemLoopException;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
@@ -55,7 +55,8 @@ import org.sonar.api.utils.MessageException;
 import org.sonar.scanner.util.ProgressReport;
 
 /**
- * Index input files into {@link InputPathCache}.
+ * Index input files into {@link InputPathCache}. Directories are walked in parallel: listing of each directory is a task
+ * of the executor, which submits the tasks of its sub-directories and the metadata computation of its files.
  */
 @ScannerSide
 public class FileIndexer {
@@ -68,7 +69,7 @@ public class FileIndexer {
 
   private ProgressReport progressReport;
   private ExecutorService executorService;
-  private List<Future<Void>> tasks;
+  private Queue<Future<Void>> tasks;
 
   public FileIndexer(ExclusionFilters exclusionFilters, InputFileBuilderFactory inputFileBuilderFactory, ProjectDefinition def, InputFileFilter[] filters) {
     this.filters = filters;
@@ -95,11 +96,14 @@ public class FileIndexer {
     InputFileBuilder inputFileBuilder = inputFileBuilderFactory.create(fileSystem);
     int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
     executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("FileIndexer-%d").build());
-    tasks = new ArrayList<>();
-    indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.sources(), InputFile.Type.MAIN);
-    indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.tests(), InputFile.Type.TEST);
-
-    waitForTasksToComplete();
+    tasks = new ConcurrentLinkedQueue<>();
+    try {
+      indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.sources(), InputFile.Type.MAIN);
+      indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.tests(), InputFile.Type.TEST);
+      waitForTasksToComplete();
+    } finally {
+      executorService.shutdownNow();
+    }
 
     progressReport.stop(progress.count() + " files indexed");
 
@@ -108,9 +112,12 @@ public class FileIndexer {
     }
   }
 
+  /**
+   * Tasks submit new tasks before completing, so the queue is empty only when the whole file tree has been indexed
+   */
   private void waitForTasksToComplete() {
-    executorService.shutdown();
-    for (Future<Void> task : tasks) {
+    Future<Void> task;
+    while ((task = tasks.poll()) != null) {
       try {
         task.get();
       } catch (ExecutionException e) {
@@ -138,8 +145,63 @@ public class FileIndexer {
 
   private void indexDirectory(final InputFileBuilder inputFileBuilder, final DefaultModuleFileSystem fileSystem, final Progress status,
     final File dirToIndex, final InputFile.Type type) throws IOException {
-    Files.walkFileTree(dirToIndex.toPath().normalize(), Collections.singleton(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
-      new IndexFileVisitor(inputFileBuilder, fileSystem, status, type));
+    Path dir = dirToIndex.toPath().normalize();
+    submitDirectory(new IndexedDirectory(dir, Files.readAttributes(dir, BasicFileAttributes.class), null), inputFileBuilder, fileSystem, status, type);
+  }
+
+  private void submitDirectory(final IndexedDirectory dir, final InputFileBuilder inputFileBuilder, final DefaultModuleFileSystem fileSystem,
+    final Progress status, final InputFile.Type type) throws IOException {
+    if (isExcludedDirectory(dir.path)) {
+      return;
+    }
+    tasks.add(executorService.submit(new Callable<Void>() {
+      @Override
+      public Void call() {
+        try {
+          visitDirectory(dir, inputFileBuilder, fileSystem, status, type);
+        } catch (IOException e) {
+          throw new IllegalStateException("Failed to index files", e);
+        }
+        return null;
+      }
+    }));
+  }
+
+  private void visitDirectory(IndexedDirectory dir, InputFileBuilder inputFileBuilder, DefaultModuleFileSystem fileSystem, Progress status,
+    InputFile.Type type) throws IOException {
+    try (DirectoryStream<Path> children = Files.newDirectoryStream(dir.path)) {
+      for (Path child : children) {
+        BasicFileAttributes attrs = readAttributes(child);
+        if (!attrs.isDirectory()) {
+          if (!Files.isHidden(child)) {
+            indexFile(inputFileBuilder, fileSystem, status, child, type);
+          }
+        } else if (dir.isLoop(child, attrs)) {
+          LOG.warn("Not indexing due to symlink loop: {}", child.toFile());
+        } else {
+          submitDirectory(new IndexedDirectory(child, attrs, dir), inputFileBuilder, fileSystem, status, type);
+        }
+      }
+    }
+  }
+
+  /**
+   * Links are followed. Attributes of the link itself are returned when its target does not exist.
+   */
+  private static BasicFileAttributes readAttributes(Path path) throws IOException {
+    try {
+      return Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (IOException e) {
+      return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    }
+  }
+
+  private static boolean isExcludedDirectory(Path dir) throws IOException {
+    Path fileName = dir.getFileName();
+    if (fileName != null && fileName.toString().length() > 1 && fileName.toString().charAt(0) == '.') {
+      return true;
+    }
+    return Files.isHidden(dir);
   }
 
   private void indexFile(InputFileBuilder inputFileBuilder, DefaultModuleFileSystem fileSystem, Progress progress, Path sourceFile, InputFile.Type type) throws IOException {
@@ -190,53 +252,34 @@ public class FileIndexer {
     return true;
   }
 
-  private class IndexFileVisitor implements FileVisitor<Path> {
-    private InputFileBuilder inputFileBuilder;
-    private DefaultModuleFileSystem fileSystem;
-    private Progress status;
-    private Type type;
-
-    IndexFileVisitor(InputFileBuilder inputFileBuilder, DefaultModuleFileSystem fileSystem, Progress status, InputFile.Type type) {
-      this.inputFileBuilder = inputFileBuilder;
-      this.fileSystem = fileSystem;
-      this.status = status;
-      this.type = type;
+  /**
+   * Directory being walked, with its ancestors in order to detect loops of symbolic links
+   */
+  private static class IndexedDirectory {
+    private final Path path;
+    @CheckForNull
+    private final Object fileKey;
+    @CheckForNull
+    private final IndexedDirectory parent;
+
+    IndexedDirectory(Path path, BasicFileAttributes attrs, @Nullable IndexedDirectory parent) {
+      this.path = path;
+      this.fileKey = attrs.fileKey();
+      this.parent = parent;
     }
 
-    @Override
-    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-      Path fileName = dir.getFileName();
-
-      if (fileName != null && fileName.toString().length() > 1 && fileName.toString().charAt(0) == '.') {
-        return FileVisitResult.SKIP_SUBTREE;
-      }
-      if (Files.isHidden(dir)) {
-        return FileVisitResult.SKIP_SUBTREE;
-      }
-      return FileVisitResult.CONTINUE;
-    }
-
-    @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-      if (!Files.isHidden(file)) {
-        indexFile(inputFileBuilder, fileSystem, status, file, type);
-      }
-      return FileVisitResult.CONTINUE;
-    }
-
-    @Override
-    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-      if (exc instanceof FileSystemLoopException) {
-        LOG.warn("Not indexing due to symlink loop: {}", file.toFile());
-        return FileVisitResult.CONTINUE;
+    boolean isLoop(Path child, BasicFileAttributes attrs) throws IOException {
+      Object childKey = attrs.fileKey();
+      for (IndexedDirectory ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+        if (childKey != null && ancestor.fileKey != null) {
+          if (Objects.equals(childKey, ancestor.fileKey)) {
+            return true;
+          }
+        } else if (Files.isSameFile(child, ancestor.path)) {
+          return true;
+        }
       }
-
-      throw exc;
-    }
-
-    @Override
-    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-      return FileVisitResult.CONTINUE;
+      return false;
     }
   }
 
@@ -253,15 +296,15 @@ public class FileIndexer {
       progressReport.message(indexed.size() + " files indexed...  (last one was " + inputFile.relativePath() + ")");
     }
 
-    void increaseExcludedByPatternsCount() {
+    synchronized void increaseExcludedByPatternsCount() {
       excludedByPatternsCount++;
     }
 
-    public int excludedByPatternsCount() {
+    public synchronized int excludedByPatternsCount() {
       return excludedByPatternsCount;
     }
 
-    int count() {
+    synchronized int count() {
       return indexed.size();
     }
   }
@@ -19,14 +19,16 @@
  */
 package org.sonar.scanner.scan.measure;
 
-import com.persistit.Value;
-import com.persistit.encoding.CoderContext;
-import com.persistit.encoding.ValueCoder;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import org.sonar.api.batch.measure.MetricFinder;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.scanner.index.CacheValueCodec;
+import org.sonar.scanner.index.CacheValueCodecs;
 
-class MeasureValueCoder implements ValueCoder {
+class MeasureValueCoder implements CacheValueCodec<DefaultMeasure<?>> {
 
   private final MetricFinder metricFinder;
 
@@ -35,23 +37,22 @@ class MeasureValueCoder implements ValueCoder {
   }
 
   @Override
-  public void put(Value value, Object object, CoderContext context) {
-    DefaultMeasure<?> m = (DefaultMeasure<?>) object;
+  public void write(DataOutput output, DefaultMeasure<?> m) throws IOException {
     org.sonar.api.batch.measure.Metric<?> metric = m.metric();
-    value.putString(metric.key());
-    value.put(m.value());
+    CacheValueCodecs.writeString(output, metric.key());
+    CacheValueCodecs.writeValue(output, m.value());
   }
 
   @Override
-  public Object get(Value value, Class clazz, CoderContext context) {
-    String metricKey = value.getString();
+  public DefaultMeasure<?> read(DataInput input) throws IOException {
+    String metricKey = CacheValueCodecs.readString(input);
     org.sonar.api.batch.measure.Metric<?> metric = metricFinder.findByKey(metricKey);
     if (metric == null) {
       throw new IllegalStateException("Unknow metric with key " + metricKey);
     }
     DefaultMeasure<?> m = new DefaultMeasure()
       .forMetric(metric)
-      .withValue((Serializable) value.get());
+      .withValue((Serializable) CacheValueCodecs.readValue(input));
     return m;
   }
 }
@@ -103,6 +103,25 @@ public class DefaultAnalysisModeTest {
     assertThat(mode.scanAllFiles()).isTrue();
   }
 
+  @Test
+  public void changed_files_issues_only() {
+    Map<String, String> props = new HashMap<>();
+    props.put(CoreProperties.ANALYSIS_MODE, CoreProperties.ANALYSIS_MODE_ISSUES);
+    GlobalProperties globalProps = new GlobalProperties(props);
+
+    DefaultAnalysisMode mode = new DefaultAnalysisMode(globalProps, new AnalysisProperties(new HashMap<String, String>()));
+    assertThat(mode.changedFilesIssuesOnly()).isFalse();
+
+    props.put("sonar.issuesMode.changedFilesIssuesOnly", "true");
+    mode = new DefaultAnalysisMode(globalProps, new AnalysisProperties(props));
+    assertThat(mode.changedFilesIssuesOnly()).isTrue();
+
+    // all the issues are needed when all the files are scanned
+    props.put("sonar.scanAllFiles", "true");
+    mode = new DefaultAnalysisMode(globalProps, new AnalysisProperties(props));
+    assertThat(mode.changedFilesIssuesOnly()).isFalse();
+  }
+
   @Test
   public void default_publish_mode() {
     DefaultAnalysisMode mode = createMode(null);
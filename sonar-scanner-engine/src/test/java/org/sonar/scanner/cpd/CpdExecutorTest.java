@@ -25,6 +25,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -37,6 +39,8 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
@@ -49,7 +53,9 @@ import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.ReportPublisher;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 public class CpdExecutorTest {
@@ -94,7 +100,9 @@ public class CpdExecutorTest {
 
   private BatchComponent createComponent(String relativePath, int lines) {
     org.sonar.api.resources.Resource sampleFile = org.sonar.api.resources.File.create("relativePath").setEffectiveKey("foo:" + relativePath);
-    return componentCache.add(sampleFile, null).setInputComponent(new DefaultInputFile("foo", relativePath).setLines(lines));
+    return componentCache.add(sampleFile, null).setInputComponent(new DefaultInputFile("foo", relativePath)
+      .setModuleBaseDir(temp.getRoot().toPath())
+      .setLines(lines));
   }
 
   @Test
@@ -197,6 +205,74 @@ public class CpdExecutorTest {
     assertDuplication(dups[1], 15, 214, batchComponent3.batchId(), 15, 214);
   }
 
+  @Test
+  public void defaultThreadsIsNumberOfProcessors() {
+    assertThat(executor.getThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "3");
+    assertThat(executor.getThreads()).isEqualTo(3);
+  }
+
+  @Test
+  public void detectDuplicationsOfAllFilesConcurrently() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "2");
+    SonarCpdBlockIndex realIndex = new SonarCpdBlockIndex(publisher, componentCache, settings);
+    for (BatchComponent component : Arrays.asList(batchComponent1, batchComponent2, batchComponent3)) {
+      DefaultInputFile inputFile = (DefaultInputFile) component.inputComponent();
+      inputFile.setLanguage("java");
+      realIndex.insert(inputFile, Arrays.asList(newBlock(component, 0, 1L), newBlock(component, 1, 2L), newBlock(component, 2, 3L)));
+    }
+    executor = new CpdExecutor(settings, realIndex, publisher, componentCache);
+
+    executor.execute();
+
+    for (BatchComponent component : Arrays.asList(batchComponent1, batchComponent2, batchComponent3)) {
+      assertThat(reader.readComponentDuplications(component.batchId())).hasSize(1);
+    }
+  }
+
+  @Test
+  public void skipFileWhenDetectionTimesOut() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "2");
+    SonarCpdBlockIndex realIndex = new SonarCpdBlockIndex(publisher, componentCache, settings);
+    realIndex.insert((DefaultInputFile) batchComponent1.inputComponent(), Arrays.asList(newBlock(batchComponent1, 0, 0L)));
+    for (BatchComponent component : Arrays.asList(batchComponent2, batchComponent3)) {
+      DefaultInputFile inputFile = (DefaultInputFile) component.inputComponent();
+      inputFile.setLanguage("java");
+      realIndex.insert(inputFile, Arrays.asList(newBlock(component, 0, 1L), newBlock(component, 1, 2L), newBlock(component, 2, 3L)));
+    }
+    SonarCpdBlockIndex slowIndex = spy(realIndex);
+    CountDownLatch endOfTest = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      // interrupted when the detection is cancelled
+      endOfTest.await(1, TimeUnit.MINUTES);
+      return Collections.emptyList();
+    }).when(slowIndex).getBySequenceHash(new ByteArray(0L));
+    executor = new CpdExecutor(settings, slowIndex, publisher, componentCache);
+
+    try {
+      executor.execute(1);
+    } finally {
+      endOfTest.countDown();
+    }
+
+    assertThat(logTester.logs(LoggerLevel.WARN))
+      .contains("Timeout during detection of duplications for " + ((DefaultInputFile) batchComponent1.inputComponent()).absolutePath());
+    assertThat(reader.readComponentDuplications(batchComponent1.batchId())).isEmpty();
+    assertThat(reader.readComponentDuplications(batchComponent2.batchId())).hasSize(1);
+    assertThat(reader.readComponentDuplications(batchComponent3.batchId())).hasSize(1);
+  }
+
+  private static Block newBlock(BatchComponent component, int indexInFile, long hash) {
+    return Block.builder()
+      .setResourceId(component.key())
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(indexInFile)
+      .setLines(indexInFile + 1, indexInFile + 2)
+      .setUnit(indexInFile, indexInFile + 1)
+      .build();
+  }
+
   private Duplication[] readDuplications(int expected) {
     assertThat(reader.readComponentDuplications(batchComponent1.batchId())).hasSize(expected);
     Duplication[] duplications = new Duplication[expected];
@@ -46,7 +46,8 @@ public abstract class AbstractCachesTest {
     Map<String, String> props = ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
       CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath());
 
-    return new CachesManager(new GlobalTempFolderProvider().provide(new GlobalProperties(props)));
+    GlobalProperties globalProperties = new GlobalProperties(props);
+    return new CachesManager(new GlobalTempFolderProvider().provide(globalProperties), globalProperties);
   }
 
   @BeforeClass
@@ -0,0 +1,135 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.CoreProperties;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.GlobalTempFolderProvider;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Compares the backends of {@link Cache} on the typical workloads of scanner: values are put by component, then
+ * read or iterated by component.
+ * <p>
+ * Run with {@code main()} from the IDE, or with {@code java -cp <test classpath> org.sonar.scanner.index.CacheBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CacheBenchmark {
+
+  private static final int COMPONENTS = 1_000;
+  private static final int VALUES_PER_COMPONENT = 20;
+
+  @Param({"persistit", "mmap"})
+  public String backend;
+
+  private File tempDir;
+  private CachesManager cachesManager;
+  private Caches caches;
+  private Cache<String> cache;
+  private int counter = 0;
+
+  @Setup(Level.Iteration)
+  public void setUp() throws Exception {
+    tempDir = Files.createTempDirectory("cache-benchmark").toFile();
+    Map<String, String> props = ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, tempDir.getAbsolutePath(),
+      CoreProperties.GLOBAL_WORKING_DIRECTORY, tempDir.getAbsolutePath(),
+      CachesManager.BACKEND_PROPERTY, backend);
+    GlobalProperties globalProperties = new GlobalProperties(props);
+    cachesManager = new CachesManager(new GlobalTempFolderProvider().provide(globalProperties), globalProperties);
+    caches = new Caches(cachesManager);
+    cache = caches.createCache("benchmark");
+    for (int c = 0; c < COMPONENTS; c++) {
+      for (int v = 0; v < VALUES_PER_COMPONENT; v++) {
+        cache.put(componentKey(c), "metric" + v, "value of metric " + v + " on component " + c);
+      }
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    caches.stop();
+    cachesManager.stop();
+    deleteQuietly(tempDir);
+  }
+
+  @Benchmark
+  public void put() {
+    int i = counter++;
+    cache.put(componentKey(i % COMPONENTS), "new" + i, "new value " + i);
+  }
+
+  @Benchmark
+  public String get() {
+    int i = counter++;
+    return cache.get(componentKey(i % COMPONENTS), "metric" + (i % VALUES_PER_COMPONENT));
+  }
+
+  @Benchmark
+  public void iterate_component(Blackhole blackhole) {
+    int i = counter++;
+    for (String value : cache.values(componentKey(i % COMPONENTS))) {
+      blackhole.consume(value);
+    }
+  }
+
+  @Benchmark
+  public void iterate_all(Blackhole blackhole) {
+    for (Cache.Entry<String> entry : cache.entries()) {
+      blackhole.consume(entry);
+    }
+  }
+
+  private static String componentKey(int index) {
+    return "project:src/main/java/org/sonar/Component" + index + ".java";
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CacheBenchmark.class.getSimpleName()).build()).run();
+  }
+}
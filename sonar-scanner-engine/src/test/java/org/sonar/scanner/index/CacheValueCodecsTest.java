@@ -0,0 +1,102 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheValueCodecsTest {
+
+  private CacheValueCodecs codecs = new CacheValueCodecs();
+
+  @Test
+  public void encode_simple_values() {
+    assertThat(codecs.decode(codecs.encode(null))).isNull();
+    assertThat(codecs.decode(codecs.encode("été"))).isEqualTo("été");
+    assertThat(codecs.decode(codecs.encode(42))).isEqualTo(42);
+    assertThat(codecs.decode(codecs.encode(42L))).isEqualTo(42L);
+    assertThat(codecs.decode(codecs.encode(4.2))).isEqualTo(4.2);
+    assertThat(codecs.decode(codecs.encode(true))).isEqualTo(true);
+    // 1 byte of type + 1 byte of length + 3 bytes
+    assertThat(codecs.encode("foo")).hasSize(5);
+  }
+
+  @Test
+  public void fallback_to_java_serialization() {
+    Date date = new Date(123456789L);
+    assertThat(codecs.decode(codecs.encode(date))).isEqualTo(date);
+  }
+
+  @Test
+  public void use_registered_codec() {
+    codecs.register(Point.class, new PointCodec());
+
+    Point point = (Point) codecs.decode(codecs.encode(new Point(3, 300)));
+
+    assertThat(point.x).isEqualTo(3);
+    assertThat(point.y).isEqualTo(300);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_no_codec_for_non_serializable_value() {
+    codecs.encode(new Point(1, 2));
+  }
+
+  @Test
+  public void var_int() throws IOException {
+    for (int i : new int[] {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, -1}) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      CacheValueCodecs.writeVarInt(new DataOutputStream(bytes), i);
+      assertThat(CacheValueCodecs.readVarInt(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())))).isEqualTo(i);
+    }
+  }
+
+  private static class Point {
+    private final int x;
+    private final int y;
+
+    Point(int x, int y) {
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  private static class PointCodec implements CacheValueCodec<Point> {
+    @Override
+    public void write(DataOutput output, Point value) throws IOException {
+      CacheValueCodecs.writeVarInt(output, value.x);
+      CacheValueCodecs.writeVarInt(output, value.y);
+    }
+
+    @Override
+    public Point read(DataInput input) throws IOException {
+      return new Point(CacheValueCodecs.readVarInt(input), CacheValueCodecs.readVarInt(input));
+    }
+  }
+}
@@ -19,9 +19,13 @@
  */
 package org.sonar.scanner.index;
 
-import org.junit.Test;
-
+import com.google.common.collect.ImmutableMap;
 import java.io.File;
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.api.CoreProperties;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.GlobalTempFolderProvider;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -39,4 +43,26 @@ public class CachesManagerTest extends AbstractCachesTest {
     assertThat(cachesManager.tempDir()).isNull();
     assertThat(cachesManager.persistit()).isNull();
   }
+
+  @Test
+  public void should_not_start_persistit_if_caches_are_memory_mapped() {
+    Map<String, String> props = ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      CachesManager.BACKEND_PROPERTY, "mmap");
+    GlobalProperties globalProperties = new GlobalProperties(props);
+    CachesManager mmapCachesManager = new CachesManager(new GlobalTempFolderProvider().provide(globalProperties), globalProperties);
+    File tempDir = mmapCachesManager.tempDir();
+    assertThat(tempDir).isDirectory().exists();
+    assertThat(mmapCachesManager.backend()).isEqualTo(CachesManager.Backend.MMAP);
+    assertThat(mmapCachesManager.persistit()).isNull();
+
+    Caches mmapCaches = new Caches(mmapCachesManager);
+    Cache<String> cache = mmapCaches.createCache("foo");
+    cache.put("key", "value");
+    assertThat(cache.get("key")).isEqualTo("value");
+    mmapCaches.stop();
+    mmapCachesManager.stop();
+
+    assertThat(tempDir).doesNotExist();
+  }
 }
@@ -0,0 +1,179 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MemoryMappedCacheStorageTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File file;
+  private MemoryMappedCacheStorage<String> storage;
+
+  @Before
+  public void setUp() throws IOException {
+    file = new File(temp.newFolder(), "test.mmap");
+    // small regions to test values written in several regions
+    storage = new MemoryMappedCacheStorage<>("test", file, new CacheValueCodecs(), 64);
+  }
+
+  @After
+  public void tearDown() {
+    storage.close();
+  }
+
+  @Test
+  public void put_get_and_remove() {
+    Cache<String> cache = new Cache<>(storage);
+    assertThat(cache.get("europe", "france")).isNull();
+
+    cache.put("europe", "france", "paris");
+    cache.put("europe", "italy", "rome");
+    cache.put("asia", "china", "pekin");
+
+    assertThat(cache.get("europe")).isNull();
+    assertThat(cache.get("europe", "france")).isEqualTo("paris");
+    assertThat(cache.containsKey("europe")).isFalse();
+    assertThat(cache.containsKey("europe", "italy")).isTrue();
+    assertThat(cache.keySet()).containsExactly("asia", "europe");
+    assertThat(cache.keySet("europe")).containsExactly("france", "italy");
+    assertThat(cache.values()).containsExactly("pekin", "paris", "rome");
+    assertThat(cache.values("europe")).containsExactly("paris", "rome");
+    assertThat(cache.values("oceania")).isEmpty();
+
+    Cache.Entry<String> first = cache.entries("europe").iterator().next();
+    assertThat(first.key()).isEqualTo(new Object[] {"europe", "france"});
+    assertThat(first.value()).isEqualTo("paris");
+
+    assertThat(cache.remove("europe", "france")).isTrue();
+    assertThat(cache.remove("europe", "france")).isFalse();
+    assertThat(cache.values("europe")).containsExactly("rome");
+
+    cache.clear("europe");
+    assertThat(cache.keySet()).containsExactly("asia");
+    cache.clear();
+    assertThat(cache.values()).isEmpty();
+  }
+
+  @Test
+  public void replace_value() {
+    Cache<String> cache = new Cache<>(storage);
+    cache.put("france", "paris");
+    cache.put("france", "lyon");
+
+    assertThat(cache.get("france")).isEqualTo("lyon");
+    assertThat(cache.values()).containsExactly("lyon");
+  }
+
+  @Test
+  public void key_being_prefix_of_another_key() {
+    Cache<String> cache = new Cache<>(storage);
+    cache.put("struts-el:ELButtonTag", "the Tag");
+    cache.put("struts-el:ELButtonTagBeanInfo", "the BeanInfo");
+    cache.put("struts-el:ELButtonTag", "child", "the child");
+
+    assertThat(cache.get("struts-el:ELButtonTag")).isEqualTo("the Tag");
+    assertThat(cache.get("struts-el:ELButtonTagBeanInfo")).isEqualTo("the BeanInfo");
+    assertThat(cache.values("struts-el:ELButtonTag")).containsExactly("the child");
+  }
+
+  @Test
+  public void store_values_larger_than_region() {
+    Cache<String> cache = new Cache<>(storage);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append(i);
+    }
+    String large = sb.toString();
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i % 10 == 0 ? large : ("value" + i));
+    }
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(cache.get(i)).isEqualTo(i % 10 == 0 ? large : ("value" + i));
+    }
+  }
+
+  @Test
+  public void concurrent_readers() throws Exception {
+    Cache<String> cache = new Cache<>(storage);
+    for (int i = 0; i < 1000; i++) {
+      cache.put("module", i, "value" + i);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit((Callable<Integer>) () -> {
+          int count = 0;
+          for (int i = 0; i < 1000; i++) {
+            if (("value" + i).equals(cache.get("module", i))) {
+              count++;
+            }
+          }
+          return count + ImmutableList.copyOf(cache.values("module")).size();
+        }));
+      }
+      for (Future<Integer> future : futures) {
+        assertThat(future.get()).isEqualTo(2000);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void close_deletes_file() {
+    new Cache<String>(storage).put("foo", "bar");
+    assertThat(file).exists();
+
+    storage.close();
+
+    assertThat(file).doesNotExist();
+  }
+
+  @Test
+  public void order_keys_of_different_types() {
+    MemoryMappedCacheStorage.KeyComparator comparator = MemoryMappedCacheStorage.KeyComparator.INSTANCE;
+
+    assertThat(comparator.compare(new Object[] {"a"}, new Object[] {"a", "b"})).isNegative();
+    assertThat(comparator.compare(new Object[] {"a", 2}, new Object[] {"a", 10})).isNegative();
+    assertThat(comparator.compare(new Object[] {null}, new Object[] {"a"})).isNegative();
+    assertThat(comparator.compare(new Object[] {1}, new Object[] {"a"})).isEqualTo(Integer.class.getName().compareTo(String.class.getName()));
+  }
+}
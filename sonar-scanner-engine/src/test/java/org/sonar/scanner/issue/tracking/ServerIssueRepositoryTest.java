@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import com.google.common.base.Strings;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServerIssueRepositoryTest {
+
+  @Test
+  public void file_keys_fit_in_url() {
+    assertThat(ServerIssueRepository.fitInUrl(Collections.<String>emptyList())).isTrue();
+    assertThat(ServerIssueRepository.fitInUrl(Arrays.asList("foo:a.xoo", "foo:b,c.xoo"))).isTrue();
+  }
+
+  @Test
+  public void file_keys_do_not_fit_in_url_once_encoded() {
+    // 12_000 characters, but each one is encoded as "%2C"
+    String longKey = "foo:" + Strings.repeat(",", 12_000);
+    assertThat(longKey.length()).isLessThan(ServerIssueRepository.MAX_FILE_KEYS_LENGTH);
+    assertThat(ServerIssueRepository.fitInUrl(Arrays.asList(longKey))).isFalse();
+
+    // "é" is encoded as "%C3%A9"
+    String nonAsciiKey = "foo:" + Strings.repeat("é", 6_000);
+    assertThat(ServerIssueRepository.fitInUrl(Arrays.asList(nonAsciiKey))).isFalse();
+  }
+
+  @Test
+  public void many_file_keys_do_not_fit_in_url() {
+    String[] keys = new String[ServerIssueRepository.MAX_FILE_KEYS_LENGTH / 10];
+    Arrays.fill(keys, "foo:a.xoo");
+    assertThat(ServerIssueRepository.fitInUrl(Arrays.asList(keys))).isFalse();
+  }
+}
@@ -25,6 +25,7 @@ import org.sonar.batch.bootstrapper.Batch;
 import org.sonar.batch.bootstrapper.EnvironmentInformation;
 import org.sonar.batch.bootstrapper.IssueListener;
 import org.sonar.batch.bootstrapper.LogOutput;
+import org.sonar.core.component.ComponentKeys;
 import com.google.common.collect.Table;
 import com.google.common.collect.HashBasedTable;
 import org.sonarqube.ws.QualityProfiles.SearchWsResponse.QualityProfile;
@@ -59,6 +60,7 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -476,6 +478,15 @@ public class BatchMediumTester {
         consumer.apply(serverIssue);
       }
     }
+
+    @Override
+    public void load(String componentKey, Collection<String> fileKeys, Function<ServerIssue, Void> consumer) {
+      for (ServerIssue serverIssue : serverIssues) {
+        if (!serverIssue.hasPath() || fileKeys.contains(ComponentKeys.createEffectiveKey(serverIssue.getModuleKey(), serverIssue.getPath()))) {
+          consumer.apply(serverIssue);
+        }
+      }
+    }
   }
 
   private static class FakeServerLineHashesLoader implements ServerLineHashesLoader {
@@ -37,6 +37,8 @@ import org.sonar.xoo.XooPlugin;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -269,6 +271,34 @@ public class FileSystemMediumTest {
     }
   }
 
+  @Test
+  public void scanProjectWithSymlinkLoops() throws IOException {
+    if (!System2.INSTANCE.isOsWindows()) {
+      File srcDir = new File(baseDir, "src");
+      // many directories and files, so that they are walked by several threads
+      for (int i = 0; i < 10; i++) {
+        File dir = new File(srcDir, "dir" + i + "/sub");
+        dir.mkdirs();
+        for (int j = 0; j < 10; j++) {
+          FileUtils.write(new File(dir, "sample" + j + ".xoo"), "Sample xoo\ncontent");
+        }
+      }
+      Files.createSymbolicLink(new File(srcDir, "dir0/loop").toPath(), srcDir.toPath());
+      Files.createSymbolicLink(new File(srcDir, "dir1/sub/loop").toPath(), Paths.get(".."));
+      Files.createSymbolicLink(new File(srcDir, "dir2/sub/loop").toPath(), Paths.get("."));
+
+      TaskResult result = tester.newTask()
+        .properties(builder
+          .put("sonar.sources", "src")
+          .build())
+        .start();
+
+      assertThat(result.inputFiles()).hasSize(100);
+      assertThat(result.inputFiles()).extracting("relativePath").doesNotContain("src/dir0/loop/dir1/sub/sample0.xoo");
+      assertThat(result.inputFile("src/dir1/sub/sample0.xoo")).isNotNull();
+    }
+  }
+
   // SONAR-6719
   @Test
   public void scanProjectWithWrongCase() {
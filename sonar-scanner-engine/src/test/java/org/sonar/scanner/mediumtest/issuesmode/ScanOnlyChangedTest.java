@@ -160,6 +160,22 @@ public class ScanOnlyChangedTest {
     assertNumberIssuesOnFile(result, "HelloJava.xoo", 1);
   }
 
+  @Test
+  public void testScanOnlyChangedFilesWithIssuesOfChangedFilesOnly() throws Exception {
+    File projectDir = copyProject("/mediumtest/xoo/sample");
+
+    TaskResult result = tester
+      .newScanTask(new File(projectDir, "sonar-project.properties"))
+      .property("sonar.issuesMode.changedFilesIssuesOnly", "true")
+      .start();
+
+    /*
+     * Same as testScanOnlyChangedFiles, except that the server issue of unchanged HelloJava.xoo is not loaded
+     */
+    assertNumberIssues(result, 8, 1, 0);
+    assertNumberIssuesOnFile(result, "HelloJava.xoo", 0);
+  }
+
   private static void assertNumberIssuesOnFile(TaskResult result, final String fileNameEndsWith, int issues) {
     assertThat(result.trackedIssues()).haveExactly(issues, new Condition<TrackedIssue>() {
       @Override
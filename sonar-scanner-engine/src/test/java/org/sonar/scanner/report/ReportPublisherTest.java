@@ -41,6 +41,7 @@ import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.config.CorePropertyDefinitions;
 import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.scanner.protocol.output.ScannerReport.Metadata.ReportFormat;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
 
 import static org.apache.commons.io.FileUtils.readFileToString;
@@ -161,4 +162,36 @@ public class ReportPublisherTest {
     assertThat(reportDir).doesNotExist();
   }
 
+  @Test
+  public void report_is_written_in_files_by_default() {
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+
+    underTest.start();
+
+    assertThat(underTest.getWriter().getFormat()).isEqualTo(ReportFormat.FILES);
+    underTest.stop();
+  }
+
+  @Test
+  public void report_is_written_in_segmented_file_if_property_is_set() {
+    settings.setProperty(ReportPublisher.REPORT_FORMAT_PROP_KEY, "segmented");
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+
+    underTest.start();
+
+    assertThat(underTest.getWriter().getFormat()).isEqualTo(ReportFormat.SEGMENTED);
+    underTest.stop();
+  }
+
+  @Test
+  public void fail_if_report_format_is_invalid() {
+    settings.setProperty(ReportPublisher.REPORT_FORMAT_PROP_KEY, "zip");
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+
+    exception.expect(MessageException.class);
+    exception.expectMessage("Invalid value of property sonar.batch.reportFormat: 'zip'");
+
+    underTest.start();
+  }
+
 }
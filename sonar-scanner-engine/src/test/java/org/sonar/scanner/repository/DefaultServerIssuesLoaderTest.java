@@ -32,6 +32,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -73,6 +75,34 @@ public class DefaultServerIssuesLoaderTest {
     assertThat(result).extracting("key").containsExactly("ab1", "ab2");
   }
 
+  @Test
+  public void loadIssuesOfFilesFromWs() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ServerIssue.newBuilder().setKey("ab1").build()
+      .writeDelimitedTo(bos);
+
+    InputStream is = new ByteArrayInputStream(bos.toByteArray());
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo&files=foo%3Aa.xoo&files=foo%3Ab%2Cc.xoo", is);
+
+    final List<ServerIssue> result = new ArrayList<>();
+    loader.load("foo", Arrays.asList("foo:a.xoo", "foo:b,c.xoo"), new Function<ScannerInput.ServerIssue, Void>() {
+
+      @Override
+      public Void apply(ServerIssue input) {
+        result.add(input);
+        return null;
+      }
+    });
+
+    assertThat(result).extracting("key").containsExactly("ab1");
+  }
+
+  @Test
+  public void encodeFileKeys() {
+    assertThat(DefaultServerIssuesLoader.encodeFileKeys(Arrays.asList("foo:a,b.xoo", "foo:c d.xoo"))).isEqualTo("&files=foo%3Aa%2Cb.xoo&files=foo%3Ac+d.xoo");
+    assertThat(DefaultServerIssuesLoader.encodeFileKeys(Collections.<String>emptyList())).isEqualTo("&files=");
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testError() throws IOException {
     InputStream is = mock(InputStream.class);
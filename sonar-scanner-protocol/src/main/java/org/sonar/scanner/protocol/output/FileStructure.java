@@ -71,6 +71,14 @@ public class FileStructure {
     return new File(dir, "activerules.pb");
   }
 
+  /**
+   * Data of all components when report has format {@link ScannerReport.Metadata.ReportFormat#SEGMENTED}.
+   * @see SegmentedReportFile
+   */
+  public File segmentsFile() {
+    return new File(dir, "report.seg");
+  }
+
   public File fileFor(Domain domain, int componentRef) {
     return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
   }
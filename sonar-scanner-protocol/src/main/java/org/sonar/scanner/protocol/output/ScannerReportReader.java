@@ -19,16 +19,31 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
 import javax.annotation.CheckForNull;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.output.ScannerReport.Metadata.ReportFormat;
 
 import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
 
-public class ScannerReportReader {
+/**
+ * Reads reports of any {@link ReportFormat}. The format is given by the metadata of the report.
+ */
+public class ScannerReportReader implements Closeable {
 
   private final FileStructure fileStructure;
+  // lazily loaded from metadata
+  private ReportFormat format;
+  @CheckForNull
+  private SegmentedReportFile.Reader segments;
 
   public ScannerReportReader(File dir) {
     this.fileStructure = new FileStructure(dir);
@@ -42,6 +57,17 @@ public class ScannerReportReader {
     return Protobuf.read(file, ScannerReport.Metadata.parser());
   }
 
+  public synchronized ReportFormat getFormat() {
+    if (format == null) {
+      File file = fileStructure.metadataFile();
+      format = fileExists(file) ? readMetadata().getReportFormat() : ReportFormat.FILES;
+      if (format == ReportFormat.SEGMENTED) {
+        segments = new SegmentedReportFile.Reader(fileStructure.segmentsFile());
+      }
+    }
+    return format;
+  }
+
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
     File file = fileStructure.activeRules();
     if (!fileExists(file)) {
@@ -51,115 +77,101 @@ public class ScannerReportReader {
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.MEASURES, componentRef, ScannerReport.Measure.parser());
   }
 
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
-    }
-    return null;
+    return read(FileStructure.Domain.CHANGESETS, componentRef, ScannerReport.Changesets.parser());
   }
 
   public ScannerReport.Component readComponent(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
-    if (!fileExists(file)) {
-      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
+    ScannerReport.Component component = read(FileStructure.Domain.COMPONENT, componentRef, ScannerReport.Component.parser());
+    if (component == null) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". " + describeMissing(FileStructure.Domain.COMPONENT, componentRef));
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return component;
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.ISSUES, componentRef, ScannerReport.Issue.parser());
   }
 
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.DUPLICATIONS, componentRef, ScannerReport.Duplication.parser());
   }
 
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, ScannerReport.CpdTextBlock.parser());
   }
 
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.SYMBOLS, componentRef, ScannerReport.Symbol.parser());
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
   }
 
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef, ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   public boolean hasCoverage(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.COVERAGES, componentRef);
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.COVERAGES, fileRef, ScannerReport.LineCoverage.parser());
   }
 
+  /**
+   * Only available with {@link ReportFormat#FILES}. Use {@link #openFileSource(int)} to support all formats.
+   */
   @CheckForNull
   public File readFileSource(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, fileRef);
-    if (fileExists(file)) {
-      return file;
-    }
-    return null;
+    return readFile(FileStructure.Domain.SOURCE, fileRef);
   }
 
+  /**
+   * Stream on the UTF-8 source of the file, or {@code null} if the report does not contain it. It must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openFileSource(int fileRef) {
+    return open(FileStructure.Domain.SOURCE, fileRef);
+  }
+
+  /**
+   * Only available with {@link ReportFormat#FILES}. Use {@link #openTests(int)} to support all formats.
+   */
   @CheckForNull
   public File readTests(int testFileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.TESTS, testFileRef);
-    if (fileExists(file)) {
-      return file;
-    }
+    return readFile(FileStructure.Domain.TESTS, testFileRef);
+  }
 
-    return null;
+  /**
+   * Stream of delimited {@link ScannerReport.Test}, or {@code null} if the report does not contain any. It must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openTests(int testFileRef) {
+    return open(FileStructure.Domain.TESTS, testFileRef);
   }
 
+  /**
+   * Only available with {@link ReportFormat#FILES}. Use {@link #openCoverageDetails(int)} to support all formats.
+   */
   @CheckForNull
   public File readCoverageDetails(int testFileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
-    if (fileExists(file)) {
-      return file;
-    }
+    return readFile(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
+  }
 
-    return null;
+  /**
+   * Stream of delimited {@link ScannerReport.CoverageDetail}, or {@code null} if the report does not contain any.
+   * It must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openCoverageDetails(int testFileRef) {
+    return open(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
   }
 
   public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
@@ -170,6 +182,85 @@ public class ScannerReportReader {
     return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
   }
 
+  /**
+   * Releases the segmented file, if any.
+   */
+  @Override
+  public synchronized void close() {
+    if (segments != null) {
+      segments.close();
+      segments = null;
+      format = null;
+    }
+  }
+
+  private boolean hasComponentData(FileStructure.Domain domain, int componentRef) {
+    if (getFormat() == ReportFormat.SEGMENTED) {
+      return segments.hasSegment(domain, componentRef);
+    }
+    return fileStructure.fileFor(domain, componentRef).exists();
+  }
+
+  @CheckForNull
+  private InputStream open(FileStructure.Domain domain, int componentRef) {
+    if (getFormat() == ReportFormat.SEGMENTED) {
+      return segments.openSegment(domain, componentRef);
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (!fileExists(file)) {
+      return null;
+    }
+    try {
+      return new BufferedInputStream(new FileInputStream(file));
+    } catch (FileNotFoundException e) {
+      throw new IllegalStateException("Unable to open file " + file, e);
+    }
+  }
+
+  @CheckForNull
+  private <MSG extends Message> MSG read(FileStructure.Domain domain, int componentRef, Parser<MSG> parser) {
+    if (getFormat() == ReportFormat.SEGMENTED) {
+      InputStream input = segments.openSegment(domain, componentRef);
+      return input == null ? null : Protobuf.read(input, parser);
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (fileExists(file)) {
+      return Protobuf.read(file, parser);
+    }
+    return null;
+  }
+
+  private <MSG extends Message> CloseableIterator<MSG> readStream(FileStructure.Domain domain, int componentRef, Parser<MSG> parser) {
+    if (getFormat() == ReportFormat.SEGMENTED) {
+      InputStream input = segments.openSegment(domain, componentRef);
+      return input == null ? CloseableIterator.<MSG>emptyCloseableIterator() : Protobuf.readStream(input, parser);
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (fileExists(file)) {
+      return Protobuf.readStream(file, parser);
+    }
+    return emptyCloseableIterator();
+  }
+
+  @CheckForNull
+  private File readFile(FileStructure.Domain domain, int componentRef) {
+    if (getFormat() == ReportFormat.SEGMENTED) {
+      throw new IllegalStateException("Files of domain " + domain + " are not available with report format " + ReportFormat.SEGMENTED);
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (fileExists(file)) {
+      return file;
+    }
+    return null;
+  }
+
+  private String describeMissing(FileStructure.Domain domain, int componentRef) {
+    if (getFormat() == ReportFormat.SEGMENTED) {
+      return "Segment does not exist in " + fileStructure.segmentsFile();
+    }
+    return "File does not exist: " + fileStructure.fileFor(domain, componentRef);
+  }
+
   private static boolean fileExists(File file) {
     return file.exists() && file.isFile();
   }
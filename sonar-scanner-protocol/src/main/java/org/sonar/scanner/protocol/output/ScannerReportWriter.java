@@ -19,38 +19,67 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import javax.annotation.CheckForNull;
 import org.sonar.core.util.ContextException;
 import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.output.ScannerReport.Metadata.ReportFormat;
 
-public class ScannerReportWriter {
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Writes the report in the format specified at creation. Metadata, active rules, context properties and analysis log
+ * are always written in dedicated files. With {@link ReportFormat#SEGMENTED}, data of components is appended to
+ * {@link FileStructure#segmentsFile()}, which is completed when the writer is closed.
+ */
+public class ScannerReportWriter implements Closeable {
 
   private final FileStructure fileStructure;
+  private final ReportFormat format;
+  @CheckForNull
+  private final SegmentedReportFile.Writer segments;
 
   public ScannerReportWriter(File dir) {
+    this(dir, ReportFormat.FILES);
+  }
+
+  public ScannerReportWriter(File dir, ReportFormat format) {
     if (!dir.exists() && !dir.mkdirs()) {
       throw new IllegalStateException("Unable to create directory: " + dir);
     }
     this.fileStructure = new FileStructure(dir);
+    this.format = format;
+    this.segments = format == ReportFormat.SEGMENTED ? new SegmentedReportFile.Writer(fileStructure.segmentsFile()) : null;
   }
 
   public FileStructure getFileStructure() {
     return fileStructure;
   }
 
+  public ReportFormat getFormat() {
+    return format;
+  }
+
   public boolean hasComponentData(FileStructure.Domain domain, int componentRef) {
+    if (segments != null) {
+      return segments.hasSegment(domain, componentRef);
+    }
     File file = fileStructure.fileFor(domain, componentRef);
     return file.exists() && file.isFile();
   }
 
   /**
-   * Metadata is mandatory
+   * Metadata is mandatory. The format of the report is set by this writer.
    */
   public File writeMetadata(ScannerReport.Metadata metadata) {
-    Protobuf.write(metadata, fileStructure.metadataFile());
+    Protobuf.write(metadata.toBuilder().setReportFormat(format).build(), fileStructure.metadataFile());
     return fileStructure.metadataFile();
   }
 
@@ -60,18 +89,22 @@ public class ScannerReportWriter {
   }
 
   public File writeComponent(ScannerReport.Component component) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, component.getRef());
-    Protobuf.write(component, file);
-    return file;
+    return write(FileStructure.Domain.COMPONENT, component.getRef(), component);
   }
 
   public File writeComponentIssues(int componentRef, Iterable<ScannerReport.Issue> issues) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    Protobuf.writeStream(issues, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.ISSUES, componentRef, issues);
   }
 
   public void appendComponentIssue(int componentRef, ScannerReport.Issue issue) {
+    if (segments != null) {
+      try (OutputStream out = segments.appendSegment(FileStructure.Domain.ISSUES, componentRef)) {
+        issue.writeDelimitedTo(out);
+      } catch (Exception e) {
+        throw ContextException.of("Unable to write issue", e).addContext("file", segments.getFile());
+      }
+      return;
+    }
     File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
     try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
       issue.writeDelimitedTo(out);
@@ -81,57 +114,39 @@ public class ScannerReportWriter {
   }
 
   public File writeComponentMeasures(int componentRef, Iterable<ScannerReport.Measure> measures) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    Protobuf.writeStream(measures, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.MEASURES, componentRef, measures);
   }
 
   public File writeComponentChangesets(ScannerReport.Changesets changesets) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, changesets.getComponentRef());
-    Protobuf.write(changesets, file);
-    return file;
+    return write(FileStructure.Domain.CHANGESETS, changesets.getComponentRef(), changesets);
   }
 
   public File writeComponentDuplications(int componentRef, Iterable<ScannerReport.Duplication> duplications) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    Protobuf.writeStream(duplications, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.DUPLICATIONS, componentRef, duplications);
   }
 
   public File writeCpdTextBlocks(int componentRef, Iterable<ScannerReport.CpdTextBlock> blocks) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    Protobuf.writeStream(blocks, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, blocks);
   }
 
   public File writeComponentSymbols(int componentRef, Iterable<ScannerReport.Symbol> symbols) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    Protobuf.writeStream(symbols, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.SYMBOLS, componentRef, symbols);
   }
 
   public File writeComponentSyntaxHighlighting(int componentRef, Iterable<ScannerReport.SyntaxHighlightingRule> syntaxHighlightingRules) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    Protobuf.writeStream(syntaxHighlightingRules, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef, syntaxHighlightingRules);
   }
 
   public File writeComponentCoverage(int componentRef, Iterable<ScannerReport.LineCoverage> coverageList) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    Protobuf.writeStream(coverageList, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.COVERAGES, componentRef, coverageList);
   }
 
   public File writeTests(int componentRef, Iterable<ScannerReport.Test> tests) {
-    File file = fileStructure.fileFor(FileStructure.Domain.TESTS, componentRef);
-    Protobuf.writeStream(tests, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.TESTS, componentRef, tests);
   }
 
   public File writeCoverageDetails(int componentRef, Iterable<ScannerReport.CoverageDetail> tests) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGE_DETAILS, componentRef);
-    Protobuf.writeStream(tests, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.COVERAGE_DETAILS, componentRef, tests);
   }
 
   public File writeContextProperties(Iterable<ScannerReport.ContextProperty> properties) {
@@ -140,8 +155,65 @@ public class ScannerReportWriter {
     return file;
   }
 
+  /**
+   * Only available with {@link ReportFormat#FILES}. Use {@link #openSourceOutput(int)} to support all formats.
+   */
   public File getSourceFile(int componentRef) {
+    checkState(segments == null, "Source files are not available with report format %s", format);
     return fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
   }
 
+  /**
+   * Stream to write the UTF-8 source of a file. It must be closed by caller.
+   */
+  public OutputStream openSourceOutput(int componentRef) {
+    if (segments != null) {
+      return segments.openSegment(FileStructure.Domain.SOURCE, componentRef);
+    }
+    File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
+    try {
+      return new FileOutputStream(file);
+    } catch (FileNotFoundException e) {
+      throw new IllegalStateException("Unable to create file " + file, e);
+    }
+  }
+
+  /**
+   * Completes the report. Has no effect with {@link ReportFormat#FILES}.
+   */
+  @Override
+  public void close() {
+    if (segments != null) {
+      segments.close();
+    }
+  }
+
+  private File write(FileStructure.Domain domain, int componentRef, Message message) {
+    if (segments != null) {
+      try (OutputStream out = segments.openSegment(domain, componentRef)) {
+        message.writeTo(out);
+      } catch (IOException e) {
+        throw ContextException.of("Unable to write message", e).addContext("file", segments.getFile());
+      }
+      return segments.getFile();
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    Protobuf.write(message, file);
+    return file;
+  }
+
+  private <MSG extends Message> File writeStream(FileStructure.Domain domain, int componentRef, Iterable<MSG> messages) {
+    if (segments != null) {
+      try (OutputStream out = segments.openSegment(domain, componentRef)) {
+        Protobuf.writeStream(messages, out);
+      } catch (IOException e) {
+        throw ContextException.of("Unable to write messages", e).addContext("file", segments.getFile());
+      }
+      return segments.getFile();
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    Protobuf.writeStream(messages, file, false);
+    return file;
+  }
+
 }
@@ -0,0 +1,393 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Single append-only file storing the data of all components of the report, as an alternative to one file
+ * per component and per {@link FileStructure.Domain}.
+ * <p>
+ * Data of a component and domain is a segment, made of one or more chunks of bytes appended to the file. The offset
+ * index of chunks is written at the end of the file on {@link Writer#close()}, followed by its position, so that
+ * segments can be read with random access without loading the whole file.
+ * </p>
+ * <pre>
+ *   header:  magic (int), version (int)
+ *   chunks:  bytes
+ *   index:   number of domains (int), then for each domain:
+ *              name (UTF), number of segments (int), then for each segment:
+ *                component ref (int), number of chunks (int), then for each chunk: offset (long), length (int)
+ *   trailer: offset of index (long), magic (int)
+ * </pre>
+ */
+public final class SegmentedReportFile {
+
+  private static final int MAGIC = 0x53515253;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final int TRAILER_SIZE = 12;
+
+  private SegmentedReportFile() {
+    // only statics
+  }
+
+  /**
+   * Appends segments to the file. Only one segment can be written at a time.
+   */
+  public static class Writer implements Closeable {
+    private final File file;
+    private final DataOutputStream output;
+    private final Map<FileStructure.Domain, Map<Integer, List<Chunk>>> index = new EnumMap<>(FileStructure.Domain.class);
+    private long position;
+    private boolean segmentOpened = false;
+    private boolean closed = false;
+
+    public Writer(File file) {
+      this.file = file;
+      try {
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        this.position = HEADER_SIZE;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to create segmented report file " + file, e);
+      }
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    public synchronized boolean hasSegment(FileStructure.Domain domain, int componentRef) {
+      Map<Integer, List<Chunk>> segments = index.get(domain);
+      return segments != null && segments.containsKey(componentRef);
+    }
+
+    /**
+     * Opens a stream writing the segment of the specified component and domain. Previous content of the segment,
+     * if any, is replaced when the stream is closed.
+     */
+    public OutputStream openSegment(FileStructure.Domain domain, int componentRef) {
+      return open(domain, componentRef, false);
+    }
+
+    /**
+     * Opens a stream appending a chunk to the segment of the specified component and domain. The chunk is
+     * registered in the index when the stream is closed.
+     */
+    public OutputStream appendSegment(FileStructure.Domain domain, int componentRef) {
+      return open(domain, componentRef, true);
+    }
+
+    private synchronized OutputStream open(FileStructure.Domain domain, int componentRef, boolean append) {
+      checkState(!closed, "Segmented report file is closed: %s", file);
+      checkState(!segmentOpened, "Another segment is being written to %s", file);
+      segmentOpened = true;
+      return new SegmentOutputStream(domain, componentRef, position, append);
+    }
+
+    private synchronized void write(byte[] bytes, int off, int len) throws IOException {
+      output.write(bytes, off, len);
+      position += len;
+    }
+
+    private synchronized void write(int b) throws IOException {
+      output.write(b);
+      position++;
+    }
+
+    private synchronized void closeSegment(FileStructure.Domain domain, int componentRef, long offset, boolean append) {
+      Map<Integer, List<Chunk>> segments = index.get(domain);
+      if (segments == null) {
+        segments = new HashMap<>();
+        index.put(domain, segments);
+      }
+      List<Chunk> chunks = segments.get(componentRef);
+      if (chunks == null) {
+        chunks = new ArrayList<>(1);
+        segments.put(componentRef, chunks);
+      } else if (!append) {
+        // replaced bytes are left unreferenced in the file
+        chunks.clear();
+      }
+      chunks.add(new Chunk(offset, (int) (position - offset)));
+      segmentOpened = false;
+    }
+
+    /**
+     * Writes the index. Segments can not be added anymore. Calling this method several times has no effect.
+     */
+    @Override
+    public synchronized void close() {
+      if (closed) {
+        return;
+      }
+      checkState(!segmentOpened, "A segment is still being written to %s", file);
+      closed = true;
+      try {
+        long indexOffset = position;
+        output.writeInt(index.size());
+        for (Map.Entry<FileStructure.Domain, Map<Integer, List<Chunk>>> domainEntry : index.entrySet()) {
+          output.writeUTF(domainEntry.getKey().name());
+          output.writeInt(domainEntry.getValue().size());
+          for (Map.Entry<Integer, List<Chunk>> segmentEntry : domainEntry.getValue().entrySet()) {
+            output.writeInt(segmentEntry.getKey());
+            output.writeInt(segmentEntry.getValue().size());
+            for (Chunk chunk : segmentEntry.getValue()) {
+              output.writeLong(chunk.offset);
+              output.writeInt(chunk.length);
+            }
+          }
+        }
+        output.writeLong(indexOffset);
+        output.writeInt(MAGIC);
+        output.close();
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to write index of segmented report file " + file, e);
+      }
+    }
+
+    private class SegmentOutputStream extends OutputStream {
+      private final FileStructure.Domain domain;
+      private final int componentRef;
+      private final long offset;
+      private final boolean append;
+      private boolean segmentClosed = false;
+
+      private SegmentOutputStream(FileStructure.Domain domain, int componentRef, long offset, boolean append) {
+        this.domain = domain;
+        this.componentRef = componentRef;
+        this.offset = offset;
+        this.append = append;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        checkState(!segmentClosed, "Segment is closed");
+        Writer.this.write(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        checkState(!segmentClosed, "Segment is closed");
+        Writer.this.write(b, off, len);
+      }
+
+      @Override
+      public void close() {
+        if (!segmentClosed) {
+          segmentClosed = true;
+          closeSegment(domain, componentRef, offset, append);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads segments of a file created by {@link Writer}. Segments can be read concurrently.
+   */
+  public static class Reader implements Closeable {
+    private final File file;
+    private final FileChannel channel;
+    private final Map<FileStructure.Domain, Map<Integer, Chunk[]>> index = new EnumMap<>(FileStructure.Domain.class);
+
+    public Reader(File file) {
+      this.file = file;
+      try {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to open segmented report file " + file, e);
+      }
+      try {
+        readIndex();
+      } catch (IOException | RuntimeException e) {
+        closeQuietly();
+        throw new IllegalStateException("Fail to read index of segmented report file " + file, e);
+      }
+    }
+
+    private void readIndex() throws IOException {
+      long size = channel.size();
+      checkState(size >= HEADER_SIZE + TRAILER_SIZE, "File is too small");
+      ByteBuffer header = readFully(0L, HEADER_SIZE);
+      checkState(header.getInt() == MAGIC, "Not a segmented report file");
+      int version = header.getInt();
+      checkState(version == VERSION, "Unsupported version %s", version);
+      ByteBuffer trailer = readFully(size - TRAILER_SIZE, TRAILER_SIZE);
+      long indexOffset = trailer.getLong();
+      checkState(trailer.getInt() == MAGIC, "Index is missing, file has not been closed properly");
+
+      try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+        new ChunksInputStream(channel, new Chunk[] {new Chunk(indexOffset, (int) (size - TRAILER_SIZE - indexOffset))})))) {
+        int domainCount = input.readInt();
+        for (int i = 0; i < domainCount; i++) {
+          FileStructure.Domain domain = FileStructure.Domain.valueOf(input.readUTF());
+          int segmentCount = input.readInt();
+          Map<Integer, Chunk[]> segments = new HashMap<>(segmentCount * 4 / 3 + 1);
+          for (int j = 0; j < segmentCount; j++) {
+            int componentRef = input.readInt();
+            Chunk[] chunks = new Chunk[input.readInt()];
+            for (int k = 0; k < chunks.length; k++) {
+              chunks[k] = new Chunk(input.readLong(), input.readInt());
+            }
+            segments.put(componentRef, chunks);
+          }
+          index.put(domain, segments);
+        }
+      }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new EOFException();
+        }
+      }
+      buffer.flip();
+      return buffer;
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    public boolean hasSegment(FileStructure.Domain domain, int componentRef) {
+      return getChunks(domain, componentRef) != null;
+    }
+
+    /**
+     * Returns a stream on the content of the segment, or {@code null} if the segment does not exist.
+     */
+    @CheckForNull
+    public InputStream openSegment(FileStructure.Domain domain, int componentRef) {
+      Chunk[] chunks = getChunks(domain, componentRef);
+      if (chunks == null) {
+        return null;
+      }
+      return new BufferedInputStream(new ChunksInputStream(channel, chunks));
+    }
+
+    @CheckForNull
+    private Chunk[] getChunks(FileStructure.Domain domain, int componentRef) {
+      Map<Integer, Chunk[]> segments = index.get(domain);
+      return segments == null ? null : segments.get(componentRef);
+    }
+
+    @Override
+    public void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to close segmented report file " + file, e);
+      }
+    }
+
+    private void closeQuietly() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // ignored
+      }
+    }
+  }
+
+  private static final class Chunk {
+    private final long offset;
+    private final int length;
+
+    private Chunk(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Reads a sequence of chunks with positional reads, so that the channel can be shared by several streams.
+   * Closing the stream does not close the channel.
+   */
+  private static class ChunksInputStream extends InputStream {
+    private final FileChannel channel;
+    private final Chunk[] chunks;
+    private int chunkIndex = 0;
+    private long chunkRead = 0;
+
+    private ChunksInputStream(FileChannel channel, Chunk[] chunks) {
+      this.channel = channel;
+      this.chunks = chunks;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int read = read(b, 0, 1);
+      return read < 0 ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      while (chunkIndex < chunks.length && chunkRead == chunks[chunkIndex].length) {
+        chunkIndex++;
+        chunkRead = 0;
+      }
+      if (chunkIndex == chunks.length) {
+        return -1;
+      }
+      Chunk chunk = chunks[chunkIndex];
+      int toRead = (int) Math.min(len, chunk.length - chunkRead);
+      int read = channel.read(ByteBuffer.wrap(b, off, toRead), chunk.offset + chunkRead);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of segmented report file");
+      }
+      chunkRead += read;
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return chunkIndex < chunks.length ? (int) (chunks[chunkIndex].length - chunkRead) : 0;
+    }
+  }
+}
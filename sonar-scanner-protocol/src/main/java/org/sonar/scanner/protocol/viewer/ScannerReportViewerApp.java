@@ -31,7 +31,6 @@ import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.sql.Date;
 import java.text.SimpleDateFormat;
-import java.util.Scanner;
 
 import javax.annotation.CheckForNull;
 import javax.swing.JEditorPane;
@@ -52,9 +51,9 @@ import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeSelectionModel;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.core.util.CloseableIterator;
-import org.sonar.scanner.protocol.output.FileStructure.Domain;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Component;
 import org.sonar.scanner.protocol.output.ScannerReport.Issue;
@@ -279,11 +278,11 @@ public class ScannerReportViewerApp {
   
   private void updateTests(Component component) {
     testsEditor.setText("");
-    File tests = reader.readTests(component.getRef());
+    InputStream tests = reader.openTests(component.getRef());
     if(tests == null) {
       return;
     }
-    try (InputStream inputStream = FileUtils.openInputStream(tests)) {
+    try (InputStream inputStream = tests) {
       ScannerReport.Test test = ScannerReport.Test.parser().parseDelimitedFrom(inputStream);
       while (test != null) {
         testsEditor.getDocument().insertString(testsEditor.getDocument().getEndPosition().getOffset(), test.toString() + "\n", null);
@@ -295,14 +294,12 @@ public class ScannerReportViewerApp {
   }
 
   private void updateSource(Component component) {
-    File sourceFile = reader.getFileStructure().fileFor(Domain.SOURCE, component.getRef());
+    InputStream source = reader.openFileSource(component.getRef());
     sourceEditor.setText("");
 
-    if (sourceFile.exists()) {
-      try (Scanner s = new Scanner(sourceFile, StandardCharsets.UTF_8.name()).useDelimiter("\\Z")) {
-        if (s.hasNext()) {
-          sourceEditor.setText(s.next());
-        }
+    if (source != null) {
+      try (InputStream inputStream = source) {
+        sourceEditor.setText(IOUtils.toString(inputStream, StandardCharsets.UTF_8));
       } catch (IOException ex) {
         StringWriter errors = new StringWriter();
         ex.printStackTrace(new PrintWriter(errors));
@@ -23,11 +23,14 @@ import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport.Measure.StringValue;
@@ -44,6 +47,8 @@ public class ScannerReportReaderTest {
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
 
   File dir;
 
@@ -377,4 +382,53 @@ public class ScannerReportReaderTest {
   public void return_null_when_no_file_source() throws Exception {
     assertThat(underTest.readFileSource(UNKNOWN_COMPONENT_REF)).isNull();
   }
+
+  @Test
+  public void read_segmented_report() throws Exception {
+    try (ScannerReportWriter writer = new ScannerReportWriter(dir, ScannerReport.Metadata.ReportFormat.SEGMENTED)) {
+      writer.writeMetadata(ScannerReport.Metadata.newBuilder().setRootComponentRef(1).build());
+      writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).setPath("src/main/java/Foo.java").build());
+      writer.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("first").build());
+      writer.writeComponentMeasures(1, asList(ScannerReport.Measure.newBuilder().setStringValue(StringValue.newBuilder().setValue("value_a")).build()));
+      writer.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("second").build());
+      try (OutputStream output = writer.openSourceOutput(1)) {
+        IOUtils.write("line1\nline2", output, StandardCharsets.UTF_8);
+      }
+    }
+
+    assertThat(dir.list()).containsOnly("metadata.pb", "report.seg");
+    assertThat(underTest.getFormat()).isEqualTo(ScannerReport.Metadata.ReportFormat.SEGMENTED);
+    assertThat(underTest.readComponent(1).getPath()).isEqualTo("src/main/java/Foo.java");
+    assertThat(underTest.readComponentIssues(1)).extracting("msg").containsExactly("first", "second");
+    assertThat(underTest.readComponentMeasures(1)).hasSize(1);
+    assertThat(underTest.readComponentIssues(2)).isEmpty();
+    assertThat(underTest.readChangesets(1)).isNull();
+    try (InputStream inputStream = underTest.openFileSource(1)) {
+      assertThat(IOUtils.readLines(inputStream, StandardCharsets.UTF_8)).containsExactly("line1", "line2");
+    }
+    assertThat(underTest.openFileSource(2)).isNull();
+    underTest.close();
+  }
+
+  @Test
+  public void report_without_format_in_metadata_is_read_from_files() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setRootComponentRef(1).build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).setPath("src/main/java/Foo.java").build());
+
+    assertThat(underTest.getFormat()).isEqualTo(ScannerReport.Metadata.ReportFormat.FILES);
+    assertThat(underTest.readComponent(1).getPath()).isEqualTo("src/main/java/Foo.java");
+  }
+
+  @Test
+  public void files_are_not_available_in_segmented_report() {
+    try (ScannerReportWriter writer = new ScannerReportWriter(dir, ScannerReport.Metadata.ReportFormat.SEGMENTED)) {
+      writer.writeMetadata(ScannerReport.Metadata.newBuilder().build());
+    }
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Files of domain TESTS are not available with report format SEGMENTED");
+
+    underTest.readTests(1);
+  }
 }
@@ -68,6 +68,30 @@ public class ScannerReportWriterTest {
     assertThat(read.getAnalysisDate()).isEqualTo(15000000L);
     assertThat(read.getProjectKey()).isEqualTo("PROJECT_A");
     assertThat(read.getRootComponentRef()).isEqualTo(1);
+    assertThat(read.getReportFormat()).isEqualTo(ScannerReport.Metadata.ReportFormat.FILES);
+  }
+
+  @Test
+  public void write_format_of_segmented_report_in_metadata() {
+    underTest = new ScannerReportWriter(dir, ScannerReport.Metadata.ReportFormat.SEGMENTED);
+    underTest.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("PROJECT_A").build());
+    underTest.close();
+
+    ScannerReport.Metadata read = Protobuf.read(underTest.getFileStructure().metadataFile(), ScannerReport.Metadata.parser());
+    assertThat(read.getReportFormat()).isEqualTo(ScannerReport.Metadata.ReportFormat.SEGMENTED);
+    assertThat(underTest.getFileStructure().segmentsFile()).isFile();
+  }
+
+  @Test
+  public void segmented_report_has_component_data_once_written() {
+    underTest = new ScannerReportWriter(dir, ScannerReport.Metadata.ReportFormat.SEGMENTED);
+    assertThat(underTest.hasComponentData(FileStructure.Domain.SYMBOLS, 1)).isFalse();
+
+    underTest.writeComponentSymbols(1, asList(ScannerReport.Symbol.newBuilder().build()));
+
+    assertThat(underTest.hasComponentData(FileStructure.Domain.SYMBOLS, 1)).isTrue();
+    assertThat(underTest.getFileStructure().fileFor(FileStructure.Domain.SYMBOLS, 1)).doesNotExist();
+    underTest.close();
   }
 
   @Test
@@ -0,0 +1,154 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SegmentedReportFileTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void read_segments_written_in_any_order() throws Exception {
+    File file = temp.newFile();
+    SegmentedReportFile.Writer writer = new SegmentedReportFile.Writer(file);
+    write(writer.openSegment(FileStructure.Domain.SOURCE, 2), "source of 2");
+    write(writer.openSegment(FileStructure.Domain.SOURCE, 1), "source of 1");
+    write(writer.openSegment(FileStructure.Domain.ISSUES, 1), "issues of 1");
+    writer.close();
+
+    try (SegmentedReportFile.Reader reader = new SegmentedReportFile.Reader(file)) {
+      assertThat(read(reader, FileStructure.Domain.SOURCE, 1)).isEqualTo("source of 1");
+      assertThat(read(reader, FileStructure.Domain.SOURCE, 2)).isEqualTo("source of 2");
+      assertThat(read(reader, FileStructure.Domain.ISSUES, 1)).isEqualTo("issues of 1");
+      assertThat(reader.hasSegment(FileStructure.Domain.ISSUES, 2)).isFalse();
+      assertThat(reader.openSegment(FileStructure.Domain.ISSUES, 2)).isNull();
+      assertThat(reader.hasSegment(FileStructure.Domain.MEASURES, 1)).isFalse();
+    }
+  }
+
+  @Test
+  public void appended_chunks_are_read_as_a_single_segment() throws Exception {
+    File file = temp.newFile();
+    SegmentedReportFile.Writer writer = new SegmentedReportFile.Writer(file);
+    write(writer.appendSegment(FileStructure.Domain.ISSUES, 1), "first");
+    write(writer.openSegment(FileStructure.Domain.SOURCE, 1), "source");
+    write(writer.appendSegment(FileStructure.Domain.ISSUES, 1), ", second");
+    writer.close();
+
+    try (SegmentedReportFile.Reader reader = new SegmentedReportFile.Reader(file)) {
+      assertThat(read(reader, FileStructure.Domain.ISSUES, 1)).isEqualTo("first, second");
+    }
+  }
+
+  @Test
+  public void openSegment_replaces_previous_content() throws Exception {
+    File file = temp.newFile();
+    SegmentedReportFile.Writer writer = new SegmentedReportFile.Writer(file);
+    write(writer.openSegment(FileStructure.Domain.MEASURES, 1), "old");
+    write(writer.openSegment(FileStructure.Domain.MEASURES, 1), "new");
+    writer.close();
+
+    try (SegmentedReportFile.Reader reader = new SegmentedReportFile.Reader(file)) {
+      assertThat(read(reader, FileStructure.Domain.MEASURES, 1)).isEqualTo("new");
+    }
+  }
+
+  @Test
+  public void empty_segment_exists() throws Exception {
+    File file = temp.newFile();
+    SegmentedReportFile.Writer writer = new SegmentedReportFile.Writer(file);
+    assertThat(writer.hasSegment(FileStructure.Domain.SYMBOLS, 1)).isFalse();
+    writer.openSegment(FileStructure.Domain.SYMBOLS, 1).close();
+    assertThat(writer.hasSegment(FileStructure.Domain.SYMBOLS, 1)).isTrue();
+    writer.close();
+
+    try (SegmentedReportFile.Reader reader = new SegmentedReportFile.Reader(file)) {
+      assertThat(reader.hasSegment(FileStructure.Domain.SYMBOLS, 1)).isTrue();
+      assertThat(read(reader, FileStructure.Domain.SYMBOLS, 1)).isEmpty();
+    }
+  }
+
+  @Test
+  public void segments_can_be_read_in_parallel() throws Exception {
+    File file = temp.newFile();
+    SegmentedReportFile.Writer writer = new SegmentedReportFile.Writer(file);
+    write(writer.openSegment(FileStructure.Domain.SOURCE, 1), "abcdef");
+    write(writer.openSegment(FileStructure.Domain.SOURCE, 2), "ghijkl");
+    writer.close();
+
+    try (SegmentedReportFile.Reader reader = new SegmentedReportFile.Reader(file);
+      InputStream source1 = reader.openSegment(FileStructure.Domain.SOURCE, 1);
+      InputStream source2 = reader.openSegment(FileStructure.Domain.SOURCE, 2)) {
+      assertThat((char) source1.read()).isEqualTo('a');
+      assertThat((char) source2.read()).isEqualTo('g');
+      assertThat(IOUtils.toString(source1, StandardCharsets.UTF_8)).isEqualTo("bcdef");
+      assertThat(IOUtils.toString(source2, StandardCharsets.UTF_8)).isEqualTo("hijkl");
+    }
+  }
+
+  @Test
+  public void fail_to_open_segment_while_another_one_is_written() throws Exception {
+    SegmentedReportFile.Writer writer = new SegmentedReportFile.Writer(temp.newFile());
+    writer.openSegment(FileStructure.Domain.SOURCE, 1);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Another segment is being written");
+
+    writer.openSegment(FileStructure.Domain.SOURCE, 2);
+  }
+
+  @Test
+  public void fail_to_read_file_which_has_not_been_closed() throws Exception {
+    File file = temp.newFile();
+    FileUtils.writeStringToFile(file, "not a segmented report file, but long enough to contain a header and a trailer");
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to read index of segmented report file");
+
+    new SegmentedReportFile.Reader(file);
+  }
+
+  private static void write(OutputStream output, String content) throws Exception {
+    try (OutputStream out = output) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static String read(SegmentedReportFile.Reader reader, FileStructure.Domain domain, int componentRef) throws Exception {
+    try (InputStream input = reader.openSegment(domain, componentRef)) {
+      return IOUtils.toString(input, StandardCharsets.UTF_8);
+    }
+  }
+}